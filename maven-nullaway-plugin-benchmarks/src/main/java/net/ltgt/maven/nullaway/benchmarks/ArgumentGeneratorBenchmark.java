@@ -0,0 +1,53 @@
+package net.ltgt.maven.nullaway.benchmarks;
+
+import net.ltgt.maven.nullaway.ArgumentGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ArgumentGenerator#generate()} with realistic and huge option lists.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ArgumentGeneratorBenchmark {
+
+    /**
+     * Number of entries in each list option: 10 for a typical module, thousands for generated configurations.
+     */
+    @Param({"10", "5000"})
+    public int size;
+
+    private ArgumentGenerator generator;
+
+    @Setup
+    public void setUp() {
+        generator = Fixtures.generator(size);
+    }
+
+    @Benchmark
+    public List<String> generate() {
+        return generator.generate();
+    }
+
+    @Benchmark
+    public int hashConfiguration() {
+        // Cost of an ArgumentCache lookup key
+        return Fixtures.generator(size).hashCode();
+    }
+}
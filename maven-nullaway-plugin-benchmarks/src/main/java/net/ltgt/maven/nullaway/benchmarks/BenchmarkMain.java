@@ -0,0 +1,32 @@
+package net.ltgt.maven.nullaway.benchmarks;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the benchmarks, writing the results as JSON to {@code jmh-result.json} unless another
+ * result format or file is requested.
+ * <p>
+ * Accepts the same arguments as {@link Main}, e.g. a benchmark name pattern or {@code -prof gc}.
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if (!arguments.contains("-rf")) {
+            arguments.add(0, "-rf");
+            arguments.add(1, "json");
+        }
+        if (!arguments.contains("-rff")) {
+            arguments.add(0, "-rff");
+            arguments.add(1, "jmh-result.json");
+        }
+        Main.main(arguments.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,72 @@
+package net.ltgt.maven.nullaway.benchmarks;
+
+import net.ltgt.maven.nullaway.CompilerConfigInjector;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link CompilerConfigInjector#injectCompilerArgs(List)} on large existing configurations.
+ * <p>
+ * Each invocation injects into a fresh copy of the configuration, so that appending in
+ * non-merge mode doesn't make the configuration grow across invocations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompilerConfigInjectorBenchmark {
+
+    /**
+     * Number of unrelated compiler arguments already configured.
+     */
+    @Param({"10", "1000"})
+    public int existingArgs;
+
+    /**
+     * Number of entries in each NullAway list option.
+     */
+    @Param({"10", "5000"})
+    public int size;
+
+    @Param({"true", "false"})
+    public boolean merge;
+
+    private Xpp3Dom template;
+    private List<String> arguments;
+    private MavenProject project;
+
+    @Setup
+    public void setUp() {
+        template = Fixtures.configuration(Fixtures.project(existingArgs));
+        arguments = Fixtures.generator(size).generate();
+    }
+
+    @Setup(Level.Invocation)
+    public void copyConfiguration() {
+        project = Fixtures.project(new Xpp3Dom(template));
+    }
+
+    @Benchmark
+    public MavenProject inject() throws MojoExecutionException {
+        new CompilerConfigInjector(project, merge).injectCompilerArgs(arguments);
+        return project;
+    }
+}
@@ -0,0 +1,138 @@
+package net.ltgt.maven.nullaway.benchmarks;
+
+import net.ltgt.maven.nullaway.ArgumentGenerator;
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Builds the configurations and projects the benchmarks run against.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * Creates a generator with the given number of entries in each list option.
+     *
+     * @param size the number of packages, classes and annotations per list
+     * @return the generator
+     */
+    static ArgumentGenerator generator(int size) {
+        return new ArgumentGenerator(
+                "ERROR",
+                null,
+                names("com.example.pkg", size),
+                names("com.example.pkg0.generated", size),
+                names("com.example.pkg0.Unannotated", size),
+                names("com.example.pkg0.Init.init", size),
+                names("com.example.Excluded", size),
+                names("com.example.pkg0.ExcludedClass", size),
+                names("com.example.ExcludedField", size),
+                names("com.example.Initializer", size),
+                names("com.example.ExternalInit", size),
+                true,
+                true,
+                true,
+                false,
+                true,
+                true,
+                "com.example.Nullness.castToNonNull",
+                names("com.example.Optional", size),
+                "Suppressed by the NullAway benchmark",
+                true,
+                false,
+                true,
+                names("com.example.Contract", size),
+                names("com.example.Nullable", size),
+                names("com.example.NonNull", size),
+                names("com.example.Generated", size),
+                true,
+                names("com.example.Future", size),
+                names("NullAwayAlias", size));
+    }
+
+    /**
+     * Creates a project whose maven-compiler-plugin already has compiler arguments.
+     *
+     * @param existingArgs the number of unrelated compiler arguments
+     * @return the project
+     */
+    static MavenProject project(int existingArgs) {
+        Xpp3Dom compilerArgs = new Xpp3Dom("compilerArgs");
+        compilerArgs.addChild(arg("-XDcompilePolicy=simple"));
+        compilerArgs.addChild(arg("-Xplugin:ErrorProne -XepDisableWarningsInGeneratedCode"));
+        for (int i = 0; i < existingArgs; i++) {
+            compilerArgs.addChild(arg("-Aoption" + i + "=value" + i));
+        }
+        Xpp3Dom configuration = new Xpp3Dom("configuration");
+        configuration.addChild(compilerArgs);
+        return project(configuration);
+    }
+
+    /**
+     * Creates a project with the given maven-compiler-plugin configuration.
+     *
+     * @param configuration the compiler plugin configuration, which is used as-is
+     * @return the project
+     */
+    static MavenProject project(Xpp3Dom configuration) {
+        Plugin plugin = new Plugin();
+        plugin.setGroupId("org.apache.maven.plugins");
+        plugin.setArtifactId("maven-compiler-plugin");
+        plugin.setConfiguration(configuration);
+        Build build = new Build();
+        build.setPlugins(Collections.singletonList(plugin));
+        Model model = new Model();
+        model.setGroupId("com.example");
+        model.setArtifactId("module");
+        model.setVersion("1.0");
+        model.setBuild(build);
+        return new MavenProject(model);
+    }
+
+    /**
+     * Returns the compiler plugin configuration of a project.
+     *
+     * @param project the project
+     * @return the configuration
+     */
+    static Xpp3Dom configuration(MavenProject project) {
+        return (Xpp3Dom) project.getBuild().getPluginsAsMap()
+                .get("org.apache.maven.plugins:maven-compiler-plugin").getConfiguration();
+    }
+
+    /**
+     * Creates numbered names.
+     *
+     * @param prefix the name prefix
+     * @param size   the number of names
+     * @return the names
+     */
+    static List<String> names(String prefix, int size) {
+        List<String> names = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            names.add(prefix + i);
+        }
+        return names;
+    }
+
+    /**
+     * Creates a compiler argument element.
+     *
+     * @param value the argument
+     * @return the element
+     */
+    private static Xpp3Dom arg(String value) {
+        Xpp3Dom arg = new Xpp3Dom("arg");
+        arg.setValue(value);
+        return arg;
+    }
+}
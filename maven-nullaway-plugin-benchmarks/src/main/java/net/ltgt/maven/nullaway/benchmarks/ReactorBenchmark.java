@@ -0,0 +1,91 @@
+package net.ltgt.maven.nullaway.benchmarks;
+
+import net.ltgt.maven.nullaway.ArgumentCache;
+import net.ltgt.maven.nullaway.CompilerConfigInjector;
+import org.apache.maven.project.MavenProject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates a parallel reactor build ({@code mvn -T}) where every module runs the configure goal.
+ * <p>
+ * Each module looks its arguments up in a session-wide {@link ArgumentCache} and injects them into
+ * its own compiler configuration, like {@code NullAwayMojo} does. Modules share a handful of
+ * distinct configurations, as in a reactor where most modules inherit from a few parents.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReactorBenchmark {
+
+    @Param({"1000"})
+    public int modules;
+
+    @Param({"4"})
+    public int distinctConfigurations;
+
+    @Param({"8"})
+    public int threads;
+
+    private ExecutorService executor;
+    private List<MavenProject> projects;
+
+    @Setup(Level.Trial)
+    public void startExecutor() {
+        executor = Executors.newFixedThreadPool(threads);
+    }
+
+    @Setup(Level.Invocation)
+    public void createReactor() {
+        projects = new ArrayList<>(modules);
+        for (int i = 0; i < modules; i++) {
+            projects.add(Fixtures.project(20));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public long configureReactor() throws Exception {
+        // A new session per build
+        ArgumentCache cache = ArgumentCache.forSession(null);
+        List<Future<?>> futures = new ArrayList<>(modules);
+        for (int i = 0; i < modules; i++) {
+            MavenProject project = projects.get(i);
+            int configuration = i % distinctConfigurations;
+            futures.add(executor.submit(() -> {
+                List<String> arguments = cache.get(Fixtures.generator(10 + configuration));
+                new CompilerConfigInjector(project).injectCompilerArgs(arguments);
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return cache.getMisses();
+    }
+}
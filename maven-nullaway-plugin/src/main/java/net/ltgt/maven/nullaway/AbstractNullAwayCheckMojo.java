@@ -0,0 +1,270 @@
+package net.ltgt.maven.nullaway;
+
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.eclipse.aether.RepositorySystem;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Base class for the goals running NullAway on the main sources of a module without compiling
+ * them, holding how the analysis is set up and how its findings are compared with the baseline.
+ */
+public abstract class AbstractNullAwayCheckMojo extends AbstractNullAwayMojo {
+
+    @Inject
+    private RepositorySystem repositorySystem;
+
+    /**
+     * The baseline file of the module, recorded by the {@code baseline} goal. When it exists, only
+     * findings missing from it are reported as errors or warnings and can fail the build. Only the
+     * analyses of the {@code check} and {@code watch} goals use it: compilations configured by the
+     * {@code configure} goal report all findings.
+     */
+    @Parameter(property = "nullaway.baselineFile", defaultValue = "${project.basedir}/nullaway-baseline.dat")
+    private File baselineFile;
+
+    /**
+     * Creates the request analyzing source files of the module.
+     *
+     * @param arguments      the NullAway arguments
+     * @param sourceFiles    the source files to analyze
+     * @param partial        whether the source files are only part of the module, or analyzed in parts
+     * @param classpath      the compile classpath
+     * @param libraryModels  the inferred models to add to the processor path
+     * @param compilerConfig the maven-compiler-plugin configuration
+     * @return the analysis request
+     * @throws MojoExecutionException if the processor path cannot be resolved
+     */
+    protected AnalysisRequest createRequest(List<String> arguments, List<File> sourceFiles, boolean partial,
+                                            List<File> classpath, List<File> libraryModels,
+                                            CompilerConfigInjector compilerConfig) throws MojoExecutionException {
+        List<String> processorPathCoordinates = CompilerConfigInjector.alignProcessorPath(
+                compilerConfig.findProcessorPathCoordinates(), getManagedProcessorPath());
+        if (processorPathCoordinates.isEmpty()) {
+            throw new MojoExecutionException(
+                    "No annotationProcessorPaths found in the maven-compiler-plugin configuration. " +
+                            "Please add Error Prone and NullAway to annotationProcessorPaths.");
+        }
+        List<File> processorPath;
+        try (PluginEvents.Span ignored = phase("resolveProcessorPath")) {
+            processorPath = new ProcessorPathResolver(
+                    repositorySystem, session.getRepositorySession(), project.getRemoteProjectRepositories())
+                    .resolve(processorPathCoordinates);
+        }
+        if (!libraryModels.isEmpty()) {
+            processorPath = new ArrayList<>(processorPath);
+            processorPath.addAll(libraryModels);
+        }
+
+        AnalysisRequest request = new AnalysisRequest()
+                .setErrorProneArgs(arguments)
+                .setCompilerOptions(getCompilerOptions(compilerConfig))
+                .setSourceFiles(sourceFiles)
+                .setClasspath(classpath)
+                .setProcessorPath(processorPath)
+                .setOutputDirectory(new File(getNullAwayDirectory(), "check"))
+                .setModule(getModuleName());
+
+        if (partial) {
+            // Other sources are resolved from the compiled classes if up to date, from the sources otherwise
+            List<File> moduleClasspath = new ArrayList<>(classpath);
+            File outputDirectory = new File(project.getBuild().getOutputDirectory());
+            if (outputDirectory.isDirectory()) {
+                moduleClasspath.add(0, outputDirectory);
+            }
+            List<File> sourcepath = new ArrayList<>();
+            for (String sourceRoot : project.getCompileSourceRoots()) {
+                sourcepath.add(new File(sourceRoot));
+            }
+            request.setClasspath(moduleClasspath).setSourcepath(sourcepath);
+        }
+        return request;
+    }
+
+    /**
+     * Compares the findings of the analysis with the baseline, if the module has one.
+     * <p>
+     * Findings accepted by the baseline are only logged at debug level.
+     *
+     * @param findings the findings
+     * @param partial  whether only part of the module's sources were analyzed
+     * @return the findings missing from the baseline, in order, or null if there is no baseline
+     * @throws MojoExecutionException if the baseline cannot be read
+     */
+    protected List<Finding> compareWithBaseline(List<Finding> findings, boolean partial) throws MojoExecutionException {
+        if (baselineFile == null || !baselineFile.isFile()) {
+            return null;
+        }
+        Baseline.Comparison comparison;
+        try (PluginEvents.Span ignored = phase("compareBaseline")) {
+            comparison = Baseline.read(baselineFile).compare(findings, project.getBasedir());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to read NullAway baseline: " + e.getMessage(), e);
+        }
+        List<Finding> newFindings = comparison.getNewFindings();
+        if (getLog().isDebugEnabled()) {
+            int next = 0;
+            for (Finding finding : findings) {
+                if (isNew(finding, newFindings, next)) {
+                    next++;
+                } else {
+                    getLog().debug("Accepted by baseline: " + finding.format());
+                }
+            }
+        }
+        getLog().info(comparison.getMatched() + " findings accepted by baseline " + baselineFile.getName());
+        if (comparison.getFixed() > 0 && !partial) {
+            getLog().info(comparison.getFixed() + " baseline findings are fixed, " +
+                    "run nullaway:baseline to remove them from the baseline");
+        }
+        return newFindings;
+    }
+
+    /**
+     * Logs findings as errors and warnings, followed by their count.
+     *
+     * @param findings the findings to report
+     * @return the number of errors
+     */
+    protected int logFindings(List<Finding> findings) {
+        int errors = 0;
+        for (Finding finding : findings) {
+            if (finding.getKind() == Finding.Kind.ERROR) {
+                errors++;
+                getLog().error(finding.format());
+            } else {
+                getLog().warn(finding.format());
+            }
+        }
+        getLog().info("NullAway check found " + errors + " errors and " + (findings.size() - errors) + " warnings");
+        return errors;
+    }
+
+    /**
+     * Checks whether a finding is the next new finding.
+     * <p>
+     * Meant to be called for all findings in order, with {@code next} counting the new findings seen so far.
+     *
+     * @param finding     the finding
+     * @param newFindings the new findings, a subsequence of all findings
+     * @param next        the index of the next new finding
+     * @return true if the finding is new
+     */
+    static boolean isNew(Finding finding, List<Finding> newFindings, int next) {
+        return next < newFindings.size() && newFindings.get(next) == finding;
+    }
+
+    /**
+     * Returns the baseline file of the module.
+     *
+     * @return the baseline file
+     */
+    protected File getBaselineFile() {
+        return baselineFile;
+    }
+
+    /**
+     * Translates the language level and encoding of maven-compiler-plugin into javac options.
+     *
+     * @param compilerConfig the maven-compiler-plugin configuration
+     * @return the javac options
+     */
+    private List<String> getCompilerOptions(CompilerConfigInjector compilerConfig) {
+        List<String> options = new ArrayList<>();
+        String release = compilerOption(compilerConfig, "release", "maven.compiler.release");
+        if (release != null) {
+            options.add("--release");
+            options.add(release);
+        } else {
+            String source = compilerOption(compilerConfig, "source", "maven.compiler.source");
+            if (source != null) {
+                options.add("-source");
+                options.add(source);
+            }
+            String target = compilerOption(compilerConfig, "target", "maven.compiler.target");
+            if (target != null) {
+                options.add("-target");
+                options.add(target);
+            }
+        }
+        String encoding = compilerOption(compilerConfig, "encoding", "project.build.sourceEncoding");
+        if (encoding != null) {
+            options.add("-encoding");
+            options.add(encoding);
+        }
+        return options;
+    }
+
+    /**
+     * Reads a maven-compiler-plugin parameter, falling back to the user property it defaults to.
+     *
+     * @param compilerConfig the maven-compiler-plugin configuration
+     * @param name           the parameter name
+     * @param property       the property the parameter defaults to
+     * @return the value, or null if neither is set
+     */
+    private String compilerOption(CompilerConfigInjector compilerConfig, String name, String property) {
+        String value = compilerConfig.findConfigurationValue(name);
+        if (value == null) {
+            value = project.getProperties().getProperty(property);
+        }
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+
+    /**
+     * Returns the compile classpath, without the module's own output directory since its sources are being analyzed.
+     *
+     * @return the classpath elements
+     * @throws MojoExecutionException if dependencies were not resolved
+     */
+    protected List<File> getClasspath() throws MojoExecutionException {
+        List<File> classpath = new ArrayList<>();
+        try {
+            for (String element : project.getCompileClasspathElements()) {
+                if (!element.equals(project.getBuild().getOutputDirectory())) {
+                    classpath.add(new File(element));
+                }
+            }
+        } catch (DependencyResolutionRequiredException e) {
+            throw new MojoExecutionException("Project dependencies were not resolved", e);
+        }
+        return classpath;
+    }
+
+    /**
+     * Lists the Java source files of the module, in a stable order.
+     *
+     * @return the source files
+     * @throws MojoExecutionException if a source root cannot be walked
+     */
+    protected List<File> findSourceFiles() throws MojoExecutionException {
+        List<File> sourceFiles = new ArrayList<>();
+        for (String sourceRoot : project.getCompileSourceRoots()) {
+            Path root = new File(sourceRoot).toPath();
+            if (!Files.isDirectory(root)) {
+                continue;
+            }
+            try (Stream<Path> files = Files.walk(root)) {
+                sourceFiles.addAll(files
+                        .filter(file -> file.getFileName().toString().endsWith(".java"))
+                        .filter(Files::isRegularFile)
+                        .sorted()
+                        .map(Path::toFile)
+                        .collect(Collectors.toList()));
+            } catch (IOException e) {
+                throw new MojoExecutionException("Failed to list sources in " + sourceRoot, e);
+            }
+        }
+        return sourceFiles;
+    }
+}
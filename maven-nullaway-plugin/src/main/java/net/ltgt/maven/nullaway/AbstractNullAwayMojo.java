@@ -0,0 +1,1106 @@
+package net.ltgt.maven.nullaway;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.DefaultDependencyResolutionRequest;
+import org.apache.maven.project.DependencyResolutionException;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.ProjectDependenciesResolver;
+import org.eclipse.aether.SessionData;
+import org.eclipse.aether.graph.Dependency;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Base class for the NullAway goals, holding the NullAway configuration shared by all of them.
+ * <p>
+ * Subclasses decide what to do with the generated Error Prone arguments: inject them into the
+ * maven-compiler-plugin configuration, or run the analysis themselves.
+ */
+public abstract class AbstractNullAwayMojo extends AbstractMojo implements Cloneable {
+    protected static final String NULLAWAY_GROUP_ID = "com.uber.nullaway";
+    protected static final String ERROR_PRONE_GROUP_ID = "com.google.errorprone";
+
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    protected MavenProject project;
+
+    @Parameter(defaultValue = "${session}", readonly = true, required = true)
+    protected MavenSession session;
+
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true)
+    protected MojoExecution mojoExecution;
+
+    @Inject
+    private ProjectDependenciesResolver dependenciesResolver;
+
+    // ========== Core Configuration ==========
+
+    /**
+     * The severity of the NullAway check.
+     * <p>
+     * Valid values: OFF, WARN, ERROR, DEFAULT
+     * <ul>
+     *   <li>OFF - Disable NullAway</li>
+     *   <li>WARN - Enable NullAway as warnings</li>
+     *   <li>ERROR - Enable NullAway as errors (fails build)</li>
+     *   <li>DEFAULT - Enable NullAway with default Error Prone severity</li>
+     * </ul>
+     */
+    @Parameter(property = "nullaway.severity", defaultValue = "DEFAULT")
+    private String severity;
+
+    /**
+     * Indicates that the annotatedPackages flag has been deliberately omitted, and that NullAway
+     * can proceed with only treating @NullMarked code as annotated, in accordance with the JSpecify specification.
+     * <p>
+     * If this option is set to true, then annotatedPackages must be empty.
+     * Note that even if this flag is omitted (and annotatedPackages is non-empty),
+     * any @NullMarked code will still be treated as annotated.
+     */
+    @Parameter(property = "nullaway.onlyNullMarked")
+    private Boolean onlyNullMarked;
+
+    /**
+     * The list of packages that should be considered properly annotated according to the NullAway convention.
+     * <p>
+     * Either this or onlyNullMarked must be specified (but not both).
+     */
+    @Parameter(property = "nullaway.annotatedPackages")
+    private List<String> annotatedPackages;
+
+    // ========== Package and Class Exclusions ==========
+
+    /**
+     * A list of subpackages to be excluded from the annotatedPackages list.
+     */
+    @Parameter(property = "nullaway.unannotatedSubPackages")
+    private List<String> unannotatedSubPackages;
+
+    /**
+     * A list of classes within annotated packages that should be treated as unannotated.
+     */
+    @Parameter(property = "nullaway.unannotatedClasses")
+    private List<String> unannotatedClasses;
+
+    /**
+     * A list of classes to be excluded from the nullability analysis.
+     */
+    @Parameter(property = "nullaway.excludedClasses")
+    private List<String> excludedClasses;
+
+    /**
+     * A list of annotations that cause classes to be excluded from nullability analysis.
+     */
+    @Parameter(property = "nullaway.excludedClassAnnotations")
+    private List<String> excludedClassAnnotations;
+
+    /**
+     * A list of annotations that cause fields to be excluded from being checked for proper initialization.
+     */
+    @Parameter(property = "nullaway.excludedFieldAnnotations")
+    private List<String> excludedFieldAnnotations;
+
+    // ========== Initializers ==========
+
+    /**
+     * The fully qualified name of those methods from third-party libraries that NullAway should treat as initializers.
+     */
+    @Parameter(property = "nullaway.knownInitializers")
+    private List<String> knownInitializers;
+
+    /**
+     * A list of annotations that should be considered equivalent to @Initializer annotations,
+     * and thus mark methods as initializers.
+     */
+    @Parameter(property = "nullaway.customInitializerAnnotations")
+    private List<String> customInitializerAnnotations;
+
+    /**
+     * A list of annotations for classes that are "externally initialized."
+     */
+    @Parameter(property = "nullaway.externalInitAnnotations")
+    private List<String> externalInitAnnotations;
+
+    // ========== Behavioral Options ==========
+
+    /**
+     * If set to true, NullAway treats any class annotated with @Generated as if its APIs are
+     * unannotated when analyzing uses from other classes.
+     */
+    @Parameter(property = "nullaway.treatGeneratedAsUnannotated")
+    private Boolean treatGeneratedAsUnannotated;
+
+    /**
+     * If set to true, NullAway will acknowledge nullability annotations whenever they are available
+     * in unannotated code and also more restrictive than its optimistic defaults.
+     */
+    @Parameter(property = "nullaway.acknowledgeRestrictiveAnnotations")
+    private Boolean acknowledgeRestrictiveAnnotations;
+
+    /**
+     * If set to true, NullAway will check for .get() accesses to potentially empty Optional values,
+     * analogously to how it handles dereferences to @Nullable values.
+     */
+    @Parameter(property = "nullaway.checkOptionalEmptiness")
+    private Boolean checkOptionalEmptiness;
+
+    /**
+     * If set to true, NullAway will use Error Prone's suggested fix functionality to suggest
+     * suppressing any warning that it finds.
+     */
+    @Parameter(property = "nullaway.suggestSuppressions")
+    private Boolean suggestSuppressions;
+
+    /**
+     * If set to true, NullAway will handle assertions, and use that to reason about the possibility
+     * of null dereferences in the code that follows these assertions.
+     * <p>
+     * This assumes that assertions will always be enabled at runtime (java run with -ea JVM argument).
+     */
+    @Parameter(property = "nullaway.assertsEnabled")
+    private Boolean assertsEnabled;
+
+    /**
+     * If set to true, NullAway will check every method to see whether or not it overrides a method
+     * of a super-type, rather than relying only on the @Override annotation.
+     */
+    @Parameter(property = "nullaway.exhaustiveOverride")
+    private Boolean exhaustiveOverride;
+
+    /**
+     * If set to true, NullAway will handle assertions from test libraries, like assertThat(...).isNotNull(),
+     * and use that to reason about the possibility of null dereferences in the code that follows these assertions.
+     */
+    @Parameter(property = "nullaway.handleTestAssertionLibraries")
+    private Boolean handleTestAssertionLibraries;
+
+    /**
+     * If set to true, treats @RecentlyNullable as @Nullable, and @RecentlyNonNull as @NonNull.
+     * <p>
+     * Requires that acknowledgeRestrictiveAnnotations is also set to true.
+     */
+    @Parameter(property = "nullaway.acknowledgeAndroidRecent")
+    private Boolean acknowledgeAndroidRecent;
+
+    /**
+     * If set to true, NullAway will check @Contract annotations.
+     */
+    @Parameter(property = "nullaway.checkContracts")
+    private Boolean checkContracts;
+
+    /**
+     * If set to true, enables new checks based on JSpecify (like checks for generic types).
+     */
+    @Parameter(property = "nullaway.jspecifyMode")
+    private Boolean jspecifyMode;
+
+    // ========== Custom Classes and Methods ==========
+
+    /**
+     * The fully qualified name of a method to be used for downcasting to a non-null value
+     * rather than standard suppressions in some instances.
+     */
+    @Parameter(property = "nullaway.castToNonNullMethod")
+    private String castToNonNullMethod;
+
+    /**
+     * A list of classes to be treated as Optional implementations
+     * (e.g. Guava's com.google.common.base.Optional).
+     */
+    @Parameter(property = "nullaway.checkOptionalEmptinessCustomClasses")
+    private List<String> checkOptionalEmptinessCustomClasses;
+
+    /**
+     * A list of classes to be treated equivalently to Guava Futures and FluentFuture.
+     * <p>
+     * This special support will likely be removed once NullAway's JSpecify support is more complete.
+     */
+    @Parameter(property = "nullaway.extraFuturesClasses")
+    private List<String> extraFuturesClasses;
+
+    // ========== Custom Annotations ==========
+
+    /**
+     * A list of annotations that should be considered equivalent to @Contract annotations.
+     */
+    @Parameter(property = "nullaway.customContractAnnotations")
+    private List<String> customContractAnnotations;
+
+    /**
+     * A list of annotations that should be considered equivalent to @Nullable annotations.
+     */
+    @Parameter(property = "nullaway.customNullableAnnotations")
+    private List<String> customNullableAnnotations;
+
+    /**
+     * A list of annotations that should be considered equivalent to @NonNull annotations,
+     * for the cases where NullAway cares about such annotations.
+     */
+    @Parameter(property = "nullaway.customNonnullAnnotations")
+    private List<String> customNonnullAnnotations;
+
+    /**
+     * A list of annotations that should be considered equivalent to @Generated annotations,
+     * for the cases where NullAway cares about such annotations.
+     */
+    @Parameter(property = "nullaway.customGeneratedCodeAnnotations")
+    private List<String> customGeneratedCodeAnnotations;
+
+    // ========== Other Options ==========
+
+    /**
+     * A comment that will be added alongside the @SuppressWarnings("NullAway") annotation
+     * when suggestSuppressions is set to true.
+     */
+    @Parameter(property = "nullaway.autoFixSuppressionComment")
+    private String autoFixSuppressionComment;
+
+    /**
+     * A list of names to suppress NullAway using a @SuppressWarnings annotation,
+     * similar to @SuppressWarnings("NullAway").
+     * <p>
+     * This is useful when other warnings are already suppressed in the codebase and NullAway
+     * should be suppressed as well, such as with JetBrains' DataFlowIssue inspection.
+     */
+    @Parameter(property = "nullaway.suppressionNameAliases")
+    private List<String> suppressionNameAliases;
+
+    // ========== Package Discovery ==========
+
+    /**
+     * If set to true, the null-marked packages of the module are discovered from its sources and
+     * added to annotatedPackages, with their unmarked subpackages added to unannotatedSubPackages.
+     * <p>
+     * A package is null-marked if its package-info.java, or each of its top-level classes, is
+     * annotated with one of the nullMarkedAnnotations. Scan results are cached under
+     * {@code target/nullaway}, so that later builds only read the sources of changed directories.
+     */
+    @Parameter(property = "nullaway.discoverAnnotatedPackages", defaultValue = "false")
+    private boolean discoverAnnotatedPackages;
+
+    /**
+     * The annotations marking a package or class as null-marked, for discoverAnnotatedPackages.
+     * <p>
+     * Defaults to JSpecify's {@code org.jspecify.annotations.NullMarked}.
+     */
+    @Parameter(property = "nullaway.nullMarkedAnnotations", defaultValue = "org.jspecify.annotations.NullMarked")
+    private List<String> nullMarkedAnnotations;
+
+    // ========== Generated Sources ==========
+
+    /**
+     * If set to true, Error Prone skips the generated sources of the module: the
+     * {@code generated-sources} directory of the build directory, and any other compile source
+     * root within the build directory.
+     * <p>
+     * Generated sources are still compiled, but no check is run on them. As Error Prone only has a
+     * single exclusion pattern, this applies to all of its checks, not only NullAway, which is why
+     * it must be enabled explicitly.
+     */
+    @Parameter(property = "nullaway.excludeGeneratedSources", defaultValue = "false")
+    private boolean excludeGeneratedSources;
+
+    /**
+     * Globs of additional source paths that Error Prone skips, such as {@code **}{@code /generated/**}.
+     * <p>
+     * {@code *} and {@code ?} match within a path segment and {@code **} matches any number of
+     * segments. Relative globs are matched against the end of the source file paths.
+     */
+    @Parameter(property = "nullaway.excludedSourcePaths")
+    private List<String> excludedSourcePaths;
+
+    // ========== Sampling ==========
+
+    /**
+     * If greater than 1, only about one in sampleFactor source files is analyzed by each build,
+     * for faster local feedback. The other files are still compiled, but excluded from Error Prone.
+     * <p>
+     * Files are assigned to sampleFactor buckets by a hash of their path, and each build analyzes
+     * the next bucket, so every file is analyzed at least once every sampleFactor builds. Files
+     * modified since the previous build are always analyzed. The rotation is recorded under
+     * sampleStateDirectory and logged. Leave this unset on CI to analyze everything.
+     */
+    @Parameter(property = "nullaway.sampleFactor", defaultValue = "1")
+    private int sampleFactor;
+
+    /**
+     * The directory recording the sampling rotation of each module, by module coordinates and
+     * location. It is outside of the build directory so that {@code mvn clean} doesn't restart
+     * the rotation, which would analyze the same bucket over and over.
+     */
+    @Parameter(property = "nullaway.sampleStateDirectory", defaultValue = "${settings.localRepository}/.cache/nullaway/sample")
+    private File sampleStateDirectory;
+
+    /**
+     * The rotation to sample with, as logged by a previous sampled build, to reproduce its selection.
+     * Recently modified files are not added, and the recorded rotation is not advanced.
+     */
+    @Parameter(property = "nullaway.sampleSeed")
+    private Integer sampleSeed;
+
+    /**
+     * The source files skipped by sampling, computed once per execution.
+     */
+    private List<File> sampleSkippedFiles;
+
+    // ========== Dependency Annotations ==========
+
+    /**
+     * What to do with the well-known annotations found in the project dependencies: {@code OFF},
+     * {@code SUGGEST} or {@code INJECT}.
+     * <p>
+     * Dependency jars are indexed for nullable, initializer, injection and generated-code
+     * annotations that NullAway doesn't recognize by default, for Checker Framework's
+     * {@code castNonNull} method, and for {@code @NullMarked} packages. With {@code SUGGEST}, the
+     * matching configuration is logged; with {@code INJECT}, the annotations are added to
+     * customNullableAnnotations, customInitializerAnnotations, excludedFieldAnnotations and
+     * excludedClassAnnotations, and the method is used as castToNonNullMethod unless one is
+     * configured. The index of each jar is cached in the local repository, keyed by its checksum.
+     */
+    @Parameter(property = "nullaway.dependencyAnnotations", defaultValue = "OFF")
+    private String dependencyAnnotations;
+
+    // ========== Tool Versions ==========
+
+    /**
+     * The NullAway version to put on the annotation processor path, with errorProneVersion.
+     * <p>
+     * When both versions are set, the plugin manages the processor path: Error Prone and NullAway
+     * are added to the maven-compiler-plugin's {@code annotationProcessorPaths}, replacing other
+     * versions of them, along with the compiler arguments that enable Error Prone. The {@code check}
+     * goal resolves them once per build, for all modules.
+     */
+    @Parameter(property = "nullaway.version")
+    private String nullawayVersion;
+
+    /**
+     * The Error Prone version to put on the annotation processor path, with nullawayVersion.
+     */
+    @Parameter(property = "nullaway.errorProneVersion")
+    private String errorProneVersion;
+
+    // ========== Library Models ==========
+
+    /**
+     * Dependencies whose nullability is inferred by the {@code infer-models} goal, as
+     * {@code groupId:artifactId} patterns where {@code *} matches any characters, such as
+     * {@code com.google.guava:*}.
+     * <p>
+     * The inferred models of the selected dependencies are put on the annotation processor path,
+     * and NullAway's JarInfer support is enabled, once they are in the model cache.
+     */
+    @Parameter(property = "nullaway.inferModels")
+    private List<String> inferModels;
+
+    /**
+     * The directory caching inferred models, keyed by dependency checksum and NullAway version.
+     * <p>
+     * Can be shared by all builds of a machine, or mounted from a shared location so that each
+     * dependency version is only inferred once.
+     */
+    @Parameter(property = "nullaway.modelCacheDirectory", defaultValue = "${settings.localRepository}/.cache/nullaway/models")
+    private File modelCacheDirectory;
+
+    /**
+     * Copies this mojo, with the same parameters, for another project.
+     * <p>
+     * Parameters are shared with the copy: they are only reassigned, never modified in place, by
+     * an execution. State computed by an execution for its project is not copied.
+     *
+     * @param project the project of the copy
+     * @return the copy
+     */
+    protected AbstractNullAwayMojo copyFor(MavenProject project) {
+        AbstractNullAwayMojo copy;
+        try {
+            copy = (AbstractNullAwayMojo) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+        copy.project = project;
+        copy.sampleSkippedFiles = null;
+        return copy;
+    }
+
+    /**
+     * Checks whether NullAway is disabled by configuration.
+     *
+     * @return true if the severity is OFF
+     */
+    protected boolean isDisabled() {
+        return "OFF".equals(severity);
+    }
+
+    /**
+     * Checks whether Error Prone skips the generated sources of the module.
+     *
+     * @return true if generated sources are excluded
+     */
+    protected boolean isExcludeGeneratedSources() {
+        return excludeGeneratedSources;
+    }
+
+    /**
+     * Returns the effective severity of the NullAway check.
+     *
+     * @param testCompile the options overridden for test sources, or null for the main sources
+     * @return the severity: OFF, WARN, ERROR or DEFAULT
+     */
+    protected String getSeverity(TestCompileConfiguration testCompile) {
+        return testCompile != null ? override(severity, testCompile.getSeverity()) : severity;
+    }
+
+    /**
+     * Validates the configuration and generates the Error Prone arguments for it.
+     * <p>
+     * Arguments are shared through the session's {@link ArgumentCache}, so modules with the same
+     * configuration only generate them once.
+     *
+     * @return the immutable list of Error Prone arguments
+     * @throws MojoExecutionException if configuration is invalid
+     */
+    protected List<String> generateArguments() throws MojoExecutionException {
+        // Discover null-marked packages
+        if (discoverAnnotatedPackages) {
+            try (PluginEvents.Span ignored = phase("discoverAnnotatedPackages")) {
+                discoverAnnotatedPackages();
+            }
+        }
+
+        // Index dependency annotations
+        if (!"OFF".equalsIgnoreCase(dependencyAnnotations)) {
+            try (PluginEvents.Span ignored = phase("indexDependencyAnnotations")) {
+                indexDependencyAnnotations();
+            }
+        }
+
+        // Validate configuration
+        try (PluginEvents.Span ignored = phase("validateConfiguration")) {
+            validateConfiguration();
+        }
+
+        // Generate Error Prone arguments
+        List<String> arguments;
+        try (PluginEvents.Span ignored = phase("generateArguments")) {
+            arguments = generateArgumentsWithCache(null);
+        }
+        return isDisabled() ? arguments : withExcludedPaths(arguments);
+    }
+
+    /**
+     * Generates the Error Prone arguments for the compilation of test sources.
+     * <p>
+     * Must be called after {@link #generateArguments()}, which validates the configuration.
+     *
+     * @param testCompile the options overridden for test sources
+     * @return the immutable list of Error Prone arguments
+     */
+    protected List<String> generateTestArguments(TestCompileConfiguration testCompile) {
+        List<String> arguments;
+        try (PluginEvents.Span ignored = phase("generateTestArguments")) {
+            arguments = generateArgumentsWithCache(testCompile);
+        }
+        return "OFF".equals(override(severity, testCompile.getSeverity())) ? arguments : withExcludedPaths(arguments);
+    }
+
+    /**
+     * Adds the exclusion of generated sources to the Error Prone arguments.
+     *
+     * @param arguments the generated arguments
+     * @return the immutable list of arguments, with {@code -XepExcludedPaths} if any path is excluded
+     */
+    private List<String> withExcludedPaths(List<String> arguments) {
+        String excludedPathsArg = buildExcludedPaths().toArgument();
+        if (excludedPathsArg == null) {
+            return arguments;
+        }
+        getLog().debug("Excluding source paths: " + excludedPathsArg);
+        List<String> withExclusions = new ArrayList<>(arguments);
+        withExclusions.add(excludedPathsArg);
+        return Collections.unmodifiableList(withExclusions);
+    }
+
+    /**
+     * Collects the source paths that Error Prone should skip.
+     *
+     * @return the generated source directories and configured globs
+     */
+    private ExcludedPaths buildExcludedPaths() {
+        ExcludedPaths excludedPaths = new ExcludedPaths(project.getBasedir());
+        if (excludeGeneratedSources) {
+            File buildDirectory = new File(project.getBuild().getDirectory());
+            // Generators usually add their source roots after the initialize phase, so the
+            // conventional directory is excluded even if no root was registered yet
+            excludedPaths.addDirectory(new File(buildDirectory, "generated-sources"));
+            excludedPaths.addDirectory(new File(buildDirectory, "generated-test-sources"));
+            Path buildPath = buildDirectory.toPath().toAbsolutePath().normalize();
+            List<String> sourceRoots = new ArrayList<>(project.getCompileSourceRoots());
+            sourceRoots.addAll(project.getTestCompileSourceRoots());
+            for (String sourceRoot : sourceRoots) {
+                if (new File(sourceRoot).toPath().toAbsolutePath().normalize().startsWith(buildPath)) {
+                    excludedPaths.addDirectory(new File(sourceRoot));
+                }
+            }
+        }
+        if (excludedSourcePaths != null) {
+            for (String glob : excludedSourcePaths) {
+                excludedPaths.addGlob(glob);
+            }
+        }
+        if (sampleFactor > 1) {
+            for (File file : getSampleSkippedFiles()) {
+                excludedPaths.addFile(file);
+            }
+        }
+        return excludedPaths;
+    }
+
+    /**
+     * Samples the source files of the module, once per execution, and logs the selection.
+     * <p>
+     * Sampling only makes the analysis faster, so if it fails every file is analyzed instead.
+     *
+     * @return the source files to exclude from the analysis
+     */
+    private List<File> getSampleSkippedFiles() {
+        if (sampleSkippedFiles != null) {
+            return sampleSkippedFiles;
+        }
+        sampleSkippedFiles = Collections.emptyList();
+        try (PluginEvents.Span ignored = phase("sampleSources")) {
+            Path buildPath = new File(project.getBuild().getDirectory()).toPath().toAbsolutePath().normalize();
+            List<String> sourceRoots = new ArrayList<>(project.getCompileSourceRoots());
+            sourceRoots.addAll(project.getTestCompileSourceRoots());
+            List<File> roots = new ArrayList<>();
+            for (String sourceRoot : sourceRoots) {
+                // Generated sources are already excluded or, with excludeGeneratedSources=false, always analyzed
+                if (!new File(sourceRoot).toPath().toAbsolutePath().normalize().startsWith(buildPath)) {
+                    roots.add(new File(sourceRoot));
+                }
+            }
+
+            SourceSample.Rotation rotation = sampleSeed != null
+                    ? new SourceSample.Rotation(sampleSeed, Long.MAX_VALUE)
+                    : SourceSample.advance(getSampleStateFile(), session.getRequest().getStartTime().getTime());
+            SourceSample.Selection selection = new SourceSample(project.getBasedir(), sampleFactor, rotation.getRotation())
+                    .select(SourceSample.listSourceFiles(roots), rotation.getModifiedSince());
+            sampleSkippedFiles = selection.getSkipped();
+
+            getLog().info("NullAway sampling 1/" + sampleFactor + " of the sources with seed " + rotation.getRotation() +
+                    ": analyzing " + selection.getSampled().size() + " of " +
+                    (selection.getSampled().size() + selection.getSkipped().size()) + " source files, " +
+                    selection.getRecentlyModified() + " of them recently modified" +
+                    " (reproduce with -Dnullaway.sampleSeed=" + rotation.getRotation() + ")");
+            if (getLog().isDebugEnabled()) {
+                getLog().debug("Sampled source files:");
+                for (File file : selection.getSampled()) {
+                    getLog().debug("  " + file);
+                }
+            }
+        } catch (IOException e) {
+            getLog().warn("Cannot sample source files, analyzing all of them: " + e.getMessage());
+        }
+        return sampleSkippedFiles;
+    }
+
+    /**
+     * Returns the file recording the sampling rotation of the module.
+     * <p>
+     * Two checkouts of the same module have their own rotation, so the file is named after the
+     * module coordinates and a hash of its location.
+     *
+     * @return the state file under sampleStateDirectory
+     */
+    private File getSampleStateFile() {
+        String location = new AnalysisFingerprint()
+                .addArguments(Collections.singletonList(project.getBasedir().getAbsolutePath()))
+                .compute()
+                .substring(0, 16);
+        return new File(sampleStateDirectory,
+                project.getGroupId() + "_" + project.getArtifactId() + "-" + location + ".properties");
+    }
+
+    /**
+     * Generates the Error Prone arguments, or reuses those generated for the same configuration.
+     *
+     * @param overrides the options overridden for test sources, or null for the main sources
+     * @return the immutable list of Error Prone arguments
+     */
+    private List<String> generateArgumentsWithCache(TestCompileConfiguration overrides) {
+        TestCompileConfiguration o = overrides != null ? overrides : new TestCompileConfiguration();
+        ArgumentGenerator generator = new ArgumentGenerator(
+                override(severity, o.getSeverity()),
+                onlyNullMarked,
+                annotatedPackages,
+                unannotatedSubPackages,
+                unannotatedClasses,
+                knownInitializers,
+                excludedClassAnnotations,
+                excludedClasses,
+                excludedFieldAnnotations,
+                customInitializerAnnotations,
+                externalInitAnnotations,
+                treatGeneratedAsUnannotated,
+                acknowledgeRestrictiveAnnotations,
+                override(checkOptionalEmptiness, o.getCheckOptionalEmptiness()),
+                override(suggestSuppressions, o.getSuggestSuppressions()),
+                assertsEnabled,
+                override(exhaustiveOverride, o.getExhaustiveOverride()),
+                castToNonNullMethod,
+                checkOptionalEmptinessCustomClasses,
+                autoFixSuppressionComment,
+                override(handleTestAssertionLibraries, o.getHandleTestAssertionLibraries()),
+                acknowledgeAndroidRecent,
+                override(checkContracts, o.getCheckContracts()),
+                customContractAnnotations,
+                customNullableAnnotations,
+                customNonnullAnnotations,
+                customGeneratedCodeAnnotations,
+                jspecifyMode,
+                extraFuturesClasses,
+                suppressionNameAliases
+        );
+
+        ArgumentCache argumentCache = ArgumentCache.forSession(session);
+        List<String> arguments = argumentCache.get(generator);
+        if (getLog().isDebugEnabled()) {
+            getLog().debug("NullAway argument cache: " + argumentCache.getHits() + " hits, " +
+                    argumentCache.getMisses() + " misses");
+        }
+        return arguments;
+    }
+
+    /**
+     * Returns the overriding value of an option, if it is set.
+     *
+     * @param value    the configured value
+     * @param override the overriding value, or null
+     * @param <T>      the option type
+     * @return the overriding value if not null, the configured value otherwise
+     */
+    private static <T> T override(T value, T override) {
+        return override != null ? override : value;
+    }
+
+    /**
+     * Returns a map that lives as long as the Maven session, for caches shared by all modules.
+     * <p>
+     * Like {@link ArgumentCache}, the map is stored in the repository session data, keyed by a
+     * class of this plugin so that different versions of the plugin don't share it.
+     *
+     * @param owner the class owning the cache
+     * @param <K>   the type of keys
+     * @param <V>   the type of values
+     * @return the session map, or a new map outside of a Maven session
+     */
+    @SuppressWarnings("unchecked")
+    protected <K, V> ConcurrentMap<K, V> sessionMap(Class<?> owner) {
+        if (session == null || session.getRepositorySession() == null) {
+            return new ConcurrentHashMap<>();
+        }
+        SessionData data = session.getRepositorySession().getData();
+        ConcurrentMap<K, V> map = (ConcurrentMap<K, V>) data.get(owner);
+        while (map == null) {
+            data.set(owner, null, new ConcurrentHashMap<K, V>());
+            map = (ConcurrentMap<K, V>) data.get(owner);
+        }
+        return map;
+    }
+
+    /**
+     * Starts a phase of this goal, reported as a JFR event when Flight Recorder is recording.
+     *
+     * @param name the phase name
+     * @return the span to close when the phase completes
+     */
+    protected PluginEvents.Span phase(String name) {
+        return PluginEvents.phase(getModuleName(), name);
+    }
+
+    /**
+     * Returns the name of this module, to label diagnostics and events.
+     *
+     * @return the {@code groupId:artifactId} of the project
+     */
+    protected String getModuleName() {
+        return project.getGroupId() + ":" + project.getArtifactId();
+    }
+
+    /**
+     * Records this execution in the session's {@link ExecutionSummary}.
+     *
+     * @param arguments  the Error Prone arguments of the module
+     * @param startNanos the {@link System#nanoTime()} at the start of the execution
+     * @param errors     the number of errors found, or -1 if this goal doesn't report findings
+     * @param warnings   the number of warnings found, or -1 if this goal doesn't report findings
+     */
+    protected void recordExecution(List<String> arguments, long startNanos, int errors, int warnings) {
+        ExecutionSummary summary = ExecutionSummary.forSession(session);
+        String module = getModuleName();
+        summary.record(new ExecutionSummary.Execution(module, mojoExecution != null ? mojoExecution.getGoal() : "",
+                summary.recordArguments(module, arguments),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), errors, warnings));
+    }
+
+    /**
+     * Returns the directory where the plugin keeps its state for this module.
+     *
+     * @return the {@code nullaway} directory under the project build directory
+     */
+    protected File getNullAwayDirectory() {
+        return new File(project.getBuild().getDirectory(), "nullaway");
+    }
+
+    /**
+     * Adds the null-marked packages found in the module's sources to annotatedPackages.
+     *
+     * @throws MojoExecutionException if the sources cannot be scanned, or discovery conflicts with onlyNullMarked
+     */
+    private void discoverAnnotatedPackages() throws MojoExecutionException {
+        if (Boolean.TRUE.equals(onlyNullMarked)) {
+            throw new MojoExecutionException(
+                    "Cannot specify both onlyNullMarked=true and discoverAnnotatedPackages=true. " +
+                            "With onlyNullMarked, NullAway already reads @NullMarked annotations itself.");
+        }
+
+        NullMarkedScanner scanner = new NullMarkedScanner(
+                nullMarkedAnnotations, new File(getNullAwayDirectory(), "null-marked-packages.cache"));
+        NullMarkedScanner.PackageSelection selection;
+        long start = System.nanoTime();
+        try {
+            selection = NullMarkedScanner.select(scanner.scan(project.getCompileSourceRoots()));
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to scan sources for @NullMarked packages", e);
+        }
+        if (getLog().isDebugEnabled()) {
+            getLog().debug("Scanned " + scanner.getScannedDirectories() + " changed and " +
+                    scanner.getCachedDirectories() + " cached source directories in " +
+                    (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+
+        if (selection.getAnnotatedPackages().isEmpty()) {
+            getLog().warn("No @NullMarked packages found in " + project.getCompileSourceRoots());
+            return;
+        }
+        getLog().info("Discovered annotated packages: " + selection.getAnnotatedPackages());
+        annotatedPackages = union(annotatedPackages, selection.getAnnotatedPackages());
+        if (!selection.getUnannotatedSubPackages().isEmpty()) {
+            getLog().info("Discovered unannotated subpackages: " + selection.getUnannotatedSubPackages());
+            unannotatedSubPackages = union(unannotatedSubPackages, selection.getUnannotatedSubPackages());
+        }
+    }
+
+    /**
+     * Suggests or injects the well-known annotations found in the project dependencies.
+     *
+     * @throws MojoExecutionException if dependencyAnnotations is invalid, or the dependencies cannot be indexed
+     */
+    private void indexDependencyAnnotations() throws MojoExecutionException {
+        String mode = dependencyAnnotations.toUpperCase(Locale.ROOT);
+        if (!mode.equals("SUGGEST") && !mode.equals("INJECT")) {
+            throw new MojoExecutionException(
+                    "Invalid dependencyAnnotations: " + dependencyAnnotations + ". Must be one of: OFF, SUGGEST, INJECT");
+        }
+
+        File cacheDirectory = new File(
+                session.getRepositorySession().getLocalRepository().getBasedir(), ".cache/nullaway/annotation-index");
+        DependencyAnnotationIndex index = new DependencyAnnotationIndex(
+                cacheDirectory, this.<String, DependencyAnnotationIndex.JarFacts>sessionMap(DependencyAnnotationIndex.class));
+        DependencyAnnotationIndex.Result result;
+        long start = System.nanoTime();
+        try {
+            result = index.index(resolveDependencyFiles());
+        } catch (DependencyResolutionException e) {
+            throw new MojoExecutionException("Failed to resolve dependencies for dependencyAnnotations", e);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to index dependency annotations: " + e.getMessage(), e);
+        }
+        if (getLog().isDebugEnabled()) {
+            getLog().debug("Indexed " + index.getIndexedJars() + " changed and " + index.getCachedJars() +
+                    " cached dependency jars in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+
+        if (mode.equals("INJECT")) {
+            customNullableAnnotations = union(customNullableAnnotations,
+                    result.getAnnotations("customNullableAnnotations"));
+            customInitializerAnnotations = union(customInitializerAnnotations,
+                    result.getAnnotations("customInitializerAnnotations"));
+            excludedFieldAnnotations = union(excludedFieldAnnotations,
+                    result.getAnnotations("excludedFieldAnnotations"));
+            excludedClassAnnotations = union(excludedClassAnnotations,
+                    result.getAnnotations("excludedClassAnnotations"));
+            if (castToNonNullMethod == null) {
+                castToNonNullMethod = result.getCastToNonNullMethod();
+            }
+            if (!result.getOptions().isEmpty() || result.getCastToNonNullMethod() != null) {
+                getLog().info("Configured NullAway with the annotations found in dependencies");
+            }
+        } else {
+            for (String option : result.getOptions()) {
+                StringBuilder suggestion = new StringBuilder("<" + option + ">");
+                for (String annotation : result.getAnnotations(option)) {
+                    suggestion.append("<param>").append(annotation).append("</param>");
+                }
+                getLog().info("Dependencies suggest " + suggestion.append("</" + option + ">"));
+            }
+            if (result.getCastToNonNullMethod() != null && castToNonNullMethod == null) {
+                getLog().info("Dependencies suggest <castToNonNullMethod>" +
+                        result.getCastToNonNullMethod() + "</castToNonNullMethod>");
+            }
+        }
+        if (!result.getNullMarkedPackages().isEmpty()) {
+            // NullAway reads @NullMarked from the bytecode of dependencies
+            getLog().info("@NullMarked packages in dependencies: " + result.getNullMarkedPackages());
+        }
+    }
+
+    /**
+     * Returns the files of the project dependencies, resolving them unless the goal required it.
+     *
+     * @return the dependency files
+     * @throws DependencyResolutionException if the dependencies cannot be resolved
+     */
+    protected List<File> resolveDependencyFiles() throws DependencyResolutionException {
+        return new ArrayList<>(resolveDependencies().values());
+    }
+
+    /**
+     * Returns the project dependencies, resolving them unless the goal required it.
+     *
+     * @return the file of each dependency, by {@code groupId:artifactId}
+     * @throws DependencyResolutionException if the dependencies cannot be resolved
+     */
+    protected Map<String, File> resolveDependencies() throws DependencyResolutionException {
+        Map<String, File> files = new LinkedHashMap<>();
+        if (!project.getArtifacts().isEmpty() || project.getDependencies().isEmpty()) {
+            for (Artifact artifact : project.getArtifacts()) {
+                if (artifact.getFile() != null) {
+                    files.put(artifact.getGroupId() + ":" + artifact.getArtifactId(), artifact.getFile());
+                }
+            }
+            return files;
+        }
+        for (Dependency dependency : dependenciesResolver.resolve(
+                new DefaultDependencyResolutionRequest(project, session.getRepositorySession())).getDependencies()) {
+            org.eclipse.aether.artifact.Artifact artifact = dependency.getArtifact();
+            if (artifact.getFile() != null) {
+                files.put(artifact.getGroupId() + ":" + artifact.getArtifactId(), artifact.getFile());
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Finds the NullAway version on the maven-compiler-plugin's annotation processor path.
+     *
+     * @return the NullAway version, or null if it is not on the processor path
+     */
+    protected String findNullAwayVersion() {
+        if (nullawayVersion != null) {
+            return nullawayVersion;
+        }
+        return new CompilerConfigInjector(project).findProcessorPathVersion(NULLAWAY_GROUP_ID, "nullaway");
+    }
+
+    /**
+     * Returns the processor path managed by the plugin.
+     *
+     * @return the Error Prone and NullAway coordinates, or an empty list if their versions are not configured
+     * @throws MojoExecutionException if only one of the versions is configured
+     */
+    protected List<String> getManagedProcessorPath() throws MojoExecutionException {
+        if (nullawayVersion == null && errorProneVersion == null) {
+            return Collections.emptyList();
+        }
+        if (nullawayVersion == null || errorProneVersion == null) {
+            throw new MojoExecutionException("nullawayVersion and errorProneVersion must be set together");
+        }
+        List<String> coordinates = new ArrayList<>();
+        coordinates.add(ERROR_PRONE_GROUP_ID + ":error_prone_core:" + errorProneVersion);
+        coordinates.add(NULLAWAY_GROUP_ID + ":nullaway:" + nullawayVersion);
+        return coordinates;
+    }
+
+    /**
+     * Checks whether dependencies are selected for model inference.
+     *
+     * @return true if inferModels is configured
+     */
+    protected boolean hasLibraryModels() {
+        return inferModels != null && !inferModels.isEmpty();
+    }
+
+    /**
+     * Checks whether the arguments depend on the resolved project dependencies.
+     * <p>
+     * Dependencies on other modules of the reactor can only be resolved once those are built.
+     *
+     * @return true if dependencyAnnotations or inferModels is configured
+     */
+    protected boolean needsProjectDependencies() {
+        return !"OFF".equalsIgnoreCase(dependencyAnnotations) || hasLibraryModels();
+    }
+
+    /**
+     * Returns the model cache.
+     *
+     * @return the cache of inferred models
+     */
+    protected LibraryModelCache getLibraryModelCache() {
+        return new LibraryModelCache(modelCacheDirectory);
+    }
+
+    /**
+     * Selects the dependency jars matching inferModels.
+     *
+     * @return the jar of each selected dependency, by {@code groupId:artifactId}
+     * @throws MojoExecutionException if the dependencies cannot be resolved
+     */
+    protected Map<String, File> selectModelDependencies() throws MojoExecutionException {
+        List<Pattern> patterns = new ArrayList<>();
+        for (String pattern : inferModels) {
+            if (pattern.split(":", -1).length != 2) {
+                throw new MojoExecutionException(
+                        "Invalid inferModels entry: " + pattern + ". Expected groupId:artifactId, with * wildcards");
+            }
+            StringBuilder regex = new StringBuilder();
+            for (String part : pattern.trim().split("\\*", -1)) {
+                regex.append(regex.length() > 0 ? ".*" : "").append(Pattern.quote(part));
+            }
+            patterns.add(Pattern.compile(regex.toString()));
+        }
+
+        Map<String, File> selected = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, File> dependency : resolveDependencies().entrySet()) {
+                if (!dependency.getValue().getName().endsWith(".jar")) {
+                    continue;
+                }
+                for (Pattern pattern : patterns) {
+                    if (pattern.matcher(dependency.getKey()).matches()) {
+                        selected.put(dependency.getKey(), dependency.getValue());
+                        break;
+                    }
+                }
+            }
+        } catch (DependencyResolutionException e) {
+            throw new MojoExecutionException("Failed to resolve dependencies for inferModels", e);
+        }
+        return selected;
+    }
+
+    /**
+     * Finds the cached models of the dependencies selected by inferModels.
+     *
+     * @param nullawayVersion the NullAway version of the analysis
+     * @return the model jars, for the annotation processor path
+     * @throws MojoExecutionException if the dependencies cannot be resolved or read
+     */
+    protected List<File> findLibraryModels(String nullawayVersion) throws MojoExecutionException {
+        LibraryModelCache cache = getLibraryModelCache();
+        List<File> models = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        for (Map.Entry<String, File> dependency : selectModelDependencies().entrySet()) {
+            File model;
+            try {
+                model = cache.find(dependency.getValue(), nullawayVersion);
+            } catch (IOException e) {
+                throw new MojoExecutionException("Failed to read " + dependency.getValue() + ": " + e.getMessage(), e);
+            }
+            if (model != null) {
+                models.add(model);
+            } else {
+                missing.add(dependency.getKey());
+            }
+        }
+        if (!missing.isEmpty()) {
+            getLog().info("No inferred NullAway models for " + missing + ", run nullaway:infer-models to infer them");
+        }
+        return models;
+    }
+
+    /**
+     * Enables NullAway's support for inferred models.
+     *
+     * @param arguments the Error Prone arguments
+     * @return the immutable list of arguments, with JarInfer enabled
+     */
+    protected static List<String> withLibraryModels(List<String> arguments) {
+        List<String> result = new ArrayList<>(arguments);
+        result.add("-XepOpt:NullAway:JarInferEnabled=true");
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Appends values to a configured list, skipping duplicates.
+     *
+     * @param configured the configured values, may be null
+     * @param added      the values to add
+     * @return a new list with the configured values followed by the added ones
+     */
+    private static List<String> union(List<String> configured, List<String> added) {
+        Set<String> values = new LinkedHashSet<>();
+        if (configured != null) {
+            values.addAll(configured);
+        }
+        values.addAll(added);
+        return new ArrayList<>(values);
+    }
+
+    /**
+     * Validates the configuration for common errors.
+     *
+     * @throws MojoExecutionException if configuration is invalid
+     */
+    private void validateConfiguration() throws MojoExecutionException {
+        // Validate onlyNullMarked vs annotatedPackages
+        boolean hasOnlyNullMarked = onlyNullMarked != null && onlyNullMarked;
+        boolean hasAnnotatedPackages = annotatedPackages != null && !annotatedPackages.isEmpty();
+
+        if (hasOnlyNullMarked && hasAnnotatedPackages) {
+            throw new MojoExecutionException(
+                    "Cannot specify both onlyNullMarked=true and annotatedPackages. " +
+                            "Use onlyNullMarked for JSpecify @NullMarked only, " +
+                            "or use annotatedPackages for the traditional NullAway annotation model.");
+        }
+
+        if (!hasOnlyNullMarked && !hasAnnotatedPackages && !"OFF".equals(severity)) {
+            throw new MojoExecutionException(
+                    "Must specify either onlyNullMarked=true OR annotatedPackages when NullAway is enabled. " +
+                            "See: https://github.com/uber/NullAway/wiki/Configuration");
+        }
+
+        if (sampleFactor < 1) {
+            throw new MojoExecutionException("sampleFactor must be at least 1: " + sampleFactor);
+        }
+        if (sampleSeed != null && sampleSeed < 0) {
+            throw new MojoExecutionException("sampleSeed must not be negative: " + sampleSeed);
+        }
+
+        // Validate acknowledgeAndroidRecent requires acknowledgeRestrictiveAnnotations
+        if (Boolean.TRUE.equals(acknowledgeAndroidRecent) &&
+                !Boolean.TRUE.equals(acknowledgeRestrictiveAnnotations)) {
+            throw new MojoExecutionException(
+                    "acknowledgeAndroidRecent requires acknowledgeRestrictiveAnnotations=true");
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package net.ltgt.maven.nullaway;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Computes a fingerprint of everything that can influence the outcome of a NullAway analysis.
+ * <p>
+ * The fingerprint covers the content of the source files, the generated Error Prone arguments,
+ * the versions of the tools on the annotation processor path and the compile classpath.
+ * Two builds with the same fingerprint are expected to produce the same NullAway diagnostics.
+ */
+public class AnalysisFingerprint {
+    private final MessageDigest digest;
+    private final Map<String, String> jarAbiCache;
+
+    public AnalysisFingerprint() {
+        this(new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Creates a fingerprint sharing the API fingerprints of the jars it reads with other fingerprints.
+     *
+     * @param jarAbiCache the API fingerprints of the jars already read, by path, size and modification
+     *                    time; meant to live no longer than the Maven session
+     */
+    public AnalysisFingerprint(Map<String, String> jarAbiCache) {
+        this.digest = Digests.sha256();
+        this.jarAbiCache = jarAbiCache;
+    }
+
+    /**
+     * Adds the Error Prone arguments to the fingerprint.
+     *
+     * @param arguments the arguments produced by {@link ArgumentGenerator#generate()}
+     * @return this fingerprint
+     */
+    public AnalysisFingerprint addArguments(List<String> arguments) {
+        addSection("arguments");
+        for (String argument : arguments) {
+            addString(argument);
+        }
+        return this;
+    }
+
+    /**
+     * Adds the tool versions to the fingerprint.
+     * <p>
+     * Versions are sorted first so that the declaration order in the POM doesn't matter.
+     *
+     * @param coordinates the {@code groupId:artifactId:version} of each tool
+     * @return this fingerprint
+     */
+    public AnalysisFingerprint addToolVersions(List<String> coordinates) {
+        addSection("tools");
+        List<String> sorted = new ArrayList<>(coordinates);
+        Collections.sort(sorted);
+        for (String coordinate : sorted) {
+            addString(coordinate);
+        }
+        addString(System.getProperty("java.version"));
+        return this;
+    }
+
+    /**
+     * Adds the content of all Java source files found under the given roots to the fingerprint.
+     *
+     * @param sourceRoots the source root directories; missing directories are ignored
+     * @return this fingerprint
+     * @throws IOException if a source file cannot be read
+     */
+    public AnalysisFingerprint addSourceRoots(List<String> sourceRoots) throws IOException {
+        addSection("sources");
+        for (String sourceRoot : sourceRoots) {
+            Path root = new File(sourceRoot).toPath();
+            addString(root.toString());
+            for (Path file : listFiles(root, ".java")) {
+                addString(root.relativize(file).toString());
+                addContent(file);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Adds the subset of the source files that is analyzed, when not all of them are.
+     *
+     * @param sourceFiles the analyzed source files
+     * @return this fingerprint
+     */
+    public AnalysisFingerprint addScope(List<File> sourceFiles) {
+        addSection("scope");
+        List<String> paths = new ArrayList<>();
+        for (File file : sourceFiles) {
+            paths.add(file.getPath());
+        }
+        Collections.sort(paths);
+        for (String path : paths) {
+            addString(path);
+        }
+        return this;
+    }
+
+    /**
+     * Adds the compile classpath to the fingerprint.
+     * <p>
+     * Released jars are identified by path, size and modification time, which is enough to detect
+     * a changed dependency without reading every jar on every build. Directories and snapshot jars
+     * (typically the output of other modules in the reactor) contribute the {@link ClassAbi} of
+     * every class they contain, so that a change to the implementation of an upstream module
+     * doesn't change the fingerprint.
+     *
+     * @param classpath the classpath elements
+     * @return this fingerprint
+     * @throws IOException if a classpath element cannot be read
+     */
+    public AnalysisFingerprint addClasspath(List<File> classpath) throws IOException {
+        addSection("classpath");
+        for (File element : classpath) {
+            addString(element.getPath());
+            if (element.isDirectory()) {
+                Path root = element.toPath();
+                for (Path file : listFiles(root, ".class")) {
+                    addClassAbi(root.relativize(file).toString(), Files.readAllBytes(file));
+                }
+            } else if (element.getName().contains("-SNAPSHOT")) {
+                addString(jarAbi(element));
+            } else {
+                addFileStamp(element);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Completes the computation and returns the fingerprint as a hexadecimal string.
+     * <p>
+     * No further data should be added once this method has been called.
+     *
+     * @return the hexadecimal fingerprint
+     */
+    public String compute() {
+        return Digests.toHex(digest.digest());
+    }
+
+    /**
+     * Adds the API of a class file.
+     *
+     * @param name      the class file name, relative to its classpath element
+     * @param classFile the content of the class file
+     */
+    private void addClassAbi(String name, byte[] classFile) {
+        String abi = ClassAbi.describe(classFile);
+        if (!abi.isEmpty()) {
+            addString(name);
+            addString(abi);
+        }
+    }
+
+    /**
+     * Computes the fingerprint of the API of all classes in a jar.
+     * <p>
+     * Results are memoized by path, size and modification time in the cache this fingerprint was
+     * created with, as the same snapshot jar is typically on the classpath of many modules in a reactor.
+     *
+     * @param jar the jar file
+     * @return the fingerprint of the jar's API
+     * @throws IOException if the jar cannot be read
+     */
+    private String jarAbi(File jar) throws IOException {
+        String key = jar.getPath() + "|" + jar.length() + "|" + jar.lastModified();
+        String cached = jarAbiCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        AnalysisFingerprint fingerprint = new AnalysisFingerprint();
+        try (ZipFile zip = new ZipFile(jar)) {
+            List<ZipEntry> entries = new ArrayList<>();
+            Enumeration<? extends ZipEntry> enumeration = zip.entries();
+            while (enumeration.hasMoreElements()) {
+                ZipEntry entry = enumeration.nextElement();
+                if (entry.getName().endsWith(".class") && !entry.getName().startsWith("META-INF/")) {
+                    entries.add(entry);
+                }
+            }
+            entries.sort(Comparator.comparing(ZipEntry::getName));
+            for (ZipEntry entry : entries) {
+                try (InputStream in = zip.getInputStream(entry)) {
+                    fingerprint.addClassAbi(entry.getName(), readFully(in));
+                }
+            }
+        }
+        String abi = fingerprint.compute();
+        jarAbiCache.put(key, abi);
+        return abi;
+    }
+
+    /**
+     * Reads a stream to its end.
+     *
+     * @param in the stream
+     * @return the bytes read
+     * @throws IOException if the stream cannot be read
+     */
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Lists the files with the given extension under a directory, in a stable order.
+     *
+     * @param root      the directory to walk
+     * @param extension the file extension to keep
+     * @return the sorted list of files, or an empty list if the directory doesn't exist
+     * @throws IOException if the directory cannot be walked
+     */
+    private static List<Path> listFiles(Path root, String extension) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> files = Files.walk(root)) {
+            return files
+                    .filter(file -> file.getFileName().toString().endsWith(extension))
+                    .filter(Files::isRegularFile)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Starts a new section, so that values from different kinds of inputs can't collide.
+     *
+     * @param name the section name
+     */
+    private void addSection(String name) {
+        addString("#" + name);
+    }
+
+    /**
+     * Adds a length-prefixed string so that adjacent values can't be confused with each other.
+     *
+     * @param value the value to add
+     */
+    private void addString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        addLong(bytes.length);
+        digest.update(bytes);
+    }
+
+    /**
+     * Adds the size and modification time of a file.
+     *
+     * @param file the file
+     */
+    private void addFileStamp(File file) {
+        addLong(file.length());
+        addLong(file.lastModified());
+    }
+
+    /**
+     * Adds the content of a file.
+     *
+     * @param file the file
+     * @throws IOException if the file cannot be read
+     */
+    private void addContent(Path file) throws IOException {
+        addLong(Files.size(file));
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+    }
+
+    /**
+     * Adds a long value in big-endian order.
+     *
+     * @param value the value
+     */
+    private void addLong(long value) {
+        for (int i = 56; i >= 0; i -= 8) {
+            digest.update((byte) (value >>> i));
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package net.ltgt.maven.nullaway;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes a NullAway analysis run by the plugin itself rather than by maven-compiler-plugin.
+ * <p>
+ * This only depends on the JDK, so that it can be handed to javac in any process.
+ */
+public class AnalysisRequest {
+    private List<String> errorProneArgs = Collections.emptyList();
+    private List<String> compilerOptions = Collections.emptyList();
+    private List<File> sourceFiles = Collections.emptyList();
+    private List<File> classpath = Collections.emptyList();
+    private List<File> sourcepath = Collections.emptyList();
+    private List<File> processorPath = Collections.emptyList();
+    private File outputDirectory;
+    private String module = "";
+    private boolean generateClasses;
+
+    /**
+     * Sets the Error Prone arguments, typically generated by {@link ArgumentGenerator}.
+     *
+     * @param errorProneArgs the Error Prone arguments
+     * @return this request
+     */
+    public AnalysisRequest setErrorProneArgs(List<String> errorProneArgs) {
+        this.errorProneArgs = new ArrayList<>(errorProneArgs);
+        return this;
+    }
+
+    /**
+     * Sets additional javac options, such as {@code --release} or {@code -encoding}.
+     *
+     * @param compilerOptions the javac options
+     * @return this request
+     */
+    public AnalysisRequest setCompilerOptions(List<String> compilerOptions) {
+        this.compilerOptions = new ArrayList<>(compilerOptions);
+        return this;
+    }
+
+    /**
+     * Sets the source files to analyze.
+     *
+     * @param sourceFiles the source files
+     * @return this request
+     */
+    public AnalysisRequest setSourceFiles(List<File> sourceFiles) {
+        this.sourceFiles = new ArrayList<>(sourceFiles);
+        return this;
+    }
+
+    /**
+     * Sets the classpath used to resolve types that are not being analyzed.
+     *
+     * @param classpath the classpath elements
+     * @return this request
+     */
+    public AnalysisRequest setClasspath(List<File> classpath) {
+        this.classpath = new ArrayList<>(classpath);
+        return this;
+    }
+
+    /**
+     * Sets the source path used to resolve types that are not being analyzed.
+     * <p>
+     * An empty source path (the default) makes javac resolve types only from the classpath,
+     * rather than falling back to looking for sources on the classpath.
+     *
+     * @param sourcepath the source path elements
+     * @return this request
+     */
+    public AnalysisRequest setSourcepath(List<File> sourcepath) {
+        this.sourcepath = new ArrayList<>(sourcepath);
+        return this;
+    }
+
+    /**
+     * Sets the annotation processor path, which must contain Error Prone and NullAway.
+     *
+     * @param processorPath the processor path elements
+     * @return this request
+     */
+    public AnalysisRequest setProcessorPath(List<File> processorPath) {
+        this.processorPath = new ArrayList<>(processorPath);
+        return this;
+    }
+
+    /**
+     * Sets the directory where javac may write files, such as sources generated by annotation processors.
+     *
+     * @param outputDirectory the output directory
+     * @return this request
+     */
+    public AnalysisRequest setOutputDirectory(File outputDirectory) {
+        this.outputDirectory = outputDirectory;
+        return this;
+    }
+
+    /**
+     * Sets the name of the module being analyzed, used to label profiling events.
+     *
+     * @param module the module name, e.g. {@code groupId:artifactId}
+     * @return this request
+     */
+    public AnalysisRequest setModule(String module) {
+        this.module = module;
+        return this;
+    }
+
+    /**
+     * Sets whether javac generates the class files of the analyzed sources into the output directory.
+     * <p>
+     * By default javac stops right after flow analysis. Class files are only needed when later
+     * analyses resolve these sources from the output directory rather than from their sources.
+     *
+     * @param generateClasses whether to generate class files
+     * @return this request
+     */
+    public AnalysisRequest setGenerateClasses(boolean generateClasses) {
+        this.generateClasses = generateClasses;
+        return this;
+    }
+
+    /**
+     * Creates a copy of this request, e.g. to analyze a subset of its source files.
+     *
+     * @return a new request with the same settings
+     */
+    public AnalysisRequest copy() {
+        return new AnalysisRequest()
+                .setErrorProneArgs(errorProneArgs)
+                .setCompilerOptions(compilerOptions)
+                .setSourceFiles(sourceFiles)
+                .setClasspath(classpath)
+                .setSourcepath(sourcepath)
+                .setProcessorPath(processorPath)
+                .setOutputDirectory(outputDirectory)
+                .setModule(module)
+                .setGenerateClasses(generateClasses);
+    }
+
+    public List<String> getErrorProneArgs() {
+        return errorProneArgs;
+    }
+
+    public List<String> getCompilerOptions() {
+        return compilerOptions;
+    }
+
+    public List<File> getSourceFiles() {
+        return sourceFiles;
+    }
+
+    public List<File> getClasspath() {
+        return classpath;
+    }
+
+    public List<File> getSourcepath() {
+        return sourcepath;
+    }
+
+    public List<File> getProcessorPath() {
+        return processorPath;
+    }
+
+    public File getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    public String getModule() {
+        return module;
+    }
+
+    public boolean isGenerateClasses() {
+        return generateClasses;
+    }
+}
@@ -0,0 +1,204 @@
+package net.ltgt.maven.nullaway;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A long-lived process running NullAway analyses for {@link WorkerClient}s.
+ * <p>
+ * The worker keeps the Error Prone and NullAway class loaders, and the JIT state that comes
+ * with them, across builds. It listens on a loopback port and only serves clients presenting
+ * the random token it publishes, along with the port, in its registry file. It exits once it
+ * has been idle for the given timeout.
+ * <p>
+ * This class only depends on the JDK, as the worker runs with the plugin jar alone on its classpath.
+ */
+public final class AnalysisWorker {
+    static final String PORT = "port";
+    static final String TOKEN = "token";
+    static final String PID = "pid";
+    /**
+     * How long the worker waits for the next bytes of a request before dropping the connection.
+     */
+    static final int READ_TIMEOUT_MILLIS = 30_000;
+
+    private final File registryFile;
+    private final long idleTimeoutMillis;
+    private final String token;
+    private final InProcessAnalyzer analyzer = new InProcessAnalyzer(true);
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final AtomicLong lastActivity = new AtomicLong(System.currentTimeMillis());
+    private ServerSocket serverSocket;
+
+    private AnalysisWorker(File registryFile, long idleTimeoutMillis) {
+        this.registryFile = registryFile;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        StringBuilder sb = new StringBuilder();
+        for (byte b : random) {
+            sb.append(String.format("%02x", b));
+        }
+        this.token = sb.toString();
+    }
+
+    /**
+     * Starts a worker.
+     *
+     * @param args the registry file and the idle timeout in milliseconds
+     * @throws IOException if the worker cannot listen or publish its registry file
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: AnalysisWorker <registry file> <idle timeout millis>");
+            System.exit(2);
+        }
+        new AnalysisWorker(new File(args[0]), Long.parseLong(args[1])).run();
+    }
+
+    /**
+     * Listens for requests until the worker has been idle for too long.
+     *
+     * @throws IOException if the worker cannot listen or publish its registry file
+     */
+    private void run() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        publish();
+
+        ScheduledExecutorService idleChecker = Executors.newSingleThreadScheduledExecutor(daemon("idle-check"));
+        long period = Math.max(100, Math.min(1000, idleTimeoutMillis));
+        idleChecker.scheduleAtFixedRate(this::stopIfIdle, period, period, TimeUnit.MILLISECONDS);
+
+        ExecutorService handlers = Executors.newCachedThreadPool(daemon("analysis"));
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                // Closed when stopping
+                break;
+            }
+            activeRequests.incrementAndGet();
+            handlers.execute(() -> handle(socket));
+        }
+        handlers.shutdownNow();
+        idleChecker.shutdownNow();
+    }
+
+    /**
+     * Serves a single request.
+     *
+     * @param socket the client connection
+     */
+    private void handle(Socket socket) {
+        try (Socket s = socket) {
+            s.setSoTimeout(READ_TIMEOUT_MILLIS);
+            DataInputStream in = new DataInputStream(s.getInputStream());
+            DataOutputStream out = new DataOutputStream(s.getOutputStream());
+            String clientToken = WorkerProtocol.readToken(in);
+            if (!MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), clientToken.getBytes(StandardCharsets.UTF_8))) {
+                WorkerProtocol.writeError(out, "Invalid token");
+                return;
+            }
+            AnalysisRequest request = WorkerProtocol.readRequest(in);
+            try {
+                WorkerProtocol.writeFindings(out, analyzer.analyze(request));
+            } catch (IOException | RuntimeException | LinkageError e) {
+                WorkerProtocol.writeError(out, String.valueOf(e));
+            }
+        } catch (IOException e) {
+            // The client went away or sent an invalid request; nothing to report to
+        } finally {
+            lastActivity.set(System.currentTimeMillis());
+            activeRequests.decrementAndGet();
+        }
+    }
+
+    /**
+     * Stops the worker if no request is running and the last one completed longer than the idle timeout ago.
+     */
+    private void stopIfIdle() {
+        if (activeRequests.get() > 0 || System.currentTimeMillis() - lastActivity.get() < idleTimeoutMillis) {
+            return;
+        }
+        unpublish();
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // Exiting anyway
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Writes the registry file atomically, readable by the current user only.
+     *
+     * @throws IOException if the registry file cannot be written
+     */
+    private void publish() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(PORT, Integer.toString(serverSocket.getLocalPort()));
+        properties.setProperty(TOKEN, token);
+        properties.setProperty(PID, ManagementFactory.getRuntimeMXBean().getName());
+
+        File temp = new File(registryFile.getPath() + "." + serverSocket.getLocalPort() + ".tmp");
+        WorkerClient.createPrivateFile(temp);
+        try (OutputStream out = Files.newOutputStream(temp.toPath())) {
+            properties.store(out, "NullAway analysis worker");
+        }
+        Files.move(temp.toPath(), registryFile.toPath(),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Removes the registry file, unless another worker has replaced it meanwhile.
+     */
+    private void unpublish() {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(registryFile.toPath())) {
+            properties.load(in);
+            if (token.equals(properties.getProperty(TOKEN))) {
+                Files.deleteIfExists(registryFile.toPath());
+            }
+        } catch (IOException e) {
+            // Already gone
+        }
+    }
+
+    /**
+     * Creates a thread factory for daemon threads.
+     *
+     * @param name the thread name prefix
+     * @return the thread factory
+     */
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "nullaway-worker-" + name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
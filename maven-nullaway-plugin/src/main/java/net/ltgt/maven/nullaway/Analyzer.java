@@ -0,0 +1,19 @@
+package net.ltgt.maven.nullaway;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Runs NullAway analyses, either in the current JVM or in a worker process.
+ */
+public interface Analyzer {
+
+    /**
+     * Runs an analysis.
+     *
+     * @param request the analysis to run
+     * @return the errors and warnings reported by javac, sorted
+     * @throws IOException if the analysis cannot access its inputs or outputs, or cannot be run
+     */
+    List<Finding> analyze(AnalysisRequest request) throws IOException;
+}
@@ -0,0 +1,95 @@
+package net.ltgt.maven.nullaway;
+
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.SessionData;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches generated NullAway arguments for the duration of a Maven session.
+ * <p>
+ * In a reactor where modules inherit the same NullAway configuration from a parent POM, all those
+ * modules share a single immutable argument list instead of each generating their own. The cache
+ * is safe to use from concurrent module builds.
+ */
+public class ArgumentCache {
+    private final ConcurrentMap<ArgumentGenerator, List<String>> arguments = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Returns the cache for the given session, creating it on first use.
+     * <p>
+     * The cache is stored in the repository session data, which lives exactly as long as the
+     * Maven session. The key is this class itself, so that different versions of the plugin
+     * loaded in the same session don't share (and fail to cast) each other's cache.
+     *
+     * @param session the Maven session, may be null outside of a Maven build
+     * @return the session cache
+     */
+    public static ArgumentCache forSession(MavenSession session) {
+        if (session == null || session.getRepositorySession() == null) {
+            return new ArgumentCache();
+        }
+        SessionData data = session.getRepositorySession().getData();
+        ArgumentCache cache = (ArgumentCache) data.get(ArgumentCache.class);
+        while (cache == null) {
+            data.set(ArgumentCache.class, null, new ArgumentCache());
+            cache = (ArgumentCache) data.get(ArgumentCache.class);
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the arguments for the given configuration, generating them only if no module
+     * with an equal configuration did so before.
+     *
+     * @param generator the generator holding the effective configuration
+     * @return the immutable list of arguments
+     */
+    public List<String> get(ArgumentGenerator generator) {
+        List<String> cached = arguments.get(generator);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        boolean[] generated = new boolean[1];
+        List<String> result = arguments.computeIfAbsent(generator, key -> {
+            generated[0] = true;
+            List<String> args = new ArrayList<>();
+            for (String arg : key.generate()) {
+                args.add(arg.intern());
+            }
+            return Collections.unmodifiableList(args);
+        });
+        if (generated[0]) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Returns how many lookups were served from the cache.
+     *
+     * @return the number of cache hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns how many lookups had to generate arguments.
+     *
+     * @return the number of cache misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+}
@@ -1,6 +1,7 @@
 package net.ltgt.maven.nullaway;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -154,6 +155,65 @@ public class ArgumentGenerator {
         return args;
     }
 
+    /**
+     * Two generators are equal if they were created with equal configuration, and thus generate
+     * the same arguments.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ArgumentGenerator)) {
+            return false;
+        }
+        return configuration().equals(((ArgumentGenerator) o).configuration());
+    }
+
+    @Override
+    public int hashCode() {
+        return configuration().hashCode();
+    }
+
+    /**
+     * Lists all configuration values, for use in {@link #equals(Object)} and {@link #hashCode()}.
+     *
+     * @return the configuration values, in constructor order
+     */
+    private List<Object> configuration() {
+        return Arrays.asList(
+                severity,
+                onlyNullMarked,
+                annotatedPackages,
+                unannotatedSubPackages,
+                unannotatedClasses,
+                knownInitializers,
+                excludedClassAnnotations,
+                excludedClasses,
+                excludedFieldAnnotations,
+                customInitializerAnnotations,
+                externalInitAnnotations,
+                treatGeneratedAsUnannotated,
+                acknowledgeRestrictiveAnnotations,
+                checkOptionalEmptiness,
+                suggestSuppressions,
+                assertsEnabled,
+                exhaustiveOverride,
+                castToNonNullMethod,
+                checkOptionalEmptinessCustomClasses,
+                autoFixSuppressionComment,
+                handleTestAssertionLibraries,
+                acknowledgeAndroidRecent,
+                checkContracts,
+                customContractAnnotations,
+                customNullableAnnotations,
+                customNonnullAnnotations,
+                customGeneratedCodeAnnotations,
+                jspecifyMode,
+                extraFuturesClasses,
+                suppressionNameAliases);
+    }
+
     /**
      * Formats the severity argument.
      * <p>
@@ -0,0 +1,312 @@
+package net.ltgt.maven.nullaway;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The NullAway findings accepted in a module, so that only new ones fail the build.
+ * <p>
+ * A finding is identified by the path of its file relative to the module, its message, and the
+ * text of its source line, with whitespace collapsed. Line numbers and severities are left out, so
+ * that editing unrelated code, reindenting or raising the severity doesn't turn accepted findings
+ * into new ones, while the same problem on another line of the file counts as new. Identical
+ * findings on lines with the same text share their identity.
+ * <p>
+ * The baseline file only holds a sorted array of 64-bit hashes of these identities, behind a
+ * small header, and is loaded as such: 8 bytes per accepted finding. Each finding is matched on
+ * its own by binary search, in any order, so findings can be compared as the analysis reports
+ * them. Only the {@code check} goal, and {@code watch}, compare findings with the baseline: the
+ * compilations configured by the {@code configure} goal report all findings.
+ */
+public class Baseline {
+    private static final int MAGIC = 0x4e41424c; // "NABL"
+    private static final int VERSION = 2;
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final long[] keys;
+
+    private Baseline(long[] keys) {
+        this.keys = keys;
+    }
+
+    /**
+     * Creates a baseline accepting the given findings.
+     *
+     * @param findings the findings
+     * @param basedir  the module directory, that file paths are made relative to
+     * @return the baseline
+     */
+    public static Baseline of(List<Finding> findings, File basedir) {
+        long[] keys = new long[findings.size()];
+        KeyFunction keyFunction = new KeyFunction(basedir);
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = keyFunction.key(findings.get(i));
+        }
+        Arrays.sort(keys);
+        return new Baseline(distinct(keys));
+    }
+
+    /**
+     * Reads a baseline file.
+     *
+     * @param file the baseline file
+     * @return the baseline
+     * @throws IOException if the file cannot be read or is not a baseline file
+     */
+    public static Baseline read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a NullAway baseline file: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported NullAway baseline version " + version + ": " + file +
+                        ", record it again with nullaway:baseline");
+            }
+            int size = in.readInt();
+            if (size < 0 || size > (file.length() - 12) / 8) {
+                throw new IOException("Corrupt NullAway baseline file: " + file);
+            }
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = in.readLong();
+                if (i > 0 && keys[i] <= keys[i - 1]) {
+                    throw new IOException("Corrupt NullAway baseline file: " + file);
+                }
+            }
+            return new Baseline(keys);
+        } catch (EOFException e) {
+            throw new IOException("Truncated NullAway baseline file: " + file, e);
+        }
+    }
+
+    /**
+     * Writes the baseline, replacing the file atomically so that concurrent builds never read a partial one.
+     *
+     * @param file the baseline file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(File file) throws IOException {
+        Path target = file.toPath().toAbsolutePath();
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(keys.length);
+                for (long key : keys) {
+                    out.writeLong(key);
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Returns the number of accepted findings.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Matches findings against the baseline.
+     *
+     * @param findings the findings, in any order
+     * @param basedir  the module directory, that file paths are made relative to
+     * @return the outcome of the comparison
+     */
+    public Comparison compare(Iterable<Finding> findings, File basedir) {
+        Comparison comparison = newComparison(basedir);
+        for (Finding finding : findings) {
+            comparison.add(finding);
+        }
+        return comparison;
+    }
+
+    /**
+     * Starts matching findings against the baseline, one at a time.
+     *
+     * @param basedir the module directory, that file paths are made relative to
+     * @return the comparison, to {@link Comparison#add add} findings to
+     */
+    public Comparison newComparison(File basedir) {
+        return new Comparison(keys, new KeyFunction(basedir));
+    }
+
+    /**
+     * Computes the identities of findings.
+     * <p>
+     * The source lines of the last file read are kept, as findings usually come grouped by file.
+     */
+    private static class KeyFunction {
+        private final Path base;
+        private final MessageDigest digest = Digests.sha256();
+        private String currentFile;
+        private String relativePath;
+        private List<String> lines = Collections.emptyList();
+
+        KeyFunction(File basedir) {
+            this.base = basedir.toPath().toAbsolutePath().normalize();
+        }
+
+        /**
+         * Hashes the identity of a finding.
+         *
+         * @param finding the finding
+         * @return the first 64 bits of the SHA-256 of the identity
+         */
+        long key(Finding finding) {
+            if (!finding.getFile().equals(currentFile)) {
+                currentFile = finding.getFile();
+                relativePath = relativize(base, currentFile);
+                lines = readLines(currentFile);
+            }
+            long line = finding.getLine();
+            String text = line >= 1 && line <= lines.size()
+                    ? WHITESPACE.matcher(lines.get((int) line - 1).trim()).replaceAll(" ")
+                    : "";
+            digest.reset();
+            digest.update((relativePath + '\0' + finding.getMessage() + '\0' + text).getBytes(StandardCharsets.UTF_8));
+            byte[] hash = digest.digest();
+            long key = 0;
+            for (int i = 0; i < 8; i++) {
+                key = (key << 8) | (hash[i] & 0xff);
+            }
+            return key;
+        }
+
+        /**
+         * Reads the lines of a source file.
+         *
+         * @param file the file path, possibly empty
+         * @return the lines, or an empty list if the file cannot be read
+         */
+        private static List<String> readLines(String file) {
+            if (file.isEmpty()) {
+                return Collections.emptyList();
+            }
+            try {
+                // Any encoding gives the same identities from one build to the next, and this one never fails
+                return Files.readAllLines(new File(file).toPath(), StandardCharsets.ISO_8859_1);
+            } catch (IOException e) {
+                return Collections.emptyList();
+            }
+        }
+    }
+
+    /**
+     * Makes a file path relative to the module, with forward slashes.
+     *
+     * @param base the module directory
+     * @param file the file path, possibly empty
+     * @return the relative path, or the path itself if it is outside of the module
+     */
+    private static String relativize(Path base, String file) {
+        if (file.isEmpty()) {
+            return file;
+        }
+        Path path = new File(file).toPath().toAbsolutePath().normalize();
+        Path relative = path.startsWith(base) ? base.relativize(path) : path;
+        return relative.toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * Removes duplicates from a sorted array.
+     *
+     * @param sorted the sorted keys
+     * @return the distinct keys
+     */
+    private static long[] distinct(long[] sorted) {
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, size);
+    }
+
+    /**
+     * The outcome of matching findings against a baseline.
+     */
+    public static class Comparison {
+        private final long[] keys;
+        private final KeyFunction keyFunction;
+        private final BitSet matchedKeys;
+        private final List<Finding> newFindings = new ArrayList<>();
+        private int matched;
+
+        private Comparison(long[] keys, KeyFunction keyFunction) {
+            this.keys = keys;
+            this.keyFunction = keyFunction;
+            this.matchedKeys = new BitSet(keys.length);
+        }
+
+        /**
+         * Matches a finding against the baseline.
+         *
+         * @param finding the finding
+         * @return true if the baseline accepts it, false if it is new
+         */
+        public boolean add(Finding finding) {
+            int index = Arrays.binarySearch(keys, keyFunction.key(finding));
+            if (index >= 0) {
+                matchedKeys.set(index);
+                matched++;
+                return true;
+            }
+            newFindings.add(finding);
+            return false;
+        }
+
+        /**
+         * Returns the findings that are not in the baseline.
+         *
+         * @return the new findings, in their original order
+         */
+        public List<Finding> getNewFindings() {
+            return newFindings;
+        }
+
+        /**
+         * Returns the number of findings accepted by the baseline.
+         *
+         * @return the number of matched findings
+         */
+        public int getMatched() {
+            return matched;
+        }
+
+        /**
+         * Returns the number of baseline entries that no finding matched anymore.
+         *
+         * @return the number of fixed findings
+         */
+        public int getFixed() {
+            return keys.length - matchedKeys.cardinality();
+        }
+    }
+}
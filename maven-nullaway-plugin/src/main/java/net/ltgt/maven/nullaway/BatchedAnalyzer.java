@@ -0,0 +1,344 @@
+package net.ltgt.maven.nullaway;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Analyzes a module too large to be analyzed at once in batches of packages, one after the other.
+ * <p>
+ * javac keeps the attributed trees of all the sources of a compilation until it ends, and NullAway
+ * adds its dataflow state, so the heap needed by an analysis grows with the size of the module.
+ * Batches are sized after a heap budget and ordered after the package graph of the sources: the
+ * packages of a dependency cycle share a batch, and a batch only comes after the batches of the
+ * packages it depends on. Each batch but the last also generates its class files, which later
+ * batches then resolve from the classpath instead of attributing their sources again; when
+ * NullAway reports errors, which keep javac from writing class files, the batch is compiled
+ * again with NullAway disabled.
+ */
+public class BatchedAnalyzer {
+    /**
+     * Estimated heap retained by javac, Error Prone and NullAway per byte of analyzed source.
+     */
+    static final int HEAP_PER_SOURCE_BYTE = 24;
+
+    private static final Pattern PACKAGE = Pattern.compile("\\bpackage\\s+([\\w$.\\s]+?)\\s*;");
+    private static final Pattern QUALIFIED_NAME = Pattern.compile("[A-Za-z_$][\\w$]*(?:\\s*\\.\\s*(?:[A-Za-z_$][\\w$]*|\\*))+");
+
+    private final Analyzer analyzer;
+
+    /**
+     * Creates a batched analyzer.
+     *
+     * @param analyzer the analyzer running each batch
+     */
+    public BatchedAnalyzer(Analyzer analyzer) {
+        this.analyzer = analyzer;
+    }
+
+    /**
+     * Analyzes the source files of a request in batches, in order.
+     *
+     * @param request the analysis to run
+     * @param batches the batches of source files, as returned by {@link #partition}
+     * @return the merged findings, sorted and without duplicates
+     * @throws IOException if a batch cannot be analyzed
+     */
+    public List<Finding> analyze(AnalysisRequest request, List<List<File>> batches) throws IOException {
+        if (batches.size() <= 1) {
+            return analyzer.analyze(request);
+        }
+
+        // Stale classes of a previous run must not hide the sources of the current one
+        File classes = new File(request.getOutputDirectory(), "batches");
+        Directories.deleteRecursively(classes.toPath());
+        Files.createDirectories(classes.toPath());
+        List<File> classpath = new ArrayList<>();
+        classpath.add(classes);
+        classpath.addAll(request.getClasspath());
+
+        List<List<Finding>> results = new ArrayList<>();
+        for (int i = 0; i < batches.size(); i++) {
+            List<File> files = batches.get(i);
+            AnalysisRequest batch = request.copy()
+                    .setSourceFiles(files)
+                    .setClasspath(classpath)
+                    .setOutputDirectory(classes)
+                    .setGenerateClasses(i < batches.size() - 1);
+            List<Finding> findings = analyzer.analyze(batch);
+            if (batch.isGenerateClasses() && hasErrors(findings)) {
+                // javac writes no class file once a compilation reported errors, NullAway's included
+                analyzer.analyze(batch.copy().setErrorProneArgs(Collections.<String>emptyList()));
+            }
+            results.add(InProcessAnalyzer.ownFindings(findings, files));
+        }
+        return ShardedAnalyzer.merge(results);
+    }
+
+    /**
+     * Checks whether an analysis reported errors.
+     *
+     * @param findings the findings of the analysis
+     * @return true if any finding is an error
+     */
+    private static boolean hasErrors(List<Finding> findings) {
+        for (Finding finding : findings) {
+            if (finding.getKind() == Finding.Kind.ERROR) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Splits source files into batches of whole packages, in dependency order.
+     * <p>
+     * Packages are ordered after the strongly connected components of the package graph, and
+     * consecutive components are grouped until a batch would exceed the budget. A dependency
+     * cycle larger than the budget makes a batch of its own.
+     *
+     * @param sourceFiles  the source files
+     * @param memoryBudget the estimated heap, in bytes, a batch may need
+     * @return the non-empty batches, each sorted
+     * @throws IOException if a source file cannot be read
+     */
+    static List<List<File>> partition(List<File> sourceFiles, long memoryBudget) throws IOException {
+        Map<File, String> sources;
+        try {
+            sources = sourceFiles.parallelStream().distinct().collect(Collectors.toMap(file -> file, file -> {
+                try {
+                    return NullMarkedScanner.stripComments(
+                            new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        Map<String, List<File>> packages = new TreeMap<>();
+        for (Map.Entry<File, String> source : sources.entrySet()) {
+            packages.computeIfAbsent(packageName(source.getValue()), k -> new ArrayList<>()).add(source.getKey());
+        }
+        Map<String, Set<String>> dependencies = new TreeMap<>();
+        for (Map.Entry<String, List<File>> pkg : packages.entrySet()) {
+            Set<String> referenced = new TreeSet<>();
+            for (File file : pkg.getValue()) {
+                referenced.addAll(referencedPackages(sources.get(file), packages.keySet()));
+            }
+            referenced.remove(pkg.getKey());
+            dependencies.put(pkg.getKey(), referenced);
+        }
+
+        List<List<File>> batches = new ArrayList<>();
+        List<File> batch = new ArrayList<>();
+        long batchHeap = 0;
+        for (List<String> component : new Components(dependencies).list()) {
+            List<File> files = new ArrayList<>();
+            for (String name : component) {
+                files.addAll(packages.get(name));
+            }
+            long heap = estimateHeap(files);
+            if (!batch.isEmpty() && batchHeap + heap > memoryBudget) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+                batchHeap = 0;
+            }
+            batch.addAll(files);
+            batchHeap += heap;
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        for (List<File> files : batches) {
+            Collections.sort(files);
+        }
+        return batches;
+    }
+
+    /**
+     * Estimates the heap needed to analyze source files, from their sizes.
+     *
+     * @param sourceFiles the source files
+     * @return the estimated heap, in bytes
+     */
+    static long estimateHeap(List<File> sourceFiles) {
+        long bytes = 0;
+        for (File file : sourceFiles) {
+            bytes += file.length();
+        }
+        return bytes * HEAP_PER_SOURCE_BYTE;
+    }
+
+    /**
+     * Reads the package declaration of a source file.
+     *
+     * @param source the source, without comments
+     * @return the package name, or the empty string for the unnamed package
+     */
+    static String packageName(String source) {
+        Matcher matcher = PACKAGE.matcher(source);
+        return matcher.find() ? matcher.group(1).replaceAll("\\s", "") : "";
+    }
+
+    /**
+     * Finds the packages of the module that a source file refers to, through imports or qualified names.
+     * <p>
+     * Sources are matched textually: any qualified name starting with the name of a package of
+     * the module counts as a reference to that package. Types of the same package and of the
+     * unnamed package cannot be referred to by qualified names, and need no imports.
+     *
+     * @param source   the source, without comments
+     * @param packages the packages of the module
+     * @return the referenced packages
+     */
+    static Set<String> referencedPackages(String source, Set<String> packages) {
+        Set<String> referenced = new TreeSet<>();
+        // The package declaration names the package itself, and its enclosing packages
+        Matcher matcher = QUALIFIED_NAME.matcher(PACKAGE.matcher(source).replaceFirst(""));
+        while (matcher.find()) {
+            // Every prefix may be a package name, e.g. in on-demand imports
+            StringBuilder prefix = new StringBuilder();
+            for (String part : matcher.group().replaceAll("\\s", "").split("\\.")) {
+                if (prefix.length() > 0) {
+                    prefix.append('.');
+                }
+                prefix.append(part);
+                if (packages.contains(prefix.toString())) {
+                    referenced.add(prefix.toString());
+                }
+            }
+        }
+        return referenced;
+    }
+
+    /**
+     * The strongly connected components of a package graph, found with Tarjan's algorithm.
+     * <p>
+     * Tarjan's algorithm completes a component only after all the components it depends on,
+     * which is the order batches are analyzed in. The depth first search keeps its own stack, as
+     * a chain of dependent packages can be longer than the call stack allows.
+     */
+    static final class Components {
+        private final Map<String, Set<String>> dependencies;
+        private final Map<String, Integer> index = new HashMap<>();
+        private final Map<String, Integer> lowLink = new HashMap<>();
+        private final List<String> stack = new ArrayList<>();
+        private final Set<String> onStack = new TreeSet<>();
+        private final List<List<String>> components = new ArrayList<>();
+
+        /**
+         * Creates the components of a graph.
+         *
+         * @param dependencies the packages each package depends on, sorted for a stable order
+         */
+        Components(Map<String, Set<String>> dependencies) {
+            this.dependencies = dependencies;
+        }
+
+        /**
+         * Lists the components.
+         *
+         * @return the components, each after those it depends on
+         */
+        List<List<String>> list() {
+            for (String name : dependencies.keySet()) {
+                if (!index.containsKey(name)) {
+                    visit(name);
+                }
+            }
+            return components;
+        }
+
+        /**
+         * Visits a package and, depth first, the packages it depends on.
+         *
+         * @param root the package
+         */
+        private void visit(String root) {
+            Deque<Visit> path = new ArrayDeque<>();
+            path.push(enter(root));
+            while (!path.isEmpty()) {
+                Visit visit = path.peek();
+                if (visit.dependencies.hasNext()) {
+                    String dependency = visit.dependencies.next();
+                    if (!index.containsKey(dependency)) {
+                        path.push(enter(dependency));
+                    } else if (onStack.contains(dependency)) {
+                        lowLink.put(visit.name, Math.min(lowLink.get(visit.name), index.get(dependency)));
+                    }
+                    continue;
+                }
+                path.pop();
+                if (!path.isEmpty()) {
+                    String dependent = path.peek().name;
+                    lowLink.put(dependent, Math.min(lowLink.get(dependent), lowLink.get(visit.name)));
+                }
+                if (lowLink.get(visit.name).equals(index.get(visit.name))) {
+                    complete(visit.name);
+                }
+            }
+        }
+
+        /**
+         * Starts visiting a package.
+         *
+         * @param name the package
+         * @return the visit, iterating over the packages it depends on
+         */
+        private Visit enter(String name) {
+            index.put(name, index.size());
+            lowLink.put(name, index.get(name));
+            stack.add(name);
+            onStack.add(name);
+            return new Visit(name, dependencies.get(name).iterator());
+        }
+
+        /**
+         * Pops the component whose first visited package is {@code name}.
+         *
+         * @param name the root of the component
+         */
+        private void complete(String name) {
+            List<String> component = new ArrayList<>();
+            String member;
+            do {
+                member = stack.remove(stack.size() - 1);
+                onStack.remove(member);
+                component.add(member);
+            } while (!member.equals(name));
+            Collections.sort(component);
+            components.add(component);
+        }
+
+        /**
+         * A package being visited, with the packages it depends on that are left to visit.
+         */
+        private static final class Visit {
+            final String name;
+            final Iterator<String> dependencies;
+
+            Visit(String name, Iterator<String> dependencies) {
+                this.name = name;
+                this.dependencies = dependencies;
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package net.ltgt.maven.nullaway;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * An Application Class Data Sharing archive of javac with Error Prone and NullAway loaded, for
+ * forked compilations.
+ * <p>
+ * The archive is created once by a training compilation run with {@code -XX:ArchiveClassesAtExit},
+ * so that later javac processes map the already parsed and verified classes instead of loading
+ * them from jars. It is only valid for the javac executable and the processor path it was
+ * created with, so these are part of its file name, and archives are shared by all builds of a
+ * machine. A JVM started with a stale or mismatching archive falls back to loading classes
+ * normally, as {@code -Xshare:auto} is the default.
+ */
+public class CdsArchive {
+    private static final String TRAINING_SOURCE = String.join("\n",
+            "package nullaway.cds;",
+            "",
+            "import java.util.ArrayList;",
+            "import java.util.List;",
+            "",
+            "class Training {",
+            "    @interface Nullable {}",
+            "",
+            "    @Nullable private String field;",
+            "    private final List<String> values = new ArrayList<>();",
+            "",
+            "    String describe(@Nullable String value) {",
+            "        if (value != null) {",
+            "            values.add(value.trim());",
+            "        }",
+            "        String current = field;",
+            "        return current == null ? String.join(\",\", values) : current;",
+            "    }",
+            "}",
+            "");
+
+    private final File archive;
+    private final File javac;
+    private final List<File> processorPath;
+
+    /**
+     * Locates the archive for a javac executable and processor path.
+     *
+     * @param directory     the directory shared by all archives
+     * @param javac         the javac executable of the forked compilations
+     * @param processorPath the annotation processor path, in order
+     * @throws IOException if the javac executable or the processor path cannot be read
+     */
+    public CdsArchive(File directory, File javac, List<File> processorPath) throws IOException {
+        this.javac = javac;
+        this.processorPath = processorPath;
+        this.archive = new File(directory, "javac-" + key(javac, processorPath) + ".jsa");
+    }
+
+    /**
+     * Returns the archive file, which may not exist yet.
+     *
+     * @return the archive file
+     */
+    public File getFile() {
+        return archive;
+    }
+
+    /**
+     * Returns the javac option that makes forked compilations use the archive.
+     *
+     * @return the {@code -J-XX:SharedArchiveFile} option
+     */
+    public String toCompilerArg() {
+        return "-J-XX:SharedArchiveFile=" + archive.getAbsolutePath();
+    }
+
+    /**
+     * Creates the archive unless it exists, with a training compilation.
+     * <p>
+     * Concurrent builds wait for each other through a lock file, so only one of them trains. As file
+     * locks are held by the whole JVM, the modules of a parallel build also wait for each other on
+     * a lock of their own.
+     *
+     * @param jvmArgs the JVM arguments the forked compilations need, such as {@code --add-exports}
+     * @return true if the archive was created by this call
+     * @throws IOException if the training compilation fails or doesn't produce an archive
+     */
+    public boolean create(List<String> jvmArgs) throws IOException {
+        Files.createDirectories(archive.getParentFile().toPath());
+        File lockFile = new File(archive.getPath() + ".lock");
+        synchronized (CdsArchive.class) {
+            try (RandomAccessFile raf = new RandomAccessFile(lockFile, "rw");
+                 FileChannel channel = raf.getChannel();
+                 FileLock lock = channel.lock()) {
+                if (archive.isFile()) {
+                    return false;
+                }
+                Path work = Files.createTempDirectory(archive.getParentFile().toPath(), "training");
+                try {
+                    train(work, jvmArgs);
+                } finally {
+                    Directories.deleteRecursively(work);
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Runs the training compilation and moves the resulting archive into place.
+     *
+     * @param work    the working directory of the training compilation
+     * @param jvmArgs the JVM arguments of the forked compilations
+     * @throws IOException if the training compilation fails
+     */
+    private void train(Path work, List<String> jvmArgs) throws IOException {
+        Path source = work.resolve("nullaway/cds/Training.java");
+        Files.createDirectories(source.getParent());
+        Files.write(source, TRAINING_SOURCE.getBytes(StandardCharsets.UTF_8));
+        Path trained = work.resolve("archive.jsa");
+        Path log = work.resolve("training.log");
+
+        List<String> command = new ArrayList<>();
+        command.add(javac.getPath());
+        for (String jvmArg : jvmArgs) {
+            command.add("-J" + jvmArg);
+        }
+        command.add("-J-XX:ArchiveClassesAtExit=" + trained);
+        command.addAll(Arrays.asList("-XDcompilePolicy=simple", "--should-stop=ifError=FLOW"));
+        command.add("-processorpath");
+        command.add(processorPath.stream().map(File::getPath).collect(Collectors.joining(File.pathSeparator)));
+        command.add("-Xplugin:ErrorProne -Xep:NullAway:ERROR -XepOpt:NullAway:AnnotatedPackages=nullaway.cds");
+        command.add("-d");
+        command.add(work.resolve("classes").toString());
+        command.add(source.toString());
+
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        process.getOutputStream().close();
+        int exitCode;
+        try {
+            exitCode = process.waitFor();
+        } catch (InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while creating the class data sharing archive", e);
+        }
+        if (exitCode != 0 || !Files.isRegularFile(trained)) {
+            String output = new String(Files.readAllBytes(log), StandardCharsets.UTF_8).trim();
+            throw new IOException("Training compilation exited with code " + exitCode +
+                    (output.isEmpty() ? "" : ": " + output));
+        }
+        Files.move(trained, archive.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Computes the part of the archive name identifying the javac executable and processor path.
+     *
+     * @param javac         the javac executable
+     * @param processorPath the annotation processor path
+     * @return a hexadecimal key
+     * @throws IOException if a file cannot be read
+     */
+    static String key(File javac, List<File> processorPath) throws IOException {
+        MessageDigest digest = Digests.sha256();
+        List<File> files = new ArrayList<>();
+        files.add(javac.getCanonicalFile());
+        files.addAll(processorPath);
+        for (File file : files) {
+            String entry = file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified() + "\n";
+            digest.update(entry.getBytes(StandardCharsets.UTF_8));
+        }
+        return Digests.toHex(digest.digest(), 8);
+    }
+}
@@ -0,0 +1,453 @@
+package net.ltgt.maven.nullaway;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Extracts the part of a class file that NullAway can observe from another module.
+ * <p>
+ * NullAway only reads the signatures and annotations of the classes it doesn't analyze, so
+ * method bodies, private members and compiler-generated classes are left out. The description
+ * resolves all constant pool references, so that it doesn't depend on the order in which
+ * javac happened to lay out the constant pool: recompiling a class after changing only its
+ * implementation yields the same description.
+ */
+public class ClassAbi {
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_SUPER = 0x0020;
+    private static final int ACC_SYNTHETIC = 0x1000;
+
+    private final ByteBuffer buffer;
+    private Object[] constants;
+
+    private ClassAbi(byte[] classFile) {
+        this.buffer = ByteBuffer.wrap(classFile);
+    }
+
+    /**
+     * Describes the API of a class file.
+     *
+     * @param classFile the content of the class file
+     * @return a canonical description of the API, or an empty string if the class is not visible
+     * from other classes (e.g. anonymous, synthetic or private nested classes)
+     * @throws IllegalArgumentException if the class file is malformed
+     */
+    public static String describe(byte[] classFile) {
+        try {
+            return new ClassAbi(classFile).describe();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | ClassCastException e) {
+            throw new IllegalArgumentException("Malformed class file", e);
+        }
+    }
+
+    /**
+     * Parses the class file and builds its description.
+     *
+     * @return the description
+     */
+    private String describe() {
+        if (buffer.getInt() != 0xCAFEBABE) {
+            throw new IllegalArgumentException("Not a class file");
+        }
+        buffer.getShort(); // minor_version
+        buffer.getShort(); // major_version
+        readConstantPool();
+
+        int access = u2();
+        String name = classAt(u2());
+        int superIndex = u2();
+        List<String> header = new ArrayList<>();
+        header.add("class " + name + " " + Integer.toHexString(access & ~ACC_SUPER)
+                + (superIndex == 0 ? "" : " extends " + classAt(superIndex)));
+        int interfaceCount = u2();
+        for (int i = 0; i < interfaceCount; i++) {
+            header.add("implements " + classAt(u2()));
+        }
+        if ((access & ACC_SYNTHETIC) != 0 || isAnonymousOrLocal(name)) {
+            return "";
+        }
+
+        List<String> members = new ArrayList<>();
+        readMembers("field", members);
+        readMembers("method", members);
+        Collections.sort(members);
+
+        List<String> attributes = new ArrayList<>();
+        boolean[] privateNested = new boolean[1];
+        int attributeCount = u2();
+        for (int i = 0; i < attributeCount; i++) {
+            String attributeName = utf8At(u2());
+            int length = buffer.getInt();
+            int end = buffer.position() + length;
+            if ("InnerClasses".equals(attributeName)) {
+                readInnerClasses(name, privateNested);
+            } else {
+                String attribute = readAttribute(attributeName);
+                if (attribute != null) {
+                    attributes.add(attribute);
+                }
+            }
+            buffer.position(end);
+        }
+        if (privateNested[0]) {
+            return "";
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (String line : header) {
+            sb.append(line).append('\n');
+        }
+        for (String attribute : attributes) {
+            sb.append("  ").append(attribute).append('\n');
+        }
+        for (String member : members) {
+            sb.append(member);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Checks whether a class name denotes an anonymous or local class, e.g. {@code Foo$1} or {@code Foo$1Local}.
+     *
+     * @param name the internal class name
+     * @return true for anonymous and local classes
+     */
+    private static boolean isAnonymousOrLocal(String name) {
+        int dollar = name.lastIndexOf('$');
+        return dollar >= 0 && dollar + 1 < name.length() && Character.isDigit(name.charAt(dollar + 1));
+    }
+
+    /**
+     * Reads the constant pool, resolving entries that can be referenced from the parts we describe.
+     */
+    private void readConstantPool() {
+        int count = u2();
+        constants = new Object[count];
+        int[] classNameIndexes = new int[count];
+        int[] stringIndexes = new int[count];
+        for (int i = 1; i < count; i++) {
+            int tag = buffer.get() & 0xFF;
+            switch (tag) {
+                case 1: // Utf8
+                    byte[] bytes = new byte[u2()];
+                    buffer.get(bytes);
+                    constants[i] = decodeModifiedUtf8(bytes);
+                    break;
+                case 3: // Integer
+                    constants[i] = buffer.getInt();
+                    break;
+                case 4: // Float
+                    constants[i] = buffer.getFloat();
+                    break;
+                case 5: // Long
+                    constants[i++] = buffer.getLong();
+                    break;
+                case 6: // Double
+                    constants[i++] = buffer.getDouble();
+                    break;
+                case 7: // Class
+                    classNameIndexes[i] = u2();
+                    break;
+                case 8: // String
+                    stringIndexes[i] = u2();
+                    break;
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    u2();
+                    break;
+                case 15: // MethodHandle
+                    buffer.get();
+                    u2();
+                    break;
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    buffer.getInt();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown constant pool tag " + tag);
+            }
+        }
+        for (int i = 1; i < count; i++) {
+            if (classNameIndexes[i] != 0) {
+                constants[i] = new ClassName((String) constants[classNameIndexes[i]]);
+            } else if (stringIndexes[i] != 0) {
+                constants[i] = "\"" + constants[stringIndexes[i]] + "\"";
+            }
+        }
+    }
+
+    /**
+     * Reads the fields or methods of the class, keeping those that are not private nor synthetic.
+     *
+     * @param kind    "field" or "method"
+     * @param members the list to add the member descriptions to
+     */
+    private void readMembers(String kind, List<String> members) {
+        int count = u2();
+        for (int i = 0; i < count; i++) {
+            int access = u2();
+            String name = utf8At(u2());
+            String descriptor = utf8At(u2());
+            StringBuilder sb = new StringBuilder();
+            sb.append(kind).append(' ').append(Integer.toHexString(access)).append(' ')
+                    .append(name).append(' ').append(descriptor).append('\n');
+            int attributeCount = u2();
+            for (int j = 0; j < attributeCount; j++) {
+                String attributeName = utf8At(u2());
+                int length = buffer.getInt();
+                int end = buffer.position() + length;
+                String attribute = readAttribute(attributeName);
+                if (attribute != null) {
+                    sb.append("    ").append(attribute).append('\n');
+                }
+                buffer.position(end);
+            }
+            if ((access & (ACC_PRIVATE | ACC_SYNTHETIC)) == 0) {
+                members.add(sb.toString());
+            }
+        }
+    }
+
+    /**
+     * Reads the InnerClasses attribute, looking for the access flags of the class itself.
+     *
+     * @param name          the internal name of the class
+     * @param privateNested set to true if the class is a private nested class
+     */
+    private void readInnerClasses(String name, boolean[] privateNested) {
+        int count = u2();
+        for (int i = 0; i < count; i++) {
+            int innerIndex = u2();
+            u2(); // outer_class_info_index
+            u2(); // inner_name_index
+            int access = u2();
+            if (innerIndex != 0 && name.equals(classAt(innerIndex)) && (access & ACC_PRIVATE) != 0) {
+                privateNested[0] = true;
+            }
+        }
+    }
+
+    /**
+     * Describes an attribute that is part of the API, i.e. signatures, annotations and constants.
+     *
+     * @param name the attribute name
+     * @return the attribute description, or null if the attribute is an implementation detail
+     */
+    private String readAttribute(String name) {
+        switch (name) {
+            case "Signature":
+                return name + "=" + utf8At(u2());
+            case "ConstantValue":
+                return name + "=" + constants[u2()];
+            case "AnnotationDefault":
+                return name + "=" + readElementValue();
+            case "RuntimeVisibleAnnotations":
+            case "RuntimeInvisibleAnnotations":
+                return name + "=" + readAnnotations();
+            case "RuntimeVisibleParameterAnnotations":
+            case "RuntimeInvisibleParameterAnnotations": {
+                StringBuilder sb = new StringBuilder(name).append("=");
+                int parameters = buffer.get() & 0xFF;
+                for (int i = 0; i < parameters; i++) {
+                    sb.append(i).append(readAnnotations());
+                }
+                return sb.toString();
+            }
+            case "RuntimeVisibleTypeAnnotations":
+            case "RuntimeInvisibleTypeAnnotations":
+                return name + "=" + readTypeAnnotations();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Reads a list of annotations.
+     *
+     * @return the description of the annotations
+     */
+    private String readAnnotations() {
+        StringBuilder sb = new StringBuilder("[");
+        int count = u2();
+        for (int i = 0; i < count; i++) {
+            sb.append(readAnnotation());
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Reads a single annotation, including its element values.
+     *
+     * @return the description of the annotation
+     */
+    private String readAnnotation() {
+        StringBuilder sb = new StringBuilder("@").append(utf8At(u2())).append('(');
+        int pairs = u2();
+        for (int i = 0; i < pairs; i++) {
+            sb.append(utf8At(u2())).append('=').append(readElementValue()).append(',');
+        }
+        return sb.append(')').toString();
+    }
+
+    /**
+     * Reads an annotation element value.
+     *
+     * @return the description of the element value
+     */
+    private String readElementValue() {
+        char tag = (char) (buffer.get() & 0xFF);
+        switch (tag) {
+            case 'e':
+                return utf8At(u2()) + "." + utf8At(u2());
+            case 'c':
+                return utf8At(u2()) + ".class";
+            case '@':
+                return readAnnotation();
+            case '[': {
+                StringBuilder sb = new StringBuilder("{");
+                int count = u2();
+                for (int i = 0; i < count; i++) {
+                    sb.append(readElementValue()).append(',');
+                }
+                return sb.append('}').toString();
+            }
+            default:
+                return tag + String.valueOf(constants[u2()]);
+        }
+    }
+
+    /**
+     * Reads type annotations, keeping their target and type path as raw bytes since they don't
+     * reference the constant pool.
+     *
+     * @return the description of the type annotations
+     */
+    private String readTypeAnnotations() {
+        StringBuilder sb = new StringBuilder("[");
+        int count = u2();
+        for (int i = 0; i < count; i++) {
+            int start = buffer.position();
+            int targetType = buffer.get() & 0xFF;
+            skipTargetInfo(targetType);
+            int pathLength = buffer.get() & 0xFF;
+            buffer.position(buffer.position() + pathLength * 2);
+            for (int j = start; j < buffer.position(); j++) {
+                sb.append(Integer.toHexString(buffer.get(j) & 0xFF)).append(':');
+            }
+            sb.append(readAnnotation());
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Skips over the target_info structure of a type annotation.
+     *
+     * @param targetType the target_type of the type annotation
+     */
+    private void skipTargetInfo(int targetType) {
+        switch (targetType) {
+            case 0x00: // type parameter
+            case 0x01:
+            case 0x16: // formal parameter
+                buffer.get();
+                break;
+            case 0x10: // supertype
+            case 0x17: // throws
+            case 0x42: // catch
+            case 0x43: // offsets
+            case 0x44:
+            case 0x45:
+            case 0x46:
+                u2();
+                break;
+            case 0x11: // type parameter bound
+            case 0x12:
+                u2();
+                break;
+            case 0x13: // empty targets
+            case 0x14:
+            case 0x15:
+                break;
+            case 0x40: // local variables
+            case 0x41:
+                buffer.position(buffer.position() + u2() * 6);
+                break;
+            case 0x47: // type arguments
+            case 0x48:
+            case 0x49:
+            case 0x4A:
+            case 0x4B:
+                u2();
+                buffer.get();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown type annotation target " + targetType);
+        }
+    }
+
+    /**
+     * Reads an unsigned 16-bit value.
+     *
+     * @return the value
+     */
+    private int u2() {
+        return buffer.getShort() & 0xFFFF;
+    }
+
+    /**
+     * Returns the Utf8 constant at the given index.
+     *
+     * @param index the constant pool index
+     * @return the string
+     */
+    private String utf8At(int index) {
+        return (String) constants[index];
+    }
+
+    /**
+     * Returns the internal name of the Class constant at the given index.
+     *
+     * @param index the constant pool index
+     * @return the internal class name
+     */
+    private String classAt(int index) {
+        return ((ClassName) constants[index]).name;
+    }
+
+    /**
+     * Decodes a constant pool string. Class files use a modified UTF-8 encoding, which only
+     * differs from standard UTF-8 for the null character and supplementary characters; decoding
+     * those slightly differently doesn't matter as long as it is deterministic.
+     *
+     * @param bytes the encoded string
+     * @return the decoded string
+     */
+    private static String decodeModifiedUtf8(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A resolved Class constant, kept distinct from a Utf8 constant with the same text.
+     */
+    private static final class ClassName {
+        final String name;
+
+        ClassName(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package net.ltgt.maven.nullaway;
+
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.plugin.MojoExecution;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the maven-compiler-plugin executions of the modules NullAway was configured for, into
+ * the session's {@link ExecutionSummary}.
+ * <p>
+ * The compilations are where NullAway actually runs, but they belong to another plugin, so they
+ * are observed from the session's execution listener, which this listener wraps. All events are
+ * forwarded to the wrapped listener.
+ */
+class CompileTimingListener implements ExecutionListener {
+    private static final String COMPILER_GROUP_ID = "org.apache.maven.plugins";
+    private static final String COMPILER_ARTIFACT_ID = "maven-compiler-plugin";
+
+    private final ExecutionListener delegate;
+    private final ExecutionSummary summary;
+    private final ConcurrentMap<String, Long> started = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a listener.
+     *
+     * @param delegate the listener to forward events to, may be null
+     * @param summary  the summary to record compilations into
+     */
+    CompileTimingListener(ExecutionListener delegate, ExecutionSummary summary) {
+        this.delegate = delegate;
+        this.summary = summary;
+    }
+
+    @Override
+    public void mojoStarted(ExecutionEvent event) {
+        String key = compilationKey(event);
+        if (key != null) {
+            started.put(key, System.nanoTime());
+        }
+        if (delegate != null) {
+            delegate.mojoStarted(event);
+        }
+    }
+
+    @Override
+    public void mojoSucceeded(ExecutionEvent event) {
+        recordCompilation(event);
+        if (delegate != null) {
+            delegate.mojoSucceeded(event);
+        }
+    }
+
+    @Override
+    public void mojoFailed(ExecutionEvent event) {
+        recordCompilation(event);
+        if (delegate != null) {
+            delegate.mojoFailed(event);
+        }
+    }
+
+    /**
+     * Records the duration of a finished compilation, if NullAway was configured for its module.
+     *
+     * @param event the event ending the mojo execution
+     */
+    private void recordCompilation(ExecutionEvent event) {
+        String key = compilationKey(event);
+        Long start = key != null ? started.remove(key) : null;
+        if (start == null) {
+            return;
+        }
+        String module = event.getProject().getGroupId() + ":" + event.getProject().getArtifactId();
+        String argumentSet = summary.getArgumentSet(module);
+        if (argumentSet != null) {
+            summary.record(new ExecutionSummary.Execution(module, "compiler:" + event.getMojoExecution().getGoal(),
+                    argumentSet, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), -1, -1));
+        }
+    }
+
+    /**
+     * Identifies a maven-compiler-plugin execution.
+     *
+     * @param event a mojo event
+     * @return the key of the execution, or null if the mojo is not maven-compiler-plugin
+     */
+    private static String compilationKey(ExecutionEvent event) {
+        MojoExecution execution = event.getMojoExecution();
+        if (execution == null || event.getProject() == null ||
+                !COMPILER_GROUP_ID.equals(execution.getGroupId()) ||
+                !COMPILER_ARTIFACT_ID.equals(execution.getArtifactId())) {
+            return null;
+        }
+        return event.getProject().getId() + "|" + execution.getExecutionId() + "|" + execution.getGoal();
+    }
+
+    @Override
+    public void projectDiscoveryStarted(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.projectDiscoveryStarted(event);
+        }
+    }
+
+    @Override
+    public void sessionStarted(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.sessionStarted(event);
+        }
+    }
+
+    @Override
+    public void sessionEnded(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.sessionEnded(event);
+        }
+    }
+
+    @Override
+    public void projectSkipped(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.projectSkipped(event);
+        }
+    }
+
+    @Override
+    public void projectStarted(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.projectStarted(event);
+        }
+    }
+
+    @Override
+    public void projectSucceeded(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.projectSucceeded(event);
+        }
+    }
+
+    @Override
+    public void projectFailed(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.projectFailed(event);
+        }
+    }
+
+    @Override
+    public void mojoSkipped(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.mojoSkipped(event);
+        }
+    }
+
+    @Override
+    public void forkStarted(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkStarted(event);
+        }
+    }
+
+    @Override
+    public void forkSucceeded(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkSucceeded(event);
+        }
+    }
+
+    @Override
+    public void forkFailed(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkFailed(event);
+        }
+    }
+
+    @Override
+    public void forkedProjectStarted(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkedProjectStarted(event);
+        }
+    }
+
+    @Override
+    public void forkedProjectSucceeded(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkedProjectSucceeded(event);
+        }
+    }
+
+    @Override
+    public void forkedProjectFailed(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkedProjectFailed(event);
+        }
+    }
+}
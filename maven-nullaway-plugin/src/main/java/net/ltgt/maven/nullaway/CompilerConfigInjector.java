@@ -1,54 +1,174 @@
 package net.ltgt.maven.nullaway;
 
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Dependency;
 import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.util.xml.Xpp3Dom;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
 
 /**
  * Injects NullAway arguments into maven-compiler-plugin configuration.
  * <p>
  * This class manipulates the project's build configuration to add Error Prone
  * arguments to the maven-compiler-plugin's compilerArgs.
+ * <p>
+ * In merge mode (the default), injection is idempotent: NullAway arguments left by a previous
+ * injection are replaced, and the arguments are written in a canonical order, either into the
+ * existing {@code -Xplugin:ErrorProne} argument or as separate arguments if there is none.
+ * The same configuration thus always produces the same compiler configuration, however many
+ * times it is injected.
+ * <p>
+ * Inherited plugin configuration can be shared between the projects of a reactor, so the
+ * maven-compiler-plugin is copied into the project's own build before it is first modified.
+ * Projects configured concurrently with {@code -T} thus never see each other's arguments.
  */
 public class CompilerConfigInjector {
     private static final String COMPILER_PLUGIN_GROUP_ID = "org.apache.maven.plugins";
     private static final String COMPILER_PLUGIN_ARTIFACT_ID = "maven-compiler-plugin";
     private static final String COMPILER_PLUGIN_KEY = COMPILER_PLUGIN_GROUP_ID + ":" + COMPILER_PLUGIN_ARTIFACT_ID;
+    private static final String ERROR_PRONE_PLUGIN_ARG = "-Xplugin:ErrorProne";
+    private static final Pattern WHITESPACE = Pattern.compile("\\s");
+    private static final String DETACHED_PLUGIN_KEY = CompilerConfigInjector.class.getName() + ".detachedPlugin";
 
     private final MavenProject project;
+    private final boolean merge;
 
     public CompilerConfigInjector(MavenProject project) {
+        this(project, true);
+    }
+
+    public CompilerConfigInjector(MavenProject project, boolean merge) {
         this.project = project;
+        this.merge = merge;
     }
 
     /**
      * Injects NullAway arguments into the maven-compiler-plugin configuration.
      *
      * @param nullawayArgs the NullAway Error Prone arguments to inject
-     * @throws MojoExecutionException if maven-compiler-plugin is not found
+     * @throws MojoExecutionException if maven-compiler-plugin is not found, or an argument cannot
+     *                                be passed through {@code -Xplugin:ErrorProne}
      */
     public void injectCompilerArgs(List<String> nullawayArgs) throws MojoExecutionException {
         if (nullawayArgs.isEmpty()) {
             return;
         }
 
-        Plugin compilerPlugin = findCompilerPlugin();
-        if (compilerPlugin == null) {
-            throw new MojoExecutionException(
-                    "maven-compiler-plugin not found in project build plugins. " +
-                            "Please add maven-compiler-plugin to your pom.xml.");
+        injectInto(getOrCreateConfiguration(), nullawayArgs);
+    }
+
+    /**
+     * Injects NullAway arguments into the configuration of a single maven-compiler-plugin execution,
+     * such as {@code default-testCompile}.
+     * <p>
+     * Maven merges list parameters of the plugin and execution configurations element by element,
+     * so the execution gets its own copy of the plugin-level compilerArgs before the arguments are
+     * merged into it. The plugin-level configuration must thus already hold its final arguments.
+     * The execution is created if the POM doesn't declare it.
+     *
+     * @param executionId  the execution id
+     * @param goal         the goal bound by the execution, used if it has to be created
+     * @param nullawayArgs the NullAway Error Prone arguments to inject
+     * @throws MojoExecutionException if maven-compiler-plugin is not found, or an argument cannot
+     *                                be passed through {@code -Xplugin:ErrorProne}
+     */
+    public void injectCompilerArgs(String executionId, String goal, List<String> nullawayArgs) throws MojoExecutionException {
+        if (nullawayArgs.isEmpty()) {
+            return;
         }
 
-        // Get or create configuration
-        Xpp3Dom configuration = (Xpp3Dom) compilerPlugin.getConfiguration();
+        injectInto(getExecutionConfiguration(executionId, goal), nullawayArgs);
+    }
+
+    /**
+     * Sets a compiler argument of a single maven-compiler-plugin execution, such as
+     * {@code default-compile}, replacing the arguments with the same prefix.
+     * <p>
+     * Like with {@link #injectCompilerArgs(String, String, List)}, the plugin-level configuration
+     * must already hold its final arguments.
+     *
+     * @param executionId the execution id
+     * @param goal        the goal bound by the execution, used if it has to be created
+     * @param prefix      the prefix identifying the argument, e.g. {@code -Xplugin:Name}
+     * @param arg         the argument
+     * @throws MojoExecutionException if maven-compiler-plugin is not found
+     */
+    public void setCompilerArg(String executionId, String goal, String prefix, String arg) throws MojoExecutionException {
+        Xpp3Dom configuration = getExecutionConfiguration(executionId, goal);
+        Xpp3Dom compilerArgs = configuration.getChild("compilerArgs");
+        if (compilerArgs == null) {
+            compilerArgs = new Xpp3Dom("compilerArgs");
+            configuration.addChild(compilerArgs);
+        }
+        for (int i = compilerArgs.getChildCount() - 1; i >= 0; i--) {
+            String value = compilerArgs.getChild(i).getValue();
+            if (value != null && value.trim().startsWith(prefix)) {
+                compilerArgs.removeChild(i);
+            }
+        }
+        Xpp3Dom argNode = new Xpp3Dom("arg");
+        argNode.setValue(arg);
+        compilerArgs.addChild(argNode);
+    }
+
+    /**
+     * Returns the configuration of a maven-compiler-plugin execution, with its own copy of the
+     * plugin-level compilerArgs, creating the execution if the POM doesn't declare it.
+     *
+     * @param executionId the execution id
+     * @param goal        the goal bound by the execution, used if it has to be created
+     * @return the execution configuration
+     * @throws MojoExecutionException if maven-compiler-plugin is not found
+     */
+    private Xpp3Dom getExecutionConfiguration(String executionId, String goal) throws MojoExecutionException {
+        Plugin compilerPlugin = getDetachedCompilerPlugin();
+
+        // Plugin.getExecutionsAsMap() is computed once and doesn't see executions added later
+        PluginExecution execution = null;
+        for (PluginExecution candidate : compilerPlugin.getExecutions()) {
+            if (executionId.equals(candidate.getId())) {
+                execution = candidate;
+            }
+        }
+        if (execution == null) {
+            execution = new PluginExecution();
+            execution.setId(executionId);
+            execution.addGoal(goal);
+            compilerPlugin.addExecution(execution);
+        }
+
+        Xpp3Dom configuration = (Xpp3Dom) execution.getConfiguration();
         if (configuration == null) {
             configuration = new Xpp3Dom("configuration");
-            compilerPlugin.setConfiguration(configuration);
+            execution.setConfiguration(configuration);
         }
+        Xpp3Dom pluginConfiguration = (Xpp3Dom) compilerPlugin.getConfiguration();
+        Xpp3Dom pluginCompilerArgs = pluginConfiguration == null ? null : pluginConfiguration.getChild("compilerArgs");
+        if (configuration.getChild("compilerArgs") == null && pluginCompilerArgs != null) {
+            configuration.addChild(new Xpp3Dom(pluginCompilerArgs));
+        }
+        return configuration;
+    }
 
+    /**
+     * Injects NullAway arguments into the compilerArgs of a configuration element.
+     *
+     * @param configuration the plugin or execution configuration
+     * @param nullawayArgs  the NullAway Error Prone arguments to inject
+     * @throws MojoExecutionException if an argument cannot be passed through {@code -Xplugin:ErrorProne}
+     */
+    private void injectInto(Xpp3Dom configuration, List<String> nullawayArgs) throws MojoExecutionException {
         // Get or create compilerArgs
         Xpp3Dom compilerArgs = configuration.getChild("compilerArgs");
         if (compilerArgs == null) {
@@ -56,6 +176,11 @@ public class CompilerConfigInjector {
             configuration.addChild(compilerArgs);
         }
 
+        if (merge) {
+            mergeArgs(compilerArgs, canonicalize(nullawayArgs));
+            return;
+        }
+
         // Add NullAway arguments
         for (String arg : nullawayArgs) {
             Xpp3Dom argNode = new Xpp3Dom("arg");
@@ -64,6 +189,450 @@ public class CompilerConfigInjector {
         }
     }
 
+    /**
+     * Replaces the NullAway arguments in compilerArgs with the given ones.
+     * <p>
+     * If there is an {@code -Xplugin:ErrorProne} argument, the NullAway arguments are merged
+     * into it, as Error Prone only reads its options from there. Otherwise they are added as
+     * separate arguments.
+     * <p>
+     * Error Prone only takes a single {@code -XepExcludedPaths} pattern, so the generated one is
+     * combined with the user's own instead of replacing it.
+     * <p>
+     * The existing {@code -Xplugin:ErrorProne} value is read with {@link #tokenize(String)}, so that a
+     * quoted NullAway option is replaced as a whole. javac itself splits plugin options on
+     * whitespace without honoring quotes, so generated arguments containing whitespace cannot be
+     * merged into it and are rejected.
+     *
+     * @param compilerArgs the compilerArgs element
+     * @param nullawayArgs the canonicalized NullAway arguments
+     * @throws MojoExecutionException if an argument to merge into {@code -Xplugin:ErrorProne} contains whitespace
+     */
+    private void mergeArgs(Xpp3Dom compilerArgs, List<String> nullawayArgs) throws MojoExecutionException {
+        List<String> args = new ArrayList<>();
+        String generatedExcludedPaths = null;
+        for (String arg : nullawayArgs) {
+            if (arg.startsWith(ExcludedPaths.ARG_PREFIX)) {
+                generatedExcludedPaths = arg.substring(ExcludedPaths.ARG_PREFIX.length());
+            } else {
+                args.add(arg);
+            }
+        }
+
+        Xpp3Dom errorProneArg = null;
+        String existingExcludedPaths = null;
+        for (int i = compilerArgs.getChildCount() - 1; i >= 0; i--) {
+            String value = compilerArgs.getChild(i).getValue();
+            if (value == null) {
+                continue;
+            }
+            value = value.trim();
+            if (isNullAwayArg(value)) {
+                compilerArgs.removeChild(i);
+            } else if (value.startsWith(ExcludedPaths.ARG_PREFIX)) {
+                existingExcludedPaths = value.substring(ExcludedPaths.ARG_PREFIX.length());
+                compilerArgs.removeChild(i);
+            } else if (value.startsWith(ERROR_PRONE_PLUGIN_ARG) && errorProneArg == null) {
+                errorProneArg = compilerArgs.getChild(i);
+            }
+        }
+
+        StringBuilder value = new StringBuilder();
+        if (errorProneArg != null) {
+            for (String token : tokenize(errorProneArg.getValue())) {
+                if (token.startsWith(ExcludedPaths.ARG_PREFIX)) {
+                    existingExcludedPaths = token.substring(ExcludedPaths.ARG_PREFIX.length());
+                } else if (!isNullAwayArg(token)) {
+                    value.append(token).append(' ');
+                }
+            }
+        }
+
+        String excludedPaths = ExcludedPaths.merge(existingExcludedPaths, generatedExcludedPaths);
+        if (excludedPaths != null) {
+            args.add(ExcludedPaths.ARG_PREFIX + excludedPaths);
+            args = canonicalize(args);
+        }
+
+        if (errorProneArg != null) {
+            for (String arg : args) {
+                if (WHITESPACE.matcher(arg).find()) {
+                    throw new MojoExecutionException("Cannot pass " + arg + " to Error Prone: javac splits the "
+                            + ERROR_PRONE_PLUGIN_ARG + " options on whitespace, even within quotes");
+                }
+                value.append(arg).append(' ');
+            }
+            errorProneArg.setValue(value.toString().trim());
+            return;
+        }
+
+        for (String arg : args) {
+            Xpp3Dom argNode = new Xpp3Dom("arg");
+            argNode.setValue(arg);
+            compilerArgs.addChild(argNode);
+        }
+    }
+
+    /**
+     * Splits the value of an {@code -Xplugin} argument into its options.
+     * <p>
+     * Options are separated by whitespace, except within single or double quotes, where a backslash
+     * also escapes the next character. Quotes and backslashes are kept in the options, so that
+     * joining them with spaces gives back the original value, give or take whitespace.
+     *
+     * @param value the argument value
+     * @return the options, the first one being {@code -Xplugin:Name}
+     */
+    static List<String> tokenize(String value) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        char quote = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (quote != 0) {
+                token.append(c);
+                if (c == '\\' && i + 1 < value.length()) {
+                    token.append(value.charAt(++i));
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (Character.isWhitespace(c)) {
+                if (token.length() > 0) {
+                    tokens.add(token.toString());
+                    token.setLength(0);
+                }
+            } else {
+                token.append(c);
+                if (c == '"' || c == '\'') {
+                    quote = c;
+                }
+            }
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    /**
+     * Puts NullAway arguments in canonical order.
+     * <p>
+     * When the same check or option is given more than once, the last one wins, like it would
+     * with Error Prone. The severity comes first, followed by the options sorted by name.
+     *
+     * @param nullawayArgs the NullAway arguments
+     * @return the deduplicated and sorted arguments
+     */
+    static List<String> canonicalize(List<String> nullawayArgs) {
+        Map<String, String> byKey = new TreeMap<>();
+        for (String arg : nullawayArgs) {
+            int separator = arg.indexOf('=');
+            String key = arg.startsWith("-Xep:") ? "-Xep:"
+                    : arg.startsWith(ExcludedPaths.ARG_PREFIX) ? ExcludedPaths.ARG_PREFIX
+                    : separator < 0 ? arg : arg.substring(0, separator);
+            byKey.put(key, arg);
+        }
+        return new ArrayList<>(byKey.values());
+    }
+
+    /**
+     * Checks whether a compiler argument was generated for NullAway.
+     *
+     * @param arg the compiler argument
+     * @return true for the NullAway check severity and options
+     */
+    private static boolean isNullAwayArg(String arg) {
+        return arg.equals("-Xep:NullAway") || arg.startsWith("-Xep:NullAway:") || arg.startsWith("-XepOpt:NullAway:");
+    }
+
+    /**
+     * Lists the tools configured on the maven-compiler-plugin's annotation processor path and plugin dependencies.
+     * <p>
+     * This is where Error Prone and NullAway are declared, so their versions can be read from here.
+     *
+     * @return the {@code groupId:artifactId:version} of each tool, or an empty list if the compiler plugin is not configured
+     */
+    public List<String> findToolCoordinates() {
+        List<String> coordinates = findProcessorPathCoordinates();
+        Plugin compilerPlugin = findCompilerPlugin();
+        if (compilerPlugin == null) {
+            return coordinates;
+        }
+        for (Dependency dependency : compilerPlugin.getDependencies()) {
+            coordinates.add(dependency.getGroupId() + ":" + dependency.getArtifactId() + ":" + dependency.getVersion());
+        }
+        return coordinates;
+    }
+
+    /**
+     * Lists the artifacts configured on the maven-compiler-plugin's annotation processor path.
+     *
+     * @return the {@code groupId:artifactId:version} of each path, or an empty list if there is none
+     */
+    public List<String> findProcessorPathCoordinates() {
+        List<String> coordinates = new ArrayList<>();
+        Xpp3Dom processorPaths = findConfigurationElement("annotationProcessorPaths");
+        if (processorPaths != null) {
+            for (Xpp3Dom path : processorPaths.getChildren()) {
+                coordinates.add(childValue(path, "groupId") + ":" + childValue(path, "artifactId") + ":" +
+                        childValue(path, "version"));
+            }
+        }
+        return coordinates;
+    }
+
+    /**
+     * Finds the version of an artifact on the maven-compiler-plugin's annotation processor path.
+     *
+     * @param groupId    the group id
+     * @param artifactId the artifact id
+     * @return the configured version, or null if the artifact is not on the processor path
+     */
+    public String findProcessorPathVersion(String groupId, String artifactId) {
+        Xpp3Dom processorPaths = findConfigurationElement("annotationProcessorPaths");
+        if (processorPaths != null) {
+            for (Xpp3Dom path : processorPaths.getChildren()) {
+                if (childValue(path, "groupId").equals(groupId) && childValue(path, "artifactId").equals(artifactId)) {
+                    String version = childValue(path, "version");
+                    return version.isEmpty() ? null : version;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds an artifact to the maven-compiler-plugin's annotation processor path, unless it is already there.
+     *
+     * @param groupId    the group id
+     * @param artifactId the artifact id
+     * @param version    the version
+     * @return false if the compiler plugin has no annotation processor path to add to
+     */
+    public boolean addProcessorPath(String groupId, String artifactId, String version) {
+        if (findConfigurationElement("annotationProcessorPaths") == null) {
+            return false;
+        }
+        Xpp3Dom processorPaths = ((Xpp3Dom) detachCompilerPlugin().getConfiguration()).getChild("annotationProcessorPaths");
+        for (Xpp3Dom path : processorPaths.getChildren()) {
+            if (childValue(path, "groupId").equals(groupId) && childValue(path, "artifactId").equals(artifactId)
+                    && childValue(path, "version").equals(version)) {
+                return true;
+            }
+        }
+        Xpp3Dom path = new Xpp3Dom("path");
+        for (String[] child : new String[][]{{"groupId", groupId}, {"artifactId", artifactId}, {"version", version}}) {
+            Xpp3Dom element = new Xpp3Dom(child[0]);
+            element.setValue(child[1]);
+            path.addChild(element);
+        }
+        processorPaths.addChild(path);
+        return true;
+    }
+
+    /**
+     * Puts artifacts on the maven-compiler-plugin's annotation processor path, replacing other
+     * versions of them.
+     *
+     * @param coordinates the {@code groupId:artifactId:version} of each artifact
+     * @throws MojoExecutionException if maven-compiler-plugin is not found
+     */
+    public void injectProcessorPath(List<String> coordinates) throws MojoExecutionException {
+        Xpp3Dom configuration = getOrCreateConfiguration();
+        Xpp3Dom processorPaths = configuration.getChild("annotationProcessorPaths");
+        if (processorPaths == null) {
+            processorPaths = new Xpp3Dom("annotationProcessorPaths");
+            configuration.addChild(processorPaths);
+        }
+
+        for (String coordinate : coordinates) {
+            String[] parts = coordinate.split(":");
+            boolean found = false;
+            for (Xpp3Dom path : processorPaths.getChildren()) {
+                if (childValue(path, "groupId").equals(parts[0]) && childValue(path, "artifactId").equals(parts[1])) {
+                    Xpp3Dom version = path.getChild("version");
+                    if (version == null) {
+                        version = new Xpp3Dom("version");
+                        path.addChild(version);
+                    }
+                    version.setValue(parts[2]);
+                    found = true;
+                }
+            }
+            if (!found) {
+                addProcessorPath(parts[0], parts[1], parts[2]);
+            }
+        }
+    }
+
+    /**
+     * Replaces the versions of configured processor path entries with managed ones, and adds the
+     * managed entries that are missing.
+     *
+     * @param configured the configured {@code groupId:artifactId:version} coordinates
+     * @param managed    the managed coordinates
+     * @return the aligned coordinates
+     */
+    public static List<String> alignProcessorPath(List<String> configured, List<String> managed) {
+        Map<String, String> coordinates = new LinkedHashMap<>();
+        for (String coordinate : configured) {
+            coordinates.put(coordinate.substring(0, coordinate.lastIndexOf(':')), coordinate);
+        }
+        for (String coordinate : managed) {
+            coordinates.put(coordinate.substring(0, coordinate.lastIndexOf(':')), coordinate);
+        }
+        return new ArrayList<>(coordinates.values());
+    }
+
+    /**
+     * Adds compiler arguments to the plugin-level compilerArgs, unless an argument for the same
+     * option is already there, such as {@code -Xplugin:ErrorProne} with options.
+     *
+     * @param args the compiler arguments
+     * @throws MojoExecutionException if maven-compiler-plugin is not found
+     */
+    public void ensureCompilerArgs(List<String> args) throws MojoExecutionException {
+        Xpp3Dom configuration = getOrCreateConfiguration();
+        Xpp3Dom compilerArgs = configuration.getChild("compilerArgs");
+        if (compilerArgs == null) {
+            compilerArgs = new Xpp3Dom("compilerArgs");
+            configuration.addChild(compilerArgs);
+        }
+
+        Set<String> options = new HashSet<>();
+        for (Xpp3Dom arg : compilerArgs.getChildren()) {
+            if (arg.getValue() != null) {
+                options.add(optionName(arg.getValue().trim()));
+            }
+        }
+        for (String arg : args) {
+            if (options.add(optionName(arg))) {
+                Xpp3Dom argNode = new Xpp3Dom("arg");
+                argNode.setValue(arg);
+                compilerArgs.addChild(argNode);
+            }
+        }
+    }
+
+    /**
+     * Returns the option set by a compiler argument.
+     *
+     * @param arg the compiler argument
+     * @return the argument up to its first {@code =} or space
+     */
+    private static String optionName(String arg) {
+        int end = arg.length();
+        for (char separator : new char[]{'=', ' '}) {
+            int index = arg.indexOf(separator);
+            if (index >= 0 && index < end) {
+                end = index;
+            }
+        }
+        return arg.substring(0, end);
+    }
+
+    /**
+     * Reads a simple parameter of the maven-compiler-plugin configuration, such as {@code release} or {@code encoding}.
+     *
+     * @param name the parameter name
+     * @return the parameter value, or null if it is not configured
+     */
+    public String findConfigurationValue(String name) {
+        Xpp3Dom element = findConfigurationElement(name);
+        if (element == null || element.getValue() == null || element.getValue().trim().isEmpty()) {
+            return null;
+        }
+        return element.getValue().trim();
+    }
+
+    /**
+     * Returns the plugin-level maven-compiler-plugin configuration, creating it if needed.
+     *
+     * @return the configuration element
+     * @throws MojoExecutionException if maven-compiler-plugin is not found
+     */
+    private Xpp3Dom getOrCreateConfiguration() throws MojoExecutionException {
+        Plugin compilerPlugin = getDetachedCompilerPlugin();
+        Xpp3Dom configuration = (Xpp3Dom) compilerPlugin.getConfiguration();
+        if (configuration == null) {
+            configuration = new Xpp3Dom("configuration");
+            compilerPlugin.setConfiguration(configuration);
+        }
+        return configuration;
+    }
+
+    /**
+     * Returns the project's own copy of the maven-compiler-plugin, for modification.
+     *
+     * @return the compiler plugin
+     * @throws MojoExecutionException if maven-compiler-plugin is not found
+     */
+    private Plugin getDetachedCompilerPlugin() throws MojoExecutionException {
+        Plugin compilerPlugin = detachCompilerPlugin();
+        if (compilerPlugin == null) {
+            throw new MojoExecutionException(
+                    "maven-compiler-plugin not found in project build plugins. " +
+                            "Please add maven-compiler-plugin to your pom.xml.");
+        }
+        return compilerPlugin;
+    }
+
+    /**
+     * Replaces the maven-compiler-plugin in the project's build with a deep copy, unless this was
+     * already done for it.
+     * <p>
+     * The plugin, its configuration and its executions may be the same objects in the parent
+     * project and in the projects inheriting from it, so modifying them in place would leak the
+     * arguments of a module into other modules. The copy is recorded in the project's context so
+     * later injectors modify it directly.
+     *
+     * @return the project's own compiler plugin, or null if not found
+     */
+    private Plugin detachCompilerPlugin() {
+        synchronized (project) {
+            Plugin compilerPlugin = findCompilerPlugin();
+            if (compilerPlugin == null || project.getContextValue(DETACHED_PLUGIN_KEY) == compilerPlugin) {
+                return compilerPlugin;
+            }
+            Plugin copy = compilerPlugin.clone();
+            Build build = project.getBuild();
+            List<Plugin> plugins = new ArrayList<>(build.getPlugins());
+            for (int i = 0; i < plugins.size(); i++) {
+                if (plugins.get(i) == compilerPlugin) {
+                    plugins.set(i, copy);
+                }
+            }
+            build.setPlugins(plugins);
+            build.flushPluginMap();
+            project.setContextValue(DETACHED_PLUGIN_KEY, copy);
+            return copy;
+        }
+    }
+
+    /**
+     * Finds an element of the plugin-level maven-compiler-plugin configuration.
+     *
+     * @param name the element name
+     * @return the element, or null if the compiler plugin or the element is missing
+     */
+    private Xpp3Dom findConfigurationElement(String name) {
+        Plugin compilerPlugin = findCompilerPlugin();
+        Xpp3Dom configuration = compilerPlugin == null ? null : (Xpp3Dom) compilerPlugin.getConfiguration();
+        return configuration == null ? null : configuration.getChild(name);
+    }
+
+    /**
+     * Returns the value of a child element.
+     *
+     * @param parent the parent element
+     * @param name   the child element name
+     * @return the child value, or an empty string if the child is missing
+     */
+    private static String childValue(Xpp3Dom parent, String name) {
+        Xpp3Dom child = parent.getChild(name);
+        return child == null || child.getValue() == null ? "" : child.getValue().trim();
+    }
+
     /**
      * Finds the maven-compiler-plugin in the project's build plugins.
      *
@@ -0,0 +1,406 @@
+package net.ltgt.maven.nullaway;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Finds well-known nullability, initializer and injection annotations, and {@code @NullMarked}
+ * packages, in dependency jars.
+ * <p>
+ * Annotation types are recognized from the names of the jar entries only, which are read from the
+ * zip central directory without inflating any entry; only {@code package-info.class} entries are
+ * read, to look for {@code @NullMarked}. Jars are indexed in parallel, and the facts found in each
+ * jar are cached in a directory shared by all builds, keyed by the SHA-1 of the jar. The checksum
+ * is taken from the {@code .sha1} file Maven stores next to downloaded artifacts when there is
+ * one, so a released jar is only ever opened once.
+ */
+public class DependencyAnnotationIndex {
+    /**
+     * Well-known annotation types, and methods, mapped to the NullAway option that should list them.
+     * <p>
+     * Only annotations that NullAway doesn't recognize by default are listed: it already treats
+     * any {@code Nullable} and {@code CheckForNull} annotation and Checker Framework's
+     * {@code NullableDecl} as nullable, JUnit's setup annotations as initializers, and
+     * {@code javax.inject.Inject} and {@code jakarta.inject.Inject} fields as initialized.
+     */
+    private static final Map<String, String> CATALOG = new LinkedHashMap<>();
+
+    static {
+        CATALOG.put("org.checkerframework.checker.nullness.compatqual.NullableType", "customNullableAnnotations");
+        for (String name : new String[]{
+                "org.testng.annotations.BeforeMethod",
+                "org.testng.annotations.BeforeClass",
+                "org.testng.annotations.BeforeTest",
+                "javax.annotation.PostConstruct",
+                "jakarta.annotation.PostConstruct"}) {
+            CATALOG.put(name, "customInitializerAnnotations");
+        }
+        for (String name : new String[]{
+                "com.google.inject.Inject",
+                "org.springframework.beans.factory.annotation.Autowired",
+                "org.springframework.beans.factory.annotation.Value",
+                "org.mockito.Mock",
+                "org.mockito.Spy",
+                "org.mockito.Captor",
+                "org.mockito.InjectMocks",
+                "org.junit.jupiter.api.io.TempDir"}) {
+            CATALOG.put(name, "excludedFieldAnnotations");
+        }
+        for (String name : new String[]{
+                "javax.annotation.Generated",
+                "javax.annotation.processing.Generated",
+                "jakarta.annotation.Generated",
+                "org.immutables.value.Generated"}) {
+            CATALOG.put(name, "excludedClassAnnotations");
+        }
+        CATALOG.put("org.checkerframework.checker.nullness.util.NullnessUtil.castNonNull", "castToNonNullMethod");
+    }
+
+    /**
+     * The catalog entries by the name of the class file declaring them.
+     */
+    private static final Map<String, String> CLASS_FILES = new HashMap<>();
+
+    static {
+        for (Map.Entry<String, String> entry : CATALOG.entrySet()) {
+            String name = entry.getKey();
+            // Methods are found through their declaring class
+            String className = entry.getValue().equals("castToNonNullMethod") ? name.substring(0, name.lastIndexOf('.')) : name;
+            CLASS_FILES.put(className.replace('.', '/') + ".class", name);
+        }
+    }
+
+    private static final String NULL_MARKED_DESCRIPTOR = "Lorg/jspecify/annotations/NullMarked;";
+    // Snapshot jars, as installed locally or resolved with their timestamped version
+    private static final Pattern SNAPSHOT_JAR = Pattern.compile("-SNAPSHOT|-\\d{8}\\.\\d{6}-\\d+");
+    private static final String CACHE_VERSION = "v1-" + Integer.toHexString(CATALOG.hashCode());
+
+    private final File cacheDirectory;
+    private final Map<String, JarFacts> memoryCache;
+    private final AtomicInteger indexedJars = new AtomicInteger();
+    private final AtomicInteger cachedJars = new AtomicInteger();
+
+    /**
+     * Creates an index.
+     *
+     * @param cacheDirectory the directory caching the facts of each jar, or null to not cache them on disk
+     */
+    public DependencyAnnotationIndex(File cacheDirectory) {
+        this(cacheDirectory, new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Creates an index sharing the facts of the jars it reads with other indexes.
+     *
+     * @param cacheDirectory the directory caching the facts of each jar, or null to not cache them on disk
+     * @param memoryCache    the facts of the jars already read, by path, size and modification time;
+     *                       meant to live no longer than the Maven session
+     */
+    DependencyAnnotationIndex(File cacheDirectory, Map<String, JarFacts> memoryCache) {
+        this.cacheDirectory = cacheDirectory;
+        this.memoryCache = memoryCache;
+    }
+
+    /**
+     * Indexes dependency jars.
+     *
+     * @param classpath the dependency files; directories and other non-jar files are ignored
+     * @return the options suggested by the annotations found in the jars
+     * @throws IOException if a jar cannot be read
+     */
+    public Result index(List<File> classpath) throws IOException {
+        List<File> jars = classpath.stream()
+                .filter(file -> file.isFile() && file.getName().endsWith(".jar"))
+                .collect(Collectors.toList());
+        List<JarFacts> facts;
+        try {
+            facts = jars.parallelStream().map(jar -> {
+                try {
+                    return factsOf(jar);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to index " + jar + ": " + e.getMessage(), e);
+                }
+            }).collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        Result result = new Result();
+        for (JarFacts jarFacts : facts) {
+            for (String name : jarFacts.catalogEntries) {
+                String option = CATALOG.get(name);
+                if (option == null) {
+                    continue;
+                }
+                if (option.equals("castToNonNullMethod")) {
+                    result.castToNonNullMethod = name;
+                } else {
+                    result.options.computeIfAbsent(option, o -> new TreeSet<>()).add(name);
+                }
+            }
+            result.nullMarkedPackages.addAll(jarFacts.nullMarkedPackages);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of jars read by the last {@link #index(List)}.
+     *
+     * @return the number of jars that were not cached
+     */
+    public int getIndexedJars() {
+        return indexedJars.get();
+    }
+
+    /**
+     * Returns the number of jars whose facts were cached.
+     *
+     * @return the number of cached jars
+     */
+    public int getCachedJars() {
+        return cachedJars.get();
+    }
+
+    /**
+     * Returns the facts of a jar, from the caches if possible.
+     *
+     * @param jar the jar
+     * @return the facts found in the jar
+     * @throws IOException if the jar cannot be read
+     */
+    private JarFacts factsOf(File jar) throws IOException {
+        String stamp = jar.getAbsolutePath() + "|" + jar.length() + "|" + jar.lastModified();
+        JarFacts facts = memoryCache.get(stamp);
+        if (facts != null) {
+            cachedJars.incrementAndGet();
+            return facts;
+        }
+
+        File cacheFile = cacheDirectory == null ? null : new File(cacheDirectory, sha1(jar) + "-" + CACHE_VERSION + ".idx");
+        facts = cacheFile != null ? readCache(cacheFile) : null;
+        if (facts != null) {
+            cachedJars.incrementAndGet();
+        } else {
+            facts = scan(jar);
+            indexedJars.incrementAndGet();
+            if (cacheFile != null) {
+                writeCache(cacheFile, facts);
+            }
+        }
+        memoryCache.put(stamp, facts);
+        return facts;
+    }
+
+    /**
+     * Reads the catalog entries and {@code @NullMarked} packages of a jar.
+     *
+     * @param jar the jar
+     * @return the facts found in the jar
+     * @throws IOException if the jar cannot be read
+     */
+    static JarFacts scan(File jar) throws IOException {
+        JarFacts facts = new JarFacts();
+        try (ZipFile zip = new ZipFile(jar)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                String catalogEntry = CLASS_FILES.get(name);
+                if (catalogEntry != null) {
+                    facts.catalogEntries.add(catalogEntry);
+                } else if (name.endsWith("/package-info.class") && isNullMarked(zip, entry)) {
+                    facts.nullMarkedPackages.add(name.substring(0, name.lastIndexOf('/')).replace('/', '.'));
+                }
+            }
+        }
+        return facts;
+    }
+
+    /**
+     * Checks whether a package-info class file carries {@code @NullMarked}.
+     * <p>
+     * The annotation's type descriptor only appears in the constant pool of an annotated class.
+     *
+     * @param zip   the jar
+     * @param entry the package-info entry
+     * @return true if the package is null-marked
+     * @throws IOException if the entry cannot be read
+     */
+    private static boolean isNullMarked(ZipFile zip, ZipEntry entry) throws IOException {
+        try (InputStream in = zip.getInputStream(entry)) {
+            byte[] buffer = new byte[8192];
+            StringBuilder content = new StringBuilder();
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                content.append(new String(buffer, 0, read, StandardCharsets.ISO_8859_1));
+            }
+            return content.indexOf(NULL_MARKED_DESCRIPTOR) >= 0;
+        }
+    }
+
+    /**
+     * Returns the SHA-1 of a jar, from the checksum file next to it if it can be trusted.
+     * <p>
+     * The checksum file is downloaded along with a released jar, which never changes afterwards.
+     * Snapshots are re-installed in place, leaving a stale checksum file behind, and so is any jar
+     * modified after its checksum file was written: these are always hashed.
+     *
+     * @param jar the jar
+     * @return the lowercase hexadecimal SHA-1
+     * @throws IOException if the jar cannot be read
+     */
+    static String sha1(File jar) throws IOException {
+        File checksumFile = new File(jar.getPath() + ".sha1");
+        if (!SNAPSHOT_JAR.matcher(jar.getName()).find() && checksumFile.isFile() && checksumFile.length() < 1024
+                && jar.lastModified() <= checksumFile.lastModified()) {
+            String content = new String(Files.readAllBytes(checksumFile.toPath()), StandardCharsets.US_ASCII).trim();
+            // Some repositories append the file name after the checksum
+            String checksum = content.split("\\s+")[0].toLowerCase();
+            if (checksum.matches("[0-9a-f]{40}")) {
+                return checksum;
+            }
+        }
+
+        MessageDigest digest = Digests.sha1();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(jar.toPath()), digest)) {
+            byte[] buffer = new byte[65536];
+            while (in.read(buffer) != -1) {
+                // digested while reading
+            }
+        }
+        return Digests.toHex(digest.digest());
+    }
+
+    /**
+     * Reads the cached facts of a jar.
+     *
+     * @param cacheFile the cache file
+     * @return the facts, or null if they are not cached or cannot be read
+     */
+    private static JarFacts readCache(File cacheFile) {
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+        JarFacts facts = new JarFacts();
+        try (BufferedReader reader = Files.newBufferedReader(cacheFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("class ")) {
+                    facts.catalogEntries.add(line.substring(6));
+                } else if (line.startsWith("nullmarked ")) {
+                    facts.nullMarkedPackages.add(line.substring(11));
+                }
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return facts;
+    }
+
+    /**
+     * Caches the facts of a jar, replacing the cache file atomically as builds may share it.
+     *
+     * @param cacheFile the cache file
+     * @param facts     the facts
+     * @throws IOException if the cache file cannot be written
+     */
+    private static void writeCache(File cacheFile, JarFacts facts) throws IOException {
+        Path target = cacheFile.toPath();
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write("# NullAway dependency annotation index " + CACHE_VERSION + "\n");
+                for (String entry : facts.catalogEntries) {
+                    writer.write("class " + entry + "\n");
+                }
+                for (String packageName : facts.nullMarkedPackages) {
+                    writer.write("nullmarked " + packageName + "\n");
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * The catalog entries and null-marked packages found in a jar.
+     */
+    static final class JarFacts {
+        final Set<String> catalogEntries = new TreeSet<>();
+        final Set<String> nullMarkedPackages = new TreeSet<>();
+    }
+
+    /**
+     * The NullAway options suggested by the annotations found in dependencies.
+     */
+    public static class Result {
+        private final Map<String, Set<String>> options = new LinkedHashMap<>();
+        private final Set<String> nullMarkedPackages = new TreeSet<>();
+        private String castToNonNullMethod;
+
+        /**
+         * Returns the annotations found for a list option.
+         *
+         * @param option the option name, e.g. {@code customNullableAnnotations}
+         * @return the sorted annotation names, possibly empty
+         */
+        public List<String> getAnnotations(String option) {
+            Set<String> values = options.get(option);
+            return values == null ? Collections.<String>emptyList() : new ArrayList<>(values);
+        }
+
+        /**
+         * Returns the list options for which annotations were found.
+         *
+         * @return the option names
+         */
+        public Set<String> getOptions() {
+            return options.keySet();
+        }
+
+        /**
+         * Returns the castToNonNull method found in dependencies.
+         *
+         * @return the fully qualified method name, or null
+         */
+        public String getCastToNonNullMethod() {
+            return castToNonNullMethod;
+        }
+
+        /**
+         * Returns the {@code @NullMarked} packages found in dependencies.
+         *
+         * @return the sorted package names
+         */
+        public List<String> getNullMarkedPackages() {
+            return new ArrayList<>(nullMarkedPackages);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package net.ltgt.maven.nullaway;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Creates message digests and formats their results, for the keys and fingerprints of the plugin.
+ */
+final class Digests {
+
+    private Digests() {
+    }
+
+    /**
+     * Creates a SHA-256 digest.
+     *
+     * @return a new digest
+     */
+    static MessageDigest sha256() {
+        return newDigest("SHA-256");
+    }
+
+    /**
+     * Creates a SHA-1 digest.
+     *
+     * @return a new digest
+     */
+    static MessageDigest sha1() {
+        return newDigest("SHA-1");
+    }
+
+    /**
+     * Formats bytes as a lowercase hexadecimal string.
+     *
+     * @param bytes the bytes to format
+     * @return the hexadecimal string
+     */
+    static String toHex(byte[] bytes) {
+        return toHex(bytes, bytes.length);
+    }
+
+    /**
+     * Formats the first bytes of an array as a lowercase hexadecimal string.
+     *
+     * @param bytes  the bytes to format
+     * @param length the number of bytes to format
+     * @return the hexadecimal string, of twice the length
+     */
+    static String toHex(byte[] bytes, int length) {
+        StringBuilder sb = new StringBuilder(length * 2);
+        for (int i = 0; i < length; i++) {
+            sb.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(bytes[i] & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private static MessageDigest newDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-1 and SHA-256 are required to be supported by every Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+}
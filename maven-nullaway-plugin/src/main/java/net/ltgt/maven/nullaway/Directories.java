@@ -0,0 +1,37 @@
+package net.ltgt.maven.nullaway;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Operations on the working directories of the plugin.
+ */
+final class Directories {
+
+    private Directories() {
+    }
+
+    /**
+     * Deletes a directory and its content, if it exists.
+     *
+     * @param directory the directory
+     * @throws IOException if a file cannot be deleted
+     */
+    static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            paths = walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        }
+        for (Path path : paths) {
+            Files.deleteIfExists(path);
+        }
+    }
+}
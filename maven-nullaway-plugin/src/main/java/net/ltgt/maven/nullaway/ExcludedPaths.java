@@ -0,0 +1,260 @@
+package net.ltgt.maven.nullaway;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Builds the {@code -XepExcludedPaths} pattern that keeps Error Prone away from generated sources.
+ * <p>
+ * Error Prone still compiles excluded files, so that the rest of the module can refer to them,
+ * but doesn't run any check on them. The pattern is matched against the full path of each source
+ * file, so every excluded directory or glob ends up as one alternative. Rather than listing them
+ * one after the other, paths are merged on their common leading segments, so that the regular
+ * expression engine only walks each shared prefix once per file:
+ * {@code target/generated-sources/protobuf/java} and {@code target/generated-sources/protobuf/grpc-java}
+ * share a single {@code target/generated-sources/protobuf/} prefix, followed by {@code (?:grpc-java|java)}.
+ * <p>
+ * The generated pattern is wrapped in a named group, so that it can later be told apart from,
+ * and merged with, an exclusion pattern configured by the user.
+ */
+public class ExcludedPaths {
+    /**
+     * Prefix of the Error Prone argument.
+     */
+    public static final String ARG_PREFIX = "-XepExcludedPaths:";
+
+    private static final String GROUP_START = "(?<nullaway>";
+    private static final String ANY_PATH = "**";
+
+    private final Path basedir;
+    private final Node root = new Node();
+
+    /**
+     * Creates an empty set of excluded paths.
+     *
+     * @param basedir the module directory, that relative globs and nested directories are resolved against
+     */
+    public ExcludedPaths(File basedir) {
+        this.basedir = basedir.toPath().toAbsolutePath().normalize();
+    }
+
+    /**
+     * Excludes all sources under a directory.
+     * <p>
+     * Directories within the module are matched by their path relative to it, so that the pattern
+     * doesn't depend on where the project is checked out.
+     *
+     * @param directory the directory
+     * @return this set of excluded paths
+     */
+    public ExcludedPaths addDirectory(File directory) {
+        Path path = directory.toPath().toAbsolutePath().normalize();
+        String glob;
+        if (path.startsWith(basedir) && !path.equals(basedir)) {
+            glob = ANY_PATH + "/" + basedir.relativize(path).toString().replace(File.separatorChar, '/');
+        } else {
+            glob = path.toString().replace(File.separatorChar, '/');
+        }
+        return addGlob(glob + "/" + ANY_PATH);
+    }
+
+    /**
+     * Excludes a single source file.
+     *
+     * @param file the source file
+     * @return this set of excluded paths
+     */
+    public ExcludedPaths addFile(File file) {
+        Path path = file.toPath().toAbsolutePath().normalize();
+        if (path.startsWith(basedir)) {
+            return addGlob(ANY_PATH + "/" + basedir.relativize(path).toString().replace(File.separatorChar, '/'));
+        }
+        return addGlob(path.toString().replace(File.separatorChar, '/'));
+    }
+
+    /**
+     * Excludes the sources matching a glob.
+     * <p>
+     * {@code *} and {@code ?} match within a path segment and {@code **} matches any number of
+     * segments. Relative globs are matched against the end of the path.
+     *
+     * @param glob the glob, e.g. {@code **}{@code /generated/**}
+     * @return this set of excluded paths
+     */
+    public ExcludedPaths addGlob(String glob) {
+        String normalized = glob.trim().replace('\\', '/');
+        if (normalized.isEmpty()) {
+            return this;
+        }
+        if (normalized.endsWith("/")) {
+            normalized += ANY_PATH;
+        }
+        List<String> segments = new ArrayList<>(Arrays.asList(normalized.split("/+", -1)));
+        if (!normalized.startsWith("/") && !segments.get(0).equals(ANY_PATH)) {
+            if (segments.get(0).matches("[A-Za-z]:")) {
+                // A Windows drive, which file URIs put after a slash
+                segments.add(0, "");
+            } else {
+                segments.add(0, ANY_PATH);
+            }
+        }
+        root.insert(segments, 0);
+        return this;
+    }
+
+    /**
+     * Checks whether no path is excluded.
+     *
+     * @return true if nothing was added
+     */
+    public boolean isEmpty() {
+        return root.children.isEmpty();
+    }
+
+    /**
+     * Compiles the excluded paths into a regular expression.
+     * <p>
+     * The expression contains no whitespace, as Error Prone splits its options on whitespace.
+     *
+     * @return the regular expression matching the full path of excluded files, or null if nothing is excluded
+     */
+    public String toPattern() {
+        return isEmpty() ? null : group(root.alternatives());
+    }
+
+    /**
+     * Returns the Error Prone argument excluding the paths.
+     *
+     * @return the {@code -XepExcludedPaths} argument, or null if nothing is excluded
+     */
+    public String toArgument() {
+        return isEmpty() ? null : ARG_PREFIX + GROUP_START + toPattern() + ")";
+    }
+
+    /**
+     * Merges the generated exclusion pattern into an existing one.
+     * <p>
+     * A pattern generated by an earlier injection is replaced, and the user's own alternatives are
+     * kept in front of it, so merging is idempotent.
+     *
+     * @param existing  the existing pattern, without the argument prefix, or null
+     * @param generated the generated pattern, without the argument prefix, or null to only remove a previous one
+     * @return the merged pattern, or null if there is nothing left to exclude
+     */
+    public static String merge(String existing, String generated) {
+        String user = existing == null ? "" : existing;
+        int start = user.indexOf(GROUP_START);
+        if (start == 0) {
+            user = "";
+        } else if (start > 0 && user.charAt(start - 1) == '|') {
+            user = user.substring(0, start - 1);
+        }
+        if (generated == null) {
+            return user.isEmpty() ? null : user;
+        }
+        return user.isEmpty() ? generated : user + "|" + generated;
+    }
+
+    /**
+     * Joins alternatives into a single expression.
+     *
+     * @param alternatives the alternatives
+     * @return the alternatives, in a non-capturing group if there is more than one
+     */
+    private static String group(List<String> alternatives) {
+        if (alternatives.size() == 1) {
+            return alternatives.get(0);
+        }
+        return "(?:" + String.join("|", alternatives) + ")";
+    }
+
+    /**
+     * Translates a glob path segment into a regular expression.
+     *
+     * @param segment the segment, other than {@code **}
+     * @return the regular expression matching the segment
+     */
+    private static String segmentPattern(String segment) {
+        StringBuilder pattern = new StringBuilder();
+        for (char c : segment.toCharArray()) {
+            if (c == '*') {
+                pattern.append("[^/]*");
+            } else if (c == '?') {
+                pattern.append("[^/]");
+            } else if (Character.isWhitespace(c)) {
+                pattern.append(String.format("\\x%02x", (int) c));
+            } else if ("\\.[]{}()<>+-=!^$|".indexOf(c) >= 0) {
+                pattern.append('\\').append(c);
+            } else {
+                pattern.append(c);
+            }
+        }
+        return pattern.toString();
+    }
+
+    /**
+     * A node of the trie of glob segments.
+     */
+    private static final class Node {
+        private final Map<String, Node> children = new TreeMap<>();
+        private boolean terminal;
+
+        /**
+         * Adds the remaining segments of a glob below this node.
+         *
+         * @param segments the glob segments
+         * @param index    the index of the first segment to add
+         */
+        void insert(List<String> segments, int index) {
+            if (index == segments.size()) {
+                terminal = true;
+                return;
+            }
+            Node any = children.get(ANY_PATH);
+            if (any != null && any.terminal && any.children.isEmpty()) {
+                // Already excluded by a trailing **
+                return;
+            }
+            String segment = segments.get(index);
+            if (segment.equals(ANY_PATH) && index == segments.size() - 1) {
+                // A trailing ** covers everything else below this node
+                children.clear();
+            }
+            children.computeIfAbsent(segment, s -> new Node()).insert(segments, index + 1);
+        }
+
+        /**
+         * Lists the alternatives matching the rest of a path below this node.
+         *
+         * @return the regular expressions, one per child
+         */
+        List<String> alternatives() {
+            List<String> alternatives = new ArrayList<>();
+            for (Map.Entry<String, Node> entry : children.entrySet()) {
+                Node child = entry.getValue();
+                if (entry.getKey().equals(ANY_PATH)) {
+                    if (child.children.isEmpty()) {
+                        alternatives.add(".*");
+                    } else {
+                        alternatives.add("(?:.*/)?" + group(child.alternatives()));
+                    }
+                    continue;
+                }
+                String head = segmentPattern(entry.getKey());
+                if (child.children.isEmpty()) {
+                    alternatives.add(head);
+                } else if (child.terminal) {
+                    alternatives.add(head + "(?:/" + group(child.alternatives()) + ")?");
+                } else {
+                    alternatives.add(head + "/" + group(child.alternatives()));
+                }
+            }
+            return alternatives;
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package net.ltgt.maven.nullaway;
+
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.SessionData;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Collects what NullAway did in each module of a Maven session, for a report at the end of the session.
+ * <p>
+ * Modules built concurrently record their executions without locking: records are appended to a
+ * concurrent queue, and argument sets are shared through concurrent maps. These live in the
+ * repository session data, like {@link ArgumentCache}, but as JDK collections of plain values under
+ * string keys: goals invoked from the command line run in another class realm than the build
+ * extension reporting the summary, so the two don't share this class.
+ */
+public class ExecutionSummary {
+    private static final String SESSION_KEY = ExecutionSummary.class.getName() + ".v1.";
+
+    /**
+     * Number of modules listed in each ranking of the human-readable report.
+     */
+    private static final int RANKED = 10;
+
+    private static final Comparator<Execution> SLOWEST_FIRST = Comparator
+            .comparingLong(Execution::getDurationMillis).reversed()
+            .thenComparing(Execution::getModule)
+            .thenComparing(Execution::getGoal);
+    private static final Comparator<Execution> NOISIEST_FIRST = Comparator
+            .comparingInt(Execution::getFindings).reversed()
+            .thenComparing(Comparator.comparingInt(Execution::getErrors).reversed())
+            .thenComparing(SLOWEST_FIRST);
+
+    private final Queue<Map<String, Object>> executions;
+    private final ConcurrentMap<String, List<String>> argumentSets;
+    private final ConcurrentMap<String, String> moduleArgumentSets;
+
+    /**
+     * Creates an empty summary, not attached to a session.
+     */
+    public ExecutionSummary() {
+        this(new ConcurrentLinkedQueue<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Creates a summary over shared collections.
+     *
+     * @param executions         the recorded executions
+     * @param argumentSets       the argument sets, by identifier
+     * @param moduleArgumentSets the identifier of the argument set of each module
+     */
+    private ExecutionSummary(Queue<Map<String, Object>> executions, ConcurrentMap<String, List<String>> argumentSets,
+                             ConcurrentMap<String, String> moduleArgumentSets) {
+        this.executions = executions;
+        this.argumentSets = argumentSets;
+        this.moduleArgumentSets = moduleArgumentSets;
+    }
+
+    /**
+     * Returns the summary of the given session, creating it on first use.
+     *
+     * @param session the Maven session, may be null outside of a Maven build
+     * @return the session summary
+     */
+    public static ExecutionSummary forSession(MavenSession session) {
+        if (session == null || session.getRepositorySession() == null) {
+            return new ExecutionSummary();
+        }
+        SessionData data = session.getRepositorySession().getData();
+        return new ExecutionSummary(
+                sessionValue(data, "executions", ConcurrentLinkedQueue::new),
+                sessionValue(data, "argumentSets", ConcurrentHashMap::new),
+                sessionValue(data, "moduleArgumentSets", ConcurrentHashMap::new));
+    }
+
+    /**
+     * Returns a collection of the session data, creating it on first use.
+     *
+     * @param data    the session data
+     * @param name    the name of the collection
+     * @param factory creates the empty collection
+     * @param <T>     the type of the collection
+     * @return the collection shared by the session
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T sessionValue(SessionData data, String name, Supplier<T> factory) {
+        Object value = data.get(SESSION_KEY + name);
+        while (value == null) {
+            data.set(SESSION_KEY + name, null, factory.get());
+            value = data.get(SESSION_KEY + name);
+        }
+        return (T) value;
+    }
+
+    /**
+     * Records the arguments a module runs NullAway with.
+     *
+     * @param module    the module name
+     * @param arguments the Error Prone arguments
+     * @return the identifier of the argument set, shared by all modules with the same arguments
+     */
+    public String recordArguments(String module, List<String> arguments) {
+        String id = argumentSetId(arguments);
+        argumentSets.putIfAbsent(id, Collections.unmodifiableList(new ArrayList<>(arguments)));
+        moduleArgumentSets.put(module, id);
+        return id;
+    }
+
+    /**
+     * Returns the argument set a module was configured with.
+     *
+     * @param module the module name
+     * @return the identifier of the argument set, or null if the module didn't record arguments
+     */
+    public String getArgumentSet(String module) {
+        return moduleArgumentSets.get(module);
+    }
+
+    /**
+     * Records an execution.
+     *
+     * @param execution the execution
+     */
+    public void record(Execution execution) {
+        executions.add(execution.toMap());
+    }
+
+    /**
+     * Checks whether nothing was recorded.
+     *
+     * @return true if no execution was recorded
+     */
+    public boolean isEmpty() {
+        return executions.isEmpty();
+    }
+
+    /**
+     * Formats the report for the build log.
+     * <p>
+     * The slowest executions come first, then those with the most findings; both rankings are
+     * limited to the first few executions, the JSON report lists all of them.
+     *
+     * @return the lines of the report
+     */
+    public List<String> format() {
+        List<Execution> all = getExecutions();
+        List<String> lines = new ArrayList<>();
+        lines.add("NullAway ran " + all.size() + " executions in " + countModules(all) + " modules, with " +
+                argumentSets.size() + " argument sets");
+
+        all.sort(SLOWEST_FIRST);
+        lines.add("Slowest:");
+        for (Execution execution : all.subList(0, Math.min(RANKED, all.size()))) {
+            lines.add(String.format(Locale.ROOT, "  %,8d ms  %-17s %s  [%s]", execution.getDurationMillis(), execution.getGoal(),
+                    execution.getModule(), execution.getArgumentSet() == null ? "-" : execution.getArgumentSet()));
+        }
+
+        List<Execution> noisy = new ArrayList<>();
+        for (Execution execution : all) {
+            if (execution.getFindings() > 0) {
+                noisy.add(execution);
+            }
+        }
+        if (!noisy.isEmpty()) {
+            noisy.sort(NOISIEST_FIRST);
+            lines.add("Most findings:");
+            for (Execution execution : noisy.subList(0, Math.min(RANKED, noisy.size()))) {
+                lines.add(String.format(Locale.ROOT, "  %,6d errors %,6d warnings  %-17s %s", execution.getErrors(),
+                        execution.getWarnings(), execution.getGoal(), execution.getModule()));
+            }
+        }
+
+        lines.add("Argument sets:");
+        for (Map.Entry<String, List<String>> argumentSet : new TreeMap<>(argumentSets).entrySet()) {
+            int modules = 0;
+            for (String id : moduleArgumentSets.values()) {
+                if (id.equals(argumentSet.getKey())) {
+                    modules++;
+                }
+            }
+            lines.add("  [" + argumentSet.getKey() + "] " + argumentSet.getValue().size() + " arguments, " +
+                    modules + " modules");
+        }
+        return lines;
+    }
+
+    /**
+     * Formats the report as JSON, with every execution, slowest first, and every argument set.
+     *
+     * @return the JSON document
+     */
+    public String toJson() {
+        List<Execution> all = getExecutions();
+        all.sort(SLOWEST_FIRST);
+        StringBuilder json = new StringBuilder("{\"executions\":[");
+        for (int i = 0; i < all.size(); i++) {
+            Execution execution = all.get(i);
+            json.append(i > 0 ? ",{" : "{");
+            json.append("\"module\":");
+            appendString(json, execution.getModule());
+            json.append(",\"goal\":");
+            appendString(json, execution.getGoal());
+            json.append(",\"argumentSet\":");
+            if (execution.getArgumentSet() == null) {
+                json.append("null");
+            } else {
+                appendString(json, execution.getArgumentSet());
+            }
+            json.append(",\"durationMillis\":").append(execution.getDurationMillis());
+            if (execution.getErrors() >= 0) {
+                json.append(",\"errors\":").append(execution.getErrors());
+                json.append(",\"warnings\":").append(execution.getWarnings());
+            }
+            json.append('}');
+        }
+        json.append("],\"argumentSets\":{");
+        boolean first = true;
+        for (Map.Entry<String, List<String>> argumentSet : new TreeMap<>(argumentSets).entrySet()) {
+            json.append(first ? "" : ",");
+            first = false;
+            appendString(json, argumentSet.getKey());
+            json.append(":[");
+            for (int i = 0; i < argumentSet.getValue().size(); i++) {
+                json.append(i > 0 ? "," : "");
+                appendString(json, argumentSet.getValue().get(i));
+            }
+            json.append(']');
+        }
+        json.append("}}\n");
+        return json.toString();
+    }
+
+    /**
+     * Returns the recorded executions.
+     *
+     * @return a copy of the executions, in no particular order
+     */
+    private List<Execution> getExecutions() {
+        List<Execution> all = new ArrayList<>();
+        for (Map<String, Object> execution : executions) {
+            all.add(Execution.fromMap(execution));
+        }
+        return all;
+    }
+
+    /**
+     * Computes the identifier of an argument set.
+     *
+     * @param arguments the Error Prone arguments
+     * @return the first 8 hexadecimal characters of the SHA-256 of the arguments
+     */
+    static String argumentSetId(List<String> arguments) {
+        MessageDigest digest = Digests.sha256();
+        for (String argument : arguments) {
+            digest.update(argument.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        return Digests.toHex(digest.digest(), 4);
+    }
+
+    /**
+     * Counts the distinct modules of executions.
+     *
+     * @param executions the executions
+     * @return the number of modules
+     */
+    private static int countModules(List<Execution> executions) {
+        return (int) executions.stream().map(Execution::getModule).distinct().count();
+    }
+
+    /**
+     * Appends a JSON string literal.
+     *
+     * @param json  the JSON being built
+     * @param value the string
+     */
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * A mojo execution involving NullAway in a module.
+     */
+    public static final class Execution {
+        private final String module;
+        private final String goal;
+        private final String argumentSet;
+        private final long durationMillis;
+        private final int errors;
+        private final int warnings;
+
+        /**
+         * Creates an execution record.
+         *
+         * @param module         the module name
+         * @param goal           the goal, e.g. {@code check} or {@code compiler:compile}
+         * @param argumentSet    the identifier of the argument set, or null if unknown
+         * @param durationMillis the duration of the execution
+         * @param errors         the number of errors found, or -1 if the execution doesn't report findings
+         * @param warnings       the number of warnings found, or -1 if the execution doesn't report findings
+         */
+        public Execution(String module, String goal, String argumentSet, long durationMillis, int errors, int warnings) {
+            this.module = module;
+            this.goal = goal;
+            this.argumentSet = argumentSet;
+            this.durationMillis = durationMillis;
+            this.errors = errors;
+            this.warnings = warnings;
+        }
+
+        public String getModule() {
+            return module;
+        }
+
+        public String getGoal() {
+            return goal;
+        }
+
+        public String getArgumentSet() {
+            return argumentSet;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        public int getErrors() {
+            return errors;
+        }
+
+        public int getWarnings() {
+            return warnings;
+        }
+
+        /**
+         * Converts this execution to JDK types, to be shared with other class realms.
+         *
+         * @return the fields of this execution, by name
+         */
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("module", module);
+            map.put("goal", goal);
+            map.put("argumentSet", argumentSet);
+            map.put("durationMillis", durationMillis);
+            map.put("errors", errors);
+            map.put("warnings", warnings);
+            return Collections.unmodifiableMap(map);
+        }
+
+        /**
+         * Reads an execution converted by {@link #toMap()}, possibly in another class realm.
+         *
+         * @param map the fields of the execution, by name
+         * @return the execution
+         */
+        static Execution fromMap(Map<String, Object> map) {
+            return new Execution((String) map.get("module"), (String) map.get("goal"), (String) map.get("argumentSet"),
+                    (Long) map.get("durationMillis"), (Integer) map.get("errors"), (Integer) map.get("warnings"));
+        }
+
+        /**
+         * Returns the number of findings.
+         *
+         * @return the errors and warnings found, or 0 if the execution doesn't report findings
+         */
+        int getFindings() {
+            return Math.max(0, errors) + Math.max(0, warnings);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package net.ltgt.maven.nullaway;
+
+import java.util.Comparator;
+
+/**
+ * A diagnostic reported by javac while running a NullAway analysis.
+ * <p>
+ * Findings are ordered by file, position and message, so that reports are deterministic
+ * regardless of the order in which they were produced.
+ */
+public class Finding implements Comparable<Finding> {
+    private static final Comparator<Finding> ORDER = Comparator
+            .comparing(Finding::getFile)
+            .thenComparingLong(Finding::getLine)
+            .thenComparingLong(Finding::getColumn)
+            .thenComparing(Finding::getMessage)
+            .thenComparing(Finding::getKind);
+
+    /**
+     * The severity of a finding.
+     */
+    public enum Kind {
+        ERROR,
+        WARNING
+    }
+
+    private final Kind kind;
+    private final String file;
+    private final long line;
+    private final long column;
+    private final String message;
+
+    public Finding(Kind kind, String file, long line, long column, String message) {
+        this.kind = kind;
+        this.file = file == null ? "" : file;
+        this.line = line;
+        this.column = column;
+        this.message = message == null ? "" : message;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public long getColumn() {
+        return column;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Formats the finding the way maven-compiler-plugin reports compiler messages.
+     *
+     * @return the formatted finding, e.g. {@code /path/Foo.java:[12,5] [NullAway] dereferenced expression is @Nullable}
+     */
+    public String format() {
+        return file + ":[" + line + "," + column + "] " + message;
+    }
+
+    /**
+     * Encodes the finding on a single line, for storage.
+     *
+     * @return the encoded finding
+     * @see #decode(String)
+     */
+    public String encode() {
+        return kind + "\t" + file + "\t" + line + "\t" + column + "\t" + message.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    /**
+     * Decodes a finding encoded by {@link #encode()}.
+     *
+     * @param encoded the encoded finding
+     * @return the finding
+     * @throws IllegalArgumentException if the value is not an encoded finding
+     */
+    public static Finding decode(String encoded) {
+        String[] parts = encoded.split("\t", 5);
+        if (parts.length != 5) {
+            throw new IllegalArgumentException("Not an encoded finding: " + encoded);
+        }
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < parts[4].length(); i++) {
+            char c = parts[4].charAt(i);
+            if (c == '\\' && i + 1 < parts[4].length()) {
+                c = parts[4].charAt(++i);
+                message.append(c == 'n' ? '\n' : c);
+            } else {
+                message.append(c);
+            }
+        }
+        return new Finding(Kind.valueOf(parts[0]), parts[1], Long.parseLong(parts[2]), Long.parseLong(parts[3]),
+                message.toString());
+    }
+
+    @Override
+    public int compareTo(Finding other) {
+        return ORDER.compare(this, other);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Finding && compareTo((Finding) o) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return format().hashCode() * 31 + kind.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + format();
+    }
+}
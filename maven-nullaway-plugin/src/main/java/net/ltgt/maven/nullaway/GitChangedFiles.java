@@ -0,0 +1,132 @@
+package net.ltgt.maven.nullaway;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Lists the files changed in the local git working tree since a given commit.
+ * <p>
+ * Changes are computed against the merge base of the given ref and {@code HEAD}, like a pull
+ * request diff, and include committed, staged and unstaged changes as well as untracked files.
+ * Only the local repository is read: the ref must already be fetched.
+ */
+public class GitChangedFiles {
+    private final File workingDirectory;
+    private final String git;
+
+    public GitChangedFiles(File workingDirectory) {
+        this(workingDirectory, "git");
+    }
+
+    public GitChangedFiles(File workingDirectory, String git) {
+        this.workingDirectory = workingDirectory;
+        this.git = git;
+    }
+
+    /**
+     * Lists the existing files changed since the merge base of a ref and {@code HEAD}.
+     *
+     * @param ref the ref to compare to, e.g. {@code origin/main}
+     * @return the canonical paths of added, copied, modified and renamed files, and of untracked files
+     * @throws IOException if git cannot be run or fails, e.g. because the ref doesn't exist
+     */
+    public Set<File> changedSince(String ref) throws IOException {
+        File topLevel = new File(run("rev-parse", "--show-toplevel").trim());
+        String mergeBase = run("merge-base", ref, "HEAD").trim();
+
+        Set<File> changed = new LinkedHashSet<>();
+        List<String> paths = new ArrayList<>();
+        paths.addAll(split(run("diff", "--name-only", "-z", "--no-renames", "--diff-filter=ACMR", mergeBase, "--")));
+        paths.addAll(split(run("ls-files", "-z", "--others", "--exclude-standard", "--full-name")));
+        for (String path : paths) {
+            File file = new File(topLevel, path);
+            if (file.isFile()) {
+                changed.add(file.getCanonicalFile());
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Splits NUL-separated git output.
+     *
+     * @param output the output of a git command run with {@code -z}
+     * @return the non-empty entries
+     */
+    private static List<String> split(String output) {
+        List<String> entries = new ArrayList<>();
+        for (String entry : output.split("\0")) {
+            if (!entry.isEmpty()) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Runs a git command in the working directory.
+     *
+     * @param args the git arguments
+     * @return the standard output
+     * @throws IOException if git cannot be run or exits with an error
+     */
+    private String run(String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(git);
+        command.addAll(Arrays.asList(args));
+        Process process = new ProcessBuilder(command)
+                .directory(workingDirectory)
+                .redirectError(ProcessBuilder.Redirect.PIPE)
+                .start();
+        process.getOutputStream().close();
+
+        // Drain stderr concurrently so that a verbose error can't block the process
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        Thread errorReader = new Thread(() -> {
+            try {
+                copy(process.getErrorStream(), stderr);
+            } catch (IOException e) {
+                // Only used for the error message
+            }
+        });
+        errorReader.start();
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        copy(process.getInputStream(), stdout);
+        try {
+            int exitCode = process.waitFor();
+            errorReader.join();
+            if (exitCode != 0) {
+                throw new IOException("git " + String.join(" ", args) + " failed: " +
+                        new String(stderr.toByteArray(), StandardCharsets.UTF_8).trim());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroy();
+            throw new IOException("Interrupted while running git", e);
+        }
+        return new String(stdout.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Copies a stream to its end.
+     *
+     * @param in  the source stream
+     * @param out the destination
+     * @throws IOException if the stream cannot be read
+     */
+    private static void copy(InputStream in, ByteArrayOutputStream out) throws IOException {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package net.ltgt.maven.nullaway;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticListener;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs a NullAway analysis with the javac of the current JVM, through {@code javax.tools}.
+ * <p>
+ * Only NullAway is enabled, and javac is stopped right after flow analysis, which is when Error
+ * Prone runs its checks: no bytecode is generated and no class file is written, unless the
+ * request asks for class files.
+ * <p>
+ * A long-lived analyzer can keep the class loaders of the annotation processor paths it has
+ * seen, so that Error Prone and NullAway are only loaded, and JIT-compiled, once.
+ */
+public class InProcessAnalyzer implements Analyzer {
+    private static final List<String> ANALYSIS_OPTIONS = Collections.unmodifiableList(Arrays.asList(
+            "-XDcompilePolicy=simple",
+            "-XDshould-stop.ifError=FLOW",
+            "-XDshould-stop.ifNoError=FLOW",
+            // JDK 8 names of the should-stop options
+            "-XDshouldStopPolicyIfError=FLOW",
+            "-XDshouldStopPolicyIfNoError=FLOW"));
+    private static final List<String> GENERATE_OPTIONS = Collections.unmodifiableList(Arrays.asList(
+            "-XDcompilePolicy=simple",
+            "-XDshould-stop.ifError=FLOW",
+            "-XDshouldStopPolicyIfError=FLOW"));
+
+    private final boolean reuseProcessorClassLoaders;
+    private final Map<List<File>, URLClassLoader> processorClassLoaders = new ConcurrentHashMap<>();
+
+    public InProcessAnalyzer() {
+        this(false);
+    }
+
+    /**
+     * Creates an analyzer.
+     *
+     * @param reuseProcessorClassLoaders whether to keep the processor class loaders for later analyses;
+     *                                   they are never closed, so this is only meant for worker processes
+     */
+    public InProcessAnalyzer(boolean reuseProcessorClassLoaders) {
+        this.reuseProcessorClassLoaders = reuseProcessorClassLoaders;
+    }
+
+    /**
+     * Runs the analysis.
+     *
+     * @param request the analysis to run
+     * @return the errors and warnings reported by javac, sorted
+     * @throws IOException if the output directories cannot be created or javac cannot access its inputs
+     * @throws IllegalStateException if no Java compiler is available in this JVM
+     */
+    @Override
+    public List<Finding> analyze(AnalysisRequest request) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("No Java compiler available; make sure Maven runs on a JDK rather than a JRE");
+        }
+
+        List<Finding> findings = new ArrayList<>();
+        DiagnosticListener<JavaFileObject> listener = diagnostic -> {
+            Finding finding = toFinding(diagnostic);
+            if (finding != null) {
+                findings.add(finding);
+            }
+        };
+
+        File generatedSources = new File(request.getOutputDirectory(), "generated-sources");
+        Files.createDirectories(generatedSources.toPath());
+        try (StandardJavaFileManager fileManager =
+                     compiler.getStandardFileManager(listener, Locale.ROOT, StandardCharsets.UTF_8)) {
+            fileManager.setLocation(StandardLocation.CLASS_PATH, request.getClasspath());
+            fileManager.setLocation(StandardLocation.SOURCE_PATH, request.getSourcepath());
+            fileManager.setLocation(StandardLocation.ANNOTATION_PROCESSOR_PATH, request.getProcessorPath());
+            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(request.getOutputDirectory()));
+            fileManager.setLocation(StandardLocation.SOURCE_OUTPUT, Collections.singletonList(generatedSources));
+
+            JavaFileManager taskFileManager = fileManager;
+            if (reuseProcessorClassLoaders) {
+                ClassLoader processorClassLoader = processorClassLoader(request.getProcessorPath());
+                taskFileManager = new ForwardingJavaFileManager<JavaFileManager>(fileManager) {
+                    @Override
+                    public ClassLoader getClassLoader(Location location) {
+                        if (location == StandardLocation.ANNOTATION_PROCESSOR_PATH) {
+                            return processorClassLoader;
+                        }
+                        return super.getClassLoader(location);
+                    }
+                };
+            }
+
+            Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromFiles(request.getSourceFiles());
+            JavaCompiler.CompilationTask task = compiler.getTask(
+                    null, taskFileManager, listener, buildOptions(request), null, units);
+            PluginEvents.recordCompilationUnits(task, request.getModule());
+            task.call();
+        }
+
+        Collections.sort(findings);
+        return findings;
+    }
+
+    /**
+     * Returns a class loader for a processor path, reusing the one created for an earlier analysis.
+     * <p>
+     * javac closes the processor class loader at the end of each compilation when it can, so the
+     * cached loader is wrapped in one that isn't {@link java.io.Closeable}.
+     *
+     * @param processorPath the processor path
+     * @return the class loader to hand to javac
+     */
+    private ClassLoader processorClassLoader(List<File> processorPath) {
+        URLClassLoader cached = processorClassLoaders.computeIfAbsent(new ArrayList<>(processorPath), path -> {
+            URL[] urls = new URL[path.size()];
+            for (int i = 0; i < urls.length; i++) {
+                try {
+                    urls[i] = path.get(i).toURI().toURL();
+                } catch (MalformedURLException e) {
+                    throw new IllegalArgumentException("Invalid processor path element " + path.get(i), e);
+                }
+            }
+            return new URLClassLoader(urls, InProcessAnalyzer.class.getClassLoader());
+        });
+        return new ClassLoader(cached) {
+        };
+    }
+
+    /**
+     * Builds the javac options for an analysis.
+     *
+     * @param request the analysis to run
+     * @return the javac options
+     */
+    static List<String> buildOptions(AnalysisRequest request) {
+        List<String> options = new ArrayList<>(request.isGenerateClasses() ? GENERATE_OPTIONS : ANALYSIS_OPTIONS);
+        options.addAll(request.getCompilerOptions());
+
+        // Error Prone reads its own options from the -Xplugin argument
+        StringBuilder plugin = new StringBuilder("-Xplugin:ErrorProne -XepDisableAllChecks");
+        for (String arg : request.getErrorProneArgs()) {
+            plugin.append(' ').append(arg);
+        }
+        options.add(plugin.toString());
+        return options;
+    }
+
+    /**
+     * Keeps the findings of the given source files, plus those not attached to any file.
+     * <p>
+     * When only part of a module is analyzed, other sources may be attributed from the source
+     * path; their findings belong to another analysis and must not be reported.
+     *
+     * @param findings the findings of an analysis
+     * @param files    the source files the analysis is responsible for
+     * @return the findings to report
+     */
+    static List<Finding> ownFindings(List<Finding> findings, List<File> files) {
+        Set<String> paths = new HashSet<>();
+        for (File file : files) {
+            paths.add(file.getAbsolutePath());
+        }
+        List<Finding> own = new ArrayList<>();
+        for (Finding finding : findings) {
+            if (finding.getFile().isEmpty() || paths.contains(new File(finding.getFile()).getAbsolutePath())) {
+                own.add(finding);
+            }
+        }
+        return own;
+    }
+
+    /**
+     * Converts a javac diagnostic to a finding.
+     *
+     * @param diagnostic the javac diagnostic
+     * @return the finding, or null for notes and other informational diagnostics
+     */
+    private static Finding toFinding(Diagnostic<? extends JavaFileObject> diagnostic) {
+        Finding.Kind kind;
+        switch (diagnostic.getKind()) {
+            case ERROR:
+                kind = Finding.Kind.ERROR;
+                break;
+            case WARNING:
+            case MANDATORY_WARNING:
+                kind = Finding.Kind.WARNING;
+                break;
+            default:
+                return null;
+        }
+        String file = diagnostic.getSource() == null ? "" : new File(diagnostic.getSource().toUri()).getPath();
+        return new Finding(kind, file, diagnostic.getLineNumber(), diagnostic.getColumnNumber(),
+                diagnostic.getMessage(Locale.ROOT));
+    }
+}
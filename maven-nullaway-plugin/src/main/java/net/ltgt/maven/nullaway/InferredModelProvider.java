@@ -0,0 +1,53 @@
+package net.ltgt.maven.nullaway;
+
+import com.uber.nullaway.jarinfer.JarInferStubxProvider;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * Lists the inferred models on the annotation processor path, for NullAway's JarInfer support.
+ * <p>
+ * With {@code JarInferEnabled}, NullAway loads the models named by its {@code JarInferStubxProvider}
+ * services, as resources of the provider class. This class is copied into every model jar of the
+ * {@link LibraryModelCache}, along with its service registration and an index naming the model of
+ * the jar. NullAway only instantiates it once whatever the number of model jars, so it returns the
+ * models listed by all the indexes.
+ * <p>
+ * It runs in the compiler, next to NullAway, so it must not use any other class of the plugin.
+ */
+public class InferredModelProvider implements JarInferStubxProvider {
+    /**
+     * The index of the models of a model jar, one absolute resource name per line.
+     */
+    static final String INDEX = "META-INF/nullaway/inferred-models.idx";
+
+    @Override
+    public List<String> pathsToStubxFiles() {
+        List<String> paths = new ArrayList<>();
+        try {
+            Enumeration<URL> indexes = InferredModelProvider.class.getClassLoader().getResources(INDEX);
+            while (indexes.hasMoreElements()) {
+                try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(indexes.nextElement().openStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (!line.trim().isEmpty()) {
+                            paths.add(line.trim());
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return paths;
+    }
+}
@@ -0,0 +1,184 @@
+package net.ltgt.maven.nullaway;
+
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * The JFR events of the plugin. Only loaded through {@link PluginEvents}, once JFR is known to be available.
+ */
+final class JfrEvents {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private JfrEvents() {
+    }
+
+    /**
+     * Starts a phase event.
+     *
+     * @param module the module being built
+     * @param phase  the phase name
+     * @return the span committing the event when closed
+     */
+    static PluginEvents.Span phase(String module, String phase) {
+        PhaseEvent event = new PhaseEvent();
+        if (!event.isEnabled()) {
+            return () -> {
+            };
+        }
+        long allocatedBefore = allocatedBytes();
+        event.module = module;
+        event.phase = phase;
+        event.begin();
+        return () -> {
+            event.end();
+            if (event.shouldCommit()) {
+                event.allocated = Math.max(0, allocatedBytes() - allocatedBefore);
+                event.commit();
+            }
+        };
+    }
+
+    /**
+     * Registers a task listener reporting an event for each compilation unit.
+     * <p>
+     * Error Prone runs its checks when javac reports that a class has been analyzed, from its own
+     * task listener. So that each event covers both flow analysis and NullAway, the reporting
+     * listener is registered when the compilation starts, after Error Prone registered its own.
+     * Each event thus spans from the moment Error Prone is done with the previous class (or, for
+     * the first class, from the attribution of the last one) to the moment it is done with the class.
+     *
+     * @param task   the javac task
+     * @param module the module being analyzed
+     */
+    static void recordCompilationUnits(JavaCompiler.CompilationTask task, String module) {
+        if (!(task instanceof JavacTask) || !new CompilationUnitEvent().isEnabled()) {
+            return;
+        }
+        JavacTask javacTask = (JavacTask) task;
+        CompilationUnitListener unitListener = new CompilationUnitListener(module);
+        javacTask.addTaskListener(new TaskListener() {
+            private boolean registered;
+
+            @Override
+            public void started(TaskEvent e) {
+                if (!registered && e.getKind() == TaskEvent.Kind.COMPILATION) {
+                    registered = true;
+                    javacTask.addTaskListener(unitListener);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the number of bytes allocated by the current thread, if the JVM can tell.
+     *
+     * @return the allocated bytes, or 0 if unsupported
+     */
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Reports the analysis of each class as a {@link CompilationUnitEvent}.
+     */
+    private static final class CompilationUnitListener implements TaskListener {
+        private final String module;
+        private CompilationUnitEvent pending;
+        private long allocatedBefore;
+
+        CompilationUnitListener(String module) {
+            this.module = module;
+        }
+
+        @Override
+        public void started(TaskEvent e) {
+            if (e.getKind() == TaskEvent.Kind.ANALYZE) {
+                // Flow analysis starts once the last class has been attributed
+                begin();
+            }
+        }
+
+        @Override
+        public void finished(TaskEvent e) {
+            if (e.getKind() != TaskEvent.Kind.ANALYZE) {
+                return;
+            }
+            if (pending == null) {
+                begin();
+            }
+            CompilationUnitEvent event = pending;
+            event.end();
+            if (event.shouldCommit()) {
+                JavaFileObject source = e.getSourceFile();
+                event.module = module;
+                event.file = source == null ? null : source.getName();
+                event.className = e.getTypeElement() == null ? null : e.getTypeElement().getQualifiedName().toString();
+                event.allocated = Math.max(0, allocatedBytes() - allocatedBefore);
+                event.commit();
+            }
+            begin();
+        }
+
+        /**
+         * Starts the event of the next class.
+         */
+        private void begin() {
+            pending = new CompilationUnitEvent();
+            allocatedBefore = allocatedBytes();
+            pending.begin();
+        }
+    }
+
+    @Name("net.ltgt.maven.nullaway.Phase")
+    @Label("NullAway Plugin Phase")
+    @Category({"Maven", "NullAway"})
+    @Description("A phase of a NullAway plugin goal, such as validating the configuration or injecting compiler arguments")
+    static final class PhaseEvent extends Event {
+        @Label("Module")
+        String module;
+
+        @Label("Phase")
+        String phase;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+    }
+
+    @Name("net.ltgt.maven.nullaway.CompilationUnit")
+    @Label("NullAway Compilation Unit")
+    @Category({"Maven", "NullAway"})
+    @Description("Flow analysis and NullAway checks of a class, in a compilation run by the plugin")
+    static final class CompilationUnitEvent extends Event {
+        @Label("Module")
+        String module;
+
+        @Label("File")
+        String file;
+
+        @Label("Class")
+        String className;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+    }
+}
@@ -0,0 +1,142 @@
+package net.ltgt.maven.nullaway;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A content-addressed store of the nullability models inferred for dependency jars.
+ * <p>
+ * Each model is a jar holding the {@code .astubx} file produced by JarInfer, ready to be put on
+ * the annotation processor path: NullAway only reads models through {@code JarInferStubxProvider}
+ * services, so the jar also holds an {@link InferredModelProvider} and its registration. Models are
+ * keyed by the SHA-1 of the dependency jar and the NullAway version, so the same directory can be
+ * shared by every build of a machine, or mounted from a network location: a model never changes
+ * once written, and writes are atomic.
+ */
+public class LibraryModelCache {
+    /**
+     * Where the models are stored in the model jars, named after the dependency checksum so that
+     * the models of different jars don't hide each other on the processor path.
+     */
+    static final String MODEL_DIRECTORY = "META-INF/nullaway/models/";
+
+    private static final String PROVIDER_SERVICE = "META-INF/services/com.uber.nullaway.jarinfer.JarInferStubxProvider";
+    // Not InferredModelProvider.class, which cannot be loaded without NullAway
+    private static final String PROVIDER_CLASS = "net.ltgt.maven.nullaway.InferredModelProvider";
+
+    private final File directory;
+
+    /**
+     * Creates a cache.
+     *
+     * @param directory the cache directory, created on first write
+     */
+    public LibraryModelCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Finds the model of a dependency jar.
+     *
+     * @param jar             the dependency jar
+     * @param nullawayVersion the NullAway version the model is for
+     * @return the model jar, or null if it wasn't inferred yet
+     * @throws IOException if the dependency jar cannot be read
+     */
+    public File find(File jar, String nullawayVersion) throws IOException {
+        File model = modelFile(jar, nullawayVersion);
+        return model.isFile() ? model : null;
+    }
+
+    /**
+     * Stores the model of a dependency jar.
+     *
+     * @param jar             the dependency jar
+     * @param nullawayVersion the NullAway version the model is for
+     * @param astubx          the model inferred by JarInfer
+     * @return the model jar
+     * @throws IOException if the model cannot be written
+     */
+    public File store(File jar, String nullawayVersion, File astubx) throws IOException {
+        File model = modelFile(jar, nullawayVersion);
+        Path target = model.toPath();
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            String modelEntry = MODEL_DIRECTORY + DependencyAnnotationIndex.sha1(jar) + ".astubx";
+            try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(temp))) {
+                putEntry(out, modelEntry, Files.readAllBytes(astubx.toPath()));
+                putEntry(out, InferredModelProvider.INDEX, ("/" + modelEntry + "\n").getBytes(StandardCharsets.UTF_8));
+                putEntry(out, PROVIDER_SERVICE, (PROVIDER_CLASS + "\n").getBytes(StandardCharsets.UTF_8));
+                putEntry(out, PROVIDER_CLASS.replace('.', '/') + ".class", providerClass());
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return model;
+    }
+
+    /**
+     * Adds an entry to a model jar.
+     *
+     * @param out     the model jar
+     * @param name    the entry name
+     * @param content the entry content
+     * @throws IOException if the entry cannot be written
+     */
+    private static void putEntry(ZipOutputStream out, String name, byte[] content) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        // Identical inputs give identical model jars
+        entry.setTime(0);
+        out.putNextEntry(entry);
+        out.write(content);
+        out.closeEntry();
+    }
+
+    /**
+     * Reads the class file of the model provider, to copy it into a model jar.
+     *
+     * @return the class file
+     * @throws IOException if the class file cannot be read
+     */
+    private static byte[] providerClass() throws IOException {
+        String name = PROVIDER_CLASS.substring(PROVIDER_CLASS.lastIndexOf('.') + 1) + ".class";
+        try (InputStream in = LibraryModelCache.class.getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IOException("Missing " + name + " in the plugin");
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * Returns the location of the model of a dependency jar.
+     * <p>
+     * Models are spread over subdirectories named after the first two characters of the checksum,
+     * to keep directories small in large shared caches.
+     *
+     * @param jar             the dependency jar
+     * @param nullawayVersion the NullAway version the model is for
+     * @return the model jar location
+     * @throws IOException if the dependency jar cannot be read
+     */
+    private File modelFile(File jar, String nullawayVersion) throws IOException {
+        String sha1 = DependencyAnnotationIndex.sha1(jar);
+        return new File(new File(directory, sha1.substring(0, 2)), sha1 + "-nullaway-" + nullawayVersion + "-models.jar");
+    }
+}
@@ -0,0 +1,38 @@
+package net.ltgt.maven.nullaway;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Records the current NullAway findings of a module into its baseline file.
+ * <p>
+ * The module is analyzed like with the {@code check} goal, and every finding is accepted, so that
+ * later checks only report findings that are not in the baseline. This is meant for adopting
+ * NullAway on an existing codebase, and for shrinking the baseline as findings are fixed.
+ */
+@Mojo(
+        name = "baseline",
+        requiresDependencyResolution = ResolutionScope.COMPILE,
+        threadSafe = true
+)
+public class NullAwayBaselineMojo extends NullAwayCheckMojo {
+
+    @Override
+    protected void report(List<String> arguments, List<Finding> findings, boolean partial) throws MojoExecutionException {
+        if (partial) {
+            throw new MojoExecutionException(
+                    "The baseline must be recorded from all sources of the module, remove changedSince");
+        }
+        Baseline baseline = Baseline.of(findings, project.getBasedir());
+        try (PluginEvents.Span ignored = phase("writeBaseline")) {
+            baseline.write(getBaselineFile());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to write NullAway baseline: " + e.getMessage(), e);
+        }
+        getLog().info("Recorded " + baseline.size() + " NullAway findings in " + getBaselineFile());
+    }
+}
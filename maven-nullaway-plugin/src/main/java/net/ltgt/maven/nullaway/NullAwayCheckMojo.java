@@ -0,0 +1,408 @@
+package net.ltgt.maven.nullaway;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Runs NullAway on the main sources of a module, without compiling them.
+ * <p>
+ * javac is run in-process with only NullAway enabled, and stopped after flow analysis: no
+ * bytecode is generated and no class file is written. This is meant for checks that only need
+ * the verdict, such as pre-push hooks.
+ * <p>
+ * Error Prone and NullAway are taken from the maven-compiler-plugin's {@code annotationProcessorPaths}.
+ */
+@Mojo(
+        name = "check",
+        defaultPhase = LifecyclePhase.VERIFY,
+        requiresDependencyResolution = ResolutionScope.COMPILE,
+        threadSafe = true
+)
+public class NullAwayCheckMojo extends AbstractNullAwayCheckMojo {
+
+    // ========== Check ==========
+
+    /**
+     * If set to true, the build fails when NullAway reports errors.
+     */
+    @Parameter(property = "nullaway.failOnError", defaultValue = "true")
+    private boolean failOnError;
+
+    /**
+     * If set to true, the analysis is skipped when the sources, arguments, tools and classpath
+     * didn't change since the last check of the module, and its findings are reported again.
+     */
+    @Parameter(property = "nullaway.resultCache", defaultValue = "false")
+    private boolean resultCache;
+
+    // ========== Sharding ==========
+
+    /**
+     * Number of shards the module's sources are split into, by package, to be analyzed concurrently.
+     * <p>
+     * Each shard is analyzed by its own javac task. References to other shards are resolved from
+     * the module's previously compiled classes when they are up to date, and from its sources otherwise.
+     * The default of 1 analyzes the module in a single task.
+     */
+    @Parameter(property = "nullaway.shards", defaultValue = "1")
+    private int shards;
+
+    /**
+     * Maximum number of shards analyzed at the same time. Defaults to the number of available processors.
+     */
+    @Parameter(property = "nullaway.shardThreads")
+    private Integer shardThreads;
+
+    // ========== Batching ==========
+
+    /**
+     * Heap budget, in megabytes, for analyzing the module in batches, for modules too large to be
+     * analyzed at once.
+     * <p>
+     * The sources are split into batches of packages whose analysis is estimated to fit the budget,
+     * from the size of their files, and analyzed one after the other, the packages a batch depends on
+     * first. Earlier batches are compiled, and later ones resolve them from the compiled classes.
+     * Packages in a dependency cycle are always analyzed together, even beyond the budget. The
+     * budget doesn't include the heap taken by javac, Error Prone and the classpath themselves.
+     * Cannot be combined with {@code shards}.
+     */
+    @Parameter(property = "nullaway.memoryBudget")
+    private Integer memoryBudget;
+
+    // ========== Changed Files ==========
+
+    /**
+     * Only check the source files changed since the merge base of this git ref and {@code HEAD},
+     * e.g. {@code origin/main}, including uncommitted and untracked files.
+     * <p>
+     * The rest of the module is still used to resolve types, and findings are only reported for
+     * the changed files. Only the local git repository is read, so the ref must already be fetched.
+     */
+    @Parameter(property = "nullaway.changedSince")
+    private String changedSince;
+
+    // ========== Worker ==========
+
+    /**
+     * If set to true, analyses run in a long-lived local worker process that keeps Error Prone
+     * and NullAway loaded and JIT-compiled across builds, rather than in the Maven process.
+     * <p>
+     * A worker is started on first use and reused by later builds running the same JDK, plugin
+     * and annotation processor path. It only accepts connections from the local machine that
+     * present the token from its registry file, under {@code java.io.tmpdir}.
+     */
+    @Parameter(property = "nullaway.worker", defaultValue = "false")
+    private boolean worker;
+
+    /**
+     * Number of seconds a worker stays alive without receiving requests.
+     */
+    @Parameter(property = "nullaway.workerIdleTimeout", defaultValue = "600")
+    private int workerIdleTimeout;
+
+    /**
+     * Additional JVM arguments for new worker processes, e.g. {@code -Xmx2g}.
+     */
+    @Parameter(property = "nullaway.workerJvmArgs")
+    private List<String> workerJvmArgs;
+
+    // ========== Reports ==========
+
+    /**
+     * If set to true, the findings are also written as a SARIF log to {@code target/nullaway/nullaway.sarif},
+     * for code scanning tools. The {@code sarif-aggregate} goal combines the logs of a reactor.
+     */
+    @Parameter(property = "nullaway.sarifReport", defaultValue = "false")
+    private boolean sarifReport;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        long start = System.nanoTime();
+        List<String> arguments = generateArguments();
+        if (shards < 1 || (shardThreads != null && shardThreads < 1)) {
+            throw new MojoExecutionException("shards and shardThreads must be at least 1");
+        }
+        if (memoryBudget != null && memoryBudget < 1) {
+            throw new MojoExecutionException("memoryBudget must be at least 1 megabyte");
+        }
+        if (memoryBudget != null && shards > 1) {
+            throw new MojoExecutionException("memoryBudget cannot be combined with shards");
+        }
+        if (workerIdleTimeout < 1) {
+            throw new MojoExecutionException("workerIdleTimeout must be at least 1 second");
+        }
+        if (isDisabled()) {
+            getLog().info("NullAway is disabled (severity=OFF)");
+            return;
+        }
+
+        List<File> sourceFiles = findSourceFiles();
+        boolean partial = false;
+        if (changedSince != null && !changedSince.trim().isEmpty()) {
+            int total = sourceFiles.size();
+            sourceFiles = filterChanged(sourceFiles);
+            partial = sourceFiles.size() < total;
+            getLog().info(sourceFiles.size() + " of " + total + " source files changed since " + changedSince);
+        }
+        if (sourceFiles.isEmpty()) {
+            getLog().info("No sources to check");
+            return;
+        }
+
+        CompilerConfigInjector compilerConfig = new CompilerConfigInjector(project);
+        List<File> classpath = getClasspath();
+        List<File> libraryModels = Collections.emptyList();
+        String nullawayVersion = findNullAwayVersion();
+        if (hasLibraryModels() && nullawayVersion != null) {
+            try (PluginEvents.Span ignored = phase("findLibraryModels")) {
+                libraryModels = findLibraryModels(nullawayVersion);
+            }
+            if (!libraryModels.isEmpty()) {
+                arguments = withLibraryModels(arguments);
+            }
+        }
+        String fingerprint = null;
+        ResultCache cache = new ResultCache(getNullAwayDirectory(), "check-cache.properties");
+        List<Finding> findings = null;
+        try {
+            if (resultCache) {
+                try (PluginEvents.Span ignored = phase("resultCache")) {
+                    fingerprint = new AnalysisFingerprint(this.<String, String>sessionMap(AnalysisFingerprint.class))
+                            .addArguments(arguments)
+                            .addToolVersions(toolVersions(compilerConfig, libraryModels))
+                            .addSourceRoots(project.getCompileSourceRoots())
+                            .addScope(partial ? sourceFiles : Collections.<File>emptyList())
+                            .addClasspath(classpath)
+                            .compute();
+                    findings = readCachedFindings(cache, fingerprint);
+                }
+            }
+            if (findings == null) {
+                try (PluginEvents.Span ignored = phase("analyze")) {
+                    findings = analyze(arguments, sourceFiles, partial, classpath, libraryModels, compilerConfig);
+                }
+                if (fingerprint != null) {
+                    List<String> encoded = new ArrayList<>();
+                    for (Finding finding : findings) {
+                        encoded.add(finding.encode());
+                    }
+                    cache.write(fingerprint, encoded);
+                }
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to run NullAway: " + e.getMessage(), e);
+        }
+
+        int errors = 0;
+        for (Finding finding : findings) {
+            if (finding.getKind() == Finding.Kind.ERROR) {
+                errors++;
+            }
+        }
+        recordExecution(arguments, start, errors, findings.size() - errors);
+
+        report(arguments, findings, partial);
+    }
+
+    /**
+     * Lists the tools of the analysis, for its fingerprint.
+     *
+     * @param compilerConfig the maven-compiler-plugin configuration
+     * @param libraryModels  the inferred models on the processor path, named after their content
+     * @return the tool coordinates and model names
+     * @throws MojoExecutionException if the managed tool versions are invalid
+     */
+    private List<String> toolVersions(CompilerConfigInjector compilerConfig, List<File> libraryModels)
+            throws MojoExecutionException {
+        List<String> tools = CompilerConfigInjector.alignProcessorPath(
+                compilerConfig.findToolCoordinates(), getManagedProcessorPath());
+        for (File model : libraryModels) {
+            tools.add(model.getName());
+        }
+        return tools;
+    }
+
+    /**
+     * Reads the findings of the last check if its inputs had the same fingerprint.
+     *
+     * @param cache       the result cache
+     * @param fingerprint the fingerprint of the current inputs
+     * @return the recorded findings, or null on a cache miss
+     */
+    private List<Finding> readCachedFindings(ResultCache cache, String fingerprint) {
+        ResultCache.Record record = cache.read();
+        if (record == null || !record.getFingerprint().equals(fingerprint)) {
+            return null;
+        }
+        List<Finding> findings = new ArrayList<>();
+        try {
+            for (String encoded : record.getDiagnostics()) {
+                findings.add(Finding.decode(encoded));
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        getLog().info("NullAway inputs unchanged since last check, reusing its findings");
+        return findings;
+    }
+
+    /**
+     * Runs the analysis in-process.
+     *
+     * @param arguments      the NullAway arguments
+     * @param sourceFiles    the source files to analyze
+     * @param partial        whether the source files are only part of the module
+     * @param classpath      the compile classpath
+     * @param libraryModels  the inferred models to add to the processor path
+     * @param compilerConfig the maven-compiler-plugin configuration
+     * @return the findings
+     * @throws MojoExecutionException if the processor path cannot be resolved or javac cannot run
+     * @throws IOException            if javac cannot access its inputs or outputs
+     */
+    private List<Finding> analyze(List<String> arguments, List<File> sourceFiles, boolean partial,
+                                  List<File> classpath, List<File> libraryModels,
+                                  CompilerConfigInjector compilerConfig) throws MojoExecutionException, IOException {
+        AnalysisRequest request = createRequest(arguments, sourceFiles, partial || shards > 1 || memoryBudget != null,
+                classpath, libraryModels, compilerConfig);
+
+        Analyzer analyzer = worker
+                ? new WorkerClient(WorkerClient.defaultRegistryDirectory(),
+                        workerJvmArgs != null ? workerJvmArgs : Collections.<String>emptyList(),
+                        workerIdleTimeout * 1000L)
+                : new InProcessAnalyzer();
+
+        if (shards > 1) {
+            int threads = shardThreads != null ? shardThreads : Runtime.getRuntime().availableProcessors();
+            getLog().info("Checking " + sourceFiles.size() + " source files with NullAway in " + shards +
+                    " shards on " + threads + " threads");
+            try {
+                return new ShardedAnalyzer(analyzer, threads).analyze(request, shards);
+            } catch (IllegalStateException e) {
+                throw new MojoExecutionException(e.getMessage(), e);
+            }
+        }
+
+        if (memoryBudget != null) {
+            long budget = memoryBudget * 1024L * 1024L;
+            List<List<File>> batches;
+            try (PluginEvents.Span ignored = phase("planBatches")) {
+                batches = BatchedAnalyzer.partition(sourceFiles, budget);
+            }
+            getLog().info("Checking " + sourceFiles.size() + " source files with NullAway in " + batches.size() +
+                    " batches of at most " + memoryBudget + " MB");
+            for (List<File> batch : batches) {
+                long heap = BatchedAnalyzer.estimateHeap(batch);
+                if (heap > budget) {
+                    getLog().warn("A package or dependency cycle of " + batch.size() + " source files needs about " +
+                            (heap / (1024 * 1024)) + " MB, beyond memoryBudget");
+                }
+            }
+            try {
+                return new BatchedAnalyzer(analyzer).analyze(request, batches);
+            } catch (IllegalStateException e) {
+                throw new MojoExecutionException(e.getMessage(), e);
+            }
+        }
+
+        getLog().info("Checking " + sourceFiles.size() + " source files with NullAway");
+        try {
+            return InProcessAnalyzer.ownFindings(analyzer.analyze(request), sourceFiles);
+        } catch (IllegalStateException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reports the findings of the analysis.
+     * <p>
+     * Findings accepted by the baseline are only logged at debug level. The others are logged,
+     * and fail the build if there are errors.
+     *
+     * @param arguments the Error Prone arguments of the analysis
+     * @param findings  the sorted findings
+     * @param partial   whether only part of the module's sources were analyzed
+     * @throws MojoExecutionException if the baseline cannot be read or the report cannot be written
+     * @throws MojoFailureException   if there are errors and {@code failOnError} is set
+     */
+    protected void report(List<String> arguments, List<Finding> findings, boolean partial)
+            throws MojoExecutionException, MojoFailureException {
+        List<Finding> newFindings = compareWithBaseline(findings, partial);
+
+        if (sarifReport) {
+            try (PluginEvents.Span ignored = phase("writeSarif")) {
+                writeSarif(arguments, findings, newFindings);
+            } catch (IOException e) {
+                throw new MojoExecutionException("Failed to write SARIF report: " + e.getMessage(), e);
+            }
+        }
+
+        int errors = logFindings(newFindings != null ? newFindings : findings);
+        if (errors > 0 && failOnError) {
+            throw new MojoFailureException("NullAway check failed with " + errors + " errors");
+        }
+    }
+
+    /**
+     * Writes the findings to the module's SARIF log.
+     *
+     * @param arguments   the Error Prone arguments of the analysis
+     * @param findings    all the findings
+     * @param newFindings the findings missing from the baseline, or null without a baseline
+     * @throws IOException if the log cannot be written
+     */
+    private void writeSarif(List<String> arguments, List<Finding> findings, List<Finding> newFindings) throws IOException {
+        File sarifFile = new File(getNullAwayDirectory(), "nullaway.sarif");
+        try (SarifWriter writer = new SarifWriter(sarifFile, getModuleName(), project.getBasedir(), arguments)) {
+            // New findings are a subsequence of all findings, in the same order
+            int next = 0;
+            for (Finding finding : findings) {
+                String baselineState = null;
+                if (newFindings != null) {
+                    boolean isNew = isNew(finding, newFindings, next);
+                    baselineState = isNew ? "new" : "unchanged";
+                    next += isNew ? 1 : 0;
+                }
+                writer.write(finding, baselineState);
+            }
+        }
+        getLog().info("SARIF report written to " + sarifFile);
+    }
+
+    /**
+     * Keeps the source files changed since {@code changedSince}.
+     *
+     * @param sourceFiles the source files of the module
+     * @return the changed source files
+     * @throws MojoExecutionException if the changes cannot be read from git
+     */
+    private List<File> filterChanged(List<File> sourceFiles) throws MojoExecutionException {
+        Set<File> changed;
+        try {
+            changed = new GitChangedFiles(project.getBasedir()).changedSince(changedSince.trim());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to list files changed since " + changedSince + ": " + e.getMessage(), e);
+        }
+        List<File> filtered = new ArrayList<>();
+        try {
+            for (File file : sourceFiles) {
+                if (changed.contains(file.getCanonicalFile())) {
+                    filtered.add(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to resolve source file: " + e.getMessage(), e);
+        }
+        return filtered;
+    }
+}
@@ -0,0 +1,159 @@
+package net.ltgt.maven.nullaway;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.eclipse.aether.RepositorySystem;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Infers nullability models for the dependencies selected by {@code inferModels}, with JarInfer.
+ * <p>
+ * Inference is much too slow to run on every build, so models are stored in the model cache,
+ * keyed by the checksum of the dependency jar and the NullAway version, and only inferred for jars
+ * that are not in the cache yet. The {@code configure} and {@code check} goals then put the cached
+ * models on the annotation processor path.
+ */
+@Mojo(
+        name = "infer-models",
+        requiresDependencyResolution = ResolutionScope.COMPILE,
+        threadSafe = true
+)
+public class NullAwayInferModelsMojo extends AbstractNullAwayMojo {
+    private static final String JAR_INFER_MAIN_CLASS = "com.uber.nullaway.jarinfer.JarInfer";
+
+    @Inject
+    private RepositorySystem repositorySystem;
+
+    // ========== Inference ==========
+
+    /**
+     * The version of {@code com.uber.nullaway:jar-infer-cli} used for inference. Defaults to the
+     * NullAway version on the maven-compiler-plugin's annotation processor path.
+     */
+    @Parameter(property = "nullaway.jarInferVersion")
+    private String jarInferVersion;
+
+    /**
+     * Additional JVM arguments for the JarInfer processes, e.g. {@code -Xmx4g}.
+     */
+    @Parameter(property = "nullaway.jarInferJvmArgs")
+    private List<String> jarInferJvmArgs;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (!hasLibraryModels()) {
+            getLog().info("No dependencies selected by inferModels");
+            return;
+        }
+        String nullawayVersion = findNullAwayVersion();
+        if (nullawayVersion == null) {
+            throw new MojoExecutionException(
+                    "NullAway not found in the maven-compiler-plugin's annotationProcessorPaths. " +
+                            "Please add it, models are inferred for the NullAway version in use.");
+        }
+
+        // Only infer the models missing from the cache
+        LibraryModelCache cache = getLibraryModelCache();
+        Map<String, File> missing = new LinkedHashMap<>();
+        Map<String, File> selected = selectModelDependencies();
+        try {
+            for (Map.Entry<String, File> dependency : selected.entrySet()) {
+                if (cache.find(dependency.getValue(), nullawayVersion) == null) {
+                    missing.put(dependency.getKey(), dependency.getValue());
+                }
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to read dependency jars: " + e.getMessage(), e);
+        }
+        getLog().info((selected.size() - missing.size()) + " of " + selected.size() +
+                " selected dependencies have cached NullAway models");
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        List<File> jarInferPath;
+        try (PluginEvents.Span ignored = phase("resolveJarInfer")) {
+            jarInferPath = new ProcessorPathResolver(
+                    repositorySystem, session.getRepositorySession(), project.getRemoteProjectRepositories())
+                    .resolve(Collections.singletonList(NULLAWAY_GROUP_ID + ":jar-infer-cli:" +
+                            (jarInferVersion != null ? jarInferVersion : nullawayVersion)));
+        }
+
+        File workDirectory = new File(getNullAwayDirectory(), "jarinfer");
+        for (Map.Entry<String, File> dependency : missing.entrySet()) {
+            try (PluginEvents.Span ignored = phase("inferModel")) {
+                getLog().info("Inferring NullAway model for " + dependency.getKey());
+                File astubx = infer(jarInferPath, dependency.getValue(), workDirectory);
+                if (astubx == null) {
+                    getLog().warn("JarInfer found nothing to model in " + dependency.getKey());
+                    continue;
+                }
+                File model = cache.store(dependency.getValue(), nullawayVersion, astubx);
+                getLog().info("Cached NullAway model " + model);
+            } catch (IOException e) {
+                throw new MojoExecutionException(
+                        "Failed to infer NullAway model for " + dependency.getKey() + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Runs JarInfer on a dependency jar, in a separate JVM.
+     *
+     * @param jarInferPath  the JarInfer classpath
+     * @param jar           the dependency jar
+     * @param workDirectory the directory for the model and the JarInfer log
+     * @return the inferred model, or null if JarInfer didn't write one
+     * @throws IOException if JarInfer cannot be run or fails
+     */
+    private File infer(List<File> jarInferPath, File jar, File workDirectory) throws IOException {
+        Files.createDirectories(workDirectory.toPath());
+        String name = jar.getName().substring(0, jar.getName().length() - ".jar".length());
+        File astubx = new File(workDirectory, name + ".astubx");
+        File log = new File(workDirectory, name + ".log");
+        Files.deleteIfExists(astubx.toPath());
+
+        List<String> command = new ArrayList<>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+        if (jarInferJvmArgs != null) {
+            command.addAll(jarInferJvmArgs);
+        }
+        command.add("-cp");
+        command.add(jarInferPath.stream().map(File::getPath).collect(Collectors.joining(File.pathSeparator)));
+        command.add(JAR_INFER_MAIN_CLASS);
+        command.add("-i");
+        command.add(jar.getPath());
+        command.add("-o");
+        command.add(astubx.getPath());
+
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.to(log))
+                .start();
+        process.getOutputStream().close();
+        int exitCode;
+        try {
+            exitCode = process.waitFor();
+        } catch (InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running JarInfer", e);
+        }
+        if (exitCode != 0) {
+            throw new IOException("JarInfer exited with code " + exitCode + ", see " + log);
+        }
+        return astubx.isFile() ? astubx : null;
+    }
+}
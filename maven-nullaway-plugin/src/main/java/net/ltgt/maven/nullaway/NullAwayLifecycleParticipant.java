@@ -0,0 +1,410 @@
+package net.ltgt.maven.nullaway;
+
+import org.apache.maven.AbstractMavenLifecycleParticipant;
+import org.apache.maven.MavenExecutionException;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.lifecycle.LifecycleExecutor;
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.plugin.BuildPluginManager;
+import org.apache.maven.plugin.MavenPluginManager;
+import org.apache.maven.plugin.Mojo;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Hooks into the Maven session when the plugin is loaded as a build extension, with
+ * {@code <extensions>true</extensions>}.
+ * <p>
+ * At the end of the session, the {@link ExecutionSummary} of all modules is logged and written
+ * as JSON, so that reactors built with {@code -T} have a single place listing what NullAway did
+ * in each module. The compilations of configured modules are timed through the session's
+ * execution listener.
+ * <p>
+ * With {@code -Dnullaway.configureBeforeBuild=true}, the {@code configure} executions of all
+ * modules are run in a single pass once the projects are read, and removed from the modules'
+ * lifecycles. Each distinct configuration is loaded and injected once, from the POM exactly like
+ * in the {@code initialize} phase, and generates its arguments once through the session's
+ * {@link ArgumentCache}; only the per-module work remains for each module. Executions that need
+ * the resolved project dependencies, for resultCache, dependencyAnnotations or inferModels, are
+ * left to run in their module's build.
+ */
+@Named("nullaway")
+@Singleton
+public class NullAwayLifecycleParticipant extends AbstractMavenLifecycleParticipant {
+    /**
+     * Set to false to disable the summary.
+     */
+    static final String SUMMARY_PROPERTY = "nullaway.summary";
+
+    /**
+     * Overrides the location of the JSON summary.
+     */
+    static final String SUMMARY_FILE_PROPERTY = "nullaway.summaryFile";
+
+    /**
+     * Set to true to run the configure goal of all modules before the build starts.
+     */
+    static final String CONFIGURE_BEFORE_BUILD_PROPERTY = "nullaway.configureBeforeBuild";
+
+    private static final String PLUGIN_KEY = "net.ltgt.maven:nullaway-maven-plugin";
+    private static final String CONFIGURE_GOAL = "configure";
+
+    private final Logger logger = LoggerFactory.getLogger(NullAwayLifecycleParticipant.class);
+
+    private final BuildPluginManager buildPluginManager;
+    private final MavenPluginManager mavenPluginManager;
+    private final LifecycleExecutor lifecycleExecutor;
+
+    @Inject
+    public NullAwayLifecycleParticipant(BuildPluginManager buildPluginManager, MavenPluginManager mavenPluginManager,
+                                        LifecycleExecutor lifecycleExecutor) {
+        this.buildPluginManager = buildPluginManager;
+        this.mavenPluginManager = mavenPluginManager;
+        this.lifecycleExecutor = lifecycleExecutor;
+    }
+
+    @Override
+    public void afterProjectsRead(MavenSession session) throws MavenExecutionException {
+        if ("true".equalsIgnoreCase(property(session, CONFIGURE_BEFORE_BUILD_PROPERTY))) {
+            configureProjects(session);
+        }
+        if (!isSummaryEnabled(session)) {
+            return;
+        }
+        session.getRequest().setExecutionListener(new CompileTimingListener(
+                session.getRequest().getExecutionListener(), ExecutionSummary.forSession(session)));
+    }
+
+    @Override
+    public void afterSessionEnd(MavenSession session) {
+        if (!isSummaryEnabled(session)) {
+            return;
+        }
+        ExecutionSummary summary = ExecutionSummary.forSession(session);
+        if (summary.isEmpty()) {
+            return;
+        }
+        for (String line : summary.format()) {
+            logger.info(line);
+        }
+        File file = getSummaryFile(session);
+        try {
+            Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+            Files.write(file.toPath(), summary.toJson().getBytes(StandardCharsets.UTF_8));
+            logger.info("NullAway summary written to " + file);
+        } catch (IOException e) {
+            logger.warn("Failed to write NullAway summary to " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs the configure executions of all the projects of the session, and removes those that
+     * ran from the projects' builds.
+     * <p>
+     * Executions are grouped by their configuration, and each group is planned, loaded and
+     * configured once, like {@code mvn groupId:artifactId:version:configure@executionId}. The
+     * configured mojo is then copied for each project of the group, so only the per-project work
+     * remains, and projects are configured concurrently with the degree of concurrency of the session.
+     *
+     * @param session the Maven session
+     * @throws MavenExecutionException if an execution cannot be loaded or fails
+     */
+    private void configureProjects(MavenSession session) throws MavenExecutionException {
+        long start = System.nanoTime();
+        List<ConfigureExecution> executions = listConfigureExecutions(session.getProjects());
+        Map<String, List<ConfigureExecution>> groups = groupByConfiguration(executions);
+        Map<MavenProject, List<ConfigureExecution>> configured = new LinkedHashMap<>();
+        Map<ConfigureExecution, NullAwayMojo> mojos = new HashMap<>();
+        List<Map.Entry<Mojo, MojoExecution>> loaded = new ArrayList<>();
+        int deferred = 0;
+        MavenProject currentProject = session.getCurrentProject();
+        try {
+            for (List<ConfigureExecution> group : groups.values()) {
+                ConfigureExecution first = group.get(0);
+                MojoExecution mojoExecution;
+                Mojo mojo;
+                session.setCurrentProject(first.getProject());
+                try {
+                    mojoExecution = lifecycleExecutor.calculateExecutionPlan(session, first.getTask())
+                            .getMojoExecutions().get(0);
+                    buildPluginManager.getPluginRealm(session, mojoExecution.getMojoDescriptor().getPluginDescriptor());
+                    mojo = mavenPluginManager.getConfiguredMojo(Mojo.class, session, mojoExecution);
+                } catch (Exception e) {
+                    throw new MavenExecutionException("Failed to configure NullAway for " + first + ": " + e.getMessage(), e);
+                }
+                loaded.add(new AbstractMap.SimpleEntry<>(mojo, mojoExecution));
+                // Another version of the plugin than this extension runs in its own realm
+                if (!(mojo instanceof NullAwayMojo) || !((NullAwayMojo) mojo).isConfigurableBeforeBuild()) {
+                    deferred += group.size();
+                    continue;
+                }
+                for (ConfigureExecution execution : group) {
+                    mojos.put(execution, (NullAwayMojo) mojo);
+                }
+            }
+            for (ConfigureExecution execution : executions) {
+                if (mojos.containsKey(execution)) {
+                    configured.computeIfAbsent(execution.getProject(), project -> new ArrayList<>()).add(execution);
+                }
+            }
+            execute(configured, mojos, session.getRequest().getDegreeOfConcurrency());
+        } finally {
+            for (Map.Entry<Mojo, MojoExecution> mojo : loaded) {
+                mavenPluginManager.releaseMojo(mojo.getKey(), mojo.getValue());
+            }
+            session.setCurrentProject(currentProject);
+        }
+
+        for (Map.Entry<MavenProject, List<ConfigureExecution>> entry : configured.entrySet()) {
+            List<String> executionIds = new ArrayList<>();
+            for (ConfigureExecution execution : entry.getValue()) {
+                executionIds.add(execution.getExecutionId());
+            }
+            removeConfigureGoal(entry.getKey(), entry.getValue().get(0).getPlugin(), executionIds);
+        }
+        if (!executions.isEmpty()) {
+            logger.info("NullAway configured " + mojos.size() + " executions with " + groups.size() +
+                    " distinct configurations before the build in " + (System.nanoTime() - start) / 1_000_000 + " ms" +
+                    (deferred > 0 ? ", " + deferred + " left to their module's build" : ""));
+        }
+    }
+
+    /**
+     * Runs configure executions, concurrently across projects and in order within each project.
+     *
+     * @param executions the executions of each project
+     * @param mojos      the configured mojo of each execution, copied for its project
+     * @param threads    the maximum number of projects configured at the same time
+     * @throws MavenExecutionException if an execution fails
+     */
+    private static void execute(Map<MavenProject, List<ConfigureExecution>> executions,
+                                Map<ConfigureExecution, NullAwayMojo> mojos, int threads) throws MavenExecutionException {
+        if (executions.isEmpty()) {
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, executions.size())));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (List<ConfigureExecution> projectExecutions : executions.values()) {
+                futures.add(executor.submit(() -> {
+                    for (ConfigureExecution execution : projectExecutions) {
+                        try {
+                            mojos.get(execution).forProject(execution.getProject()).execute();
+                        } catch (MojoExecutionException | RuntimeException e) {
+                            throw new MavenExecutionException("Failed to configure NullAway for " + execution +
+                                    ": " + e.getMessage(), e);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof MavenExecutionException) {
+                throw (MavenExecutionException) e.getCause();
+            }
+            throw new MavenExecutionException("Failed to configure NullAway: " + e.getCause(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MavenExecutionException("Interrupted while configuring NullAway", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Lists the configure executions of projects.
+     *
+     * @param projects the projects of the session
+     * @return the executions, in project and execution order
+     */
+    static List<ConfigureExecution> listConfigureExecutions(List<MavenProject> projects) {
+        List<ConfigureExecution> executions = new ArrayList<>();
+        for (MavenProject project : projects) {
+            Plugin plugin = project.getBuild() == null ? null : project.getBuild().getPluginsAsMap().get(PLUGIN_KEY);
+            if (plugin == null) {
+                continue;
+            }
+            for (PluginExecution execution : plugin.getExecutions()) {
+                if (execution.getGoals().contains(CONFIGURE_GOAL)) {
+                    executions.add(new ConfigureExecution(project, plugin, execution));
+                }
+            }
+        }
+        return executions;
+    }
+
+    /**
+     * Groups configure executions by configuration.
+     * <p>
+     * Executions are in the same group when they use the same plugin version and configuration,
+     * and their projects set the same {@code nullaway.*} properties, which parameters without a
+     * configured value default to. POM expressions are already interpolated for each project, so
+     * the executions of a group get equal parameters in every project.
+     *
+     * @param executions the executions
+     * @return the executions, in their original order, by configuration key
+     */
+    static Map<String, List<ConfigureExecution>> groupByConfiguration(List<ConfigureExecution> executions) {
+        Map<String, List<ConfigureExecution>> groups = new LinkedHashMap<>();
+        for (ConfigureExecution execution : executions) {
+            groups.computeIfAbsent(execution.getConfigurationKey(), key -> new ArrayList<>()).add(execution);
+        }
+        return groups;
+    }
+
+    /**
+     * Removes the configure goal from executions of a project, so it doesn't run again in its build.
+     * <p>
+     * Inherited plugins and executions may be shared with other projects, so the project gets its
+     * own copy of the plugin.
+     *
+     * @param project      the project
+     * @param plugin       the NullAway plugin of the project
+     * @param executionIds the ids of the executions that ran
+     */
+    static void removeConfigureGoal(MavenProject project, Plugin plugin, List<String> executionIds) {
+        Plugin copy = plugin.clone();
+        for (PluginExecution execution : copy.getExecutions()) {
+            if (executionIds.contains(execution.getId())) {
+                List<String> goals = new ArrayList<>(execution.getGoals());
+                goals.remove(CONFIGURE_GOAL);
+                execution.setGoals(goals);
+            }
+        }
+        Build build = project.getBuild();
+        List<Plugin> plugins = new ArrayList<>(build.getPlugins());
+        plugins.set(plugins.indexOf(plugin), copy);
+        build.setPlugins(plugins);
+        build.flushPluginMap();
+    }
+
+    /**
+     * Checks whether the summary is enabled for a session.
+     *
+     * @param session the Maven session
+     * @return false if the {@code nullaway.summary} property is set to false
+     */
+    private static boolean isSummaryEnabled(MavenSession session) {
+        return !"false".equalsIgnoreCase(property(session, SUMMARY_PROPERTY));
+    }
+
+    /**
+     * Returns where the JSON summary is written.
+     *
+     * @param session the Maven session
+     * @return the {@code nullaway.summaryFile} property, or {@code nullaway-summary.json} in the
+     *         build directory of the top-level project
+     */
+    private static File getSummaryFile(MavenSession session) {
+        String file = property(session, SUMMARY_FILE_PROPERTY);
+        if (file != null && !file.trim().isEmpty()) {
+            return new File(file.trim());
+        }
+        MavenProject topLevel = session.getTopLevelProject();
+        File directory = topLevel != null
+                ? new File(topLevel.getBuild().getDirectory())
+                : new File(session.getExecutionRootDirectory(), "target");
+        return new File(directory, "nullaway-summary.json");
+    }
+
+    /**
+     * Reads a user or system property of the session.
+     *
+     * @param session the Maven session
+     * @param name    the property name
+     * @return the value, or null if unset
+     */
+    private static String property(MavenSession session, String name) {
+        String value = session.getUserProperties().getProperty(name);
+        return value != null ? value : session.getSystemProperties().getProperty(name);
+    }
+
+    /**
+     * A configure execution of a project.
+     */
+    static final class ConfigureExecution {
+        private final MavenProject project;
+        private final Plugin plugin;
+        private final PluginExecution execution;
+
+        ConfigureExecution(MavenProject project, Plugin plugin, PluginExecution execution) {
+            this.project = project;
+            this.plugin = plugin;
+            this.execution = execution;
+        }
+
+        MavenProject getProject() {
+            return project;
+        }
+
+        Plugin getPlugin() {
+            return plugin;
+        }
+
+        String getExecutionId() {
+            return execution.getId();
+        }
+
+        /**
+         * Computes the key of the configuration of this execution.
+         *
+         * @return a key equal for executions configured with equal parameters
+         */
+        String getConfigurationKey() {
+            StringBuilder key = new StringBuilder()
+                    .append(plugin.getVersion()).append('\n')
+                    .append(execution.getId()).append('\n')
+                    .append(execution.getConfiguration()).append('\n')
+                    .append(plugin.getConfiguration()).append('\n');
+            Map<String, String> properties = new TreeMap<>();
+            for (String name : project.getProperties().stringPropertyNames()) {
+                if (name.startsWith("nullaway.")) {
+                    properties.put(name, project.getProperties().getProperty(name));
+                }
+            }
+            return key.append(properties).toString();
+        }
+
+        /**
+         * Returns the task planning this execution, with the execution's configuration.
+         *
+         * @return the task, like {@code groupId:artifactId:version:configure@executionId}
+         */
+        String getTask() {
+            return plugin.getGroupId() + ":" + plugin.getArtifactId() +
+                    (plugin.getVersion() != null ? ":" + plugin.getVersion() : "") + ":" + CONFIGURE_GOAL + "@" + getExecutionId();
+        }
+
+        @Override
+        public String toString() {
+            return project.getId() + " (" + getExecutionId() + ")";
+        }
+    }
+}
@@ -1,13 +1,34 @@
 package net.ltgt.maven.nullaway;
 
-import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.io.xpp3.MavenXpp3Writer;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.DependencyResolutionException;
 import org.apache.maven.project.MavenProject;
-
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.installation.InstallRequest;
+import org.eclipse.aether.installation.InstallationException;
+import org.eclipse.aether.repository.LocalRepositoryManager;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Maven plugin for configuring NullAway static analysis with Error Prone.
@@ -23,331 +44,551 @@ import java.util.List;
         defaultPhase = LifecyclePhase.INITIALIZE,
         threadSafe = true
 )
-public class NullAwayMojo extends AbstractMojo {
-
-    @Parameter(defaultValue = "${project}", readonly = true, required = true)
-    private MavenProject project;
-
-    // ========== Core Configuration ==========
+public class NullAwayMojo extends AbstractNullAwayMojo {
+    private static final String TEST_COMPILE_EXECUTION = "default-testCompile";
+    private static final String MODELS_GROUP_ID = "net.ltgt.maven.nullaway.models";
 
     /**
-     * The severity of the NullAway check.
-     * <p>
-     * Valid values: OFF, WARN, ERROR, DEFAULT
-     * <ul>
-     *   <li>OFF - Disable NullAway</li>
-     *   <li>WARN - Enable NullAway as warnings</li>
-     *   <li>ERROR - Enable NullAway as errors (fails build)</li>
-     *   <li>DEFAULT - Enable NullAway with default Error Prone severity</li>
-     * </ul>
+     * The compiler arguments Error Prone requires, added along with a managed processor path.
      */
-    @Parameter(property = "nullaway.severity", defaultValue = "DEFAULT")
-    private String severity;
+    private static final List<String> ERROR_PRONE_COMPILER_ARGS = Collections.unmodifiableList(Arrays.asList(
+            "-XDcompilePolicy=simple", "--should-stop=ifError=FLOW", "-Xplugin:ErrorProne"));
 
     /**
-     * Indicates that the annotatedPackages flag has been deliberately omitted, and that NullAway
-     * can proceed with only treating @NullMarked code as annotated, in accordance with the JSpecify specification.
-     * <p>
-     * If this option is set to true, then annotatedPackages must be empty.
-     * Note that even if this flag is omitted (and annotatedPackages is non-empty),
-     * any @NullMarked code will still be treated as annotated.
+     * The project property holding the fingerprint of the effective NullAway configuration.
      */
-    @Parameter(property = "nullaway.onlyNullMarked")
-    private Boolean onlyNullMarked;
+    static final String FINGERPRINT_PROPERTY = "nullaway.fingerprint";
+
+    @Inject
+    private RepositorySystem repositorySystem;
+
+    // ========== Compiler Configuration ==========
 
     /**
-     * The list of packages that should be considered properly annotated according to the NullAway convention.
+     * If set to true, NullAway arguments replace those injected by earlier executions and are merged
+     * into the existing {@code -Xplugin:ErrorProne} compiler argument, in a canonical order.
      * <p>
-     * Either this or onlyNullMarked must be specified (but not both).
+     * If set to false, the arguments are appended to the compiler arguments as-is.
      */
-    @Parameter(property = "nullaway.annotatedPackages")
-    private List<String> annotatedPackages;
+    @Parameter(property = "nullaway.mergeCompilerArgs", defaultValue = "true")
+    private boolean mergeCompilerArgs;
 
-    // ========== Package and Class Exclusions ==========
+    // ========== Result Cache ==========
 
     /**
-     * A list of subpackages to be excluded from the annotatedPackages list.
+     * If set to true, NullAway is disabled for compilations whose inputs didn't change since the
+     * last successful analysis of the module.
+     * <p>
+     * Only applies when the severity is ERROR, for test sources as well unless they are not
+     * analyzed, since a compilation only proves that there are no findings when they are errors.
+     * <p>
+     * The inputs are fingerprinted from the source files, the NullAway arguments, the tools declared
+     * on the maven-compiler-plugin and the project dependencies, and the fingerprint is recorded
+     * under {@code target/nullaway}. A compilation running NullAway with these inputs confirms the
+     * record by writing a marker once it succeeds; class files alone are not trusted. The marker
+     * plugin is added to the annotationProcessorPaths of the maven-compiler-plugin. Modules with
+     * generated sources are not cached unless excludeGeneratedSources is set, as generators run after
+     * the fingerprint is computed. Enabling this resolves the project dependencies during the
+     * {@code initialize} phase.
      */
-    @Parameter(property = "nullaway.unannotatedSubPackages")
-    private List<String> unannotatedSubPackages;
+    @Parameter(property = "nullaway.resultCache", defaultValue = "false")
+    private boolean resultCache;
+
+    // ========== Test Compilation ==========
 
     /**
-     * A list of classes within annotated packages that should be treated as unannotated.
+     * NullAway options overridden for the compilation of test sources, e.g. a lower severity or
+     * no handleTestAssertionLibraries. Options left unset inherit the configuration of the main sources.
+     * <p>
+     * The test arguments are injected into the {@code default-testCompile} execution of
+     * maven-compiler-plugin, which requires mergeCompilerArgs.
      */
-    @Parameter(property = "nullaway.unannotatedClasses")
-    private List<String> unannotatedClasses;
+    @Parameter
+    private TestCompileConfiguration testCompile;
 
     /**
-     * A list of classes to be excluded from the nullability analysis.
+     * If set to true, NullAway is disabled when compiling test sources. This is a shortcut for a
+     * testCompile severity of OFF.
      */
-    @Parameter(property = "nullaway.excludedClasses")
-    private List<String> excludedClasses;
+    @Parameter(property = "nullaway.skipTestCompile", defaultValue = "false")
+    private boolean skipTestCompile;
+
+    // ========== Fork Acceleration ==========
 
     /**
-     * A list of annotations that cause classes to be excluded from nullability analysis.
+     * If set to true, compilations forked by maven-compiler-plugin ({@code fork=true}) start from a
+     * class data sharing archive of javac, Error Prone and NullAway.
+     * <p>
+     * The archive is created once for each javac executable and processor path, by a short
+     * training compilation, and shared by all builds through cdsDirectory. Forked javac processes
+     * then map the archived classes instead of loading and verifying them again. Requires JDK 13
+     * or later for the forked compilations.
      */
-    @Parameter(property = "nullaway.excludedClassAnnotations")
-    private List<String> excludedClassAnnotations;
+    @Parameter(property = "nullaway.forkAcceleration", defaultValue = "false")
+    private boolean forkAcceleration;
 
     /**
-     * A list of annotations that cause fields to be excluded from being checked for proper initialization.
+     * The directory holding the class data sharing archives of forkAcceleration.
      */
-    @Parameter(property = "nullaway.excludedFieldAnnotations")
-    private List<String> excludedFieldAnnotations;
+    @Parameter(property = "nullaway.cdsDirectory", defaultValue = "${settings.localRepository}/.cache/nullaway/cds")
+    private File cdsDirectory;
 
-    // ========== Initializers ==========
+    @Override
+    public void execute() throws MojoExecutionException {
+        long start = System.nanoTime();
 
-    /**
-     * The fully qualified name of those methods from third-party libraries that NullAway should treat as initializers.
-     */
-    @Parameter(property = "nullaway.knownInitializers")
-    private List<String> knownInitializers;
+        // Validate configuration and generate Error Prone arguments
+        List<String> arguments = generateArguments();
 
-    /**
-     * A list of annotations that should be considered equivalent to @Initializer annotations,
-     * and thus mark methods as initializers.
-     */
-    @Parameter(property = "nullaway.customInitializerAnnotations")
-    private List<String> customInitializerAnnotations;
+        // Skip if NullAway is disabled
+        if (isDisabled()) {
+            getLog().info("NullAway is disabled (severity=OFF)");
+            publishFingerprint(arguments, new CompilerConfigInjector(project));
+            // Compilations without NullAway must not confirm an earlier record
+            clearResultCache();
+            return;
+        }
 
-    /**
-     * A list of annotations for classes that are "externally initialized."
-     */
-    @Parameter(property = "nullaway.externalInitAnnotations")
-    private List<String> externalInitAnnotations;
+        // Generate separate arguments for test sources
+        TestCompileConfiguration testOverrides = skipTestCompile ? new TestCompileConfiguration("OFF") : testCompile;
+        List<String> testArguments = null;
+        if (testOverrides != null) {
+            if (!mergeCompilerArgs) {
+                throw new MojoExecutionException("testCompile and skipTestCompile require mergeCompilerArgs=true");
+            }
+            testArguments = generateTestArguments(testOverrides);
+        }
 
-    // ========== Behavioral Options ==========
+        CompilerConfigInjector injector = new CompilerConfigInjector(project, mergeCompilerArgs);
 
-    /**
-     * If set to true, NullAway treats any class annotated with @Generated as if its APIs are
-     * unannotated when analyzing uses from other classes.
-     */
-    @Parameter(property = "nullaway.treatGeneratedAsUnannotated")
-    private Boolean treatGeneratedAsUnannotated;
+        // Put Error Prone and NullAway on the annotation processor path
+        List<String> managedProcessorPath = getManagedProcessorPath();
+        if (!managedProcessorPath.isEmpty()) {
+            try (PluginEvents.Span ignored = phase("injectProcessorPath")) {
+                injector.injectProcessorPath(managedProcessorPath);
+                injector.ensureCompilerArgs(ERROR_PRONE_COMPILER_ARGS);
+            }
+        }
 
-    /**
-     * If set to true, NullAway will acknowledge nullability annotations whenever they are available
-     * in unannotated code and also more restrictive than its optimistic defaults.
-     */
-    @Parameter(property = "nullaway.acknowledgeRestrictiveAnnotations")
-    private Boolean acknowledgeRestrictiveAnnotations;
+        // Put the inferred models of dependencies on the annotation processor path
+        if (hasLibraryModels()) {
+            boolean installed;
+            try (PluginEvents.Span ignored = phase("installLibraryModels")) {
+                installed = installLibraryModels(injector);
+            }
+            if (installed) {
+                arguments = withLibraryModels(arguments);
+                testArguments = testArguments != null ? withLibraryModels(testArguments) : null;
+            }
+        }
 
-    /**
-     * If set to true, NullAway will check for .get() accesses to potentially empty Optional values,
-     * analogously to how it handles dereferences to @Nullable values.
-     */
-    @Parameter(property = "nullaway.checkOptionalEmptiness")
-    private Boolean checkOptionalEmptiness;
+        // Share the classes of javac, Error Prone and NullAway between forked compilations
+        if (forkAcceleration) {
+            try (PluginEvents.Span ignored = phase("forkAcceleration")) {
+                accelerateFork(injector, managedProcessorPath);
+            }
+        }
 
-    /**
-     * If set to true, NullAway will use Error Prone's suggested fix functionality to suggest
-     * suppressing any warning that it finds.
-     */
-    @Parameter(property = "nullaway.suggestSuppressions")
-    private Boolean suggestSuppressions;
+        // Publish the effective configuration for build caches
+        publishFingerprint(fingerprintArguments(arguments, testArguments), injector);
+
+        // Disable NullAway if it already passed with the same inputs
+        String cacheFingerprint = null;
+        boolean cacheHit = false;
+        if (resultCache && !failsOnFindings(testOverrides)) {
+            getLog().warn("resultCache requires severity=ERROR for main and test sources, " +
+                    "as NullAway warnings don't fail the compilation; NullAway results are not cached");
+            clearResultCache();
+        } else if (resultCache && hasGeneratedSources()) {
+            getLog().info("Generated sources are analyzed but only known once generated, NullAway results are not cached");
+            clearResultCache();
+        } else if (resultCache) {
+            try (PluginEvents.Span ignored = phase("resultCache")) {
+                cacheFingerprint = computeCacheFingerprint(fingerprintArguments(arguments, testArguments));
+                cacheHit = cacheFingerprint != null && isResultCacheHit(cacheFingerprint);
+            }
+        }
+        if (cacheHit) {
+            try (PluginEvents.Span ignored = phase("injectCompilerArgs")) {
+                injector.injectCompilerArgs(Collections.singletonList("-Xep:NullAway:OFF"));
+            }
+            recordExecution(arguments, start, -1, -1);
+            return;
+        }
 
-    /**
-     * If set to true, NullAway will handle assertions, and use that to reason about the possibility
-     * of null dereferences in the code that follows these assertions.
-     * <p>
-     * This assumes that assertions will always be enabled at runtime (java run with -ea JVM argument).
-     */
-    @Parameter(property = "nullaway.assertsEnabled")
-    private Boolean assertsEnabled;
+        // Inject into maven-compiler-plugin, then into the test compilation on top of it
+        try (PluginEvents.Span ignored = phase("injectCompilerArgs")) {
+            injector.injectCompilerArgs(arguments);
+            if (testArguments != null) {
+                injector.injectCompilerArgs(TEST_COMPILE_EXECUTION, "testCompile", testArguments);
+            }
+        }
 
-    /**
-     * If set to true, NullAway will check every method to see whether or not it overrides a method
-     * of a super-type, rather than relying only on the @Override annotation.
-     */
-    @Parameter(property = "nullaway.exhaustiveOverride")
-    private Boolean exhaustiveOverride;
+        // Have the compilations record that NullAway passed, for the next build
+        if (cacheFingerprint != null) {
+            try (PluginEvents.Span ignored = phase("resultCache")) {
+                injectResultCacheMarkers(injector, cacheFingerprint);
+            }
+        }
 
-    /**
-     * If set to true, NullAway will handle assertions from test libraries, like assertThat(...).isNotNull(),
-     * and use that to reason about the possibility of null dereferences in the code that follows these assertions.
-     */
-    @Parameter(property = "nullaway.handleTestAssertionLibraries")
-    private Boolean handleTestAssertionLibraries;
+        recordExecution(arguments, start, -1, -1);
+        getLog().info("NullAway configured with " + arguments.size() + " arguments");
+        if (getLog().isDebugEnabled()) {
+            getLog().debug("NullAway arguments:");
+            for (String arg : arguments) {
+                getLog().debug("  " + arg);
+            }
+            if (testArguments != null) {
+                getLog().debug("NullAway arguments for " + TEST_COMPILE_EXECUTION + ":");
+                for (String arg : testArguments) {
+                    getLog().debug("  " + arg);
+                }
+            }
+        }
+    }
 
     /**
-     * If set to true, treats @RecentlyNullable as @Nullable, and @RecentlyNonNull as @NonNull.
-     * <p>
-     * Requires that acknowledgeRestrictiveAnnotations is also set to true.
+     * Checks whether this execution can run before the build starts, from
+     * {@link NullAwayLifecycleParticipant}, with the same result as in the {@code initialize} phase.
+     *
+     * @return false if the configuration needs the resolved project dependencies
      */
-    @Parameter(property = "nullaway.acknowledgeAndroidRecent")
-    private Boolean acknowledgeAndroidRecent;
+    boolean isConfigurableBeforeBuild() {
+        return !resultCache && !needsProjectDependencies();
+    }
 
     /**
-     * If set to true, NullAway will check @Contract annotations.
+     * Copies this execution for another project with the same configuration, from
+     * {@link NullAwayLifecycleParticipant}, without injecting the parameters again.
+     *
+     * @param project the project to configure
+     * @return the copy
      */
-    @Parameter(property = "nullaway.checkContracts")
-    private Boolean checkContracts;
+    NullAwayMojo forProject(MavenProject project) {
+        return (NullAwayMojo) copyFor(project);
+    }
 
     /**
-     * If set to true, enables new checks based on JSpecify (like checks for generic types).
+     * Adds the cached models of the dependencies selected by inferModels to the annotation processor path.
+     * <p>
+     * maven-compiler-plugin only accepts artifact coordinates on its processor path, so each model
+     * is installed in the local repository first, under coordinates derived from its cache key. The
+     * model jars register the provider through which NullAway reads them, see {@link LibraryModelCache}.
+     *
+     * @param injector the maven-compiler-plugin configuration
+     * @return true if models were added
+     * @throws MojoExecutionException if the dependencies cannot be read or a model cannot be installed
      */
-    @Parameter(property = "nullaway.jspecifyMode")
-    private Boolean jspecifyMode;
+    private boolean installLibraryModels(CompilerConfigInjector injector) throws MojoExecutionException {
+        String nullawayVersion = findNullAwayVersion();
+        if (nullawayVersion == null) {
+            getLog().warn("NullAway not found in annotationProcessorPaths, inferred models are not used");
+            return false;
+        }
+        List<File> models = findLibraryModels(nullawayVersion);
+        if (models.isEmpty()) {
+            return false;
+        }
 
-    // ========== Custom Classes and Methods ==========
+        RepositorySystemSession repositorySession = session.getRepositorySession();
+        LocalRepositoryManager localRepository = repositorySession.getLocalRepositoryManager();
+        for (File model : models) {
+            String sha1 = model.getName().substring(0, model.getName().indexOf('-'));
+            Artifact jar = new DefaultArtifact(MODELS_GROUP_ID, sha1, "jar", nullawayVersion).setFile(model);
+            File installed = new File(localRepository.getRepository().getBasedir(),
+                    localRepository.getPathForLocalArtifact(jar));
+            // Model jars are reproducible, a different size means a model from another plugin version
+            if (!installed.isFile() || installed.length() != model.length()) {
+                File pom = new File(getNullAwayDirectory(), "models/" + sha1 + ".pom");
+                Model pomModel = new Model();
+                pomModel.setModelVersion("4.0.0");
+                pomModel.setGroupId(MODELS_GROUP_ID);
+                pomModel.setArtifactId(sha1);
+                pomModel.setVersion(nullawayVersion);
+                pomModel.setDescription("NullAway " + nullawayVersion + " model inferred by JarInfer for the jar with SHA-1 " + sha1);
+                try {
+                    Files.createDirectories(pom.getParentFile().toPath());
+                    try (Writer writer = Files.newBufferedWriter(pom.toPath(), StandardCharsets.UTF_8)) {
+                        new MavenXpp3Writer().write(writer, pomModel);
+                    }
+                    repositorySystem.install(repositorySession, new InstallRequest()
+                            .addArtifact(jar)
+                            .addArtifact(new DefaultArtifact(MODELS_GROUP_ID, sha1, "pom", nullawayVersion).setFile(pom)));
+                } catch (IOException | InstallationException e) {
+                    throw new MojoExecutionException("Failed to install NullAway model " + model + ": " + e.getMessage(), e);
+                }
+            }
+            if (!injector.addProcessorPath(MODELS_GROUP_ID, sha1, nullawayVersion)) {
+                getLog().warn("No annotationProcessorPaths in the maven-compiler-plugin configuration, " +
+                        "inferred models are not used");
+                return false;
+            }
+        }
+        getLog().info("Added " + models.size() + " inferred NullAway models to the annotation processor path");
+        return true;
+    }
 
     /**
-     * The fully qualified name of a method to be used for downcasting to a non-null value
-     * rather than standard suppressions in some instances.
+     * Makes forked compilations use a class data sharing archive, creating it if needed.
+     * <p>
+     * Acceleration is skipped with a message, rather than failing the build, when the compiler
+     * doesn't fork or the archive cannot be created: compilations are only slower without it.
+     *
+     * @param injector             the maven-compiler-plugin configuration
+     * @param managedProcessorPath the processor path managed by the plugin, possibly empty
+     * @throws MojoExecutionException if the processor path cannot be resolved
      */
-    @Parameter(property = "nullaway.castToNonNullMethod")
-    private String castToNonNullMethod;
+    private void accelerateFork(CompilerConfigInjector injector, List<String> managedProcessorPath)
+            throws MojoExecutionException {
+        String fork = injector.findConfigurationValue("fork");
+        if (!Boolean.parseBoolean(fork != null ? fork : compilerProperty("maven.compiler.fork"))) {
+            getLog().info("forkAcceleration only applies to forked compilations, set fork=true on maven-compiler-plugin");
+            return;
+        }
+        String executable = injector.findConfigurationValue("executable");
+        if (executable == null) {
+            executable = compilerProperty("maven.compiler.executable");
+        }
+        File javac = executable != null
+                ? new File(executable)
+                : new File(new File(System.getProperty("java.home"), "bin"), "javac");
+        if (!javac.isFile()) {
+            getLog().warn("Cannot find javac at " + javac + ", forked compilations are not accelerated");
+            return;
+        }
+        List<String> coordinates = CompilerConfigInjector.alignProcessorPath(
+                injector.findProcessorPathCoordinates(), managedProcessorPath);
+        if (coordinates.isEmpty()) {
+            getLog().warn("No annotationProcessorPaths, forked compilations are not accelerated");
+            return;
+        }
+        List<File> processorPath = new ProcessorPathResolver(
+                repositorySystem, session.getRepositorySession(), project.getRemoteProjectRepositories())
+                .resolve(coordinates);
+
+        CdsArchive archive;
+        try {
+            archive = new CdsArchive(cdsDirectory, javac, processorPath);
+            if (!archive.getFile().isFile() && archive.create(WorkerClient.JDK_EXPORTS)) {
+                getLog().info("Created class data sharing archive " + archive.getFile());
+            }
+        } catch (IOException e) {
+            getLog().warn("Cannot create a class data sharing archive, forked compilations are not accelerated: " +
+                    e.getMessage());
+            return;
+        }
+        injector.ensureCompilerArgs(Collections.singletonList(archive.toCompilerArg()));
+    }
 
     /**
-     * A list of classes to be treated as Optional implementations
-     * (e.g. Guava's com.google.common.base.Optional).
+     * Reads a property that maven-compiler-plugin takes as a parameter default.
+     *
+     * @param name the property name
+     * @return the value from the command line or the project, or null if it is not set
      */
-    @Parameter(property = "nullaway.checkOptionalEmptinessCustomClasses")
-    private List<String> checkOptionalEmptinessCustomClasses;
+    private String compilerProperty(String name) {
+        String value = session.getUserProperties().getProperty(name);
+        return value != null ? value : project.getProperties().getProperty(name);
+    }
 
     /**
-     * A list of classes to be treated equivalently to Guava Futures and FluentFuture.
+     * Sets the {@value #FINGERPRINT_PROPERTY} project property to a fingerprint of the effective
+     * NullAway configuration.
      * <p>
-     * This special support will likely be removed once NullAway's JSpecify support is more complete.
+     * The fingerprint covers the generated arguments, which include the source exclusions, and the
+     * tools on the annotation processor path, but no source or classpath content. It doesn't
+     * depend on where the project is checked out, so build caches can use it as a stable input.
+     *
+     * @param arguments the arguments identifying this configuration
+     * @param injector  the maven-compiler-plugin configuration
      */
-    @Parameter(property = "nullaway.extraFuturesClasses")
-    private List<String> extraFuturesClasses;
-
-    // ========== Custom Annotations ==========
+    void publishFingerprint(List<String> arguments, CompilerConfigInjector injector) {
+        String fingerprint = new AnalysisFingerprint()
+                .addArguments(arguments)
+                .addToolVersions(injector.findToolCoordinates())
+                .compute();
+        project.getProperties().setProperty(FINGERPRINT_PROPERTY, fingerprint);
+        if (getLog().isDebugEnabled()) {
+            getLog().debug(FINGERPRINT_PROPERTY + " = " + fingerprint);
+        }
+    }
 
     /**
-     * A list of annotations that should be considered equivalent to @Contract annotations.
+     * Combines the main and test arguments for the result cache fingerprint.
+     *
+     * @param arguments     the arguments for the main sources
+     * @param testArguments the arguments for the test sources, or null if they are the same
+     * @return the arguments identifying this configuration
      */
-    @Parameter(property = "nullaway.customContractAnnotations")
-    private List<String> customContractAnnotations;
+    private static List<String> fingerprintArguments(List<String> arguments, List<String> testArguments) {
+        if (testArguments == null) {
+            return arguments;
+        }
+        List<String> combined = new ArrayList<>(arguments);
+        combined.add(TEST_COMPILE_EXECUTION);
+        combined.addAll(testArguments);
+        return combined;
+    }
 
     /**
-     * A list of annotations that should be considered equivalent to @Nullable annotations.
+     * Checks whether every NullAway finding fails the compilation.
+     * <p>
+     * The configure goal doesn't see the compiler output, so a successful compilation only proves
+     * that there are no findings when they are reported as errors.
+     *
+     * @param testOverrides the options overridden for test sources, or null if they are the same
+     * @return true if NullAway reports errors for the main sources, and errors or nothing for test sources
      */
-    @Parameter(property = "nullaway.customNullableAnnotations")
-    private List<String> customNullableAnnotations;
+    private boolean failsOnFindings(TestCompileConfiguration testOverrides) {
+        String testSeverity = getSeverity(testOverrides);
+        return "ERROR".equals(getSeverity(null)) && ("ERROR".equals(testSeverity) || "OFF".equals(testSeverity));
+    }
 
     /**
-     * A list of annotations that should be considered equivalent to @NonNull annotations,
-     * for the cases where NullAway cares about such annotations.
+     * Checks whether the last analysis of this module used the same inputs and succeeded.
+     * <p>
+     * Only valid when {@link #failsOnFindings findings fail the compilation}: a compilation
+     * running NullAway with these inputs must have completed, as recorded by its
+     * {@link ResultCacheMarker marker}. On a miss, the record and the markers left by other
+     * inputs are cleared, and the fingerprint of the current inputs is recorded.
+     *
+     * @param fingerprint the fingerprint of the inputs of this build
+     * @return true if the analysis can be skipped
+     * @throws MojoExecutionException if the result cache cannot be read or written
      */
-    @Parameter(property = "nullaway.customNonnullAnnotations")
-    private List<String> customNonnullAnnotations;
+    private boolean isResultCacheHit(String fingerprint) throws MojoExecutionException {
+        try {
+            ResultCache cache = new ResultCache(getNullAwayDirectory());
+            ResultCache.Record record = cache.read();
+            if (record != null && record.getFingerprint().equals(fingerprint)
+                    && ResultCache.isConfirmed(fingerprint, getCompilationOutputs(cache))) {
+                getLog().info("NullAway inputs unchanged since last successful analysis, skipping NullAway");
+                return true;
+            }
+            cache.clear();
+            cache.write(fingerprint, Collections.<String>emptyList());
+            return false;
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to update the NullAway result cache", e);
+        }
+    }
 
     /**
-     * A list of annotations that should be considered equivalent to @Generated annotations,
-     * for the cases where NullAway cares about such annotations.
+     * Lists the compilations that must confirm the result cache, with their markers.
+     *
+     * @param cache the result cache
+     * @return the main and test compilations
      */
-    @Parameter(property = "nullaway.customGeneratedCodeAnnotations")
-    private List<String> customGeneratedCodeAnnotations;
+    private List<ResultCache.CompilationOutput> getCompilationOutputs(ResultCache cache) {
+        return Arrays.asList(
+                new ResultCache.CompilationOutput(cache.getMarkerFile("compile"), project.getCompileSourceRoots()),
+                new ResultCache.CompilationOutput(cache.getMarkerFile("testCompile"), project.getTestCompileSourceRoots()));
+    }
 
-    // ========== Other Options ==========
+    /**
+     * Makes the main and test compilations write their result cache markers once they succeed.
+     * <p>
+     * The marker plugin ships in this plugin's own artifact, which is added to the annotation
+     * processor path.
+     *
+     * @param injector    the maven-compiler-plugin configuration
+     * @param fingerprint the fingerprint of the inputs of this build
+     * @throws MojoExecutionException if maven-compiler-plugin is not found
+     */
+    private void injectResultCacheMarkers(CompilerConfigInjector injector, String fingerprint)
+            throws MojoExecutionException {
+        PluginDescriptor plugin = mojoExecution.getMojoDescriptor().getPluginDescriptor();
+        if (!injector.addProcessorPath(plugin.getGroupId(), plugin.getArtifactId(), plugin.getVersion())) {
+            getLog().warn("resultCache requires annotationProcessorPaths in the maven-compiler-plugin configuration; " +
+                    "NullAway results are not cached");
+            clearResultCache();
+            return;
+        }
+        ResultCache cache = new ResultCache(getNullAwayDirectory());
+        String prefix = "-Xplugin:" + ResultCacheMarker.NAME;
+        injector.setCompilerArg("default-compile", "compile", prefix,
+                ResultCacheMarker.compilerArg(cache.getMarkerFile("compile"), fingerprint));
+        injector.setCompilerArg(TEST_COMPILE_EXECUTION, "testCompile", prefix,
+                ResultCacheMarker.compilerArg(cache.getMarkerFile("testCompile"), fingerprint));
+    }
 
     /**
-     * A comment that will be added alongside the @SuppressWarnings("NullAway") annotation
-     * when suggestSuppressions is set to true.
+     * Removes the result cache record and markers, so that no later build skips NullAway based on them.
+     *
+     * @throws MojoExecutionException if the result cache cannot be cleared
      */
-    @Parameter(property = "nullaway.autoFixSuppressionComment")
-    private String autoFixSuppressionComment;
+    private void clearResultCache() throws MojoExecutionException {
+        try {
+            new ResultCache(getNullAwayDirectory()).clear();
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to clear the NullAway result cache", e);
+        }
+    }
 
     /**
-     * A list of names to suppress NullAway using a @SuppressWarnings annotation,
-     * similar to @SuppressWarnings("NullAway").
+     * Checks whether generated sources of an earlier build would be analyzed.
      * <p>
-     * This is useful when other warnings are already suppressed in the codebase and NullAway
-     * should be suppressed as well, such as with JetBrains' DataFlowIssue inspection.
+     * Generators add their sources after the {@code initialize} phase, so these sources cannot
+     * be fingerprinted before they are compiled. Sources generated by annotation processors
+     * during the compilation itself are derived from the fingerprinted sources and processor path.
+     *
+     * @return true if the build directory holds generated Java sources that are not excluded
+     * @throws MojoExecutionException if a generated source directory cannot be walked
      */
-    @Parameter(property = "nullaway.suppressionNameAliases")
-    private List<String> suppressionNameAliases;
-
-    @Override
-    public void execute() throws MojoExecutionException {
-        // Validate configuration
-        validateConfiguration();
-
-        // Generate Error Prone arguments
-        ArgumentGenerator generator = new ArgumentGenerator(
-                severity,
-                onlyNullMarked,
-                annotatedPackages,
-                unannotatedSubPackages,
-                unannotatedClasses,
-                knownInitializers,
-                excludedClassAnnotations,
-                excludedClasses,
-                excludedFieldAnnotations,
-                customInitializerAnnotations,
-                externalInitAnnotations,
-                treatGeneratedAsUnannotated,
-                acknowledgeRestrictiveAnnotations,
-                checkOptionalEmptiness,
-                suggestSuppressions,
-                assertsEnabled,
-                exhaustiveOverride,
-                castToNonNullMethod,
-                checkOptionalEmptinessCustomClasses,
-                autoFixSuppressionComment,
-                handleTestAssertionLibraries,
-                acknowledgeAndroidRecent,
-                checkContracts,
-                customContractAnnotations,
-                customNullableAnnotations,
-                customNonnullAnnotations,
-                customGeneratedCodeAnnotations,
-                jspecifyMode,
-                extraFuturesClasses,
-                suppressionNameAliases
-        );
-
-        List<String> arguments = generator.generate();
-
-        // Skip if NullAway is disabled
-        if ("OFF".equals(severity)) {
-            getLog().info("NullAway is disabled (severity=OFF)");
-            return;
+    private boolean hasGeneratedSources() throws MojoExecutionException {
+        if (isExcludeGeneratedSources()) {
+            return false;
         }
-
-        // Inject into maven-compiler-plugin
-        CompilerConfigInjector injector = new CompilerConfigInjector(project);
-        injector.injectCompilerArgs(arguments);
-
-        getLog().info("NullAway configured with " + arguments.size() + " arguments");
-        if (getLog().isDebugEnabled()) {
-            getLog().debug("NullAway arguments:");
-            for (String arg : arguments) {
-                getLog().debug("  " + arg);
+        File buildDirectory = new File(project.getBuild().getDirectory());
+        for (String name : new String[] {"generated-sources", "generated-test-sources"}) {
+            File[] roots = new File(buildDirectory, name).listFiles(File::isDirectory);
+            if (roots == null) {
+                continue;
+            }
+            for (File root : roots) {
+                if (root.getName().equals("annotations") || root.getName().equals("test-annotations")) {
+                    continue;
+                }
+                try (Stream<Path> files = Files.walk(root.toPath())) {
+                    if (files.anyMatch(file -> file.getFileName().toString().endsWith(".java"))) {
+                        return true;
+                    }
+                } catch (IOException e) {
+                    throw new MojoExecutionException("Failed to list generated sources in " + root, e);
+                }
             }
         }
+        return false;
     }
 
     /**
-     * Validates the configuration for common errors.
+     * Computes the fingerprint of everything that can influence the NullAway analysis of this module.
      *
-     * @throws MojoExecutionException if configuration is invalid
+     * @param arguments the NullAway arguments for this build
+     * @return the fingerprint, or null if the project dependencies cannot be resolved
+     * @throws MojoExecutionException if a source file or classpath directory cannot be read
      */
-    private void validateConfiguration() throws MojoExecutionException {
-        // Validate onlyNullMarked vs annotatedPackages
-        boolean hasOnlyNullMarked = onlyNullMarked != null && onlyNullMarked;
-        boolean hasAnnotatedPackages = annotatedPackages != null && !annotatedPackages.isEmpty();
-
-        if (hasOnlyNullMarked && hasAnnotatedPackages) {
-            throw new MojoExecutionException(
-                    "Cannot specify both onlyNullMarked=true and annotatedPackages. " +
-                            "Use onlyNullMarked for JSpecify @NullMarked only, " +
-                            "or use annotatedPackages for the traditional NullAway annotation model.");
-        }
-
-        if (!hasOnlyNullMarked && !hasAnnotatedPackages && !"OFF".equals(severity)) {
-            throw new MojoExecutionException(
-                    "Must specify either onlyNullMarked=true OR annotatedPackages when NullAway is enabled. " +
-                            "See: https://github.com/uber/NullAway/wiki/Configuration");
+    private String computeCacheFingerprint(List<String> arguments) throws MojoExecutionException {
+        List<File> classpath;
+        try {
+            classpath = resolveDependencyFiles();
+        } catch (DependencyResolutionException e) {
+            getLog().warn("Cannot resolve dependencies, NullAway result cache disabled: " + e.getMessage());
+            return null;
         }
 
-        // Validate acknowledgeAndroidRecent requires acknowledgeRestrictiveAnnotations
-        if (Boolean.TRUE.equals(acknowledgeAndroidRecent) &&
-                !Boolean.TRUE.equals(acknowledgeRestrictiveAnnotations)) {
-            throw new MojoExecutionException(
-                    "acknowledgeAndroidRecent requires acknowledgeRestrictiveAnnotations=true");
+        List<String> sourceRoots = new ArrayList<>(project.getCompileSourceRoots());
+        sourceRoots.addAll(project.getTestCompileSourceRoots());
+        try {
+            return new AnalysisFingerprint(this.<String, String>sessionMap(AnalysisFingerprint.class))
+                    .addArguments(arguments)
+                    .addToolVersions(new CompilerConfigInjector(project).findToolCoordinates())
+                    .addSourceRoots(sourceRoots)
+                    .addClasspath(classpath)
+                    .compute();
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to compute the NullAway result cache fingerprint", e);
         }
     }
+
 }
@@ -0,0 +1,64 @@
+package net.ltgt.maven.nullaway;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Combines the SARIF logs written by the {@code check} goal in each module into a single log.
+ * <p>
+ * Runs after all modules of the reactor, e.g. {@code mvn verify nullaway:sarif-aggregate}.
+ * The module logs are concatenated by copying bytes, so the reactor log can be produced
+ * whatever its size. Logs older than the current build are left out, as they describe an
+ * earlier state of their module.
+ */
+@Mojo(
+        name = "sarif-aggregate",
+        aggregator = true,
+        threadSafe = true
+)
+public class NullAwaySarifAggregateMojo extends AbstractMojo {
+
+    @Parameter(defaultValue = "${session}", readonly = true, required = true)
+    private MavenSession session;
+
+    /**
+     * The combined SARIF log.
+     */
+    @Parameter(property = "nullaway.aggregateSarifFile", defaultValue = "${project.build.directory}/nullaway-report.sarif")
+    private File aggregateSarifFile;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        Date buildStart = session.getRequest().getStartTime();
+        List<File> moduleFiles = new ArrayList<>();
+        for (MavenProject module : session.getProjects()) {
+            File moduleFile = new File(module.getBuild().getDirectory(), "nullaway/nullaway.sarif");
+            if (!moduleFile.isFile()) {
+                continue;
+            }
+            // File systems may truncate modification times to the second
+            if (buildStart != null && moduleFile.lastModified() < buildStart.getTime() / 1000 * 1000) {
+                getLog().warn("Skipping SARIF log of " + module.getArtifactId() + " written by an earlier build");
+                continue;
+            }
+            moduleFiles.add(moduleFile);
+        }
+
+        try {
+            SarifWriter.aggregate(moduleFiles, aggregateSarifFile);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to aggregate SARIF reports: " + e.getMessage(), e);
+        }
+        getLog().info("Combined " + moduleFiles.size() + " SARIF logs into " + aggregateSarifFile);
+    }
+}
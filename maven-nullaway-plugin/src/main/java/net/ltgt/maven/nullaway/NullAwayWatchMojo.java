@@ -0,0 +1,125 @@
+package net.ltgt.maven.nullaway;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the main sources of a module and checks each saved file with NullAway, until interrupted.
+ * <p>
+ * The module is checked once on start, then each batch of changed files is analyzed on its own,
+ * by the same in-process javac, so that Error Prone and NullAway stay loaded and JIT-compiled
+ * between saves. Other sources are resolved from the module's compiled classes if they are up to
+ * date, and from the sources otherwise. Findings are compared with the baseline and logged like
+ * with the {@code check} goal, but don't stop the watch. The options of the {@code check} goal that
+ * split, distribute or cache the analysis of the whole module don't apply, and no SARIF log is written.
+ * <p>
+ * Changes are detected with the platform's file watching service. It is notified by the operating
+ * system on Linux and Windows, but the JDK polls for changes every few seconds on macOS, where
+ * saves are only picked up after that delay.
+ */
+@Mojo(
+        name = "watch",
+        requiresDependencyResolution = ResolutionScope.COMPILE
+)
+public class NullAwayWatchMojo extends AbstractNullAwayCheckMojo {
+
+    /**
+     * Number of milliseconds without further changes before the changed files are analyzed, so
+     * that saving several files at once results in a single analysis.
+     */
+    @Parameter(property = "nullaway.watchDebounce", defaultValue = "100")
+    private int watchDebounce;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        List<String> arguments = generateArguments();
+        if (watchDebounce < 0) {
+            throw new MojoExecutionException("watchDebounce must not be negative");
+        }
+        if (isDisabled()) {
+            getLog().info("NullAway is disabled (severity=OFF)");
+            return;
+        }
+
+        List<File> sourceRoots = new ArrayList<>();
+        for (String sourceRoot : project.getCompileSourceRoots()) {
+            if (new File(sourceRoot).isDirectory()) {
+                sourceRoots.add(new File(sourceRoot));
+            }
+        }
+        if (sourceRoots.isEmpty()) {
+            getLog().info("No sources to watch");
+            return;
+        }
+
+        CompilerConfigInjector compilerConfig = new CompilerConfigInjector(project);
+        List<File> libraryModels = Collections.emptyList();
+        String nullawayVersion = findNullAwayVersion();
+        if (hasLibraryModels() && nullawayVersion != null) {
+            libraryModels = findLibraryModels(nullawayVersion);
+            if (!libraryModels.isEmpty()) {
+                arguments = withLibraryModels(arguments);
+            }
+        }
+        AnalysisRequest request = createRequest(arguments, Collections.<File>emptyList(), true,
+                getClasspath(), libraryModels, compilerConfig)
+                .setOutputDirectory(new File(getNullAwayDirectory(), "watch"));
+        Analyzer analyzer = new InProcessAnalyzer(true);
+
+        try (SourceWatcher watcher = new SourceWatcher(sourceRoots)) {
+            // The initial check also warms javac, Error Prone and NullAway up for the first save
+            check(analyzer, request, arguments, findSourceFiles(), false);
+            getLog().info("Watching " + sourceRoots.size() + " source roots for changes, press Ctrl+C to stop");
+            while (true) {
+                List<File> changed = new ArrayList<>(watcher.awaitChanges(watchDebounce));
+                check(analyzer, request, arguments, changed, true);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            getLog().info("Stopped watching sources");
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to watch sources: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Analyzes source files and reports their findings, without failing on errors.
+     * <p>
+     * Once watching, a failed analysis is only logged, as a file may be saved in the middle of an edit.
+     *
+     * @param analyzer    the warm analyzer
+     * @param request     the request, without source files
+     * @param arguments   the NullAway arguments
+     * @param sourceFiles the source files to analyze
+     * @param partial     whether the source files are only part of the module
+     * @throws MojoExecutionException if the initial analysis fails, or the baseline cannot be read
+     */
+    private void check(Analyzer analyzer, AnalysisRequest request, List<String> arguments, List<File> sourceFiles,
+                       boolean partial) throws MojoExecutionException {
+        long start = System.nanoTime();
+        List<Finding> findings;
+        try {
+            findings = InProcessAnalyzer.ownFindings(
+                    analyzer.analyze(request.copy().setSourceFiles(sourceFiles)), sourceFiles);
+        } catch (IOException | RuntimeException e) {
+            if (!partial) {
+                throw new MojoExecutionException("Failed to run NullAway: " + e.getMessage(), e);
+            }
+            getLog().error("Failed to run NullAway on " + sourceFiles + ": " + e);
+            return;
+        }
+        getLog().info("Checked " + sourceFiles.size() + " source files in " +
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        List<Finding> newFindings = compareWithBaseline(findings, partial);
+        logFindings(newFindings != null ? newFindings : findings);
+    }
+}
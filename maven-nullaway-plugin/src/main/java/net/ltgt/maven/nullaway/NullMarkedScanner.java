@@ -0,0 +1,468 @@
+package net.ltgt.maven.nullaway;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the packages of a module that are {@code @NullMarked}.
+ * <p>
+ * A package is marked if its {@code package-info.java} carries one of the marker annotations, or
+ * if all of its top-level classes do. Sources are matched textually, without parsing them.
+ * <p>
+ * The outcome for each directory is cached along with a stamp of the directory's Java files
+ * (names, sizes and modification times), so that later scans only read the files of directories
+ * that changed. Changed directories are read in parallel.
+ */
+public class NullMarkedScanner {
+    private static final String CACHE_HEADER = "# NullAway @NullMarked package scan v1";
+
+    private final List<MarkerAnnotation> markers = new ArrayList<>();
+    private final File cacheFile;
+    private int scannedDirectories;
+    private int cachedDirectories;
+
+    /**
+     * Creates a scanner.
+     *
+     * @param markerAnnotations the fully qualified names of the annotations marking code as null-marked
+     * @param cacheFile         the file caching the scan results, or null to always read all sources
+     */
+    public NullMarkedScanner(List<String> markerAnnotations, File cacheFile) {
+        for (String annotation : markerAnnotations) {
+            markers.add(new MarkerAnnotation(annotation.trim()));
+        }
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * Scans source roots.
+     *
+     * @param sourceRoots the source root directories; missing directories are ignored
+     * @return each package with Java sources, mapped to whether it is null-marked, sorted by name
+     * @throws IOException if a source root cannot be walked or a source file cannot be read
+     */
+    public Map<String, Boolean> scan(List<String> sourceRoots) throws IOException {
+        Map<String, CachedDirectory> cache = readCache();
+        Map<String, CachedDirectory> updated = new TreeMap<>();
+        List<SourceDirectory> directories = new ArrayList<>();
+        for (String sourceRoot : sourceRoots) {
+            directories.addAll(listDirectories(new File(sourceRoot).toPath()));
+        }
+
+        List<SourceDirectory> changed = new ArrayList<>();
+        for (SourceDirectory directory : directories) {
+            CachedDirectory cached = cache.get(directory.key());
+            if (cached != null && cached.stamp.equals(directory.stamp)) {
+                updated.put(directory.key(), cached);
+            } else {
+                changed.add(directory);
+            }
+        }
+
+        Map<String, CachedDirectory> scanned = Collections.synchronizedMap(new HashMap<>());
+        try {
+            changed.parallelStream().forEach(directory -> {
+                try {
+                    scanned.put(directory.key(), new CachedDirectory(directory.stamp, isMarked(directory)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        updated.putAll(scanned);
+        scannedDirectories = changed.size();
+        cachedDirectories = directories.size() - changed.size();
+
+        if (!changed.isEmpty() || updated.size() != cache.size()) {
+            writeCache(updated);
+        }
+
+        Map<String, Boolean> packages = new TreeMap<>();
+        for (SourceDirectory directory : directories) {
+            // A package split across source roots is marked if any of its package-info files says so
+            packages.merge(directory.packageName, updated.get(directory.key()).marked, Boolean::logicalOr);
+        }
+        return packages;
+    }
+
+    /**
+     * Returns the number of directories whose sources were read by the last scan.
+     *
+     * @return the number of changed directories
+     */
+    public int getScannedDirectories() {
+        return scannedDirectories;
+    }
+
+    /**
+     * Returns the number of directories whose outcome was reused from the cache by the last scan.
+     *
+     * @return the number of unchanged directories
+     */
+    public int getCachedDirectories() {
+        return cachedDirectories;
+    }
+
+    /**
+     * Computes the smallest set of NullAway package prefixes covering exactly the null-marked packages.
+     * <p>
+     * NullAway treats a package listed in {@code annotatedPackages} as annotated along with all its
+     * subpackages, unless they are listed in {@code unannotatedSubPackages}. A marked package is
+     * only listed if no enclosing package is, and an unmarked package below a listed one is
+     * excluded. Prefixes never extend above the module's own packages, so they don't cover
+     * packages of other modules or dependencies.
+     * <p>
+     * Marked packages below an excluded one can't be expressed with prefixes; NullAway still
+     * treats them as annotated through their {@code @NullMarked} annotation.
+     *
+     * @param packages each package with sources, mapped to whether it is null-marked
+     * @return the packages to annotate and to exclude
+     */
+    public static PackageSelection select(Map<String, Boolean> packages) {
+        PackageSelection selection = new PackageSelection();
+        // Stack of enclosing listed or excluded packages, innermost last
+        List<String> enclosing = new ArrayList<>();
+        List<Boolean> enclosingMarked = new ArrayList<>();
+        // Sort by name segments, so that subpackages immediately follow their parent
+        Map<String, Boolean> sorted = new TreeMap<>(Comparator.comparing((String name) -> name.replace('.', '\0')));
+        sorted.putAll(packages);
+        for (Map.Entry<String, Boolean> entry : sorted.entrySet()) {
+            String name = entry.getKey();
+            boolean marked = entry.getValue();
+            if (name.isEmpty()) {
+                // The default package can't be named in package prefixes
+                continue;
+            }
+            while (!enclosing.isEmpty() && !isWithin(name, enclosing.get(enclosing.size() - 1))) {
+                enclosing.remove(enclosing.size() - 1);
+                enclosingMarked.remove(enclosingMarked.size() - 1);
+            }
+            boolean covered = !enclosingMarked.isEmpty() && enclosingMarked.get(enclosingMarked.size() - 1);
+            boolean excluded = !covered && enclosing.size() > 0;
+            if (marked && !covered && !excluded) {
+                selection.annotatedPackages.add(name);
+                enclosing.add(name);
+                enclosingMarked.add(true);
+            } else if (!marked && covered) {
+                selection.unannotatedSubPackages.add(name);
+                enclosing.add(name);
+                enclosingMarked.add(false);
+            }
+        }
+        return selection;
+    }
+
+    /**
+     * Checks whether a package is the given package or one of its subpackages.
+     *
+     * @param name   the package name
+     * @param parent the enclosing package name
+     * @return true if {@code name} is within {@code parent}
+     */
+    private static boolean isWithin(String name, String parent) {
+        return name.equals(parent) || (name.startsWith(parent) && name.charAt(parent.length()) == '.');
+    }
+
+    /**
+     * Decides whether the sources of a directory are null-marked.
+     *
+     * @param directory the directory
+     * @return true if its package-info, or else all of its top-level classes, are annotated with a marker
+     * @throws IOException if a source file cannot be read
+     */
+    private boolean isMarked(SourceDirectory directory) throws IOException {
+        Path packageInfo = directory.path.resolve("package-info.java");
+        if (Files.isRegularFile(packageInfo) && hasMarker(packageInfo, "package")) {
+            return true;
+        }
+        boolean anyClass = false;
+        for (String fileName : directory.fileNames) {
+            if (fileName.equals("package-info.java") || fileName.equals("module-info.java")) {
+                continue;
+            }
+            anyClass = true;
+            if (!hasMarker(directory.path.resolve(fileName), "{")) {
+                return false;
+            }
+        }
+        return anyClass;
+    }
+
+    /**
+     * Checks whether the first declaration of a source file carries one of the marker annotations.
+     * <p>
+     * Annotations of a package declaration come before the {@code package} keyword, and those of
+     * the first top-level class before its opening brace. Simple names are only accepted when the
+     * annotation is imported, which in {@code package-info.java} happens after the declaration.
+     *
+     * @param file  the source file
+     * @param until the token ending the declaration header
+     * @return true if a marker annotation is present
+     * @throws IOException if the file cannot be read
+     */
+    private boolean hasMarker(Path file, String until) throws IOException {
+        String source = stripComments(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        Matcher matcher = Pattern.compile(until.equals("{") ? "\\{" : "\\b" + until + "\\b").matcher(source);
+        String header = matcher.find() ? source.substring(0, matcher.start()) : source;
+        for (MarkerAnnotation marker : markers) {
+            if (marker.isPresent(header, source)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes comments from Java source, keeping string and character literals intact.
+     *
+     * @param source the Java source
+     * @return the source without comments
+     */
+    static String stripComments(String source) {
+        StringBuilder sb = new StringBuilder(source.length());
+        int i = 0;
+        int length = source.length();
+        while (i < length) {
+            char c = source.charAt(i);
+            if (c == '/' && i + 1 < length && source.charAt(i + 1) == '/') {
+                while (i < length && source.charAt(i) != '\n') {
+                    i++;
+                }
+            } else if (c == '/' && i + 1 < length && source.charAt(i + 1) == '*') {
+                int end = source.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                sb.append(' ');
+            } else if (c == '"' || c == '\'') {
+                int start = i++;
+                while (i < length && source.charAt(i) != c && source.charAt(i) != '\n') {
+                    i += source.charAt(i) == '\\' ? 2 : 1;
+                }
+                i = Math.min(length, i + 1);
+                sb.append(source, start, i);
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Lists the directories containing Java sources under a source root.
+     *
+     * @param root the source root
+     * @return the directories, with their package names and stamps
+     * @throws IOException if the source root cannot be walked
+     */
+    private static List<SourceDirectory> listDirectories(Path root) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return Collections.emptyList();
+        }
+        Map<Path, SourceDirectory> directories = new TreeMap<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                String fileName = file.getFileName().toString();
+                if (fileName.endsWith(".java") && attrs.isRegularFile()) {
+                    Path parent = file.getParent();
+                    directories.computeIfAbsent(parent, dir -> new SourceDirectory(root, dir))
+                            .add(fileName, attrs.size(), attrs.lastModifiedTime().toMillis());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        List<SourceDirectory> result = new ArrayList<>(directories.values());
+        for (SourceDirectory directory : result) {
+            directory.complete();
+        }
+        return result;
+    }
+
+    /**
+     * Reads the cached outcomes.
+     *
+     * @return the cached outcome of each directory, or an empty map if there is no usable cache
+     */
+    private Map<String, CachedDirectory> readCache() {
+        Map<String, CachedDirectory> cache = new HashMap<>();
+        if (cacheFile == null || !cacheFile.isFile()) {
+            return cache;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(cacheFile.toPath(), StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (!(CACHE_HEADER + " " + markers).equals(line)) {
+                // Written by another version or with other marker annotations
+                return cache;
+            }
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts.length == 3) {
+                    cache.put(parts[0], new CachedDirectory(parts[1], Boolean.parseBoolean(parts[2])));
+                }
+            }
+        } catch (IOException e) {
+            // A corrupt cache is simply ignored
+            cache.clear();
+        }
+        return cache;
+    }
+
+    /**
+     * Writes the cached outcomes.
+     *
+     * @param cache the outcome of each directory
+     * @throws IOException if the cache file cannot be written
+     */
+    private void writeCache(Map<String, CachedDirectory> cache) throws IOException {
+        if (cacheFile == null) {
+            return;
+        }
+        Files.createDirectories(cacheFile.getParentFile().toPath());
+        try (BufferedWriter writer = Files.newBufferedWriter(cacheFile.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(CACHE_HEADER + " " + markers);
+            writer.newLine();
+            for (Map.Entry<String, CachedDirectory> entry : cache.entrySet()) {
+                writer.write(entry.getKey() + "\t" + entry.getValue().stamp + "\t" + entry.getValue().marked);
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * The packages NullAway should treat as annotated, as computed by {@link #select(Map)}.
+     */
+    public static class PackageSelection {
+        private final List<String> annotatedPackages = new ArrayList<>();
+        private final List<String> unannotatedSubPackages = new ArrayList<>();
+
+        public List<String> getAnnotatedPackages() {
+            return annotatedPackages;
+        }
+
+        public List<String> getUnannotatedSubPackages() {
+            return unannotatedSubPackages;
+        }
+    }
+
+    /**
+     * A marker annotation, matched either by its qualified name or by its simple name when imported.
+     */
+    private static final class MarkerAnnotation {
+        private final String qualifiedName;
+        private final Pattern qualified;
+        private final Pattern simple;
+        private final Pattern imported;
+
+        MarkerAnnotation(String qualifiedName) {
+            this.qualifiedName = qualifiedName;
+            int dot = qualifiedName.lastIndexOf('.');
+            String packageName = dot < 0 ? "" : qualifiedName.substring(0, dot);
+            String simpleName = qualifiedName.substring(dot + 1);
+            this.qualified = Pattern.compile("@\\s*" + Pattern.quote(qualifiedName).replace(".", "\\E\\s*\\.\\s*\\Q") + "\\b");
+            this.simple = Pattern.compile("@\\s*" + Pattern.quote(simpleName) + "\\b");
+            this.imported = Pattern.compile("\\bimport\\s+(?:" + Pattern.quote(qualifiedName) + "|"
+                    + Pattern.quote(packageName) + "\\s*\\.\\s*\\*)\\s*;");
+        }
+
+        /**
+         * Checks whether the annotation is present in a declaration header.
+         *
+         * @param header the source text before the declaration
+         * @param source the whole source text, for imports
+         * @return true if the annotation is used
+         */
+        boolean isPresent(String header, String source) {
+            return qualified.matcher(header).find()
+                    || (simple.matcher(header).find() && imported.matcher(source).find());
+        }
+
+        @Override
+        public String toString() {
+            return qualifiedName;
+        }
+    }
+
+    /**
+     * A directory containing Java sources.
+     */
+    private static final class SourceDirectory {
+        private final Path root;
+        private final Path path;
+        private final String packageName;
+        private final List<String> fileNames = new ArrayList<>();
+        private final StringBuilder stampBuilder = new StringBuilder();
+        private String stamp;
+
+        SourceDirectory(Path root, Path path) {
+            this.root = root;
+            this.path = path;
+            this.packageName = root.relativize(path).toString().replace(File.separatorChar, '.');
+        }
+
+        /**
+         * Adds a Java file of the directory.
+         *
+         * @param fileName     the file name
+         * @param size         the file size
+         * @param lastModified the file modification time
+         */
+        void add(String fileName, long size, long lastModified) {
+            fileNames.add(fileName);
+            stampBuilder.append(fileName).append('/').append(size).append('/').append(lastModified).append('|');
+        }
+
+        /**
+         * Computes the stamp once all files have been added.
+         */
+        void complete() {
+            // Files are visited in directory order, which may vary between scans
+            Collections.sort(fileNames);
+            String[] entries = stampBuilder.toString().split("\\|");
+            Arrays.sort(entries);
+            stamp = new AnalysisFingerprint().addArguments(Arrays.asList(entries)).compute().substring(0, 32);
+        }
+
+        /**
+         * Returns the cache key of the directory.
+         *
+         * @return the key
+         */
+        String key() {
+            return root + "|" + packageName;
+        }
+    }
+
+    /**
+     * The cached outcome of a directory.
+     */
+    private static final class CachedDirectory {
+        private final String stamp;
+        private final boolean marked;
+
+        CachedDirectory(String stamp, boolean marked) {
+            this.stamp = stamp;
+            this.marked = marked;
+        }
+    }
+}
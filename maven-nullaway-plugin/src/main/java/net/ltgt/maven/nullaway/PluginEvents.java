@@ -0,0 +1,69 @@
+package net.ltgt.maven.nullaway;
+
+import javax.tools.JavaCompiler;
+
+/**
+ * Reports what the plugin does as JDK Flight Recorder events, when JFR is available.
+ * <p>
+ * The plugin supports JVMs without JFR, so this class doesn't reference the JFR API itself:
+ * it only delegates to {@link JfrEvents} once JFR is known to be present. Events cost next to
+ * nothing when no recording is running.
+ */
+final class PluginEvents {
+    private static final Span NO_SPAN = () -> {
+    };
+    private static final boolean JFR_AVAILABLE = isAvailable("jdk.jfr.Event");
+    private static final boolean JAVAC_API_AVAILABLE = isAvailable("com.sun.source.util.JavacTask");
+
+    private PluginEvents() {
+    }
+
+    /**
+     * Starts a phase of a goal execution, e.g. {@code validateConfiguration}.
+     *
+     * @param module the module being built, as {@code groupId:artifactId}
+     * @param phase  the phase name
+     * @return the span to close when the phase completes
+     */
+    static Span phase(String module, String phase) {
+        if (!JFR_AVAILABLE) {
+            return NO_SPAN;
+        }
+        return JfrEvents.phase(module, phase);
+    }
+
+    /**
+     * Reports an event for each compilation unit analyzed by a javac task.
+     *
+     * @param task   the javac task, before it is called
+     * @param module the module being analyzed, as {@code groupId:artifactId}
+     */
+    static void recordCompilationUnits(JavaCompiler.CompilationTask task, String module) {
+        if (JFR_AVAILABLE && JAVAC_API_AVAILABLE) {
+            JfrEvents.recordCompilationUnits(task, module);
+        }
+    }
+
+    /**
+     * Checks whether a class can be loaded.
+     *
+     * @param className the class name
+     * @return true if the class is available
+     */
+    private static boolean isAvailable(String className) {
+        try {
+            Class.forName(className, false, PluginEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * A running phase.
+     */
+    interface Span extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,130 @@
+package net.ltgt.maven.nullaway;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.SessionData;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.collection.CollectRequest;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.resolution.DependencyRequest;
+import org.eclipse.aether.resolution.DependencyResolutionException;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Resolves the annotation processor path holding Error Prone and NullAway, with transitive dependencies.
+ * <p>
+ * maven-compiler-plugin resolves its {@code annotationProcessorPaths} itself; goals that run javac
+ * on their own need to do the same.
+ */
+public class ProcessorPathResolver {
+    private final RepositorySystem repositorySystem;
+    private final RepositorySystemSession repositorySession;
+    private final List<RemoteRepository> repositories;
+
+    public ProcessorPathResolver(RepositorySystem repositorySystem, RepositorySystemSession repositorySession,
+                                 List<RemoteRepository> repositories) {
+        this.repositorySystem = repositorySystem;
+        this.repositorySession = repositorySession;
+        this.repositories = repositories;
+    }
+
+    /**
+     * Resolves artifacts and their runtime dependencies.
+     * <p>
+     * Results are shared by all modules of the session: the first module to ask for a processor
+     * path resolves it, while concurrent modules asking for the same one wait for its result.
+     * The artifacts of a processor path are resolved in a single request, so the repository
+     * connector downloads them in parallel.
+     *
+     * @param coordinates the {@code groupId:artifactId:version} of each artifact
+     * @return the resolved files, in resolution order
+     * @throws MojoExecutionException if an artifact cannot be resolved
+     */
+    public List<File> resolve(List<String> coordinates) throws MojoExecutionException {
+        List<String> key = new ArrayList<>(coordinates);
+        for (RemoteRepository repository : repositories) {
+            key.add(repository.getId() + "=" + repository.getUrl());
+        }
+        ConcurrentMap<List<String>, FutureTask<List<File>>> cache = sessionCache(repositorySession);
+        FutureTask<List<File>> task = new FutureTask<>(() -> resolveUncached(coordinates));
+        FutureTask<List<File>> existing = cache.putIfAbsent(key, task);
+        if (existing == null) {
+            task.run();
+            existing = task;
+        }
+        try {
+            return existing.get();
+        } catch (ExecutionException e) {
+            // Let a later module try again
+            cache.remove(key, existing);
+            if (e.getCause() instanceof MojoExecutionException) {
+                throw (MojoExecutionException) e.getCause();
+            }
+            throw new MojoExecutionException("Failed to resolve the annotation processor path " + coordinates, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while resolving the annotation processor path", e);
+        }
+    }
+
+    /**
+     * Resolves artifacts and their runtime dependencies, without the session cache.
+     *
+     * @param coordinates the {@code groupId:artifactId:version} of each artifact
+     * @return the resolved files, in resolution order
+     * @throws MojoExecutionException if an artifact cannot be resolved
+     */
+    private List<File> resolveUncached(List<String> coordinates) throws MojoExecutionException {
+        CollectRequest collectRequest = new CollectRequest();
+        collectRequest.setRepositories(repositories);
+        for (String coordinate : coordinates) {
+            try {
+                collectRequest.addDependency(new Dependency(new DefaultArtifact(coordinate), "runtime"));
+            } catch (IllegalArgumentException e) {
+                throw new MojoExecutionException("Invalid annotation processor path entry: " + coordinate, e);
+            }
+        }
+
+        List<File> files = new ArrayList<>();
+        try {
+            for (ArtifactResult result : repositorySystem.resolveDependencies(
+                    repositorySession, new DependencyRequest(collectRequest, null)).getArtifactResults()) {
+                files.add(result.getArtifact().getFile());
+            }
+        } catch (DependencyResolutionException e) {
+            throw new MojoExecutionException("Failed to resolve the annotation processor path " + coordinates, e);
+        }
+        return Collections.unmodifiableList(files);
+    }
+
+    /**
+     * Returns the processor paths resolved in a session, creating the cache on first use.
+     * <p>
+     * Like {@link ArgumentCache}, the cache lives in the repository session data, under a key
+     * specific to this version of the plugin.
+     *
+     * @param repositorySession the repository session
+     * @return the resolutions of the session, by coordinates and repositories
+     */
+    @SuppressWarnings("unchecked")
+    private static ConcurrentMap<List<String>, FutureTask<List<File>>> sessionCache(RepositorySystemSession repositorySession) {
+        SessionData data = repositorySession.getData();
+        Object cache = data.get(ProcessorPathResolver.class);
+        while (cache == null) {
+            data.set(ProcessorPathResolver.class, null, new ConcurrentHashMap<List<String>, FutureTask<List<File>>>());
+            cache = data.get(ProcessorPathResolver.class);
+        }
+        return (ConcurrentMap<List<String>, FutureTask<List<File>>>) cache;
+    }
+}
@@ -0,0 +1,213 @@
+package net.ltgt.maven.nullaway;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * Records the outcome of the last NullAway analysis of a module, keyed by an {@link AnalysisFingerprint}.
+ * <p>
+ * The record is stored as a properties file under the build directory. It holds the fingerprint,
+ * the time it was written and the diagnostics reported by the analysis, if they are known. Next to
+ * it, the compilations of the {@code configure} goal leave markers written by {@link ResultCacheMarker}.
+ */
+public class ResultCache {
+    private static final String FINGERPRINT = "fingerprint";
+    private static final String TIMESTAMP = "timestamp";
+    private static final String DIAGNOSTIC_COUNT = "diagnostics";
+    private static final String DIAGNOSTIC_PREFIX = "diagnostic.";
+
+    private static final String RECORD_EXTENSION = ".properties";
+    private static final String MARKER_EXTENSION = ".marker";
+
+    private final File recordFile;
+
+    public ResultCache(File directory) {
+        this(directory, "result-cache" + RECORD_EXTENSION);
+    }
+
+    public ResultCache(File directory, String fileName) {
+        this.recordFile = new File(directory, fileName);
+    }
+
+    /**
+     * Returns the marker file of a compilation, written once it succeeded with NullAway enabled.
+     *
+     * @param compilation the name of the compilation, e.g. {@code compile}
+     * @return the marker file
+     */
+    public File getMarkerFile(String compilation) {
+        return new File(recordFile.getParentFile(), markerPrefix() + compilation + MARKER_EXTENSION);
+    }
+
+    /**
+     * Reads the recorded outcome.
+     *
+     * @return the recorded outcome, or null if there is none or it cannot be read
+     */
+    public Record read() {
+        if (!recordFile.isFile()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(recordFile.toPath())) {
+            properties.load(in);
+        } catch (IOException | IllegalArgumentException e) {
+            // A corrupt record is simply treated as a cache miss
+            return null;
+        }
+        String fingerprint = properties.getProperty(FINGERPRINT);
+        String timestamp = properties.getProperty(TIMESTAMP);
+        if (fingerprint == null || timestamp == null) {
+            return null;
+        }
+        try {
+            List<String> diagnostics = new ArrayList<>();
+            int count = Integer.parseInt(properties.getProperty(DIAGNOSTIC_COUNT, "0"));
+            for (int i = 0; i < count; i++) {
+                diagnostics.add(properties.getProperty(DIAGNOSTIC_PREFIX + i, ""));
+            }
+            return new Record(fingerprint, Long.parseLong(timestamp), diagnostics);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Records a new outcome, replacing any previous one.
+     *
+     * @param fingerprint the fingerprint of the analysis inputs
+     * @param diagnostics the diagnostics reported by the analysis
+     * @throws IOException if the record cannot be written
+     */
+    public void write(String fingerprint, List<String> diagnostics) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(FINGERPRINT, fingerprint);
+        properties.setProperty(TIMESTAMP, Long.toString(System.currentTimeMillis()));
+        properties.setProperty(DIAGNOSTIC_COUNT, Integer.toString(diagnostics.size()));
+        for (int i = 0; i < diagnostics.size(); i++) {
+            properties.setProperty(DIAGNOSTIC_PREFIX + i, diagnostics.get(i));
+        }
+        Files.createDirectories(recordFile.getParentFile().toPath());
+        try (OutputStream out = Files.newOutputStream(recordFile.toPath())) {
+            properties.store(out, "NullAway result cache");
+        }
+    }
+
+    /**
+     * Removes the recorded outcome and the markers of the compilations.
+     *
+     * @throws IOException if the record or a marker cannot be deleted
+     */
+    public void clear() throws IOException {
+        Files.deleteIfExists(recordFile.toPath());
+        File[] markers = recordFile.getParentFile().listFiles(
+                (directory, name) -> name.startsWith(markerPrefix()) && name.endsWith(MARKER_EXTENSION));
+        if (markers != null) {
+            for (File marker : markers) {
+                Files.deleteIfExists(marker.toPath());
+            }
+        }
+    }
+
+    /**
+     * Checks whether every compilation with sources succeeded with NullAway enabled and the given inputs.
+     * <p>
+     * The configure goal only prepares the compiler configuration, so it cannot see whether the
+     * analysis actually passed. Class files are no evidence, as they may come from an IDE or from
+     * a build with NullAway disabled: only the marker written by {@link ResultCacheMarker} at the
+     * end of a successful compilation running NullAway is trusted. This only proves that there were
+     * no findings if NullAway reports them as errors: warnings don't fail the compilation.
+     *
+     * @param fingerprint the fingerprint of the current inputs
+     * @param outputs     the markers of the compilations, paired with the source roots they compile
+     * @return true if every compilation with sources recorded the same fingerprint
+     * @throws IOException if a marker cannot be read or a source root cannot be walked
+     */
+    public static boolean isConfirmed(String fingerprint, List<CompilationOutput> outputs) throws IOException {
+        for (CompilationOutput output : outputs) {
+            if (output.hasSources() && !fingerprint.equals(ResultCacheMarker.read(output.getMarker()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String markerPrefix() {
+        String name = recordFile.getName();
+        return (name.endsWith(RECORD_EXTENSION) ? name.substring(0, name.length() - RECORD_EXTENSION.length()) : name) + "-";
+    }
+
+    /**
+     * The recorded outcome of an analysis.
+     */
+    public static class Record {
+        private final String fingerprint;
+        private final long timestamp;
+        private final List<String> diagnostics;
+
+        Record(String fingerprint, long timestamp, List<String> diagnostics) {
+            this.fingerprint = fingerprint;
+            this.timestamp = timestamp;
+            this.diagnostics = Collections.unmodifiableList(diagnostics);
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public List<String> getDiagnostics() {
+            return diagnostics;
+        }
+    }
+
+    /**
+     * The marker of a compilation, along with the source roots that it compiles.
+     */
+    public static class CompilationOutput {
+        private final File marker;
+        private final List<String> sourceRoots;
+
+        public CompilationOutput(File marker, List<String> sourceRoots) {
+            this.marker = marker;
+            this.sourceRoots = sourceRoots;
+        }
+
+        public File getMarker() {
+            return marker;
+        }
+
+        /**
+         * Checks whether any of the source roots contains Java sources, i.e. whether the compiler will produce output.
+         *
+         * @return true if there is at least one Java source file
+         * @throws IOException if a source root cannot be walked
+         */
+        boolean hasSources() throws IOException {
+            for (String sourceRoot : sourceRoots) {
+                Path root = new File(sourceRoot).toPath();
+                if (!Files.isDirectory(root)) {
+                    continue;
+                }
+                try (Stream<Path> files = Files.walk(root)) {
+                    if (files.anyMatch(file -> file.getFileName().toString().endsWith(".java"))) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package net.ltgt.maven.nullaway;
+
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.Plugin;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A javac plugin that records the fingerprint of a compilation once it succeeded, as evidence for
+ * the {@link ResultCache} of the {@code configure} goal.
+ * <p>
+ * The {@code configure} goal only enables it for compilations running NullAway with the fingerprinted
+ * configuration, by putting the plugin on the annotation processor path along with an
+ * {@code -Xplugin:NullAwayResultCache <marker URI> <fingerprint>} argument. The marker is deleted when the
+ * compilation starts and only written back once it completes after generating class files. With
+ * {@code --should-stop=ifError=FLOW}, which Error Prone requires, no class file is generated when
+ * NullAway reports an error, so the marker proves that NullAway passed on these sources.
+ */
+public class ResultCacheMarker implements Plugin {
+    static final String NAME = "NullAwayResultCache";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void init(JavacTask task, String... args) {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: -Xplugin:" + NAME + " <marker URI> <fingerprint>");
+        }
+        Path marker = new File(URI.create(args[0])).toPath();
+        String fingerprint = args[1];
+        try {
+            Files.deleteIfExists(marker);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        task.addTaskListener(new TaskListener() {
+            private boolean generated;
+
+            @Override
+            public void started(TaskEvent e) {
+            }
+
+            @Override
+            public void finished(TaskEvent e) {
+                if (e.getKind() == TaskEvent.Kind.GENERATE) {
+                    generated = true;
+                } else if (e.getKind() == TaskEvent.Kind.COMPILATION && generated) {
+                    try {
+                        write(marker, fingerprint);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the compiler argument enabling the plugin.
+     *
+     * @param marker      the marker file to write
+     * @param fingerprint the fingerprint of the compilation's inputs
+     * @return the {@code -Xplugin} argument
+     */
+    static String compilerArg(File marker, String fingerprint) {
+        return "-Xplugin:" + NAME + " " + marker.getAbsoluteFile().toURI() + " " + fingerprint;
+    }
+
+    /**
+     * Reads the fingerprint recorded in a marker.
+     *
+     * @param marker the marker file
+     * @return the fingerprint, or null if there is no marker
+     * @throws IOException if the marker cannot be read
+     */
+    static String read(File marker) throws IOException {
+        if (!marker.isFile()) {
+            return null;
+        }
+        return new String(Files.readAllBytes(marker.toPath()), StandardCharsets.UTF_8).trim();
+    }
+
+    private static void write(Path marker, String fingerprint) throws IOException {
+        Files.createDirectories(marker.getParent());
+        Path temp = Files.createTempFile(marker.getParent(), marker.getFileName().toString(), ".tmp");
+        Files.write(temp, fingerprint.getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, marker, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,289 @@
+package net.ltgt.maven.nullaway;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes NullAway findings as a SARIF 2.1.0 log, one result at a time.
+ * <p>
+ * The writer itself only holds its output buffer, whatever the number of results. The check goal
+ * writes the findings once the analysis has reported all of them, so they are held in memory
+ * until then. File locations are relative to the module directory, through the
+ * {@code %SRCROOT%} base URI that the run maps to the module's location, so that logs uploaded
+ * from CI match the repository layout. Each module's log holds a single run, laid out between a fixed prefix
+ * and suffix, so that {@link #aggregate(List, File)} can concatenate runs by copying bytes,
+ * without parsing or loading the module logs.
+ * <p>
+ * The log is written to a temporary file and moved into place when closed, so readers never see
+ * a partial log.
+ */
+public class SarifWriter implements Closeable {
+    private static final String PREFIX =
+            "{\"$schema\":\"https://json.schemastore.org/sarif-2.1.0.json\",\"version\":\"2.1.0\",\"runs\":[";
+    private static final String SUFFIX = "]}\n";
+    private static final String RULE_ID = "NullAway";
+    private static final String SRCROOT = "%SRCROOT%";
+
+    private final Path target;
+    private final URI baseUri;
+    private final Path temp;
+    private final Writer out;
+    private int results;
+    private boolean closed;
+
+    /**
+     * Starts the log of a module.
+     *
+     * @param file      the SARIF file to write
+     * @param module    the module name, used as the run's automation id
+     * @param basedir   the module directory, that file locations are made relative to
+     * @param arguments the Error Prone arguments of the analysis, describing the NullAway rule
+     * @throws IOException if the file cannot be created
+     */
+    public SarifWriter(File file, String module, File basedir, List<String> arguments) throws IOException {
+        this.target = file.toPath().toAbsolutePath();
+        String base = basedir.toPath().toAbsolutePath().normalize().toUri().toString();
+        this.baseUri = URI.create(base.endsWith("/") ? base : base + "/");
+        Files.createDirectories(target.getParent());
+        this.temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        this.out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(temp), StandardCharsets.UTF_8));
+
+        out.write(PREFIX);
+        out.write("{\"tool\":{\"driver\":{\"name\":\"NullAway\",\"informationUri\":\"https://github.com/uber/NullAway\",");
+        out.write("\"rules\":[{\"id\":\"" + RULE_ID + "\",\"shortDescription\":{\"text\":\"Nullability checker\"},");
+        out.write("\"helpUri\":\"https://github.com/uber/NullAway/wiki\",");
+        out.write("\"defaultConfiguration\":{\"level\":\"" + level(arguments) + "\"},");
+        out.write("\"properties\":{\"arguments\":[");
+        for (int i = 0; i < arguments.size(); i++) {
+            out.write(i > 0 ? "," : "");
+            writeString(arguments.get(i));
+        }
+        out.write("]}}]}},\"automationDetails\":{\"id\":");
+        writeString(module + "/");
+        out.write("},\"originalUriBaseIds\":{");
+        writeString(SRCROOT);
+        out.write(":{\"uri\":");
+        writeString(baseUri.toString());
+        out.write("}},\"results\":[");
+    }
+
+    /**
+     * Appends a finding to the log.
+     *
+     * @param finding       the finding
+     * @param baselineState the SARIF baseline state, e.g. {@code new} or {@code unchanged}, or null without a baseline
+     * @throws IOException if the finding cannot be written
+     */
+    public void write(Finding finding, String baselineState) throws IOException {
+        String message = finding.getMessage();
+        String ruleId = "compiler";
+        if (message.startsWith("[")) {
+            int end = message.indexOf("] ");
+            if (end > 1) {
+                ruleId = message.substring(1, end);
+                message = message.substring(end + 2);
+            }
+        }
+
+        out.write(results++ > 0 ? ",{" : "{");
+        out.write("\"ruleId\":");
+        writeString(ruleId);
+        out.write(",\"level\":\"" + (finding.getKind() == Finding.Kind.ERROR ? "error" : "warning") + "\"");
+        out.write(",\"message\":{\"text\":");
+        writeString(message);
+        out.write("}");
+        if (!finding.getFile().isEmpty()) {
+            out.write(",\"locations\":[{\"physicalLocation\":{\"artifactLocation\":{\"uri\":");
+            URI uri = new File(finding.getFile()).toPath().toAbsolutePath().normalize().toUri();
+            URI relative = baseUri.relativize(uri);
+            writeString(relative.toString());
+            if (!relative.isAbsolute()) {
+                out.write(",\"uriBaseId\":");
+                writeString(SRCROOT);
+            }
+            out.write("}");
+            if (finding.getLine() > 0) {
+                out.write(",\"region\":{\"startLine\":" + finding.getLine());
+                if (finding.getColumn() > 0) {
+                    out.write(",\"startColumn\":" + finding.getColumn());
+                }
+                out.write("}");
+            }
+            out.write("}}]");
+        }
+        if (baselineState != null) {
+            out.write(",\"baselineState\":\"" + baselineState + "\"");
+        }
+        out.write("}");
+    }
+
+    /**
+     * Completes the log and moves it into place.
+     *
+     * @throws IOException if the log cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            out.write("]}");
+            out.write(SUFFIX);
+            out.close();
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            out.close();
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Concatenates the runs of module logs into a single log.
+     * <p>
+     * Runs are copied byte for byte from the module logs, which must have been written by this class.
+     *
+     * @param moduleFiles the module logs
+     * @param output      the combined log to write
+     * @throws IOException if a module log cannot be read or was not written by this class
+     */
+    public static void aggregate(List<File> moduleFiles, File output) throws IOException {
+        byte[] prefix = PREFIX.getBytes(StandardCharsets.UTF_8);
+        byte[] suffix = SUFFIX.getBytes(StandardCharsets.UTF_8);
+        Path target = output.toPath().toAbsolutePath();
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                writeFully(out, prefix);
+                boolean first = true;
+                for (File moduleFile : moduleFiles) {
+                    try (FileChannel in = FileChannel.open(moduleFile.toPath(), StandardOpenOption.READ)) {
+                        long size = in.size();
+                        if (size < prefix.length + suffix.length
+                                || !Arrays.equals(read(in, 0, prefix.length), prefix)
+                                || !Arrays.equals(read(in, size - suffix.length, suffix.length), suffix)) {
+                            throw new IOException("Not a NullAway SARIF log: " + moduleFile);
+                        }
+                        if (!first) {
+                            writeFully(out, new byte[]{','});
+                        }
+                        first = false;
+                        long position = prefix.length;
+                        long end = size - suffix.length;
+                        while (position < end) {
+                            position += in.transferTo(position, end - position, out);
+                        }
+                    }
+                }
+                writeFully(out, suffix);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Maps the NullAway severity of the arguments to a SARIF level.
+     *
+     * @param arguments the Error Prone arguments
+     * @return the SARIF level of NullAway findings
+     */
+    private static String level(List<String> arguments) {
+        for (String argument : arguments) {
+            if (argument.equals("-Xep:NullAway:ERROR")) {
+                return "error";
+            } else if (argument.equals("-Xep:NullAway:OFF")) {
+                return "none";
+            }
+        }
+        // WARN, and NullAway's own default
+        return "warning";
+    }
+
+    /**
+     * Writes a JSON string literal.
+     *
+     * @param value the string
+     * @throws IOException if the string cannot be written
+     */
+    private void writeString(String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+
+    /**
+     * Reads bytes at a position of a file.
+     *
+     * @param in       the file
+     * @param position the position
+     * @param length   the number of bytes
+     * @return the bytes read
+     * @throws IOException if the file cannot be read
+     */
+    private static byte[] read(FileChannel in, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Writes bytes to a file.
+     *
+     * @param out   the file
+     * @param bytes the bytes
+     * @throws IOException if the bytes cannot be written
+     */
+    private static void writeFully(FileChannel out, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+}
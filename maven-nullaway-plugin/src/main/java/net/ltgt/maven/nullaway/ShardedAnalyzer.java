@@ -0,0 +1,144 @@
+package net.ltgt.maven.nullaway;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Splits the analysis of a large module into shards that are analyzed concurrently.
+ * <p>
+ * javac and Error Prone are effectively single-threaded within a compilation, so a module is
+ * split by package into independent javac tasks. Each shard only reports findings for its own
+ * source files; references to other shards are resolved from the request's classpath and source
+ * path. The findings of all shards are merged into a single sorted report, which doesn't depend
+ * on the number of shards nor on the order in which they complete.
+ */
+public class ShardedAnalyzer {
+    private final Analyzer analyzer;
+    private final int threads;
+
+    /**
+     * Creates a sharded analyzer.
+     *
+     * @param analyzer the analyzer running each shard
+     * @param threads  the maximum number of shards analyzed at the same time
+     */
+    public ShardedAnalyzer(Analyzer analyzer, int threads) {
+        this.analyzer = analyzer;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Analyzes the source files of a request in shards.
+     *
+     * @param request the analysis to run
+     * @param shards  the number of shards
+     * @return the merged findings, sorted and without duplicates
+     * @throws IOException if a shard cannot be analyzed
+     */
+    public List<Finding> analyze(AnalysisRequest request, int shards) throws IOException {
+        List<List<File>> partitions = partition(request.getSourceFiles(), shards);
+        if (partitions.size() <= 1) {
+            return analyzer.analyze(request);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, partitions.size()));
+        try {
+            List<Future<List<Finding>>> futures = new ArrayList<>();
+            for (int i = 0; i < partitions.size(); i++) {
+                List<File> files = partitions.get(i);
+                AnalysisRequest shard = request.copy()
+                        .setSourceFiles(files)
+                        .setOutputDirectory(new File(request.getOutputDirectory(), "shard-" + i));
+                futures.add(executor.submit(() -> InProcessAnalyzer.ownFindings(analyzer.analyze(shard), files)));
+            }
+
+            List<List<Finding>> results = new ArrayList<>();
+            for (Future<List<Finding>> future : futures) {
+                results.add(future.get());
+            }
+            return merge(results);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while analyzing shards", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Failed to analyze shard", cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Splits source files into shards by package, balancing the number of files per shard.
+     * <p>
+     * Packages are assigned largest first to the shard with the fewest files, so the partition
+     * only depends on the set of files.
+     *
+     * @param sourceFiles the source files
+     * @param shards      the requested number of shards
+     * @return the non-empty shards, each sorted
+     */
+    static List<List<File>> partition(List<File> sourceFiles, int shards) {
+        Map<String, List<File>> packages = new TreeMap<>();
+        for (File file : sourceFiles) {
+            File parent = file.getAbsoluteFile().getParentFile();
+            packages.computeIfAbsent(parent == null ? "" : parent.getPath(), k -> new ArrayList<>()).add(file);
+        }
+
+        List<List<File>> byPackage = new ArrayList<>(packages.values());
+        // Stable sort: packages of the same size keep their name order
+        byPackage.sort(Comparator.comparingInt((List<File> files) -> files.size()).reversed());
+
+        int count = Math.max(1, Math.min(shards, byPackage.size()));
+        List<List<File>> partitions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (List<File> files : byPackage) {
+            List<File> smallest = partitions.get(0);
+            for (List<File> partition : partitions) {
+                if (partition.size() < smallest.size()) {
+                    smallest = partition;
+                }
+            }
+            smallest.addAll(files);
+        }
+        for (List<File> partition : partitions) {
+            Collections.sort(partition);
+        }
+        partitions.removeIf(List::isEmpty);
+        return partitions;
+    }
+
+    /**
+     * Merges the findings of several shards.
+     *
+     * @param results the findings of each shard
+     * @return the sorted findings, without duplicates
+     */
+    static List<Finding> merge(List<List<Finding>> results) {
+        Set<Finding> merged = new TreeSet<>();
+        for (List<Finding> findings : results) {
+            merged.addAll(findings);
+        }
+        return new ArrayList<>(merged);
+    }
+}
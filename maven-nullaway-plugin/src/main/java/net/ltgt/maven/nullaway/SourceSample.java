@@ -0,0 +1,278 @@
+package net.ltgt.maven.nullaway;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Selects a deterministic slice of a module's source files for a sampled NullAway analysis.
+ * <p>
+ * Source files are spread over {@code factor} buckets by a hash of their path relative to the
+ * module, and each build analyzes the bucket of its rotation. Consecutive rotations go through all
+ * the buckets, so every file is analyzed at least once every {@code factor} builds; each such
+ * cycle hashes with a different seed so that files don't always share a bucket. Files modified
+ * since the previous sampled build are always analyzed.
+ * <p>
+ * The selection only depends on the relative paths, the rotation and the modification times, so
+ * the same rotation selects the same files on any machine.
+ */
+public class SourceSample {
+    private final Path basedir;
+    private final int factor;
+    private final int rotation;
+
+    /**
+     * Creates a sample.
+     *
+     * @param basedir  the module directory, that source paths are hashed relative to
+     * @param factor   the number of buckets, 1 to analyze everything
+     * @param rotation the rotation selecting the bucket and seed
+     */
+    public SourceSample(File basedir, int factor, int rotation) {
+        if (factor < 1) {
+            throw new IllegalArgumentException("factor must be at least 1: " + factor);
+        }
+        this.basedir = basedir.toPath().toAbsolutePath().normalize();
+        this.factor = factor;
+        this.rotation = Math.max(rotation, 0);
+    }
+
+    /**
+     * Returns the rotation of this sample.
+     *
+     * @return the rotation
+     */
+    public int getRotation() {
+        return rotation;
+    }
+
+    /**
+     * Checks whether a source file falls in the bucket of this rotation.
+     *
+     * @param file the source file
+     * @return true if the file is sampled, regardless of its modification time
+     */
+    public boolean isSampled(File file) {
+        Path path = file.toPath().toAbsolutePath().normalize();
+        String relative = (path.startsWith(basedir) ? basedir.relativize(path) : path).toString()
+                .replace(File.separatorChar, '/');
+        return bucket(relative) == rotation % factor;
+    }
+
+    /**
+     * Returns the bucket of a relative path for the cycle of this rotation.
+     *
+     * @param relativePath the path relative to the module, with {@code /} separators
+     * @return the bucket, between 0 and factor - 1
+     */
+    int bucket(String relativePath) {
+        CRC32 crc = new CRC32();
+        crc.update(((rotation / factor) + ":" + relativePath).getBytes(StandardCharsets.UTF_8));
+        return (int) (crc.getValue() % factor);
+    }
+
+    /**
+     * Splits source files into the analyzed and skipped ones.
+     *
+     * @param sourceFiles   the source files of the module
+     * @param modifiedSince the time after which modified files are always analyzed, in milliseconds
+     * @return the selection
+     */
+    public Selection select(Collection<File> sourceFiles, long modifiedSince) {
+        List<File> sampled = new ArrayList<>();
+        List<File> skipped = new ArrayList<>();
+        int recent = 0;
+        for (File file : sourceFiles) {
+            if (isSampled(file)) {
+                sampled.add(file);
+            } else if (file.lastModified() > modifiedSince) {
+                sampled.add(file);
+                recent++;
+            } else {
+                skipped.add(file);
+            }
+        }
+        Collections.sort(sampled);
+        Collections.sort(skipped);
+        return new Selection(sampled, skipped, recent);
+    }
+
+    /**
+     * Lists the Java source files under source roots.
+     *
+     * @param sourceRoots the source roots, missing ones are ignored
+     * @return the source files
+     * @throws IOException if a source root cannot be read
+     */
+    public static List<File> listSourceFiles(Collection<File> sourceRoots) throws IOException {
+        List<File> files = new ArrayList<>();
+        for (File root : sourceRoots) {
+            if (!root.isDirectory()) {
+                continue;
+            }
+            try (Stream<Path> walk = Files.walk(root.toPath())) {
+                files.addAll(walk
+                        .filter(file -> file.getFileName().toString().endsWith(".java") && Files.isRegularFile(file))
+                        .map(Path::toFile)
+                        .collect(Collectors.toList()));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Returns the rotation of the current session, advancing the one recorded by the previous session.
+     * <p>
+     * The state file records the rotation along with the start time of the session that used it,
+     * so that all goals of a session use the same rotation. The previous session's start time
+     * tells which files were modified since.
+     *
+     * @param stateFile    the file recording the rotation of the module
+     * @param sessionStart the start time of the current session, in milliseconds
+     * @return the rotation state for this session
+     * @throws IOException if the state file cannot be written
+     */
+    public static Rotation advance(File stateFile, long sessionStart) throws IOException {
+        Properties state = new Properties();
+        if (stateFile.isFile()) {
+            try (InputStream in = Files.newInputStream(stateFile.toPath())) {
+                state.load(in);
+            } catch (IllegalArgumentException e) {
+                // Corrupted state: start over
+                state.clear();
+            }
+        }
+
+        int rotation = parseInt(state.getProperty("rotation"), -1);
+        long session = parseLong(state.getProperty("session"), -1);
+        long previous = parseLong(state.getProperty("previous"), sessionStart);
+        if (rotation >= 0 && session == sessionStart) {
+            return new Rotation(rotation, previous);
+        }
+
+        Rotation next = rotation >= 0 ? new Rotation(rotation + 1, session) : new Rotation(0, sessionStart);
+        state.setProperty("rotation", Integer.toString(next.getRotation()));
+        state.setProperty("session", Long.toString(sessionStart));
+        state.setProperty("previous", Long.toString(next.getModifiedSince()));
+        Files.createDirectories(stateFile.getAbsoluteFile().getParentFile().toPath());
+        try (OutputStream out = Files.newOutputStream(stateFile.toPath())) {
+            state.store(out, null);
+        }
+        return next;
+    }
+
+    /**
+     * Parses an integer of the state file.
+     *
+     * @param value        the value, may be null
+     * @param defaultValue the value to use if it is missing or invalid
+     * @return the parsed value
+     */
+    private static int parseInt(String value, int defaultValue) {
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Parses a time of the state file.
+     *
+     * @param value        the value, may be null
+     * @param defaultValue the value to use if it is missing or invalid
+     * @return the parsed value
+     */
+    private static long parseLong(String value, long defaultValue) {
+        try {
+            return value == null ? defaultValue : Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * The rotation of a session.
+     */
+    public static final class Rotation {
+        private final int rotation;
+        private final long modifiedSince;
+
+        public Rotation(int rotation, long modifiedSince) {
+            this.rotation = rotation;
+            this.modifiedSince = modifiedSince;
+        }
+
+        /**
+         * Returns the rotation.
+         *
+         * @return the rotation, starting at 0
+         */
+        public int getRotation() {
+            return rotation;
+        }
+
+        /**
+         * Returns the start time of the previous sampled session.
+         *
+         * @return the time after which modified files are always analyzed, in milliseconds
+         */
+        public long getModifiedSince() {
+            return modifiedSince;
+        }
+    }
+
+    /**
+     * The source files analyzed and skipped by a sample.
+     */
+    public static final class Selection {
+        private final List<File> sampled;
+        private final List<File> skipped;
+        private final int recentlyModified;
+
+        Selection(List<File> sampled, List<File> skipped, int recentlyModified) {
+            this.sampled = Collections.unmodifiableList(sampled);
+            this.skipped = Collections.unmodifiableList(skipped);
+            this.recentlyModified = recentlyModified;
+        }
+
+        /**
+         * Returns the analyzed files.
+         *
+         * @return the sorted files of the bucket and the recently modified files
+         */
+        public List<File> getSampled() {
+            return sampled;
+        }
+
+        /**
+         * Returns the skipped files.
+         *
+         * @return the sorted files excluded from the analysis
+         */
+        public List<File> getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * Returns how many files are analyzed only because they were recently modified.
+         *
+         * @return the number of recently modified files outside the bucket
+         */
+        public int getRecentlyModified() {
+            return recentlyModified;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package net.ltgt.maven.nullaway;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Watches source roots for changed Java source files.
+ * <p>
+ * {@link WatchService} only watches single directories, so every directory under the source roots
+ * is registered, including those created while watching. Changes are collected until the source
+ * roots have been quiet for a debounce delay, so that saving several files, or an editor writing
+ * a file in several steps, results in a single batch.
+ * <p>
+ * The default {@link WatchService} of the JDK is backed by inotify on Linux and by directory
+ * change notifications on Windows. On macOS, it polls the registered directories every few
+ * seconds instead, so changes are only seen after up to that delay plus the debounce delay.
+ */
+public class SourceWatcher implements Closeable {
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+
+    /**
+     * Starts watching source roots.
+     *
+     * @param sourceRoots the source roots, missing ones are ignored
+     * @throws IOException if a directory cannot be registered
+     */
+    public SourceWatcher(Collection<File> sourceRoots) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        try {
+            for (File sourceRoot : sourceRoots) {
+                if (sourceRoot.isDirectory()) {
+                    registerAll(sourceRoot.toPath());
+                }
+            }
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for changes to Java source files.
+     * <p>
+     * Blocks until a file changes, then keeps collecting changes until none happens for
+     * {@code debounceMillis}.
+     *
+     * @param debounceMillis how long the source roots must stay quiet before returning
+     * @return the created or modified Java source files that still exist, sorted
+     * @throws InterruptedException if interrupted while waiting, or if the watcher is closed
+     * @throws IOException          if a new directory cannot be registered
+     */
+    public Set<File> awaitChanges(long debounceMillis) throws InterruptedException, IOException {
+        Set<File> changed = new TreeSet<>();
+        while (changed.isEmpty()) {
+            WatchKey key = take();
+            collect(key, changed);
+            while ((key = poll(debounceMillis)) != null) {
+                collect(key, changed);
+            }
+            // Files may be deleted again before the end of a burst, e.g. editor backups
+            changed.removeIf(file -> !file.isFile());
+        }
+        return changed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    /**
+     * Waits for the next watch key.
+     *
+     * @return the key
+     * @throws InterruptedException if interrupted, or if the watcher is closed
+     */
+    private WatchKey take() throws InterruptedException {
+        try {
+            return watchService.take();
+        } catch (ClosedWatchServiceException e) {
+            throw new InterruptedException("Source watcher closed");
+        }
+    }
+
+    /**
+     * Waits for a watch key for at most the given time.
+     *
+     * @param timeoutMillis the time to wait
+     * @return the key, or null if there was none in time
+     * @throws InterruptedException if interrupted, or if the watcher is closed
+     */
+    private WatchKey poll(long timeoutMillis) throws InterruptedException {
+        try {
+            return watchService.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ClosedWatchServiceException e) {
+            throw new InterruptedException("Source watcher closed");
+        }
+    }
+
+    /**
+     * Collects the changed Java source files of a watch key, and watches new directories.
+     * <p>
+     * Files in a new directory may be written before the directory is registered, so they are
+     * collected as well.
+     *
+     * @param key     the signalled watch key
+     * @param changed the changed files
+     * @throws IOException if a new directory cannot be registered
+     */
+    private void collect(WatchKey key, Set<File> changed) throws IOException {
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (directory == null || event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                registerAll(path);
+                try (Stream<Path> files = Files.walk(path)) {
+                    files.filter(SourceWatcher::isJavaSource).forEach(file -> changed.add(file.toFile()));
+                }
+            } else if (isJavaSource(path)) {
+                changed.add(path.toFile());
+            }
+        }
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+    /**
+     * Registers a directory and all its subdirectories.
+     *
+     * @param root the directory
+     * @throws IOException if a directory cannot be registered
+     */
+    private void registerAll(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                directories.put(key, dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Checks whether a path is a Java source file.
+     *
+     * @param path the path
+     * @return true for regular files ending with {@code .java}
+     */
+    private static boolean isJavaSource(Path path) {
+        return path.getFileName().toString().endsWith(".java") && Files.isRegularFile(path);
+    }
+}
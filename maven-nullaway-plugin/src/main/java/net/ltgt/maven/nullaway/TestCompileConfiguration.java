@@ -0,0 +1,112 @@
+package net.ltgt.maven.nullaway;
+
+/**
+ * NullAway options overridden for the compilation of test sources.
+ * <p>
+ * Options left unset inherit the value configured for the main sources. This is the type of the
+ * {@code testCompile} parameter of the {@code configure} goal:
+ * <pre>{@code
+ * <testCompile>
+ *     <severity>WARN</severity>
+ *     <handleTestAssertionLibraries>false</handleTestAssertionLibraries>
+ * </testCompile>
+ * }</pre>
+ */
+public class TestCompileConfiguration {
+
+    /**
+     * The severity of the NullAway check for test sources: OFF, WARN, ERROR or DEFAULT.
+     */
+    private String severity;
+
+    /**
+     * Whether NullAway understands assertions from test libraries.
+     */
+    private Boolean handleTestAssertionLibraries;
+
+    /**
+     * Whether NullAway checks for empty Optional dereferences.
+     */
+    private Boolean checkOptionalEmptiness;
+
+    /**
+     * Whether NullAway checks @Contract annotations.
+     */
+    private Boolean checkContracts;
+
+    /**
+     * Whether NullAway treats all overriding methods as unannotated.
+     */
+    private Boolean exhaustiveOverride;
+
+    /**
+     * Whether NullAway suggests @SuppressWarnings annotations.
+     */
+    private Boolean suggestSuppressions;
+
+    public TestCompileConfiguration() {
+    }
+
+    /**
+     * Creates a configuration that only overrides the severity.
+     *
+     * @param severity the severity for test sources
+     */
+    public TestCompileConfiguration(String severity) {
+        this.severity = severity;
+    }
+
+    /**
+     * Returns the severity for test sources.
+     *
+     * @return the severity, or null to inherit it
+     */
+    public String getSeverity() {
+        return severity;
+    }
+
+    /**
+     * Returns whether NullAway understands assertions from test libraries.
+     *
+     * @return the option value, or null to inherit it
+     */
+    public Boolean getHandleTestAssertionLibraries() {
+        return handleTestAssertionLibraries;
+    }
+
+    /**
+     * Returns whether NullAway checks for empty Optional dereferences.
+     *
+     * @return the option value, or null to inherit it
+     */
+    public Boolean getCheckOptionalEmptiness() {
+        return checkOptionalEmptiness;
+    }
+
+    /**
+     * Returns whether NullAway checks @Contract annotations.
+     *
+     * @return the option value, or null to inherit it
+     */
+    public Boolean getCheckContracts() {
+        return checkContracts;
+    }
+
+    /**
+     * Returns whether NullAway treats all overriding methods as unannotated.
+     *
+     * @return the option value, or null to inherit it
+     */
+    public Boolean getExhaustiveOverride() {
+        return exhaustiveOverride;
+    }
+
+    /**
+     * Returns whether NullAway suggests @SuppressWarnings annotations.
+     *
+     * @return the option value, or null to inherit it
+     */
+    public Boolean getSuggestSuppressions() {
+        return suggestSuppressions;
+    }
+}
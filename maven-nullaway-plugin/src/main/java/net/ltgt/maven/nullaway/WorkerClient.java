@@ -0,0 +1,307 @@
+package net.ltgt.maven.nullaway;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Hands analyses off to an {@link AnalysisWorker}, starting one if needed.
+ * <p>
+ * Workers are keyed by the JDK, the plugin jar and the annotation processor path, so that a
+ * worker is only reused by builds running the same tools. Their registry files live in a
+ * per-user directory under {@code java.io.tmpdir}.
+ */
+public class WorkerClient implements Analyzer {
+    private static final long STARTUP_TIMEOUT_MILLIS = 60_000;
+    /**
+     * How long the client waits for the response, which only comes once the analysis completes.
+     */
+    private static final int RESPONSE_TIMEOUT_MILLIS = 60 * 60_000;
+    private static final Set<PosixFilePermission> PRIVATE_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+
+    /**
+     * The javac internals Error Prone needs access to on JDK 16 and later.
+     */
+    static final List<String> JDK_EXPORTS = Arrays.asList(
+            "--add-exports=jdk.compiler/com.sun.tools.javac.api=ALL-UNNAMED",
+            "--add-exports=jdk.compiler/com.sun.tools.javac.file=ALL-UNNAMED",
+            "--add-exports=jdk.compiler/com.sun.tools.javac.main=ALL-UNNAMED",
+            "--add-exports=jdk.compiler/com.sun.tools.javac.model=ALL-UNNAMED",
+            "--add-exports=jdk.compiler/com.sun.tools.javac.parser=ALL-UNNAMED",
+            "--add-exports=jdk.compiler/com.sun.tools.javac.processing=ALL-UNNAMED",
+            "--add-exports=jdk.compiler/com.sun.tools.javac.tree=ALL-UNNAMED",
+            "--add-exports=jdk.compiler/com.sun.tools.javac.util=ALL-UNNAMED",
+            "--add-opens=jdk.compiler/com.sun.tools.javac.code=ALL-UNNAMED",
+            "--add-opens=jdk.compiler/com.sun.tools.javac.comp=ALL-UNNAMED");
+
+    private final File registryDirectory;
+    private final List<String> jvmArgs;
+    private final long idleTimeoutMillis;
+
+    /**
+     * Creates a client.
+     *
+     * @param registryDirectory the directory holding the workers' registry files and logs
+     * @param jvmArgs           additional JVM arguments for new workers, e.g. {@code -Xmx2g}
+     * @param idleTimeoutMillis how long new workers stay alive without requests
+     */
+    public WorkerClient(File registryDirectory, List<String> jvmArgs, long idleTimeoutMillis) {
+        this.registryDirectory = registryDirectory;
+        this.jvmArgs = new ArrayList<>(jvmArgs);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Returns the default registry directory for the current user.
+     *
+     * @return the {@code nullaway-workers-<user>} directory under {@code java.io.tmpdir}
+     */
+    public static File defaultRegistryDirectory() {
+        return new File(System.getProperty("java.io.tmpdir"),
+                "nullaway-workers-" + System.getProperty("user.name", "default").replaceAll("[^A-Za-z0-9._-]", "_"));
+    }
+
+    @Override
+    public List<Finding> analyze(AnalysisRequest request) throws IOException {
+        // Registry files are only trusted in a directory that no other user can write to
+        createPrivateDirectory(registryDirectory);
+        File registryFile = new File(registryDirectory, workerKey(request.getProcessorPath()) + ".properties");
+        Worker worker = readRegistry(registryFile);
+        if (worker != null) {
+            try {
+                return worker.analyze(request);
+            } catch (ConnectException e) {
+                // The worker has exited, e.g. after its idle timeout
+            }
+        }
+        return startWorker(registryFile).analyze(request);
+    }
+
+    /**
+     * Computes the key of the workers able to run analyses with a processor path.
+     *
+     * @param processorPath the processor path
+     * @return the worker key
+     * @throws IOException if the plugin jar cannot be located
+     */
+    static String workerKey(List<File> processorPath) throws IOException {
+        List<String> parts = new ArrayList<>();
+        parts.add(System.getProperty("java.home"));
+        parts.add(System.getProperty("java.version"));
+        File pluginJar = pluginJar();
+        parts.add(pluginJar.getPath() + "|" + pluginJar.length() + "|" + pluginJar.lastModified());
+        for (File element : processorPath) {
+            parts.add(element.getPath() + "|" + element.length() + "|" + element.lastModified());
+        }
+        return new AnalysisFingerprint().addArguments(parts).compute().substring(0, 24);
+    }
+
+    /**
+     * Starts a worker, unless another build started one meanwhile.
+     *
+     * @param registryFile the registry file of the worker
+     * @return the running worker
+     * @throws IOException if the worker cannot be started
+     */
+    private Worker startWorker(File registryFile) throws IOException {
+        Path lockFile = new File(registryDirectory, registryFile.getName() + ".lock").toPath();
+        try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = channel.lock()) {
+            Worker worker = readRegistry(registryFile);
+            if (worker != null && worker.isReachable()) {
+                return worker;
+            }
+            Files.deleteIfExists(registryFile.toPath());
+
+            List<String> command = new ArrayList<>();
+            command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+            if (!System.getProperty("java.specification.version").startsWith("1.")) {
+                command.addAll(JDK_EXPORTS);
+            }
+            command.addAll(jvmArgs);
+            command.add("-cp");
+            command.add(pluginJar().getPath());
+            command.add(AnalysisWorker.class.getName());
+            command.add(registryFile.getPath());
+            command.add(Long.toString(idleTimeoutMillis));
+
+            File log = new File(registryDirectory, registryFile.getName().replace(".properties", ".log"));
+            Process process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.appendTo(log))
+                    .start();
+            process.getOutputStream().close();
+
+            long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MILLIS;
+            while (System.currentTimeMillis() < deadline) {
+                worker = readRegistry(registryFile);
+                if (worker != null) {
+                    return worker;
+                }
+                if (!process.isAlive()) {
+                    throw new IOException("NullAway worker exited with code " + process.exitValue() + ", see " + log);
+                }
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while starting NullAway worker", e);
+                }
+            }
+            process.destroy();
+            throw new IOException("NullAway worker didn't start within " + STARTUP_TIMEOUT_MILLIS + " ms, see " + log);
+        }
+    }
+
+    /**
+     * Reads a worker's registry file.
+     *
+     * @param registryFile the registry file
+     * @return the worker, or null if there is no valid registry file
+     */
+    private static Worker readRegistry(File registryFile) {
+        if (!registryFile.isFile()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(registryFile.toPath())) {
+            properties.load(in);
+            String token = properties.getProperty(AnalysisWorker.TOKEN);
+            int port = Integer.parseInt(properties.getProperty(AnalysisWorker.PORT, ""));
+            return token == null ? null : new Worker(port, token);
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates a directory that only the current user can access, where supported.
+     * <p>
+     * An existing directory is only used if it is owned by the current user, is not a symbolic
+     * link, and has {@code rwx------} permissions, as another user could otherwise plant a registry
+     * file pointing to their own worker, or replace the worker's.
+     *
+     * @param directory the directory to create
+     * @throws IOException if the directory cannot be created, or exists and isn't private
+     */
+    static void createPrivateDirectory(File directory) throws IOException {
+        Path path = directory.toPath();
+        try {
+            Files.createDirectories(path, PosixFilePermissions.asFileAttribute(PRIVATE_DIRECTORY));
+        } catch (UnsupportedOperationException e) {
+            Files.createDirectories(path);
+            return;
+        } catch (FileAlreadyExistsException e) {
+            throw new IOException("Refusing to use NullAway worker directory " + directory + ": not a directory", e);
+        }
+        PosixFileAttributes attributes = Files.readAttributes(path, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        if (!attributes.isDirectory()) {
+            throw new IOException("Refusing to use NullAway worker directory " + directory + ": not a directory");
+        }
+        UserPrincipal user = path.getFileSystem().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+        if (!attributes.owner().equals(user)) {
+            throw new IOException("Refusing to use NullAway worker directory " + directory + ": owned by "
+                    + attributes.owner().getName() + " rather than " + user.getName());
+        }
+        if (!attributes.permissions().equals(PRIVATE_DIRECTORY)) {
+            throw new IOException("Refusing to use NullAway worker directory " + directory + ": permissions are "
+                    + PosixFilePermissions.toString(attributes.permissions()) + " rather than rwx------");
+        }
+    }
+
+    /**
+     * Creates an empty file that only the current user can read and write, where supported.
+     *
+     * @param file the file to create
+     * @throws IOException if the file cannot be created
+     */
+    static void createPrivateFile(File file) throws IOException {
+        Files.deleteIfExists(file.toPath());
+        try {
+            Files.createFile(file.toPath(), PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            Files.createFile(file.toPath());
+        } catch (FileAlreadyExistsException e) {
+            throw new IOException("Concurrent creation of " + file, e);
+        }
+    }
+
+    /**
+     * Locates the jar (or directory) holding the plugin classes, which is the worker's whole classpath.
+     *
+     * @return the plugin jar
+     * @throws IOException if the location cannot be determined
+     */
+    private static File pluginJar() throws IOException {
+        try {
+            return new File(AnalysisWorker.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException | NullPointerException | SecurityException e) {
+            throw new IOException("Cannot locate the NullAway plugin classes", e);
+        }
+    }
+
+    /**
+     * A worker, as published in its registry file.
+     */
+    private static final class Worker {
+        private final int port;
+        private final String token;
+
+        Worker(int port, String token) {
+            this.port = port;
+            this.token = token;
+        }
+
+        /**
+         * Checks whether the worker accepts connections.
+         *
+         * @return false if the worker has exited
+         */
+        boolean isReachable() {
+            try (Socket ignored = new Socket(InetAddress.getLoopbackAddress(), port)) {
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Runs an analysis in the worker.
+         *
+         * @param request the analysis to run
+         * @return the findings
+         * @throws IOException if the worker cannot be reached or the analysis failed
+         */
+        List<Finding> analyze(AnalysisRequest request) throws IOException {
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+                socket.setSoTimeout(RESPONSE_TIMEOUT_MILLIS);
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                WorkerProtocol.writeRequest(out, token, request);
+                return WorkerProtocol.readResponse(new DataInputStream(socket.getInputStream()));
+            }
+        }
+    }
+}
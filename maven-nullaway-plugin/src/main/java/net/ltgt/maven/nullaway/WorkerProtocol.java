@@ -0,0 +1,245 @@
+package net.ltgt.maven.nullaway;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encodes the messages exchanged with an {@link AnalysisWorker}.
+ * <p>
+ * Each connection carries a single exchange: the client sends the worker's token and an
+ * {@link AnalysisRequest}, and the worker answers with either the findings or an error message.
+ * Strings are length-prefixed UTF-8, lists are count-prefixed.
+ * <p>
+ * The worker authenticates the client from the token alone, before reading the request, and
+ * lengths are bounded before anything is allocated, so that a client without the token cannot
+ * make the worker allocate more than a few hundred bytes.
+ */
+final class WorkerProtocol {
+    private static final int MAGIC = 0x4E554C4C; // "NULL"
+    /**
+     * The longest token accepted, well above the 64 hex digits of the worker's tokens.
+     */
+    static final int MAX_TOKEN_LENGTH = 256;
+    /**
+     * The longest string accepted once authenticated, e.g. a path or an Error Prone argument.
+     */
+    static final int MAX_STRING_LENGTH = 1 << 20;
+    /**
+     * The largest list accepted once authenticated, e.g. the source files or the findings.
+     */
+    static final int MAX_LIST_SIZE = 1 << 20;
+    private static final byte STATUS_OK = 0;
+    private static final byte STATUS_ERROR = 1;
+
+    private WorkerProtocol() {
+    }
+
+    /**
+     * Writes a request.
+     *
+     * @param out     the connection output
+     * @param token   the worker's token
+     * @param request the analysis to run
+     * @throws IOException if the request cannot be written
+     */
+    static void writeRequest(DataOutputStream out, String token, AnalysisRequest request) throws IOException {
+        out.writeInt(MAGIC);
+        writeString(out, token);
+        writeStrings(out, request.getErrorProneArgs());
+        writeStrings(out, request.getCompilerOptions());
+        writeFiles(out, request.getSourceFiles());
+        writeFiles(out, request.getClasspath());
+        writeFiles(out, request.getSourcepath());
+        writeFiles(out, request.getProcessorPath());
+        writeString(out, request.getOutputDirectory().getPath());
+        writeString(out, request.getModule());
+        out.writeBoolean(request.isGenerateClasses());
+        out.flush();
+    }
+
+    /**
+     * Reads the token at the start of a request.
+     *
+     * @param in the connection input
+     * @return the token sent by the client
+     * @throws IOException if the input is not a request
+     */
+    static String readToken(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a NullAway worker request");
+        }
+        return readString(in, MAX_TOKEN_LENGTH);
+    }
+
+    /**
+     * Reads the rest of a request, after its token.
+     *
+     * @param in the connection input
+     * @return the analysis to run
+     * @throws IOException if the request cannot be read
+     */
+    static AnalysisRequest readRequest(DataInputStream in) throws IOException {
+        return new AnalysisRequest()
+                .setErrorProneArgs(readStrings(in))
+                .setCompilerOptions(readStrings(in))
+                .setSourceFiles(readFiles(in))
+                .setClasspath(readFiles(in))
+                .setSourcepath(readFiles(in))
+                .setProcessorPath(readFiles(in))
+                .setOutputDirectory(new File(readString(in, MAX_STRING_LENGTH)))
+                .setModule(readString(in, MAX_STRING_LENGTH))
+                .setGenerateClasses(in.readBoolean());
+    }
+
+    /**
+     * Writes a successful response.
+     *
+     * @param out      the connection output
+     * @param findings the findings of the analysis
+     * @throws IOException if the response cannot be written
+     */
+    static void writeFindings(DataOutputStream out, List<Finding> findings) throws IOException {
+        out.writeByte(STATUS_OK);
+        List<String> encoded = new ArrayList<>();
+        for (Finding finding : findings) {
+            encoded.add(finding.encode());
+        }
+        writeStrings(out, encoded);
+        out.flush();
+    }
+
+    /**
+     * Writes a failed response.
+     *
+     * @param out     the connection output
+     * @param message the error message
+     * @throws IOException if the response cannot be written
+     */
+    static void writeError(DataOutputStream out, String message) throws IOException {
+        out.writeByte(STATUS_ERROR);
+        writeString(out, message);
+        out.flush();
+    }
+
+    /**
+     * Reads a response.
+     *
+     * @param in the connection input
+     * @return the findings of the analysis
+     * @throws IOException if the response cannot be read or the analysis failed in the worker
+     */
+    static List<Finding> readResponse(DataInputStream in) throws IOException {
+        byte status = in.readByte();
+        if (status == STATUS_ERROR) {
+            throw new IOException("NullAway worker failed: " + readString(in, MAX_STRING_LENGTH));
+        }
+        List<Finding> findings = new ArrayList<>();
+        try {
+            for (String encoded : readStrings(in)) {
+                findings.add(Finding.decode(encoded));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid response from NullAway worker", e);
+        }
+        return findings;
+    }
+
+    /**
+     * Writes a length-prefixed string.
+     *
+     * @param out   the output
+     * @param value the string
+     * @throws IOException if the string cannot be written
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a length-prefixed string.
+     *
+     * @param in        the input
+     * @param maxLength the longest length accepted, in bytes
+     * @return the string
+     * @throws IOException if the string cannot be read or is too long
+     */
+    private static String readString(DataInputStream in, int maxLength) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > maxLength) {
+            throw new IOException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a count-prefixed list of strings.
+     *
+     * @param out    the output
+     * @param values the strings
+     * @throws IOException if the strings cannot be written
+     */
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    /**
+     * Reads a count-prefixed list of strings.
+     *
+     * @param in the input
+     * @return the strings
+     * @throws IOException if the strings cannot be read
+     */
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > MAX_LIST_SIZE) {
+            throw new IOException("Invalid list size " + count);
+        }
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            values.add(readString(in, MAX_STRING_LENGTH));
+        }
+        return values;
+    }
+
+    /**
+     * Writes a list of files as their paths.
+     *
+     * @param out   the output
+     * @param files the files
+     * @throws IOException if the files cannot be written
+     */
+    private static void writeFiles(DataOutputStream out, List<File> files) throws IOException {
+        List<String> paths = new ArrayList<>();
+        for (File file : files) {
+            paths.add(file.getPath());
+        }
+        writeStrings(out, paths);
+    }
+
+    /**
+     * Reads a list of files.
+     *
+     * @param in the input
+     * @return the files
+     * @throws IOException if the files cannot be read
+     */
+    private static List<File> readFiles(DataInputStream in) throws IOException {
+        List<File> files = new ArrayList<>();
+        for (String path : readStrings(in)) {
+            files.add(new File(path));
+        }
+        return files;
+    }
+}
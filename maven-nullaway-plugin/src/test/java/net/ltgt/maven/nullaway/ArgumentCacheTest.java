@@ -0,0 +1,78 @@
+package net.ltgt.maven.nullaway;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ArgumentCache.
+ */
+public class ArgumentCacheTest {
+
+    @Test
+    public void testSharesArgumentsForEqualConfigurations() {
+        ArgumentCache cache = new ArgumentCache();
+        List<String> first = cache.get(createGenerator("ERROR", "com.example"));
+        List<String> second = cache.get(createGenerator("ERROR", "com.example"));
+
+        assertSame("Equal configurations should share the same list", first, second);
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void testSeparatesDifferentConfigurations() {
+        ArgumentCache cache = new ArgumentCache();
+        List<String> first = cache.get(createGenerator("ERROR", "com.example"));
+        List<String> second = cache.get(createGenerator("WARN", "com.example"));
+
+        assertNotEquals(first, second);
+        assertEquals(2, cache.getMisses());
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testArgumentsAreImmutable() {
+        new ArgumentCache().get(createGenerator("ERROR", "com.example")).add("-Xep:Other");
+    }
+
+    @Test
+    public void testConcurrentLookups() throws Exception {
+        ArgumentCache cache = new ArgumentCache();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                String pkg = "com.example" + (i % 10);
+                Callable<List<String>> lookup = () -> cache.get(createGenerator("ERROR", pkg));
+                futures.add(executor.submit(lookup));
+            }
+            for (Future<List<String>> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals("Each distinct configuration should be generated once", 10, cache.getMisses());
+        assertEquals(990, cache.getHits());
+    }
+
+    // Helper methods
+
+    private ArgumentGenerator createGenerator(String severity, String annotatedPackage) {
+        return new ArgumentGenerator(
+                severity, null, Collections.singletonList(annotatedPackage), null, null, null, null, null, null, null,
+                null, null, null, null, null, null, null, null, null, null, null,
+                null, null, null, null, null, null, null, null, null
+        );
+    }
+}
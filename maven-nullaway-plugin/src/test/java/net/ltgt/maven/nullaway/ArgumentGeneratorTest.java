@@ -250,6 +250,31 @@ public class ArgumentGeneratorTest {
                 args.contains("-XepOpt:NullAway:CustomContractAnnotations=com.example.Contract"));
     }
 
+    @Test
+    public void testEqualConfigurations() {
+        ArgumentGenerator first = createGeneratorBuilder()
+                .annotatedPackages(Arrays.asList("com.example", "com.test"))
+                .jspecifyMode(true)
+                .build();
+        ArgumentGenerator second = createGeneratorBuilder()
+                .annotatedPackages(new ArrayList<>(Arrays.asList("com.example", "com.test")))
+                .jspecifyMode(true)
+                .build();
+        assertEquals("Same configuration should be equal", first, second);
+        assertEquals("Same configuration should have the same hash code", first.hashCode(), second.hashCode());
+    }
+
+    @Test
+    public void testDifferentConfigurations() {
+        ArgumentGenerator first = createGeneratorBuilder()
+                .annotatedPackages(Collections.singletonList("com.example"))
+                .build();
+        ArgumentGenerator second = createGeneratorBuilder()
+                .annotatedPackages(Collections.singletonList("com.test"))
+                .build();
+        assertNotEquals("Different configuration should not be equal", first, second);
+    }
+
     // Helper methods
 
     private ArgumentGenerator createGenerator(String severity) {
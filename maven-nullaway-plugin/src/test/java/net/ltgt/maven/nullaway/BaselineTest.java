@@ -0,0 +1,166 @@
+package net.ltgt.maven.nullaway;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for Baseline.
+ */
+public class BaselineTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        File basedir = temp.newFolder("module");
+        File file = new File(basedir, "nullaway-baseline.dat");
+        List<Finding> findings = Arrays.asList(
+                error(basedir, "src/A.java", 3, "dereferenced expression x is @Nullable"),
+                error(basedir, "src/B.java", 7, "returning @Nullable expression"));
+        Baseline.of(findings, basedir).write(file);
+
+        Baseline baseline = Baseline.read(file);
+        assertEquals(2, baseline.size());
+        assertEquals(12 + 2 * 8, file.length());
+        Baseline.Comparison comparison = baseline.compare(findings, basedir);
+        assertEquals(Collections.emptyList(), comparison.getNewFindings());
+        assertEquals(2, comparison.getMatched());
+        assertEquals(0, comparison.getFixed());
+    }
+
+    @Test
+    public void testIgnoresLinesSeverityAndCheckoutLocation() throws IOException {
+        File original = temp.newFolder("original");
+        File moved = temp.newFolder("moved");
+        source(original, "src/A.java", "class A {", "  void f(Object x) {", "    x.hashCode();", "  }", "}");
+        source(moved, "src/A.java", "class A {", "  // Moved down", "  void f(Object x) {", "\t\tx.hashCode();  ", "  }", "}");
+        Baseline baseline = Baseline.of(Collections.singletonList(
+                error(original, "src/A.java", 3, "dereferenced expression x is @Nullable")), original);
+
+        Finding shifted = new Finding(Finding.Kind.WARNING, new File(moved, "src/A.java").getPath(), 4, 1,
+                "dereferenced expression x is @Nullable");
+        assertEquals(1, baseline.compare(Collections.singletonList(shifted), moved).getMatched());
+    }
+
+    @Test
+    public void testSameFindingOnAnotherLineIsNew() throws IOException {
+        File basedir = temp.newFolder("module");
+        source(basedir, "src/A.java", "class A {", "  void f(Object x) {", "    x.hashCode();",
+                "  }", "  void g(Object x) {", "    int h =", "      x", "        .hashCode();", "    x.toString();", "  }", "}");
+        source(basedir, "src/C.java", "class C { int f(Object x) { return x.hashCode(); } }");
+        Finding first = error(basedir, "src/A.java", 3, "dereferenced expression x is @Nullable");
+        Finding second = error(basedir, "src/A.java", 9, "dereferenced expression x is @Nullable");
+        Finding other = error(basedir, "src/C.java", 1, "dereferenced expression x is @Nullable");
+        Baseline baseline = Baseline.of(Collections.singletonList(first), basedir);
+
+        Baseline.Comparison comparison = baseline.compare(Arrays.asList(first, second, other), basedir);
+        assertEquals(Arrays.asList(second, other), comparison.getNewFindings());
+        assertEquals(1, comparison.getMatched());
+    }
+
+    @Test
+    public void testSameLineTextSharesIdentity() throws IOException {
+        File basedir = temp.newFolder("module");
+        source(basedir, "src/A.java", "class A {", "  void f(Object x) {", "    x.hashCode();", "    x.hashCode();", "  }", "}");
+        Finding first = error(basedir, "src/A.java", 3, "dereferenced expression x is @Nullable");
+        Finding second = error(basedir, "src/A.java", 4, "dereferenced expression x is @Nullable");
+        Baseline baseline = Baseline.of(Collections.singletonList(first), basedir);
+
+        Baseline.Comparison comparison = baseline.compare(Arrays.asList(first, second), basedir);
+        assertEquals(Collections.emptyList(), comparison.getNewFindings());
+        assertEquals(2, comparison.getMatched());
+        assertEquals(0, comparison.getFixed());
+    }
+
+    @Test
+    public void testFixedFindings() throws IOException {
+        File basedir = temp.newFolder("module");
+        Baseline baseline = Baseline.of(Arrays.asList(
+                error(basedir, "src/A.java", 3, "a"),
+                error(basedir, "src/A.java", 4, "b"),
+                error(basedir, "src/B.java", 5, "c")), basedir);
+
+        Baseline.Comparison comparison = baseline.compare(
+                Collections.singletonList(error(basedir, "src/A.java", 4, "b")), basedir);
+        assertEquals(1, comparison.getMatched());
+        assertEquals(2, comparison.getFixed());
+    }
+
+    @Test
+    public void testLargeBaseline() throws IOException {
+        File basedir = temp.newFolder("module");
+        List<Finding> findings = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            findings.add(error(basedir, "src/File" + (i / 100) + ".java", i % 100, "finding " + (i % 7)));
+        }
+        File file = temp.newFile("large.dat");
+        Baseline.of(findings, basedir).write(file);
+        // Findings are matched one at a time, in any order
+        Collections.shuffle(findings, new Random(42));
+
+        Baseline.Comparison comparison = Baseline.read(file).compare(findings, basedir);
+        assertEquals(100_000, comparison.getMatched());
+        assertTrue(comparison.getNewFindings().isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOtherFiles() throws IOException {
+        File file = temp.newFile("baseline.dat");
+        Files.write(file.toPath(), "not a baseline".getBytes("UTF-8"));
+        Baseline.read(file);
+    }
+
+    @Test
+    public void testRejectsOlderVersion() throws IOException {
+        File file = temp.newFile("baseline.dat");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file.toPath()))) {
+            out.writeInt(0x4e41424c);
+            out.writeInt(1);
+            out.writeInt(0);
+        }
+        try {
+            Baseline.read(file);
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("nullaway:baseline"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsTruncatedFile() throws IOException {
+        File basedir = temp.newFolder("module");
+        File file = new File(basedir, "baseline.dat");
+        Baseline.of(Arrays.asList(error(basedir, "src/A.java", 1, "a"), error(basedir, "src/A.java", 2, "b")), basedir)
+                .write(file);
+        byte[] content = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(content, content.length - 4));
+        Baseline.read(file);
+    }
+
+    // Helper methods
+
+    private void source(File basedir, String path, String... lines) throws IOException {
+        File file = new File(basedir, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+
+    private Finding error(File basedir, String path, long line, String message) {
+        return new Finding(Finding.Kind.ERROR, new File(basedir, path).getPath(), line, 1, message);
+    }
+}
@@ -0,0 +1,170 @@
+package net.ltgt.maven.nullaway;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for BatchedAnalyzer.
+ */
+public class BatchedAnalyzerTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testPartitionOrdersDependenciesFirst() throws IOException {
+        File a = write("a/A.java", "package a;\nimport b.B;\nclass A { B b; }\n");
+        File b = write("b/B.java", "package b;\npublic class B { c.C c; }\n");
+        File c = write("c/C.java", "package c;\npublic class C {}\n");
+
+        List<List<File>> batches = BatchedAnalyzer.partition(Arrays.asList(a, b, c), 1);
+
+        assertEquals(Arrays.asList(
+                Collections.singletonList(c), Collections.singletonList(b), Collections.singletonList(a)), batches);
+    }
+
+    @Test
+    public void testPartitionKeepsCyclesTogether() throws IOException {
+        File a = write("a/A.java", "package a;\nimport b.*;\npublic class A { B b; }\n");
+        File b = write("b/B.java", "package b;\nimport static a.A.create;\npublic class B {}\n");
+        File c = write("c/C.java", "package c;\nclass C { a.A a; }\n");
+
+        List<List<File>> batches = BatchedAnalyzer.partition(Arrays.asList(c, b, a), 1);
+
+        assertEquals(Arrays.asList(Arrays.asList(a, b), Collections.singletonList(c)), batches);
+    }
+
+    @Test
+    public void testPartitionGroupsPackagesWithinBudget() throws IOException {
+        File a = write("a/A.java", "package a;\nclass A { b.B b; }\n");
+        File b = write("b/B.java", "package b;\npublic class B {}\n");
+        File b2 = write("b/B2.java", "package b;\nclass B2 {}\n");
+        List<File> files = Arrays.asList(a, b, b2);
+
+        assertEquals(Collections.singletonList(Arrays.asList(a, b, b2)),
+                BatchedAnalyzer.partition(files, BatchedAnalyzer.estimateHeap(files)));
+        assertEquals(Arrays.asList(Arrays.asList(b, b2), Collections.singletonList(a)),
+                BatchedAnalyzer.partition(files, BatchedAnalyzer.estimateHeap(files) - 1));
+    }
+
+    @Test
+    public void testComponentsOfLongDependencyChains() {
+        // Deeper than a recursive search could go with the default stack size
+        int depth = 100_000;
+        Map<String, Set<String>> chain = new TreeMap<>();
+        Map<String, Set<String>> cycle = new TreeMap<>();
+        for (int i = 0; i < depth; i++) {
+            String name = String.format("p%06d", i);
+            String next = String.format("p%06d", (i + 1) % depth);
+            chain.put(name, i + 1 < depth ? Collections.singleton(next) : Collections.<String>emptySet());
+            cycle.put(name, Collections.singleton(next));
+        }
+
+        List<List<String>> components = new BatchedAnalyzer.Components(chain).list();
+        assertEquals(depth, components.size());
+        assertEquals(Collections.singletonList(String.format("p%06d", depth - 1)), components.get(0));
+        assertEquals(Collections.singletonList("p000000"), components.get(depth - 1));
+
+        components = new BatchedAnalyzer.Components(cycle).list();
+        assertEquals(1, components.size());
+        assertEquals(new ArrayList<>(cycle.keySet()), components.get(0));
+    }
+
+    @Test
+    public void testPackageName() {
+        assertEquals("com.example", BatchedAnalyzer.packageName("@NullMarked package com . example ;\nclass A {}"));
+        assertEquals("", BatchedAnalyzer.packageName("class A {}"));
+    }
+
+    @Test
+    public void testReferencedPackages() {
+        Set<String> packages = new HashSet<>(Arrays.asList("com.example", "com.example.util", "com.other"));
+        String source = "package com.example.util;\n" +
+                "import com.other.*;\n" +
+                "import java.util.List;\n" +
+                "class U { com.example.A a; }\n";
+
+        assertEquals(new HashSet<>(Arrays.asList("com.example", "com.other")),
+                BatchedAnalyzer.referencedPackages(source, packages));
+    }
+
+    @Test
+    public void testAnalyzeGeneratesClassesForEarlierBatches() throws IOException {
+        File a = write("a/A.java", "package a;\nclass A { b.B b; }\n");
+        File b = write("b/B.java", "package b;\npublic class B {}\n");
+        File output = temp.newFolder("output");
+        File dependency = new File("dependency.jar");
+        List<AnalysisRequest> requests = new ArrayList<>();
+        Finding error = new Finding(Finding.Kind.ERROR, b.getPath(), 2, 1, "[NullAway] error");
+
+        List<Finding> findings = new BatchedAnalyzer(request -> {
+            requests.add(request);
+            return request.getSourceFiles().contains(b) && !request.getErrorProneArgs().isEmpty()
+                    ? Collections.singletonList(error)
+                    : Collections.<Finding>emptyList();
+        }).analyze(new AnalysisRequest()
+                        .setErrorProneArgs(Collections.singletonList("-Xep:NullAway:ERROR"))
+                        .setSourceFiles(Arrays.asList(a, b))
+                        .setClasspath(Collections.singletonList(dependency))
+                        .setOutputDirectory(output),
+                Arrays.asList(Collections.singletonList(b), Collections.singletonList(a)));
+
+        assertEquals(Collections.singletonList(error), findings);
+        assertEquals(3, requests.size());
+        File classes = new File(output, "batches");
+        // The batch with errors is compiled again without NullAway, to get its class files
+        assertEquals(Collections.singletonList(b), requests.get(0).getSourceFiles());
+        assertTrue(requests.get(0).isGenerateClasses());
+        assertEquals(Collections.singletonList(b), requests.get(1).getSourceFiles());
+        assertTrue(requests.get(1).isGenerateClasses());
+        assertEquals(Collections.<String>emptyList(), requests.get(1).getErrorProneArgs());
+        assertEquals(Collections.singletonList(a), requests.get(2).getSourceFiles());
+        assertFalse(requests.get(2).isGenerateClasses());
+        for (AnalysisRequest request : requests) {
+            assertEquals(Arrays.asList(classes, dependency), request.getClasspath());
+            assertEquals(classes, request.getOutputDirectory());
+        }
+    }
+
+    @Test
+    public void testAnalyzeSingleBatchAsIs() throws IOException {
+        File a = write("a/A.java", "package a;\nclass A {}\n");
+        List<AnalysisRequest> requests = new ArrayList<>();
+        AnalysisRequest request = new AnalysisRequest()
+                .setSourceFiles(Collections.singletonList(a))
+                .setOutputDirectory(temp.newFolder("output"));
+
+        new BatchedAnalyzer(r -> {
+            requests.add(r);
+            return Collections.<Finding>emptyList();
+        }).analyze(request, Collections.singletonList(Collections.singletonList(a)));
+
+        assertEquals(Collections.singletonList(request), requests);
+        assertFalse(new File(request.getOutputDirectory(), "batches").exists());
+    }
+
+    // Helper methods
+
+    private File write(String path, String content) throws IOException {
+        File file = new File(temp.getRoot(), path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,171 @@
+package net.ltgt.maven.nullaway;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeFalse;
+
+/**
+ * Unit tests for CdsArchive.
+ */
+public class CdsArchiveTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testKeyIdentifiesJavacAndProcessorPath() throws IOException {
+        File javac = write("jdk/bin/javac", "javac");
+        File errorProne = write("error_prone_core.jar", "error prone");
+        File nullaway = write("nullaway.jar", "nullaway");
+
+        String key = CdsArchive.key(javac, Arrays.asList(errorProne, nullaway));
+        assertTrue(key.matches("[0-9a-f]{16}"));
+        assertEquals(key, CdsArchive.key(javac, Arrays.asList(errorProne, nullaway)));
+
+        // The processor path order matters to class loading
+        assertNotEquals(key, CdsArchive.key(javac, Arrays.asList(nullaway, errorProne)));
+        assertNotEquals(key, CdsArchive.key(javac, Collections.singletonList(errorProne)));
+
+        // A new version of a jar at the same path
+        write("nullaway.jar", "nullaway, next version");
+        assertNotEquals(key, CdsArchive.key(javac, Arrays.asList(errorProne, nullaway)));
+    }
+
+    @Test
+    public void testArchiveFileAndCompilerArg() throws IOException {
+        File directory = new File(temp.getRoot(), "cds");
+        File javac = write("jdk/bin/javac", "javac");
+        List<File> processorPath = Collections.singletonList(write("nullaway.jar", "nullaway"));
+
+        CdsArchive archive = new CdsArchive(directory, javac, processorPath);
+
+        assertEquals(new File(directory, "javac-" + CdsArchive.key(javac, processorPath) + ".jsa"),
+                archive.getFile());
+        assertEquals("-J-XX:SharedArchiveFile=" + archive.getFile().getAbsolutePath(), archive.toCompilerArg());
+    }
+
+    @Test
+    public void testCreateSkipsExistingArchive() throws IOException {
+        // Training would fail, as this javac doesn't exist
+        File javac = new File(temp.getRoot(), "missing/javac");
+        CdsArchive archive = new CdsArchive(temp.newFolder("cds"), javac, Collections.<File>emptyList());
+        Files.write(archive.getFile().toPath(), new byte[] {1});
+
+        assertFalse(archive.create(Collections.<String>emptyList()));
+        assertArrayEquals(new byte[] {1}, Files.readAllBytes(archive.getFile().toPath()));
+    }
+
+    @Test
+    public void testCreateTrainsOnce() throws Exception {
+        File javac = fakeJavac("echo archived > \"$archive\"");
+        File directory = temp.newFolder("cds");
+        List<File> processorPath = Collections.singletonList(write("nullaway.jar", "nullaway"));
+
+        CdsArchive archive = new CdsArchive(directory, javac, processorPath);
+        assertTrue(archive.create(Collections.singletonList("--add-exports=jdk.compiler/com.sun.tools.javac.api=ALL-UNNAMED")));
+        assertTrue(archive.getFile().isFile());
+        assertEquals(Collections.singletonList("run"), invocations(javac));
+        String arguments = new String(Files.readAllBytes(new File(javac.getParentFile(), "arguments").toPath()),
+                StandardCharsets.UTF_8);
+        assertTrue(arguments, arguments.contains("-J--add-exports=jdk.compiler/com.sun.tools.javac.api=ALL-UNNAMED\n"));
+        assertTrue(arguments, arguments.contains("-processorpath\n" + processorPath.get(0).getPath() + "\n"));
+
+        assertFalse(new CdsArchive(directory, javac, processorPath).create(Collections.<String>emptyList()));
+        assertEquals(Collections.singletonList("run"), invocations(javac));
+        // Only the archive and its lock file remain, the training directory is deleted
+        assertEquals(2, directory.list().length);
+    }
+
+    @Test
+    public void testConcurrentCreateTrainsOnce() throws Exception {
+        File javac = fakeJavac("sleep 1; echo archived > \"$archive\"");
+        File directory = temp.newFolder("cds");
+        List<File> processorPath = Collections.singletonList(write("nullaway.jar", "nullaway"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit((Callable<Boolean>) () ->
+                        new CdsArchive(directory, javac, processorPath).create(Collections.<String>emptyList())));
+            }
+            int created = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(30, TimeUnit.SECONDS)) {
+                    created++;
+                }
+            }
+            assertEquals(1, created);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(Collections.singletonList("run"), invocations(javac));
+    }
+
+    @Test
+    public void testCreateReportsTrainingFailure() throws Exception {
+        File javac = fakeJavac("echo 'error: invalid flag'; exit 2");
+        File directory = temp.newFolder("cds");
+        CdsArchive archive = new CdsArchive(directory, javac, Collections.<File>emptyList());
+
+        try {
+            archive.create(Collections.<String>emptyList());
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("Training compilation exited with code 2: error: invalid flag", e.getMessage());
+        }
+        assertFalse(archive.getFile().exists());
+        // Only the lock file remains
+        assertEquals(1, directory.list().length);
+    }
+
+    // Helper methods
+
+    /**
+     * Creates a javac script that records its invocations and arguments, then runs a command with
+     * {@code $archive} set to the archive to create.
+     */
+    private File fakeJavac(String command) throws IOException {
+        assumeFalse(System.getProperty("os.name").startsWith("Windows"));
+        File javac = write("jdk/bin/javac", String.join("\n",
+                "#!/bin/sh",
+                "dir=$(dirname \"$0\")",
+                "echo run >> \"$dir/invocations\"",
+                "for arg; do",
+                "  echo \"$arg\" >> \"$dir/arguments\"",
+                "  case \"$arg\" in -J-XX:ArchiveClassesAtExit=*) archive=${arg#-J-XX:ArchiveClassesAtExit=};; esac",
+                "done",
+                command,
+                ""));
+        assertTrue(javac.setExecutable(true));
+        return javac;
+    }
+
+    private static List<String> invocations(File javac) throws IOException {
+        return Files.readAllLines(new File(javac.getParentFile(), "invocations").toPath(), StandardCharsets.UTF_8);
+    }
+
+    private File write(String path, String content) throws IOException {
+        File file = new File(temp.getRoot(), path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,82 @@
+package net.ltgt.maven.nullaway;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ClassAbi.
+ */
+public class ClassAbiTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testImplementationChangeKeepsAbi() throws IOException {
+        String before = abi("Foo", "public class Foo { public String get() { return \"a\"; } }");
+        String after = abi("Foo", "public class Foo { public String get() { return \"b\" + 1; } }");
+        assertEquals("Method bodies should not be part of the ABI", before, after);
+    }
+
+    @Test
+    public void testPrivateMemberChangeKeepsAbi() throws IOException {
+        String before = abi("Foo", "public class Foo { public String get() { return null; } }");
+        String after = abi("Foo", "public class Foo { private int count; public String get() { return helper(); }"
+                + " private String helper() { return null; } }");
+        assertEquals("Private members should not be part of the ABI", before, after);
+    }
+
+    @Test
+    public void testSignatureChangeChangesAbi() throws IOException {
+        String before = abi("Foo", "public class Foo { public String get() { return null; } }");
+        String after = abi("Foo", "public class Foo { public Object get() { return null; } }");
+        assertNotEquals("Signatures should be part of the ABI", before, after);
+    }
+
+    @Test
+    public void testAnnotationChangeChangesAbi() throws IOException {
+        String before = abi("Foo", "public class Foo { public String get() { return null; } }");
+        String after = abi("Foo", "public class Foo { @Deprecated public String get() { return null; } }");
+        assertNotEquals("Annotations should be part of the ABI", before, after);
+    }
+
+    @Test
+    public void testAnonymousClassHasNoAbi() throws IOException {
+        File classes = compile("Foo", "public class Foo { Runnable r = new Runnable() { public void run() {} }; }");
+        byte[] anonymous = Files.readAllBytes(new File(classes, "Foo$1.class").toPath());
+        assertEquals("Anonymous classes should have no ABI", "", ClassAbi.describe(anonymous));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedClassFile() {
+        ClassAbi.describe(new byte[] {1, 2, 3, 4});
+    }
+
+    // Helper methods
+
+    private String abi(String className, String source) throws IOException {
+        File classes = compile(className, source);
+        return ClassAbi.describe(Files.readAllBytes(new File(classes, className + ".class").toPath()));
+    }
+
+    private File compile(String className, String source) throws IOException {
+        File sources = temp.newFolder();
+        File sourceFile = new File(sources, className + ".java");
+        Files.write(sourceFile.toPath(), source.getBytes(StandardCharsets.UTF_8));
+        File classes = temp.newFolder();
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        int result = compiler.run(null, null, null, "-d", classes.getPath(), sourceFile.getPath());
+        assertEquals("Compilation should succeed", 0, result);
+        return classes;
+    }
+}
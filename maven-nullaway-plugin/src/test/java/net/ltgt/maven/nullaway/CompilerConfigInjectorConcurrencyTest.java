@@ -0,0 +1,215 @@
+package net.ltgt.maven.nullaway;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Stress tests for CompilerConfigInjector, configuring thousands of projects concurrently like a
+ * reactor built with {@code -T}.
+ */
+public class CompilerConfigInjectorConcurrencyTest {
+    private static final int PROJECTS = 4000;
+    private static final int THREADS = 64;
+    private static final int PARENTS = 8;
+
+    @Test
+    public void testConcurrentInjectionIsIsolated() throws Exception {
+        List<MavenProject> parents = new ArrayList<>();
+        List<String> pristine = new ArrayList<>();
+        for (int i = 0; i < PARENTS; i++) {
+            MavenProject parent = createParent();
+            parents.add(parent);
+            pristine.add(compilerPlugin(parent).getConfiguration().toString());
+        }
+        List<MavenProject> projects = new ArrayList<>();
+        for (int i = 0; i < PROJECTS; i++) {
+            projects.add(createChild(parents.get(i % PARENTS), i));
+        }
+
+        runConcurrently(projects);
+
+        for (int i = 0; i < PROJECTS; i++) {
+            assertConfigured(projects.get(i), i);
+        }
+        for (int i = 0; i < PARENTS; i++) {
+            MavenProject parent = parents.get(i);
+            assertEquals("Parent configuration must not change", pristine.get(i),
+                    compilerPlugin(parent).getConfiguration().toString());
+            assertEquals(1, compilerPlugin(parent).getExecutions().size());
+        }
+    }
+
+    @Test
+    public void testConcurrentReinjectionIsIdempotent() throws Exception {
+        MavenProject parent = createParent();
+        List<MavenProject> projects = new ArrayList<>();
+        for (int i = 0; i < PROJECTS / 4; i++) {
+            projects.add(createChild(parent, i));
+        }
+
+        // Configuring the same modules again, as a second goal in the same session would
+        runConcurrently(projects);
+        runConcurrently(projects);
+
+        for (int i = 0; i < projects.size(); i++) {
+            assertConfigured(projects.get(i), i);
+        }
+    }
+
+    // Helper methods
+
+    private void runConcurrently(List<MavenProject> projects) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < projects.size(); i++) {
+                MavenProject project = projects.get(i);
+                int index = i;
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    start.await();
+                    configure(project, index);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void configure(MavenProject project, int index) throws Exception {
+        // Same sequence of changes as the configure goal
+        CompilerConfigInjector injector = new CompilerConfigInjector(project);
+        injector.injectProcessorPath(Collections.singletonList("com.uber.nullaway:nullaway:0.12." + index % 5));
+        injector.ensureCompilerArgs(Arrays.asList("-XDcompilePolicy=simple", "-Xplugin:ErrorProne"));
+        injector.addProcessorPath("com.example.models", "models-" + index, "1");
+        injector.injectCompilerArgs(mainArgs(index));
+        injector.injectCompilerArgs("default-testCompile", "testCompile", testArgs(index));
+    }
+
+    private void assertConfigured(MavenProject project, int index) {
+        Plugin plugin = compilerPlugin(project);
+        Xpp3Dom configuration = (Xpp3Dom) plugin.getConfiguration();
+        String module = "module " + index;
+
+        assertEquals(module, Arrays.asList("-XDcompilePolicy=simple",
+                        "-Xplugin:ErrorProne -XepDisableWarningsInGeneratedCode " + String.join(" ", mainArgs(index))),
+                values(configuration.getChild("compilerArgs")));
+        assertEquals(module, Arrays.asList(
+                        "com.google.errorprone:error_prone_core:2.36.0",
+                        "com.uber.nullaway:nullaway:0.12." + index % 5,
+                        "com.example.models:models-" + index + ":1"),
+                new CompilerConfigInjector(project).findProcessorPathCoordinates());
+
+        assertEquals(module, 2, plugin.getExecutions().size());
+        PluginExecution testCompile = plugin.getExecutions().get(1);
+        assertEquals(module, "default-testCompile", testCompile.getId());
+        assertEquals(module, Arrays.asList("-XDcompilePolicy=simple",
+                        "-Xplugin:ErrorProne -XepDisableWarningsInGeneratedCode " + String.join(" ", testArgs(index))),
+                values(((Xpp3Dom) testCompile.getConfiguration()).getChild("compilerArgs")));
+    }
+
+    private List<String> mainArgs(int index) {
+        return Arrays.asList("-Xep:NullAway:ERROR", "-XepOpt:NullAway:AnnotatedPackages=com.example.m" + index);
+    }
+
+    private List<String> testArgs(int index) {
+        return Arrays.asList("-Xep:NullAway:WARN", "-XepOpt:NullAway:AnnotatedPackages=com.example.m" + index + ".test");
+    }
+
+    private MavenProject createParent() {
+        Xpp3Dom configuration = new Xpp3Dom("configuration");
+        Xpp3Dom compilerArgs = new Xpp3Dom("compilerArgs");
+        for (String arg : Arrays.asList("-XDcompilePolicy=simple", "-Xplugin:ErrorProne -XepDisableWarningsInGeneratedCode")) {
+            Xpp3Dom argNode = new Xpp3Dom("arg");
+            argNode.setValue(arg);
+            compilerArgs.addChild(argNode);
+        }
+        configuration.addChild(compilerArgs);
+        Xpp3Dom processorPaths = new Xpp3Dom("annotationProcessorPaths");
+        for (String[] coordinates : new String[][]{
+                {"com.google.errorprone", "error_prone_core", "2.36.0"}, {"com.uber.nullaway", "nullaway", "0.12.3"}}) {
+            Xpp3Dom path = new Xpp3Dom("path");
+            String[] names = {"groupId", "artifactId", "version"};
+            for (int i = 0; i < names.length; i++) {
+                Xpp3Dom element = new Xpp3Dom(names[i]);
+                element.setValue(coordinates[i]);
+                path.addChild(element);
+            }
+            processorPaths.addChild(path);
+        }
+        configuration.addChild(processorPaths);
+
+        Plugin compilerPlugin = new Plugin();
+        compilerPlugin.setGroupId("org.apache.maven.plugins");
+        compilerPlugin.setArtifactId("maven-compiler-plugin");
+        compilerPlugin.setConfiguration(configuration);
+        PluginExecution compile = new PluginExecution();
+        compile.setId("default-compile");
+        compile.addGoal("compile");
+        compilerPlugin.addExecution(compile);
+
+        Build build = new Build();
+        build.addPlugin(compilerPlugin);
+        Model model = new Model();
+        model.setArtifactId("parent");
+        model.setBuild(build);
+        return new MavenProject(model);
+    }
+
+    private MavenProject createChild(MavenProject parent, int index) {
+        // Inherited configuration may be shared: half of the children reuse the parent's plugin,
+        // the other half have their own plugin with the parent's configuration and executions
+        Plugin parentPlugin = compilerPlugin(parent);
+        Plugin compilerPlugin = parentPlugin;
+        if (index % 2 != 0) {
+            compilerPlugin = new Plugin();
+            compilerPlugin.setGroupId(parentPlugin.getGroupId());
+            compilerPlugin.setArtifactId(parentPlugin.getArtifactId());
+            compilerPlugin.setConfiguration(parentPlugin.getConfiguration());
+            compilerPlugin.setExecutions(parentPlugin.getExecutions());
+        }
+        Build build = new Build();
+        build.addPlugin(compilerPlugin);
+        Model model = new Model();
+        model.setArtifactId("m" + index);
+        model.setBuild(build);
+        MavenProject project = new MavenProject(model);
+        project.setParent(parent);
+        return project;
+    }
+
+    private Plugin compilerPlugin(MavenProject project) {
+        return project.getBuild().getPluginsAsMap().get("org.apache.maven.plugins:maven-compiler-plugin");
+    }
+
+    private List<String> values(Xpp3Dom compilerArgs) {
+        List<String> args = new ArrayList<>();
+        for (Xpp3Dom arg : compilerArgs.getChildren()) {
+            args.add(arg.getValue());
+        }
+        return args;
+    }
+}
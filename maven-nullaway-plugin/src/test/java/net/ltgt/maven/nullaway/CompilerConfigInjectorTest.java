@@ -0,0 +1,300 @@
+package net.ltgt.maven.nullaway;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for CompilerConfigInjector.
+ */
+public class CompilerConfigInjectorTest {
+
+    @Test
+    public void testInjectWithoutConfiguration() throws MojoExecutionException {
+        MavenProject project = createProject();
+        new CompilerConfigInjector(project).injectCompilerArgs(
+                Arrays.asList("-Xep:NullAway:ERROR", "-XepOpt:NullAway:AnnotatedPackages=com.example"));
+
+        assertEquals(Arrays.asList("-Xep:NullAway:ERROR", "-XepOpt:NullAway:AnnotatedPackages=com.example"),
+                compilerArgs(project));
+    }
+
+    @Test
+    public void testMergeIntoErrorProneArg() throws MojoExecutionException {
+        MavenProject project = createProject("-XDcompilePolicy=simple", "-Xplugin:ErrorProne -XepDisableWarningsInGeneratedCode");
+        new CompilerConfigInjector(project).injectCompilerArgs(
+                Arrays.asList("-Xep:NullAway:ERROR", "-XepOpt:NullAway:AnnotatedPackages=com.example"));
+
+        assertEquals(Arrays.asList("-XDcompilePolicy=simple",
+                        "-Xplugin:ErrorProne -XepDisableWarningsInGeneratedCode -Xep:NullAway:ERROR "
+                                + "-XepOpt:NullAway:AnnotatedPackages=com.example"),
+                compilerArgs(project));
+    }
+
+    @Test
+    public void testMergeIsIdempotent() throws MojoExecutionException {
+        MavenProject project = createProject("-XDcompilePolicy=simple", "-Xplugin:ErrorProne");
+        List<String> args = Arrays.asList("-Xep:NullAway:ERROR", "-XepOpt:NullAway:AnnotatedPackages=com.example");
+        new CompilerConfigInjector(project).injectCompilerArgs(args);
+        List<String> first = compilerArgs(project);
+        new CompilerConfigInjector(project).injectCompilerArgs(args);
+        assertEquals("Injecting twice should not change the configuration", first, compilerArgs(project));
+    }
+
+    @Test
+    public void testMergeReplacesPreviousArgs() throws MojoExecutionException {
+        MavenProject project = createProject("-Xep:NullAway:WARN", "-XepOpt:NullAway:AnnotatedPackages=com.old", "-Xlint:all");
+        new CompilerConfigInjector(project).injectCompilerArgs(
+                Arrays.asList("-Xep:NullAway:ERROR", "-XepOpt:NullAway:AnnotatedPackages=com.example"));
+
+        assertEquals(Arrays.asList("-Xlint:all", "-Xep:NullAway:ERROR", "-XepOpt:NullAway:AnnotatedPackages=com.example"),
+                compilerArgs(project));
+    }
+
+    @Test
+    public void testMergeSortsArgs() throws MojoExecutionException {
+        MavenProject project = createProject();
+        new CompilerConfigInjector(project).injectCompilerArgs(Arrays.asList(
+                "-XepOpt:NullAway:JSpecifyMode=true",
+                "-Xep:NullAway:ERROR",
+                "-XepOpt:NullAway:AnnotatedPackages=com.example"));
+
+        assertEquals(Arrays.asList("-Xep:NullAway:ERROR",
+                        "-XepOpt:NullAway:AnnotatedPackages=com.example",
+                        "-XepOpt:NullAway:JSpecifyMode=true"),
+                compilerArgs(project));
+    }
+
+    @Test
+    public void testMergeReplacesQuotedValueWithSpaces() throws MojoExecutionException {
+        MavenProject project = createProject("-Xplugin:ErrorProne "
+                + "-XepOpt:NullAway:AutoFixSuppressionComment=\"TODO: fix  nullness\" -XepDisableWarningsInGeneratedCode");
+        new CompilerConfigInjector(project).injectCompilerArgs(
+                Arrays.asList("-Xep:NullAway:ERROR", "-XepOpt:NullAway:AutoFixSuppressionComment=TODO"));
+
+        assertEquals(Arrays.asList("-Xplugin:ErrorProne -XepDisableWarningsInGeneratedCode -Xep:NullAway:ERROR "
+                        + "-XepOpt:NullAway:AutoFixSuppressionComment=TODO"),
+                compilerArgs(project));
+    }
+
+    @Test
+    public void testMergeRejectsGeneratedValueWithSpaces() {
+        MavenProject project = createProject("-Xplugin:ErrorProne");
+        try {
+            new CompilerConfigInjector(project).injectCompilerArgs(Arrays.asList(
+                    "-Xep:NullAway:ERROR", "-XepOpt:NullAway:AutoFixSuppressionComment=TODO: fix nullness"));
+            fail("javac would split the comment into several Error Prone options");
+        } catch (MojoExecutionException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("AutoFixSuppressionComment=TODO: fix nullness"));
+        }
+        assertEquals(Arrays.asList("-Xplugin:ErrorProne"), compilerArgs(project));
+    }
+
+    @Test
+    public void testInjectValueWithSpacesAsSeparateArg() throws MojoExecutionException {
+        MavenProject project = createProject();
+        new CompilerConfigInjector(project).injectCompilerArgs(
+                Arrays.asList("-XepOpt:NullAway:AutoFixSuppressionComment=TODO: fix nullness"));
+
+        assertEquals(Arrays.asList("-XepOpt:NullAway:AutoFixSuppressionComment=TODO: fix nullness"),
+                compilerArgs(project));
+    }
+
+    @Test
+    public void testTokenize() {
+        assertEquals(Arrays.asList("-Xplugin:ErrorProne", "-XepOpt:A=\"b c\"", "-XepOpt:D='e \\' f'", "\"g\\\"h i\""),
+                CompilerConfigInjector.tokenize(
+                        "  -Xplugin:ErrorProne\t-XepOpt:A=\"b c\"\n-XepOpt:D='e \\' f'  \"g\\\"h i\" "));
+    }
+
+    @Test
+    public void testCanonicalizeLastWins() {
+        assertEquals(Arrays.asList("-Xep:NullAway:OFF", "-XepOpt:NullAway:AnnotatedPackages=com.b"),
+                CompilerConfigInjector.canonicalize(Arrays.asList(
+                        "-Xep:NullAway:ERROR",
+                        "-XepOpt:NullAway:AnnotatedPackages=com.a",
+                        "-Xep:NullAway:OFF",
+                        "-XepOpt:NullAway:AnnotatedPackages=com.b")));
+    }
+
+    @Test
+    public void testMergeExcludedPathsWithUserPattern() throws MojoExecutionException {
+        MavenProject project = createProject("-Xplugin:ErrorProne -XepExcludedPaths:.*/legacy/.*");
+        List<String> args = Arrays.asList("-Xep:NullAway:ERROR", "-XepExcludedPaths:(?<nullaway>.*/gen/.*)");
+        new CompilerConfigInjector(project).injectCompilerArgs(args);
+        new CompilerConfigInjector(project).injectCompilerArgs(args);
+
+        assertEquals(Arrays.asList(
+                        "-Xplugin:ErrorProne -Xep:NullAway:ERROR -XepExcludedPaths:.*/legacy/.*|(?<nullaway>.*/gen/.*)"),
+                compilerArgs(project));
+    }
+
+    @Test
+    public void testMergeRemovesStaleExcludedPaths() throws MojoExecutionException {
+        MavenProject project = createProject("-Xplugin:ErrorProne");
+        new CompilerConfigInjector(project).injectCompilerArgs(
+                Arrays.asList("-Xep:NullAway:ERROR", "-XepExcludedPaths:(?<nullaway>.*/gen/.*)"));
+        new CompilerConfigInjector(project).injectCompilerArgs(Arrays.asList("-Xep:NullAway:OFF"));
+
+        assertEquals(Arrays.asList("-Xplugin:ErrorProne -Xep:NullAway:OFF"), compilerArgs(project));
+    }
+
+    @Test
+    public void testInjectIntoExecution() throws MojoExecutionException {
+        MavenProject project = createProject("-XDcompilePolicy=simple", "-Xplugin:ErrorProne");
+        CompilerConfigInjector injector = new CompilerConfigInjector(project);
+        injector.injectCompilerArgs(Arrays.asList("-Xep:NullAway:ERROR", "-XepOpt:NullAway:HandleTestAssertionLibraries=true"));
+        injector.injectCompilerArgs("default-testCompile", "testCompile", Arrays.asList("-Xep:NullAway:WARN"));
+        injector.injectCompilerArgs("default-testCompile", "testCompile", Arrays.asList("-Xep:NullAway:WARN"));
+
+        Plugin compilerPlugin = project.getBuild().getPluginsAsMap().get("org.apache.maven.plugins:maven-compiler-plugin");
+        assertEquals(1, compilerPlugin.getExecutions().size());
+        PluginExecution execution = compilerPlugin.getExecutions().get(0);
+        assertEquals("default-testCompile", execution.getId());
+        assertEquals(Arrays.asList("testCompile"), execution.getGoals());
+        assertEquals(Arrays.asList("-XDcompilePolicy=simple",
+                        "-Xplugin:ErrorProne -Xep:NullAway:ERROR -XepOpt:NullAway:HandleTestAssertionLibraries=true"),
+                compilerArgs(project));
+
+        // Maven merges the plugin configuration into the execution configuration before running it
+        Xpp3Dom effective = Xpp3Dom.mergeXpp3Dom(new Xpp3Dom((Xpp3Dom) execution.getConfiguration()),
+                new Xpp3Dom((Xpp3Dom) compilerPlugin.getConfiguration()));
+        assertEquals(Arrays.asList("-XDcompilePolicy=simple", "-Xplugin:ErrorProne -Xep:NullAway:WARN"),
+                values(effective.getChild("compilerArgs")));
+    }
+
+    @Test
+    public void testSetCompilerArgInExecution() throws MojoExecutionException {
+        MavenProject project = createProject("-XDcompilePolicy=simple", "-Xplugin:ErrorProne");
+        CompilerConfigInjector injector = new CompilerConfigInjector(project);
+        injector.setCompilerArg("default-compile", "compile", "-Xplugin:NullAwayResultCache", "-Xplugin:NullAwayResultCache a 1");
+        injector.setCompilerArg("default-compile", "compile", "-Xplugin:NullAwayResultCache", "-Xplugin:NullAwayResultCache a 2");
+
+        PluginExecution execution = project.getBuild().getPluginsAsMap()
+                .get("org.apache.maven.plugins:maven-compiler-plugin").getExecutions().get(0);
+        assertEquals("default-compile", execution.getId());
+        assertEquals(Arrays.asList("-XDcompilePolicy=simple", "-Xplugin:ErrorProne", "-Xplugin:NullAwayResultCache a 2"),
+                values(((Xpp3Dom) execution.getConfiguration()).getChild("compilerArgs")));
+        assertEquals("The plugin-level arguments should be left alone",
+                Arrays.asList("-XDcompilePolicy=simple", "-Xplugin:ErrorProne"), compilerArgs(project));
+    }
+
+    @Test
+    public void testAppendMode() throws MojoExecutionException {
+        MavenProject project = createProject("-Xep:NullAway:WARN");
+        new CompilerConfigInjector(project, false).injectCompilerArgs(Arrays.asList("-Xep:NullAway:ERROR"));
+
+        assertEquals(Arrays.asList("-Xep:NullAway:WARN", "-Xep:NullAway:ERROR"), compilerArgs(project));
+    }
+
+    @Test
+    public void testAddProcessorPath() {
+        MavenProject project = createProject("-Xplugin:ErrorProne");
+        CompilerConfigInjector injector = new CompilerConfigInjector(project);
+        assertFalse("No processor path to add to", injector.addProcessorPath("com.example", "models", "1.0"));
+
+        Xpp3Dom processorPaths = new Xpp3Dom("annotationProcessorPaths");
+        ((Xpp3Dom) project.getBuild().getPluginsAsMap().get("org.apache.maven.plugins:maven-compiler-plugin")
+                .getConfiguration()).addChild(processorPaths);
+        assertTrue(injector.addProcessorPath("com.uber.nullaway", "nullaway", "0.12.3"));
+        assertTrue(injector.addProcessorPath("com.example", "models", "1.0"));
+        assertTrue(injector.addProcessorPath("com.example", "models", "1.0"));
+
+        assertEquals(Arrays.asList("com.uber.nullaway:nullaway:0.12.3", "com.example:models:1.0"),
+                injector.findProcessorPathCoordinates());
+        assertEquals("0.12.3", injector.findProcessorPathVersion("com.uber.nullaway", "nullaway"));
+        assertNull(injector.findProcessorPathVersion("com.uber.nullaway", "jar-infer-cli"));
+    }
+
+    @Test
+    public void testInjectProcessorPath() throws MojoExecutionException {
+        MavenProject project = createProject();
+        CompilerConfigInjector injector = new CompilerConfigInjector(project);
+        injector.injectProcessorPath(Arrays.asList("com.google.errorprone:error_prone_core:2.36.0"));
+        injector.addProcessorPath("org.projectlombok", "lombok", "1.18.36");
+
+        injector.injectProcessorPath(Arrays.asList(
+                "com.google.errorprone:error_prone_core:2.45.0", "com.uber.nullaway:nullaway:0.12.14"));
+
+        assertEquals(Arrays.asList("com.google.errorprone:error_prone_core:2.45.0", "org.projectlombok:lombok:1.18.36",
+                "com.uber.nullaway:nullaway:0.12.14"), injector.findProcessorPathCoordinates());
+    }
+
+    @Test
+    public void testAlignProcessorPath() {
+        assertEquals(Arrays.asList("com.google.errorprone:error_prone_core:2.45.0", "org.projectlombok:lombok:1.18.36",
+                        "com.uber.nullaway:nullaway:0.12.14"),
+                CompilerConfigInjector.alignProcessorPath(
+                        Arrays.asList("com.google.errorprone:error_prone_core:2.36.0", "org.projectlombok:lombok:1.18.36"),
+                        Arrays.asList("com.google.errorprone:error_prone_core:2.45.0", "com.uber.nullaway:nullaway:0.12.14")));
+    }
+
+    @Test
+    public void testEnsureCompilerArgs() throws MojoExecutionException {
+        MavenProject project = createProject("-XDcompilePolicy=byfile", "-Xplugin:ErrorProne -Xep:NullAway:ERROR");
+        CompilerConfigInjector injector = new CompilerConfigInjector(project);
+        List<String> required = Arrays.asList("-XDcompilePolicy=simple", "--should-stop=ifError=FLOW", "-Xplugin:ErrorProne");
+
+        injector.ensureCompilerArgs(required);
+        injector.ensureCompilerArgs(required);
+
+        assertEquals(Arrays.asList("-XDcompilePolicy=byfile", "-Xplugin:ErrorProne -Xep:NullAway:ERROR",
+                "--should-stop=ifError=FLOW"), compilerArgs(project));
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void testMissingCompilerPlugin() throws MojoExecutionException {
+        Model model = new Model();
+        model.setBuild(new Build());
+        new CompilerConfigInjector(new MavenProject(model)).injectCompilerArgs(Arrays.asList("-Xep:NullAway"));
+    }
+
+    // Helper methods
+
+    private MavenProject createProject(String... existingArgs) {
+        Plugin compilerPlugin = new Plugin();
+        compilerPlugin.setGroupId("org.apache.maven.plugins");
+        compilerPlugin.setArtifactId("maven-compiler-plugin");
+        if (existingArgs.length > 0) {
+            Xpp3Dom configuration = new Xpp3Dom("configuration");
+            Xpp3Dom compilerArgs = new Xpp3Dom("compilerArgs");
+            for (String arg : existingArgs) {
+                Xpp3Dom argNode = new Xpp3Dom("arg");
+                argNode.setValue(arg);
+                compilerArgs.addChild(argNode);
+            }
+            configuration.addChild(compilerArgs);
+            compilerPlugin.setConfiguration(configuration);
+        }
+
+        Build build = new Build();
+        build.addPlugin(compilerPlugin);
+        Model model = new Model();
+        model.setBuild(build);
+        return new MavenProject(model);
+    }
+
+    private List<String> compilerArgs(MavenProject project) {
+        Plugin compilerPlugin = project.getBuild().getPluginsAsMap().get("org.apache.maven.plugins:maven-compiler-plugin");
+        return values(((Xpp3Dom) compilerPlugin.getConfiguration()).getChild("compilerArgs"));
+    }
+
+    private List<String> values(Xpp3Dom compilerArgs) {
+        List<String> args = new ArrayList<>();
+        for (Xpp3Dom arg : compilerArgs.getChildren()) {
+            args.add(arg.getValue());
+        }
+        return args;
+    }
+}
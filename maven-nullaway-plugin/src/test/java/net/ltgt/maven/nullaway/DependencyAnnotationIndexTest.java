@@ -0,0 +1,197 @@
+package net.ltgt.maven.nullaway;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for DependencyAnnotationIndex.
+ */
+public class DependencyAnnotationIndexTest {
+    private static final String NULL_MARKED_PACKAGE_INFO =
+            "\u00ca\u00fe\u00ba\u00bepackage-info\u0000Lorg/jspecify/annotations/NullMarked;";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testFindsCatalogAnnotations() throws IOException {
+        File jsr305 = jar("jsr305.jar",
+                "javax/annotation/CheckForNull.class", "",
+                "javax/annotation/Nullable.class", "",
+                "javax/annotation/PostConstruct.class", "");
+        File checkerCompat = jar("checker-compat-qual.jar",
+                "org/checkerframework/checker/nullness/compatqual/NullableType.class", "");
+        File mockito = jar("mockito.jar",
+                "org/mockito/Mock.class", "",
+                "org/mockito/Mockito.class", "");
+        File checker = jar("checker-qual.jar",
+                "org/checkerframework/checker/nullness/util/NullnessUtil.class", "");
+
+        DependencyAnnotationIndex.Result result = new DependencyAnnotationIndex(null)
+                .index(Arrays.asList(jsr305, checkerCompat, mockito, checker, temp.newFolder("classes")));
+
+        assertEquals(Collections.singletonList("org.checkerframework.checker.nullness.compatqual.NullableType"),
+                result.getAnnotations("customNullableAnnotations"));
+        assertEquals(Collections.singletonList("javax.annotation.PostConstruct"),
+                result.getAnnotations("customInitializerAnnotations"));
+        assertEquals(Collections.singletonList("org.mockito.Mock"),
+                result.getAnnotations("excludedFieldAnnotations"));
+        assertTrue(result.getAnnotations("excludedClassAnnotations").isEmpty());
+        assertEquals("org.checkerframework.checker.nullness.util.NullnessUtil.castNonNull",
+                result.getCastToNonNullMethod());
+    }
+
+    @Test
+    public void testSkipsNullAwayDefaults() throws IOException {
+        // Annotations that NullAway recognizes without configuration
+        File jar = jar("defaults.jar",
+                "javax/annotation/Nullable.class", "",
+                "javax/annotation/CheckForNull.class", "",
+                "edu/umd/cs/findbugs/annotations/CheckForNull.class", "",
+                "org/checkerframework/checker/nullness/qual/Nullable.class", "",
+                "org/checkerframework/checker/nullness/compatqual/NullableDecl.class", "",
+                "org/junit/Before.class", "",
+                "org/junit/BeforeClass.class", "",
+                "org/junit/jupiter/api/BeforeEach.class", "",
+                "org/junit/jupiter/api/BeforeAll.class", "",
+                "javax/inject/Inject.class", "",
+                "jakarta/inject/Inject.class", "");
+
+        DependencyAnnotationIndex.Result result = new DependencyAnnotationIndex(null)
+                .index(Collections.singletonList(jar));
+
+        assertTrue(result.getOptions().isEmpty());
+        assertNull(result.getCastToNonNullMethod());
+    }
+
+    @Test
+    public void testFindsNullMarkedPackages() throws IOException {
+        File jar = jar("lib.jar",
+                "com/example/package-info.class", NULL_MARKED_PACKAGE_INFO,
+                "com/example/internal/package-info.class", "\u00ca\u00fe\u00ba\u00bepackage-info\u0000Ljava/lang/Deprecated;",
+                "com/example/A.class", "Lorg/jspecify/annotations/NullMarked;");
+
+        DependencyAnnotationIndex.Result result = new DependencyAnnotationIndex(null)
+                .index(Collections.singletonList(jar));
+
+        assertEquals(Collections.singletonList("com.example"), result.getNullMarkedPackages());
+        assertTrue(result.getOptions().isEmpty());
+        assertNull(result.getCastToNonNullMethod());
+    }
+
+    @Test
+    public void testCachesByChecksum() throws IOException {
+        File cacheDirectory = new File(temp.getRoot(), "cache");
+        File first = jar("first/lib.jar", "javax/annotation/PostConstruct.class", "");
+        File second = jar("second/lib.jar", "javax/annotation/PostConstruct.class", "");
+
+        DependencyAnnotationIndex index = new DependencyAnnotationIndex(cacheDirectory);
+        index.index(Collections.singletonList(first));
+        assertEquals(1, index.getIndexedJars());
+        assertEquals(1, cacheDirectory.list().length);
+
+        // Same content at another path: found in the cache shared by all builds
+        index = new DependencyAnnotationIndex(cacheDirectory);
+        DependencyAnnotationIndex.Result result = index.index(Collections.singletonList(second));
+        assertEquals(0, index.getIndexedJars());
+        assertEquals(1, index.getCachedJars());
+        assertEquals(Collections.singletonList("javax.annotation.PostConstruct"),
+                result.getAnnotations("customInitializerAnnotations"));
+    }
+
+    @Test
+    public void testSharesFactsThroughMemoryCache() throws IOException {
+        File jar = jar("lib.jar", "javax/annotation/PostConstruct.class", "");
+        Map<String, DependencyAnnotationIndex.JarFacts> memoryCache = new ConcurrentHashMap<>();
+
+        DependencyAnnotationIndex index = new DependencyAnnotationIndex(null, memoryCache);
+        index.index(Collections.singletonList(jar));
+        assertEquals(1, index.getIndexedJars());
+        assertEquals(1, memoryCache.size());
+
+        index = new DependencyAnnotationIndex(null, memoryCache);
+        index.index(Collections.singletonList(jar));
+        assertEquals(0, index.getIndexedJars());
+        assertEquals(1, index.getCachedJars());
+
+        // Without a shared cache, the jar is read again
+        index = new DependencyAnnotationIndex(null);
+        index.index(Collections.singletonList(jar));
+        assertEquals(1, index.getIndexedJars());
+    }
+
+    @Test
+    public void testSha1FromChecksumFile() throws IOException {
+        File jar = jar("lib.jar", "javax/annotation/CheckForNull.class", "");
+        String computed = DependencyAnnotationIndex.sha1(jar);
+        assertTrue(computed.matches("[0-9a-f]{40}"));
+
+        String recorded = "0123456789abcdef0123456789abcdef01234567";
+        write(new File(jar.getPath() + ".sha1"), recorded.toUpperCase() + "  lib.jar\n");
+        assertEquals(recorded, DependencyAnnotationIndex.sha1(jar));
+
+        write(new File(jar.getPath() + ".sha1"), "<html>not found</html>");
+        assertEquals(computed, DependencyAnnotationIndex.sha1(jar));
+    }
+
+    @Test
+    public void testSha1IgnoresStaleChecksumFile() throws IOException {
+        File checksum = new File(temp.getRoot(), "lib-1.0.jar.sha1");
+        write(checksum, "0123456789abcdef0123456789abcdef01234567\n");
+        // A release jar modified after its checksum was downloaded
+        File jar = jar("lib-1.0.jar", "javax/annotation/CheckForNull.class", "");
+        assertTrue(checksum.setLastModified(jar.lastModified() - 10_000));
+        assertNotEquals("0123456789abcdef0123456789abcdef01234567", DependencyAnnotationIndex.sha1(jar));
+    }
+
+    @Test
+    public void testSha1IgnoresSnapshotChecksumFile() throws IOException {
+        for (String name : new String[] {"lib-1.0-SNAPSHOT.jar", "lib-1.0-20260101.120000-3.jar"}) {
+            File jar = jar(name, "javax/annotation/CheckForNull.class", "");
+            String computed = DependencyAnnotationIndex.sha1(jar);
+            // A snapshot re-installed in place keeps the checksum file of a previous install
+            File checksum = new File(jar.getPath() + ".sha1");
+            write(checksum, "0123456789abcdef0123456789abcdef01234567\n");
+            assertTrue(checksum.setLastModified(jar.lastModified() + 10_000));
+            assertEquals(name, computed, DependencyAnnotationIndex.sha1(jar));
+        }
+    }
+
+    // Helper methods
+
+    private File jar(String path, String... entries) throws IOException {
+        File jar = new File(temp.getRoot(), path);
+        Files.createDirectories(jar.getParentFile().toPath());
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar.toPath()))) {
+            for (int i = 0; i < entries.length; i += 2) {
+                ZipEntry entry = new ZipEntry(entries[i]);
+                entry.setTime(0);
+                out.putNextEntry(entry);
+                out.write(entries[i + 1].getBytes(StandardCharsets.ISO_8859_1));
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    private void write(File file, String content) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            out.write(content.getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package net.ltgt.maven.nullaway;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ExcludedPaths.
+ */
+public class ExcludedPathsTest {
+    private static final File BASEDIR = new File("/work/service");
+
+    @Test
+    public void testEmpty() {
+        ExcludedPaths paths = new ExcludedPaths(BASEDIR).addGlob(" ");
+        assertTrue(paths.isEmpty());
+        assertNull(paths.toPattern());
+        assertNull(paths.toArgument());
+    }
+
+    @Test
+    public void testMergesCommonPrefixes() {
+        String pattern = new ExcludedPaths(BASEDIR)
+                .addDirectory(new File(BASEDIR, "target/generated-sources/protobuf/java"))
+                .addDirectory(new File(BASEDIR, "target/generated-sources/protobuf/grpc-java"))
+                .addDirectory(new File(BASEDIR, "target/generated-sources/openapi"))
+                .toPattern();
+
+        assertEquals("(?:.*/)?target/generated\\-sources/(?:openapi/.*|protobuf/(?:grpc\\-java/.*|java/.*))", pattern);
+    }
+
+    @Test
+    public void testEnclosingDirectorySubsumesNestedOnes() {
+        String nestedFirst = new ExcludedPaths(BASEDIR)
+                .addDirectory(new File(BASEDIR, "target/generated-sources/annotations"))
+                .addDirectory(new File(BASEDIR, "target/generated-sources"))
+                .toPattern();
+        String nestedLast = new ExcludedPaths(BASEDIR)
+                .addDirectory(new File(BASEDIR, "target/generated-sources"))
+                .addDirectory(new File(BASEDIR, "target/generated-sources/annotations"))
+                .toPattern();
+
+        assertEquals("(?:.*/)?target/generated\\-sources/.*", nestedFirst);
+        assertEquals(nestedFirst, nestedLast);
+    }
+
+    @Test
+    public void testExcludesFiles() {
+        Pattern pattern = Pattern.compile(new ExcludedPaths(BASEDIR)
+                .addFile(new File(BASEDIR, "src/main/java/com/example/A.java"))
+                .addFile(new File(BASEDIR, "src/main/java/com/example/B.java"))
+                .toPattern());
+
+        assertEquals("(?:.*/)?src/main/java/com/example/(?:A\\.java|B\\.java)", pattern.pattern());
+        assertTrue(pattern.matcher("/work/service/src/main/java/com/example/A.java").matches());
+        assertFalse(pattern.matcher("/work/service/src/main/java/com/example/AB.java").matches());
+        assertFalse(pattern.matcher("/work/service/src/main/java/com/example/C.java").matches());
+    }
+
+    @Test
+    public void testMatches() {
+        Pattern pattern = Pattern.compile(new ExcludedPaths(BASEDIR)
+                .addDirectory(new File(BASEDIR, "target/generated-sources"))
+                .addDirectory(new File("/opt/shared gen"))
+                .addGlob("**/generated/**")
+                .addGlob("src/main/java/com/example/*Proto.java")
+                .toPattern());
+
+        assertTrue(pattern.matcher("/work/service/target/generated-sources/annotations/com/example/A.java").matches());
+        assertTrue(pattern.matcher("/opt/shared gen/com/example/B.java").matches());
+        assertTrue(pattern.matcher("/work/service/src/main/java/com/generated/C.java").matches());
+        assertTrue(pattern.matcher("/work/service/src/main/java/com/example/UserProto.java").matches());
+        assertFalse(pattern.matcher("/work/service/src/main/java/com/example/User.java").matches());
+        assertFalse(pattern.matcher("/work/service/src/main/java/com/example/sub/UserProto.java").matches());
+        assertFalse(pattern.matcher("/work/service/src/main/java/com/generatedx/D.java").matches());
+    }
+
+    @Test
+    public void testPatternHasNoWhitespace() {
+        String argument = new ExcludedPaths(BASEDIR).addDirectory(new File("/opt/shared gen")).toArgument();
+        assertEquals("-XepExcludedPaths:(?<nullaway>/opt/shared\\x20gen/.*)", argument);
+        assertTrue(Pattern.compile(argument.substring(ExcludedPaths.ARG_PREFIX.length()))
+                .matcher("/opt/shared gen/A.java").matches());
+    }
+
+    @Test
+    public void testMerge() {
+        String generated = "(?<nullaway>.*/gen/.*)";
+        assertEquals(generated, ExcludedPaths.merge(null, generated));
+        assertEquals(".*/legacy/.*|" + generated, ExcludedPaths.merge(".*/legacy/.*", generated));
+        assertEquals(".*/legacy/.*|" + generated, ExcludedPaths.merge(".*/legacy/.*|(?<nullaway>.*/old/.*)", generated));
+        assertEquals(generated, ExcludedPaths.merge("(?<nullaway>.*/old/.*)", generated));
+        assertEquals(".*/legacy/.*", ExcludedPaths.merge(".*/legacy/.*|(?<nullaway>.*/old/.*)", null));
+        assertNull(ExcludedPaths.merge("(?<nullaway>.*/old/.*)", null));
+    }
+}
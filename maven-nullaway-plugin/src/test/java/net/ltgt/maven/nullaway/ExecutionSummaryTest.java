@@ -0,0 +1,114 @@
+package net.ltgt.maven.nullaway;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ExecutionSummary.
+ */
+public class ExecutionSummaryTest {
+    private static final List<String> ARGUMENTS = Arrays.asList("-Xep:NullAway:ERROR",
+            "-XepOpt:NullAway:AnnotatedPackages=com.example");
+
+    @Test
+    public void testModulesShareArgumentSets() {
+        ExecutionSummary summary = new ExecutionSummary();
+        String a = summary.recordArguments("g:a", ARGUMENTS);
+        String b = summary.recordArguments("g:b", new ArrayList<>(ARGUMENTS));
+        String c = summary.recordArguments("g:c", Collections.singletonList("-Xep:NullAway:WARN"));
+
+        assertEquals(a, b);
+        assertNotEquals(a, c);
+        assertEquals(8, a.length());
+        assertEquals(a, summary.getArgumentSet("g:b"));
+        assertNull(summary.getArgumentSet("g:d"));
+    }
+
+    @Test
+    public void testFormatListsSlowestThenNoisiest() {
+        ExecutionSummary summary = new ExecutionSummary();
+        String id = summary.recordArguments("g:a", ARGUMENTS);
+        summary.recordArguments("g:b", ARGUMENTS);
+        summary.record(new ExecutionSummary.Execution("g:a", "configure", id, 5, -1, -1));
+        summary.record(new ExecutionSummary.Execution("g:a", "compiler:compile", id, 2500, -1, -1));
+        summary.record(new ExecutionSummary.Execution("g:b", "check", id, 900, 1, 7));
+        summary.record(new ExecutionSummary.Execution("g:c", "check", id, 1200, 3, 0));
+
+        List<String> lines = summary.format();
+
+        assertEquals("NullAway ran 4 executions in 3 modules, with 1 argument sets", lines.get(0));
+        assertEquals("Slowest:", lines.get(1));
+        assertTrue(lines.get(2), lines.get(2).matches(" +2,500 ms  compiler:compile +g:a  \\[" + id + "]"));
+        assertTrue(lines.get(3), lines.get(3).contains("g:c"));
+        assertTrue(lines.get(4), lines.get(4).contains("g:b"));
+        assertTrue(lines.get(5), lines.get(5).contains("configure"));
+        assertEquals("Most findings:", lines.get(6));
+        assertTrue(lines.get(7), lines.get(7).matches(" +1 errors +7 warnings  check +g:b"));
+        assertTrue(lines.get(8), lines.get(8).matches(" +3 errors +0 warnings  check +g:c"));
+        assertEquals("Argument sets:", lines.get(9));
+        assertEquals("  [" + id + "] 2 arguments, 2 modules", lines.get(10));
+        assertEquals(11, lines.size());
+    }
+
+    @Test
+    public void testToJson() {
+        ExecutionSummary summary = new ExecutionSummary();
+        String id = summary.recordArguments("g:a", Collections.singletonList("-XepOpt:NullAway:X=\"a\\b\""));
+        summary.record(new ExecutionSummary.Execution("g:a", "configure", id, 5, -1, -1));
+        summary.record(new ExecutionSummary.Execution("g:a", "check", id, 10, 2, 1));
+        summary.record(new ExecutionSummary.Execution("g:b", "check", null, 1, 0, 0));
+
+        assertEquals("{\"executions\":[" +
+                        "{\"module\":\"g:a\",\"goal\":\"check\",\"argumentSet\":\"" + id + "\",\"durationMillis\":10,\"errors\":2,\"warnings\":1}," +
+                        "{\"module\":\"g:a\",\"goal\":\"configure\",\"argumentSet\":\"" + id + "\",\"durationMillis\":5}," +
+                        "{\"module\":\"g:b\",\"goal\":\"check\",\"argumentSet\":null,\"durationMillis\":1,\"errors\":0,\"warnings\":0}]," +
+                        "\"argumentSets\":{\"" + id + "\":[\"-XepOpt:NullAway:X=\\\"a\\\\b\\\"\"]}}\n",
+                summary.toJson());
+    }
+
+    @Test
+    public void testConcurrentRecordsAreAllKept() throws Exception {
+        ExecutionSummary summary = new ExecutionSummary();
+        int threads = 8;
+        int modules = 500;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < modules; i++) {
+                        String module = "g:m" + thread + "-" + i;
+                        String id = summary.recordArguments(module, i % 2 == 0 ? ARGUMENTS : Collections.<String>emptyList());
+                        summary.record(new ExecutionSummary.Execution(module, "configure", id, i, -1, -1));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<String> lines = summary.format();
+        assertEquals("NullAway ran " + threads * modules + " executions in " + threads * modules +
+                " modules, with 2 argument sets", lines.get(0));
+        assertTrue(lines.contains("  [" + ExecutionSummary.argumentSetId(ARGUMENTS) + "] 2 arguments, " +
+                threads * modules / 2 + " modules"));
+    }
+}
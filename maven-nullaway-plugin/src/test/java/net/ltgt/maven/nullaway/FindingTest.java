@@ -0,0 +1,46 @@
+package net.ltgt.maven.nullaway;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for Finding.
+ */
+public class FindingTest {
+
+    @Test
+    public void testFormat() {
+        Finding finding = new Finding(Finding.Kind.ERROR, "/src/Foo.java", 12, 5, "[NullAway] dereferenced expression");
+        assertEquals("/src/Foo.java:[12,5] [NullAway] dereferenced expression", finding.format());
+    }
+
+    @Test
+    public void testEncodeDecode() {
+        Finding finding = new Finding(Finding.Kind.WARNING, "/src/Foo.java", 3, 7, "first line\n  second \\ line");
+        Finding decoded = Finding.decode(finding.encode());
+        assertEquals(finding, decoded);
+        assertEquals("first line\n  second \\ line", decoded.getMessage());
+        assertFalse("Encoded finding should fit on one line", finding.encode().contains("\n"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeInvalid() {
+        Finding.decode("not a finding");
+    }
+
+    @Test
+    public void testOrder() {
+        Finding a = new Finding(Finding.Kind.ERROR, "A.java", 10, 1, "m");
+        Finding b = new Finding(Finding.Kind.ERROR, "A.java", 2, 1, "m");
+        Finding c = new Finding(Finding.Kind.ERROR, "B.java", 1, 1, "m");
+        List<Finding> findings = new ArrayList<>(Arrays.asList(c, a, b));
+        Collections.sort(findings);
+        assertEquals(Arrays.asList(b, a, c), findings);
+    }
+}
@@ -0,0 +1,99 @@
+package net.ltgt.maven.nullaway;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for GitChangedFiles, against a scratch git repository.
+ */
+public class GitChangedFilesTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File repo;
+
+    @Before
+    public void setUp() throws Exception {
+        repo = temp.newFolder("repo");
+        Assume.assumeTrue("git is not available", git("init", "-q", "-b", "main"));
+        git("config", "user.email", "test@example.com");
+        git("config", "user.name", "Test");
+        write("src/Unchanged.java", "class Unchanged {}");
+        write("src/Modified.java", "class Modified {}");
+        write("src/Deleted.java", "class Deleted {}");
+        git("add", ".");
+        git("commit", "-q", "-m", "base");
+        git("checkout", "-q", "-b", "feature");
+    }
+
+    @Test
+    public void testChangedSince() throws Exception {
+        write("src/Committed.java", "class Committed {}");
+        git("add", ".");
+        git("commit", "-q", "-m", "feature");
+        write("src/Modified.java", "class Modified { int i; }");
+        write("src/Untracked.java", "class Untracked {}");
+        assertTrue(new File(repo, "src/Deleted.java").delete());
+
+        Set<File> changed = new GitChangedFiles(repo).changedSince("main");
+        assertEquals(new HashSet<>(Arrays.asList(
+                canonical("src/Committed.java"), canonical("src/Modified.java"), canonical("src/Untracked.java"))),
+                changed);
+    }
+
+    @Test
+    public void testIgnoresChangesOnBaseBranch() throws Exception {
+        git("checkout", "-q", "main");
+        write("src/Unchanged.java", "class Unchanged { int i; }");
+        git("commit", "-q", "-am", "main moved on");
+        git("checkout", "-q", "feature");
+
+        assertTrue(new GitChangedFiles(repo).changedSince("main").isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnknownRef() throws Exception {
+        new GitChangedFiles(repo).changedSince("does-not-exist");
+    }
+
+    // Helper methods
+
+    private boolean git(String... args) throws Exception {
+        String[] command = new String[args.length + 1];
+        command[0] = "git";
+        System.arraycopy(args, 0, command, 1, args.length);
+        try {
+            Process process = new ProcessBuilder(command).directory(repo).redirectErrorStream(true).start();
+            while (process.getInputStream().read() != -1) {
+                // discard output
+            }
+            return process.waitFor() == 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void write(String path, String content) throws IOException {
+        File file = new File(repo, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private File canonical(String path) throws IOException {
+        return new File(repo, path).getCanonicalFile();
+    }
+}
@@ -0,0 +1,65 @@
+package net.ltgt.maven.nullaway;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for InProcessAnalyzer.
+ */
+public class InProcessAnalyzerTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testOptionsStopAfterFlow() {
+        List<String> options = InProcessAnalyzer.buildOptions(new AnalysisRequest());
+        assertTrue(options.contains("-XDcompilePolicy=simple"));
+        assertTrue(options.contains("-XDshould-stop.ifError=FLOW"));
+        assertTrue(options.contains("-XDshould-stop.ifNoError=FLOW"));
+    }
+
+    @Test
+    public void testOptionsGenerateClasses() {
+        List<String> options = InProcessAnalyzer.buildOptions(new AnalysisRequest().setGenerateClasses(true));
+        assertTrue(options.contains("-XDshould-stop.ifError=FLOW"));
+        assertFalse(options.contains("-XDshould-stop.ifNoError=FLOW"));
+    }
+
+    @Test
+    public void testOptionsOnlyEnableNullAway() {
+        List<String> options = InProcessAnalyzer.buildOptions(new AnalysisRequest()
+                .setCompilerOptions(Arrays.asList("--release", "8"))
+                .setErrorProneArgs(Arrays.asList("-Xep:NullAway:ERROR", "-XepOpt:NullAway:AnnotatedPackages=com.example")));
+        assertEquals("-Xplugin:ErrorProne -XepDisableAllChecks -Xep:NullAway:ERROR -XepOpt:NullAway:AnnotatedPackages=com.example",
+                options.get(options.size() - 1));
+        assertTrue(options.containsAll(Arrays.asList("--release", "8")));
+    }
+
+    @Test
+    public void testMissingErrorProneIsReported() throws IOException {
+        File sources = temp.newFolder("src");
+        File source = new File(sources, "Foo.java");
+        Files.write(source.toPath(), "class Foo {}".getBytes(StandardCharsets.UTF_8));
+        File output = temp.newFolder("out");
+
+        List<Finding> findings = new InProcessAnalyzer().analyze(new AnalysisRequest()
+                .setSourceFiles(Collections.singletonList(source))
+                .setOutputDirectory(output));
+
+        assertFalse("Missing Error Prone should be reported", findings.isEmpty());
+        assertEquals(Finding.Kind.ERROR, findings.get(0).getKind());
+        assertFalse("No class file should be written", new File(output, "Foo.class").exists());
+    }
+}
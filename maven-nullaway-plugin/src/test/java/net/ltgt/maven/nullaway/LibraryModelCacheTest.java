@@ -0,0 +1,191 @@
+package net.ltgt.maven.nullaway;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Unit tests for LibraryModelCache.
+ */
+public class LibraryModelCacheTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testStoreAndFind() throws IOException {
+        File jar = write("lib-1.0.jar", "jar content");
+        File astubx = write("lib.astubx", "model");
+        LibraryModelCache cache = new LibraryModelCache(new File(temp.getRoot(), "cache"));
+        assertNull(cache.find(jar, "0.12.3"));
+
+        File model = cache.store(jar, "0.12.3", astubx);
+
+        String sha1 = DependencyAnnotationIndex.sha1(jar);
+        assertEquals(new File(temp.getRoot(), "cache/" + sha1.substring(0, 2) + "/" + sha1 + "-nullaway-0.12.3-models.jar"), model);
+        assertEquals(model, cache.find(jar, "0.12.3"));
+        assertNull("Models are specific to a NullAway version", cache.find(jar, "0.12.4"));
+        try (ZipFile zip = new ZipFile(model)) {
+            assertEquals(4, zip.size());
+            assertEquals(5, zip.getEntry(LibraryModelCache.MODEL_DIRECTORY + sha1 + ".astubx").getSize());
+            assertEquals("/" + LibraryModelCache.MODEL_DIRECTORY + sha1 + ".astubx\n",
+                    read(zip, InferredModelProvider.INDEX));
+            assertEquals("net.ltgt.maven.nullaway.InferredModelProvider\n",
+                    read(zip, "META-INF/services/com.uber.nullaway.jarinfer.JarInferStubxProvider"));
+            assertNotNull(zip.getEntry("net/ltgt/maven/nullaway/InferredModelProvider.class"));
+        }
+        assertEquals(1, model.getParentFile().list().length);
+    }
+
+    @Test
+    public void testKeyedByContent() throws IOException {
+        File jar = write("a/lib-1.0.jar", "jar content");
+        File copy = write("b/lib-1.0.jar", "jar content");
+        File other = write("c/lib-1.0.jar", "other content");
+        LibraryModelCache cache = new LibraryModelCache(new File(temp.getRoot(), "cache"));
+
+        File model = cache.store(jar, "0.12.3", write("lib.astubx", "model"));
+
+        assertEquals(model, cache.find(copy, "0.12.3"));
+        assertNull(cache.find(other, "0.12.3"));
+    }
+
+    @Test
+    public void testModelChangesNullAwayFinding() throws Exception {
+        String processorPath = System.getProperty("nullaway.test.processorPath");
+        assumeTrue("Run by Maven, with Error Prone on the test processor path",
+                processorPath != null && !processorPath.isEmpty() && !processorPath.startsWith("${"));
+        File javac = new File(System.getProperty("java.home"), "bin/javac");
+        assumeTrue(javac.isFile());
+
+        // An unannotated library that dereferences its parameter
+        File libraryClasses = temp.newFolder("lib-classes");
+        File librarySource = write("lib-src/lib/Lib.java",
+                "package lib; public class Lib { public static int use(Object o) { return o.hashCode(); } }");
+        assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null,
+                "-d", libraryClasses.getPath(), librarySource.getPath()));
+        File library = new File(temp.getRoot(), "lib-1.0.jar");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(library.toPath()))) {
+            out.putNextEntry(new ZipEntry("lib/Lib.class"));
+            out.write(Files.readAllBytes(new File(libraryClasses, "lib/Lib.class").toPath()));
+            out.closeEntry();
+        }
+        File source = write("src/app/App.java",
+                "package app; class App { int f() { return lib.Lib.use(null); } }");
+
+        assertEquals("Unannotated code accepts null", 0,
+                compileWithNullAway(javac, processorPath, library, source).exitCode);
+
+        // The model JarInfer would infer: the parameter of Lib.use is non-null
+        LibraryModelCache cache = new LibraryModelCache(new File(temp.getRoot(), "cache"));
+        File model = cache.store(library, "0.12.14", astubx("lib.Lib:int use(java.lang.Object)", 0));
+        Compilation compilation = compileWithNullAway(javac, processorPath + File.pathSeparator + model.getPath(),
+                library, source);
+        assertNotEquals(compilation.output, 0, compilation.exitCode);
+        assertTrue(compilation.output, compilation.output.contains("[NullAway] passing @Nullable parameter"));
+    }
+
+    // Helper methods
+
+    /**
+     * Writes a JarInfer model marking a single parameter non-null, in the format read by NullAway.
+     */
+    private File astubx(String method, int parameter) throws IOException {
+        File astubx = new File(temp.getRoot(), "lib.astubx");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(astubx.toPath()))) {
+            out.writeInt(0x1CB8D2D2);
+            // Strings
+            out.writeInt(2);
+            out.writeUTF(method);
+            out.writeUTF("javax.annotation.Nonnull");
+            // Imported annotations, class annotations and method return annotations
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeInt(0);
+            // Parameter annotations
+            out.writeInt(1);
+            out.writeInt(0);
+            out.writeInt(parameter);
+            out.writeInt(1);
+            // NullMarked classes and type variable upper bounds
+            out.writeInt(0);
+            out.writeInt(0);
+        }
+        return astubx;
+    }
+
+    private Compilation compileWithNullAway(File javac, String processorPath, File classpath, File source)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(javac.getPath());
+        for (String arg : WorkerClient.JDK_EXPORTS) {
+            command.add("-J" + arg);
+        }
+        command.addAll(Arrays.asList(
+                "-d", temp.newFolder().getPath(),
+                "-cp", classpath.getPath(),
+                "-processorpath", processorPath,
+                "-XDcompilePolicy=simple",
+                "--should-stop=ifError=FLOW",
+                "-Xplugin:ErrorProne -XepDisableAllChecks -Xep:NullAway:ERROR "
+                        + "-XepOpt:NullAway:AnnotatedPackages=app -XepOpt:NullAway:JarInferEnabled=true",
+                source.getPath()));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        process.getOutputStream().close();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        try (InputStream in = process.getInputStream()) {
+            while ((read = in.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+        }
+        return new Compilation(process.waitFor(), new String(output.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private static String read(ZipFile zip, String name) throws IOException {
+        try (InputStream in = zip.getInputStream(zip.getEntry(name))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static class Compilation {
+        final int exitCode;
+        final String output;
+
+        Compilation(int exitCode, String output) {
+            this.exitCode = exitCode;
+            this.output = output;
+        }
+    }
+
+    private File write(String path, String content) throws IOException {
+        File file = new File(temp.getRoot(), path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
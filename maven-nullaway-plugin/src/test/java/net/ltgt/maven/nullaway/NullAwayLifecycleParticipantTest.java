@@ -0,0 +1,185 @@
+package net.ltgt.maven.nullaway;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for NullAwayLifecycleParticipant.
+ */
+public class NullAwayLifecycleParticipantTest {
+
+    @Test
+    public void testListsConfigureExecutionsInOrder() {
+        MavenProject first = createProject("first", createPlugin(configuration("ERROR"),
+                execution("nullaway-check", "check"), execution("nullaway", "configure"),
+                execution("nullaway-tests", "configure")));
+        MavenProject withoutPlugin = createProject("without-plugin", null);
+        MavenProject second = createProject("second", createPlugin(configuration("ERROR"),
+                execution("nullaway", "configure")));
+
+        List<NullAwayLifecycleParticipant.ConfigureExecution> executions =
+                NullAwayLifecycleParticipant.listConfigureExecutions(Arrays.asList(first, withoutPlugin, second));
+
+        List<String> names = new ArrayList<>();
+        for (NullAwayLifecycleParticipant.ConfigureExecution execution : executions) {
+            names.add(execution.toString());
+        }
+        assertEquals(Arrays.asList(
+                "com.example:first:jar:1.0 (nullaway)",
+                "com.example:first:jar:1.0 (nullaway-tests)",
+                "com.example:second:jar:1.0 (nullaway)"), names);
+        assertEquals("net.ltgt.maven:nullaway-maven-plugin:1.0.0:configure@nullaway-tests",
+                executions.get(1).getTask());
+    }
+
+    @Test
+    public void testGroupsEqualConfigurations() {
+        MavenProject a = createProject("a", createPlugin(configuration("ERROR"), execution("nullaway", "configure")));
+        MavenProject b = createProject("b", createPlugin(configuration("WARN"), execution("nullaway", "configure")));
+        MavenProject c = createProject("c", createPlugin(configuration("ERROR"), execution("nullaway", "configure")));
+
+        Map<String, List<NullAwayLifecycleParticipant.ConfigureExecution>> groups = group(a, b, c);
+
+        assertEquals(2, groups.size());
+        List<List<NullAwayLifecycleParticipant.ConfigureExecution>> values = new ArrayList<>(groups.values());
+        assertEquals(Arrays.asList(a, c), projects(values.get(0)));
+        assertEquals(Collections.singletonList(b), projects(values.get(1)));
+    }
+
+    @Test
+    public void testGroupsByNullAwayProperties() {
+        MavenProject a = createProject("a", createPlugin(configuration("ERROR"), execution("nullaway", "configure")));
+        MavenProject b = createProject("b", createPlugin(configuration("ERROR"), execution("nullaway", "configure")));
+        MavenProject c = createProject("c", createPlugin(configuration("ERROR"), execution("nullaway", "configure")));
+        // Parameters without a configured value default to the project properties
+        b.getProperties().setProperty("nullaway.checkContracts", "true");
+        c.getProperties().setProperty("maven.compiler.release", "17");
+
+        Map<String, List<NullAwayLifecycleParticipant.ConfigureExecution>> groups = group(a, b, c);
+
+        assertEquals(2, groups.size());
+        List<List<NullAwayLifecycleParticipant.ConfigureExecution>> values = new ArrayList<>(groups.values());
+        assertEquals(Arrays.asList(a, c), projects(values.get(0)));
+        assertEquals(Collections.singletonList(b), projects(values.get(1)));
+    }
+
+    @Test
+    public void testGroupsByExecutionAndVersion() {
+        MavenProject a = createProject("a", createPlugin(configuration("ERROR"), execution("nullaway", "configure")));
+        MavenProject b = createProject("b", createPlugin(configuration("ERROR"), execution("other", "configure")));
+        Plugin newer = createPlugin(configuration("ERROR"), execution("nullaway", "configure"));
+        newer.setVersion("1.1.0");
+        MavenProject c = createProject("c", newer);
+
+        assertEquals(3, group(a, b, c).size());
+    }
+
+    @Test
+    public void testRemoveConfigureGoalKeepsSharedPlugin() {
+        Plugin shared = createPlugin(configuration("ERROR"), execution("nullaway", "configure", "check"));
+        MavenProject configured = createProject("configured", shared);
+        MavenProject other = createProject("other", shared);
+
+        NullAwayLifecycleParticipant.removeConfigureGoal(configured, shared, Collections.singletonList("nullaway"));
+
+        Plugin copy = configured.getBuild().getPluginsAsMap().get(shared.getKey());
+        assertNotSame(shared, copy);
+        assertEquals(Collections.singletonList("check"), copy.getExecutions().get(0).getGoals());
+        assertSame(shared, other.getBuild().getPluginsAsMap().get(shared.getKey()));
+        assertEquals(Arrays.asList("configure", "check"), shared.getExecutions().get(0).getGoals());
+        assertTrue(NullAwayLifecycleParticipant.listConfigureExecutions(Collections.singletonList(configured)).isEmpty());
+    }
+
+    @Test
+    public void testForProjectCopiesParameters() throws Exception {
+        MavenProject a = createProject("a", null);
+        MavenProject b = createProject("b", null);
+        NullAwayMojo mojo = new NullAwayMojo();
+        ReflectionUtils.setVariableValueInObject(mojo, "project", a);
+        ReflectionUtils.setVariableValueInObject(mojo, "annotatedPackages", Collections.singletonList("com.example"));
+        ReflectionUtils.setVariableValueInObject(mojo, "resultCache", true);
+
+        NullAwayMojo copy = mojo.forProject(b);
+
+        assertNotSame(mojo, copy);
+        assertSame(b, copy.project);
+        assertSame(a, mojo.project);
+        assertEquals(Collections.singletonList("com.example"),
+                ReflectionUtils.getValueIncludingSuperclasses("annotatedPackages", copy));
+        assertFalse(copy.isConfigurableBeforeBuild());
+    }
+
+    // Helper methods
+
+    private static Map<String, List<NullAwayLifecycleParticipant.ConfigureExecution>> group(MavenProject... projects) {
+        return NullAwayLifecycleParticipant.groupByConfiguration(
+                NullAwayLifecycleParticipant.listConfigureExecutions(Arrays.asList(projects)));
+    }
+
+    private static List<MavenProject> projects(List<NullAwayLifecycleParticipant.ConfigureExecution> executions) {
+        List<MavenProject> projects = new ArrayList<>();
+        for (NullAwayLifecycleParticipant.ConfigureExecution execution : executions) {
+            projects.add(execution.getProject());
+        }
+        return projects;
+    }
+
+    private static Xpp3Dom configuration(String severity) {
+        Xpp3Dom configuration = new Xpp3Dom("configuration");
+        Xpp3Dom severityNode = new Xpp3Dom("severity");
+        severityNode.setValue(severity);
+        configuration.addChild(severityNode);
+        Xpp3Dom onlyNullMarked = new Xpp3Dom("onlyNullMarked");
+        onlyNullMarked.setValue("true");
+        configuration.addChild(onlyNullMarked);
+        return configuration;
+    }
+
+    private static PluginExecution execution(String id, String... goals) {
+        PluginExecution execution = new PluginExecution();
+        execution.setId(id);
+        execution.setGoals(new ArrayList<>(Arrays.asList(goals)));
+        return execution;
+    }
+
+    private static Plugin createPlugin(Xpp3Dom configuration, PluginExecution... executions) {
+        Plugin plugin = new Plugin();
+        plugin.setGroupId("net.ltgt.maven");
+        plugin.setArtifactId("nullaway-maven-plugin");
+        plugin.setVersion("1.0.0");
+        plugin.setConfiguration(configuration);
+        for (PluginExecution execution : executions) {
+            // Like the model builder, executions get their own copy of the plugin configuration
+            execution.setConfiguration(new Xpp3Dom(configuration));
+            plugin.addExecution(execution);
+        }
+        return plugin;
+    }
+
+    private static MavenProject createProject(String artifactId, Plugin plugin) {
+        Build build = new Build();
+        if (plugin != null) {
+            build.addPlugin(plugin);
+        }
+        Model model = new Model();
+        model.setGroupId("com.example");
+        model.setArtifactId(artifactId);
+        model.setVersion("1.0");
+        model.setBuild(build);
+        return new MavenProject(model);
+    }
+}
@@ -0,0 +1,98 @@
+package net.ltgt.maven.nullaway;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for NullAwayMojo.
+ */
+public class NullAwayMojoTest {
+    private static final List<String> ARGUMENTS = Arrays.asList(
+            "-Xep:NullAway:ERROR", "-XepOpt:NullAway:OnlyNullMarked=true");
+
+    @Test
+    public void testPublishesFingerprint() throws Exception {
+        MavenProject project = createProject("/work/checkout", "2.2.0");
+
+        String fingerprint = publishFingerprint(project, ARGUMENTS);
+
+        assertTrue(fingerprint, fingerprint.matches("[0-9a-f]{64}"));
+        assertEquals(fingerprint, project.getProperties().getProperty(NullAwayMojo.FINGERPRINT_PROPERTY));
+    }
+
+    @Test
+    public void testFingerprintIgnoresCheckoutLocation() throws Exception {
+        assertEquals(publishFingerprint(createProject("/work/checkout", "2.2.0"), ARGUMENTS),
+                publishFingerprint(createProject("/ci/agent-7/build/checkout", "2.2.0"), ARGUMENTS));
+    }
+
+    @Test
+    public void testFingerprintChangesWithArguments() throws Exception {
+        String fingerprint = publishFingerprint(createProject("/work/checkout", "2.2.0"), ARGUMENTS);
+
+        assertNotEquals(fingerprint, publishFingerprint(createProject("/work/checkout", "2.2.0"),
+                Arrays.asList("-Xep:NullAway:WARN", "-XepOpt:NullAway:OnlyNullMarked=true")));
+        assertNotEquals(fingerprint, publishFingerprint(createProject("/work/checkout", "2.2.0"),
+                Arrays.asList("-Xep:NullAway:ERROR", "-XepOpt:NullAway:OnlyNullMarked=true",
+                        "-XepOpt:NullAway:CheckContracts=true")));
+    }
+
+    @Test
+    public void testFingerprintChangesWithToolVersions() throws Exception {
+        assertNotEquals(publishFingerprint(createProject("/work/checkout", "2.2.0"), ARGUMENTS),
+                publishFingerprint(createProject("/work/checkout", "2.3.0"), ARGUMENTS));
+    }
+
+    // Helper methods
+
+    private static String publishFingerprint(MavenProject project, List<String> arguments) throws Exception {
+        NullAwayMojo mojo = new NullAwayMojo();
+        ReflectionUtils.setVariableValueInObject(mojo, "project", project);
+        mojo.publishFingerprint(arguments, new CompilerConfigInjector(project));
+        return project.getProperties().getProperty(NullAwayMojo.FINGERPRINT_PROPERTY);
+    }
+
+    private static MavenProject createProject(String basedir, String nullawayVersion) {
+        Xpp3Dom configuration = new Xpp3Dom("configuration");
+        Xpp3Dom paths = new Xpp3Dom("annotationProcessorPaths");
+        paths.addChild(path("com.google.errorprone", "error_prone_core", "2.36.0"));
+        paths.addChild(path("com.uber.nullaway", "nullaway", nullawayVersion));
+        configuration.addChild(paths);
+        Plugin compilerPlugin = new Plugin();
+        compilerPlugin.setGroupId("org.apache.maven.plugins");
+        compilerPlugin.setArtifactId("maven-compiler-plugin");
+        compilerPlugin.setConfiguration(configuration);
+
+        Build build = new Build();
+        build.addPlugin(compilerPlugin);
+        Model model = new Model();
+        model.setGroupId("com.example");
+        model.setArtifactId("app");
+        model.setVersion("1.0");
+        model.setBuild(build);
+        MavenProject project = new MavenProject(model);
+        project.setFile(new File(basedir, "pom.xml"));
+        return project;
+    }
+
+    private static Xpp3Dom path(String groupId, String artifactId, String version) {
+        Xpp3Dom path = new Xpp3Dom("path");
+        for (String[] child : new String[][] {{"groupId", groupId}, {"artifactId", artifactId}, {"version", version}}) {
+            Xpp3Dom node = new Xpp3Dom(child[0]);
+            node.setValue(child[1]);
+            path.addChild(node);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,146 @@
+package net.ltgt.maven.nullaway;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for NullMarkedScanner.
+ */
+public class NullMarkedScannerTest {
+    private static final List<String> JSPECIFY = Collections.singletonList("org.jspecify.annotations.NullMarked");
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File root;
+
+    @Before
+    public void setUp() throws Exception {
+        root = temp.newFolder("src");
+    }
+
+    @Test
+    public void testPackageInfoWithQualifiedName() throws Exception {
+        write("com/example/package-info.java", "@org.jspecify.annotations.NullMarked\npackage com.example;");
+        write("com/example/A.java", "package com.example;\nclass A {}");
+
+        assertEquals(Collections.singletonMap("com.example", true), scan());
+    }
+
+    @Test
+    public void testPackageInfoWithImportedName() throws Exception {
+        write("com/example/package-info.java",
+                "@NullMarked\npackage com.example;\n\nimport org.jspecify.annotations.NullMarked;");
+
+        assertEquals(Collections.singletonMap("com.example", true), scan());
+    }
+
+    @Test
+    public void testSimpleNameWithoutImportIsIgnored() throws Exception {
+        write("com/example/package-info.java", "@NullMarked\npackage com.example;");
+
+        assertEquals(Collections.singletonMap("com.example", false), scan());
+    }
+
+    @Test
+    public void testCommentedOutAnnotationIsIgnored() throws Exception {
+        write("com/example/package-info.java", "// @org.jspecify.annotations.NullMarked\npackage com.example;");
+
+        assertEquals(Collections.singletonMap("com.example", false), scan());
+    }
+
+    @Test
+    public void testAllClassesMarked() throws Exception {
+        write("com/example/A.java", "package com.example;\nimport org.jspecify.annotations.NullMarked;\n@NullMarked class A {}");
+        write("com/example/B.java", "package com.example;\n@org.jspecify.annotations.NullMarked public class B {}");
+        write("com/other/C.java", "package com.other;\n@org.jspecify.annotations.NullMarked class C {}");
+        write("com/other/D.java", "package com.other;\nclass D { @org.jspecify.annotations.NullMarked class Inner {} }");
+
+        Map<String, Boolean> expected = new TreeMap<>();
+        expected.put("com.example", true);
+        expected.put("com.other", false);
+        assertEquals(expected, scan());
+    }
+
+    @Test
+    public void testSelect() {
+        Map<String, Boolean> packages = new TreeMap<>();
+        packages.put("", true);
+        packages.put("com.example", true);
+        packages.put("com.example.api", true);
+        packages.put("com.example.legacy", false);
+        packages.put("com.example.legacy.fixed", true);
+        packages.put("com.example-tools", false);
+        packages.put("com.example2", true);
+        packages.put("com.unmarked", false);
+
+        NullMarkedScanner.PackageSelection selection = NullMarkedScanner.select(packages);
+
+        assertEquals(Arrays.asList("com.example", "com.example2"), selection.getAnnotatedPackages());
+        assertEquals(Collections.singletonList("com.example.legacy"), selection.getUnannotatedSubPackages());
+    }
+
+    @Test
+    public void testCacheReusesUnchangedDirectories() throws Exception {
+        File cacheFile = new File(temp.getRoot(), "scan.cache");
+        write("com/a/package-info.java", "@org.jspecify.annotations.NullMarked\npackage com.a;");
+        write("com/b/package-info.java", "package com.b;");
+
+        NullMarkedScanner first = new NullMarkedScanner(JSPECIFY, cacheFile);
+        first.scan(Collections.singletonList(root.getPath()));
+        assertEquals(2, first.getScannedDirectories());
+        assertEquals(0, first.getCachedDirectories());
+
+        write("com/b/B.java", "package com.b;\nclass B {}");
+        NullMarkedScanner second = new NullMarkedScanner(JSPECIFY, cacheFile);
+        Map<String, Boolean> packages = second.scan(Collections.singletonList(root.getPath()));
+        assertEquals(1, second.getScannedDirectories());
+        assertEquals(1, second.getCachedDirectories());
+        assertEquals(Boolean.TRUE, packages.get("com.a"));
+        assertEquals(Boolean.FALSE, packages.get("com.b"));
+    }
+
+    @Test
+    public void testCacheIsDiscardedWhenMarkersChange() throws Exception {
+        File cacheFile = new File(temp.getRoot(), "scan.cache");
+        write("com/a/package-info.java", "@com.example.Marked\npackage com.a;");
+
+        assertEquals(Boolean.FALSE, new NullMarkedScanner(JSPECIFY, cacheFile)
+                .scan(Collections.singletonList(root.getPath())).get("com.a"));
+        NullMarkedScanner custom = new NullMarkedScanner(Collections.singletonList("com.example.Marked"), cacheFile);
+        assertEquals(Boolean.TRUE, custom.scan(Collections.singletonList(root.getPath())).get("com.a"));
+        assertEquals(1, custom.getScannedDirectories());
+    }
+
+    @Test
+    public void testStripComments() {
+        assertEquals("a   b \"/* not a comment */\" c\n",
+                NullMarkedScanner.stripComments("a /* x */ b \"/* not a comment */\" c// y\n"));
+    }
+
+    // Helper methods
+
+    private Map<String, Boolean> scan() throws IOException {
+        return new NullMarkedScanner(JSPECIFY, null).scan(Collections.singletonList(root.getPath()));
+    }
+
+    private void write(String path, String content) throws IOException {
+        File file = new File(root, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,49 @@
+package net.ltgt.maven.nullaway;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for PluginEvents.
+ */
+public class PluginEventsTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testPhaseWithoutRecording() {
+        try (PluginEvents.Span ignored = PluginEvents.phase("com.example:demo", "validateConfiguration")) {
+            // Nothing is recorded, and closing the span must not fail
+        }
+    }
+
+    @Test
+    public void testPhaseRecorded() throws IOException {
+        File dump = new File(temp.getRoot(), "recording.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("net.ltgt.maven.nullaway.Phase");
+            recording.start();
+            try (PluginEvents.Span ignored = PluginEvents.phase("com.example:demo", "injectCompilerArgs")) {
+                assertNotNull(new byte[1024]);
+            }
+            recording.stop();
+            recording.dump(dump.toPath());
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump.toPath());
+        assertEquals(1, events.size());
+        assertEquals("com.example:demo", events.get(0).getString("module"));
+        assertEquals("injectCompilerArgs", events.get(0).getString("phase"));
+    }
+}
@@ -0,0 +1,107 @@
+package net.ltgt.maven.nullaway;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.resolution.DependencyRequest;
+import org.eclipse.aether.resolution.DependencyResult;
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ProcessorPathResolver.
+ */
+public class ProcessorPathResolverTest {
+    private static final List<String> COORDINATES = Arrays.asList(
+            "com.google.errorprone:error_prone_core:2.45.0", "com.uber.nullaway:nullaway:0.12.14");
+
+    private final AtomicInteger resolutions = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Test
+    public void testResolvesOncePerSession() throws Exception {
+        DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+        release.countDown();
+
+        List<File> first = resolver(session).resolve(COORDINATES);
+        List<File> second = resolver(session).resolve(COORDINATES);
+        resolver(new DefaultRepositorySystemSession()).resolve(COORDINATES);
+
+        assertEquals(Arrays.asList(new File("error_prone_core-2.45.0.jar"), new File("nullaway-0.12.14.jar")), first);
+        assertSame(first, second);
+        assertEquals("Once per session", 2, resolutions.get());
+    }
+
+    @Test
+    public void testConcurrentModulesWaitForResolution() throws Exception {
+        DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<File>>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit((Callable<List<File>>) () -> resolver(session).resolve(COORDINATES)));
+            }
+            Thread.sleep(50);
+            release.countDown();
+            for (Future<List<File>> result : results) {
+                assertEquals(2, result.get().size());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, resolutions.get());
+    }
+
+    @Test
+    public void testFailuresAreNotCached() throws Exception {
+        DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+        release.countDown();
+        try {
+            resolver(session).resolve(Collections.singletonList("not-coordinates"));
+            fail("Expected MojoExecutionException");
+        } catch (MojoExecutionException e) {
+            assertTrue(e.getMessage().contains("not-coordinates"));
+        }
+        resolver(session).resolve(COORDINATES);
+        assertEquals(1, resolutions.get());
+    }
+
+    // Helper methods
+
+    private ProcessorPathResolver resolver(DefaultRepositorySystemSession session) {
+        RepositorySystem repositorySystem = (RepositorySystem) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{RepositorySystem.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("resolveDependencies")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    resolutions.incrementAndGet();
+                    release.await();
+                    DependencyRequest request = (DependencyRequest) args[1];
+                    List<ArtifactResult> artifactResults = new ArrayList<>();
+                    for (org.eclipse.aether.graph.Dependency dependency : request.getCollectRequest().getDependencies()) {
+                        Artifact artifact = dependency.getArtifact();
+                        artifact = artifact.setFile(new File(artifact.getArtifactId() + "-" + artifact.getVersion() + ".jar"));
+                        artifactResults.add(new ArtifactResult(new ArtifactRequest()).setArtifact(artifact));
+                    }
+                    return new DependencyResult(request).setArtifactResults(artifactResults);
+                });
+        return new ProcessorPathResolver(repositorySystem, session, Collections.emptyList());
+    }
+}
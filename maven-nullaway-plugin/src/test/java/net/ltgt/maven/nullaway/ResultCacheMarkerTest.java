@@ -0,0 +1,104 @@
+package net.ltgt.maven.nullaway;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeNotNull;
+
+/**
+ * Unit tests for ResultCacheMarker, run as a plugin of the system Java compiler.
+ */
+public class ResultCacheMarkerTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testMarkerWrittenOnSuccess() throws IOException {
+        File marker = new File(temp.getRoot(), "nullaway/result-cache-compile.marker");
+        File source = write("src/Foo.java", "class Foo {}");
+
+        assertEquals(0, compile(source, ResultCacheMarker.compilerArg(marker, "abc")));
+        assertEquals("abc", ResultCacheMarker.read(marker));
+    }
+
+    @Test
+    public void testMarkerRemovedOnFailure() throws IOException {
+        File marker = new File(temp.getRoot(), "nullaway/result-cache-compile.marker");
+        File source = write("src/Foo.java", "class Foo {}");
+        assertEquals(0, compile(source, ResultCacheMarker.compilerArg(marker, "abc")));
+
+        write("src/Foo.java", "class Foo { String s = 1; }");
+        assertNotEquals(0, compile(source, ResultCacheMarker.compilerArg(marker, "abc")));
+        assertNull("A failed compilation should leave no marker", ResultCacheMarker.read(marker));
+    }
+
+    @Test
+    public void testLaterCompilationWithoutNullAwayIsNoCacheHit() throws IOException {
+        File sources = new File(temp.getRoot(), "src");
+        File source = write("src/Foo.java", "class Foo {}");
+        ResultCache cache = new ResultCache(new File(temp.getRoot(), "nullaway"));
+        List<ResultCache.CompilationOutput> outputs = Collections.singletonList(
+                new ResultCache.CompilationOutput(cache.getMarkerFile("compile"),
+                        Collections.singletonList(sources.getPath())));
+
+        // The configure goal clears the record on a miss and writes the current fingerprint,
+        // but the compilation then runs without NullAway, e.g. with severity=OFF
+        cache.clear();
+        cache.write("abc", Collections.<String>emptyList());
+        assertEquals(0, compile(source, null));
+
+        assertFalse("A compilation without the marker plugin should not confirm the record",
+                ResultCache.isConfirmed("abc", outputs));
+
+        assertEquals(0, compile(source, ResultCacheMarker.compilerArg(cache.getMarkerFile("compile"), "abc")));
+        assertTrue(ResultCache.isConfirmed("abc", outputs));
+    }
+
+    // Helper methods
+
+    /**
+     * Compiles a source file in process, with this plugin's classes on the processor path.
+     *
+     * @param source    the source file
+     * @param pluginArg the {@code -Xplugin} argument, or null to compile without the marker plugin
+     * @return the compiler exit code
+     */
+    private int compile(File source, String pluginArg) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assumeNotNull(compiler);
+        File classes = new File(temp.getRoot(), "classes");
+        Files.createDirectories(classes.toPath());
+        File pluginClasses = new File(ResultCacheMarker.class.getProtectionDomain().getCodeSource().getLocation().getPath());
+        List<String> args = new ArrayList<>(Arrays.asList(
+                "-d", classes.getPath(),
+                "-processorpath", pluginClasses.getPath(),
+                "-proc:none"));
+        if (pluginArg != null) {
+            args.add(pluginArg);
+        }
+        args.add(source.getPath());
+        return compiler.run(null, null, new ByteArrayOutputStream(), args.toArray(new String[0]));
+    }
+
+    private File write(String path, String content) throws IOException {
+        File file = new File(temp.getRoot(), path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,161 @@
+package net.ltgt.maven.nullaway;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ResultCache and AnalysisFingerprint.
+ */
+public class ResultCacheTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testReadMissingRecord() throws IOException {
+        ResultCache cache = new ResultCache(temp.newFolder());
+        assertNull("Should not have a record", cache.read());
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        ResultCache cache = new ResultCache(temp.newFolder());
+        cache.write("abc", Arrays.asList("Foo.java:1: warning", "Bar.java:2: warning"));
+
+        ResultCache.Record record = cache.read();
+        assertNotNull("Should have a record", record);
+        assertEquals("abc", record.getFingerprint());
+        assertEquals(Arrays.asList("Foo.java:1: warning", "Bar.java:2: warning"), record.getDiagnostics());
+    }
+
+    @Test
+    public void testClear() throws IOException {
+        ResultCache cache = new ResultCache(temp.newFolder());
+        cache.write("abc", Collections.<String>emptyList());
+        cache.clear();
+        assertNull("Should not have a record after clear", cache.read());
+    }
+
+    @Test
+    public void testClearRemovesMarkers() throws IOException {
+        File directory = temp.newFolder();
+        ResultCache cache = new ResultCache(directory);
+        cache.write("abc", Collections.<String>emptyList());
+        write(cache.getMarkerFile("compile"), "abc");
+        write(cache.getMarkerFile("testCompile"), "abc");
+        write(new File(directory, "other.marker"), "abc");
+
+        cache.clear();
+        assertFalse(cache.getMarkerFile("compile").exists());
+        assertFalse(cache.getMarkerFile("testCompile").exists());
+        assertTrue("Should only remove its own markers", new File(directory, "other.marker").exists());
+    }
+
+    @Test
+    public void testConfirmedOnlyByMarkerWithSameFingerprint() throws IOException {
+        File sources = temp.newFolder("src");
+        write(new File(sources, "Foo.java"), "class Foo {}");
+        ResultCache cache = new ResultCache(temp.newFolder());
+        List<ResultCache.CompilationOutput> outputs = Collections.singletonList(
+                new ResultCache.CompilationOutput(cache.getMarkerFile("compile"),
+                        Collections.singletonList(sources.getPath())));
+
+        assertFalse("Should not be confirmed before compilation", ResultCache.isConfirmed("abc", outputs));
+
+        write(cache.getMarkerFile("compile"), "def");
+        assertFalse("Should not be confirmed by other inputs", ResultCache.isConfirmed("abc", outputs));
+
+        write(cache.getMarkerFile("compile"), "abc");
+        assertTrue("Should be confirmed after compilation", ResultCache.isConfirmed("abc", outputs));
+    }
+
+    @Test
+    public void testNotConfirmedByClassFiles() throws IOException {
+        File sources = temp.newFolder("src");
+        write(new File(sources, "Foo.java"), "class Foo {}");
+        File classes = temp.newFolder("classes");
+        ResultCache cache = new ResultCache(temp.newFolder());
+        cache.write("abc", Collections.<String>emptyList());
+        // e.g. compiled by an IDE, or by a build with NullAway disabled, after the record was written
+        File classFile = new File(classes, "Foo.class");
+        write(classFile, "");
+        assertTrue(classFile.setLastModified(cache.read().getTimestamp() + 10_000));
+
+        assertFalse("Class files are no evidence that NullAway passed", ResultCache.isConfirmed("abc",
+                Collections.singletonList(new ResultCache.CompilationOutput(cache.getMarkerFile("compile"),
+                        Collections.singletonList(sources.getPath())))));
+    }
+
+    @Test
+    public void testConfirmedWithoutSources() throws IOException {
+        ResultCache cache = new ResultCache(temp.newFolder());
+        List<ResultCache.CompilationOutput> outputs = Collections.singletonList(
+                new ResultCache.CompilationOutput(cache.getMarkerFile("compile"),
+                        Collections.singletonList(new File(temp.getRoot(), "missing").getPath())));
+        assertTrue("Should be confirmed when nothing is compiled", ResultCache.isConfirmed("abc", outputs));
+    }
+
+    @Test
+    public void testFingerprintStable() throws IOException {
+        File sources = temp.newFolder("src");
+        write(new File(sources, "Foo.java"), "class Foo {}");
+
+        String first = fingerprint(sources, "-Xep:NullAway:ERROR");
+        String second = fingerprint(sources, "-Xep:NullAway:ERROR");
+        assertEquals("Same inputs should give the same fingerprint", first, second);
+    }
+
+    @Test
+    public void testFingerprintChangesWithSources() throws IOException {
+        File sources = temp.newFolder("src");
+        File source = new File(sources, "Foo.java");
+        write(source, "class Foo {}");
+        String before = fingerprint(sources, "-Xep:NullAway:ERROR");
+
+        write(source, "class Foo { Object o; }");
+        assertNotEquals("Changed sources should change the fingerprint", before, fingerprint(sources, "-Xep:NullAway:ERROR"));
+    }
+
+    @Test
+    public void testFingerprintChangesWithArguments() throws IOException {
+        File sources = temp.newFolder("src");
+        write(new File(sources, "Foo.java"), "class Foo {}");
+        assertNotEquals("Changed arguments should change the fingerprint",
+                fingerprint(sources, "-Xep:NullAway:ERROR"), fingerprint(sources, "-Xep:NullAway:WARN"));
+    }
+
+    @Test
+    public void testFingerprintIgnoresToolOrder() {
+        String first = new AnalysisFingerprint()
+                .addToolVersions(Arrays.asList("com.uber.nullaway:nullaway:0.12.14", "com.google.errorprone:error_prone_core:2.45.0"))
+                .compute();
+        String second = new AnalysisFingerprint()
+                .addToolVersions(Arrays.asList("com.google.errorprone:error_prone_core:2.45.0", "com.uber.nullaway:nullaway:0.12.14"))
+                .compute();
+        assertEquals("Tool order should not matter", first, second);
+    }
+
+    // Helper methods
+
+    private String fingerprint(File sources, String argument) throws IOException {
+        return new AnalysisFingerprint()
+                .addArguments(Collections.singletonList(argument))
+                .addSourceRoots(Collections.singletonList(sources.getPath()))
+                .compute();
+    }
+
+    private void write(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
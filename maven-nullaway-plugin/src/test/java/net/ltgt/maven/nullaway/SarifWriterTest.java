@@ -0,0 +1,100 @@
+package net.ltgt.maven.nullaway;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SarifWriter.
+ */
+public class SarifWriterTest {
+    private static final String PREFIX =
+            "{\"$schema\":\"https://json.schemastore.org/sarif-2.1.0.json\",\"version\":\"2.1.0\",\"runs\":[";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testWritesResults() throws IOException {
+        File file = new File(temp.getRoot(), "nullaway/nullaway.sarif");
+        File basedir = temp.newFolder("module");
+        File source = new File(basedir, "src/main/java/My Class.java");
+        File outside = new File(temp.getRoot(), "generated/B.java");
+        try (SarifWriter writer = new SarifWriter(file, "com.example:a", basedir, Arrays.asList("-Xep:NullAway:ERROR"))) {
+            writer.write(new Finding(Finding.Kind.ERROR, source.getPath(), 3, 5,
+                    "[NullAway] returning @Nullable \"x\"\n    (see http://t.uber.com/nullaway )"), "new");
+            writer.write(new Finding(Finding.Kind.ERROR, outside.getPath(), 1, 0, "[NullAway] message"), "unchanged");
+            writer.write(new Finding(Finding.Kind.WARNING, "", 0, 0, "No processor claimed any of these annotations"), null);
+        }
+
+        String sarif = read(file);
+        assertTrue(sarif.startsWith(PREFIX));
+        assertTrue(sarif.endsWith("]}]}\n"));
+        assertTrue(sarif.contains("\"defaultConfiguration\":{\"level\":\"error\"}"));
+        assertTrue(sarif.contains("\"properties\":{\"arguments\":[\"-Xep:NullAway:ERROR\"]}"));
+        assertTrue(sarif.contains("\"automationDetails\":{\"id\":\"com.example:a/\"}"));
+        assertTrue(sarif.contains("\"originalUriBaseIds\":{\"%SRCROOT%\":{\"uri\":\"" + basedir.toPath().toUri() + "\"}}"));
+        assertTrue(sarif.contains("{\"ruleId\":\"NullAway\",\"level\":\"error\","
+                + "\"message\":{\"text\":\"returning @Nullable \\\"x\\\"\\n    (see http://t.uber.com/nullaway )\"},"
+                + "\"locations\":[{\"physicalLocation\":{\"artifactLocation\":"
+                + "{\"uri\":\"src/main/java/My%20Class.java\",\"uriBaseId\":\"%SRCROOT%\"},"
+                + "\"region\":{\"startLine\":3,\"startColumn\":5}}}],\"baselineState\":\"new\"}"));
+        // Files outside of the module keep their absolute URI
+        assertTrue(sarif.contains("\"artifactLocation\":{\"uri\":\"" + outside.toPath().toUri() + "\"},"
+                + "\"region\":{\"startLine\":1}}}],\"baselineState\":\"unchanged\"}"));
+        assertTrue(sarif.contains(",{\"ruleId\":\"compiler\",\"level\":\"warning\","
+                + "\"message\":{\"text\":\"No processor claimed any of these annotations\"}}]}"));
+        assertFalse("No temporary file is left behind", new File(file.getParentFile(), "nullaway.sarif.tmp").exists());
+        assertEquals(1, file.getParentFile().list().length);
+    }
+
+    @Test
+    public void testAggregate() throws IOException {
+        File a = new File(temp.getRoot(), "a.sarif");
+        File b = new File(temp.getRoot(), "b.sarif");
+        new SarifWriter(a, "a", temp.getRoot(), Collections.<String>emptyList()).close();
+        try (SarifWriter writer = new SarifWriter(b, "b", temp.getRoot(), Collections.<String>emptyList())) {
+            writer.write(new Finding(Finding.Kind.WARNING, "", 0, 0, "[NullAway] message"), null);
+        }
+        File combined = new File(temp.getRoot(), "report/combined.sarif");
+
+        SarifWriter.aggregate(Arrays.asList(a, b), combined);
+
+        String runA = run(read(a));
+        String runB = run(read(b));
+        assertEquals(PREFIX + runA + "," + runB + "]}\n", read(combined));
+    }
+
+    @Test
+    public void testAggregateNothing() throws IOException {
+        File combined = new File(temp.getRoot(), "combined.sarif");
+        SarifWriter.aggregate(Collections.<File>emptyList(), combined);
+        assertEquals(PREFIX + "]}\n", read(combined));
+    }
+
+    @Test(expected = IOException.class)
+    public void testAggregateRejectsOtherLogs() throws IOException {
+        File other = temp.newFile("other.sarif");
+        Files.write(other.toPath(), "{\"version\":\"2.1.0\",\"runs\":[]}\n".getBytes(StandardCharsets.UTF_8));
+        SarifWriter.aggregate(Collections.singletonList(other), new File(temp.getRoot(), "combined.sarif"));
+    }
+
+    // Helper methods
+
+    private String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private String run(String sarif) {
+        return sarif.substring(PREFIX.length(), sarif.length() - "]}\n".length());
+    }
+}
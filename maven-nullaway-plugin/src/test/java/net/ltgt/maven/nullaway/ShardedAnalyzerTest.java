@@ -0,0 +1,63 @@
+package net.ltgt.maven.nullaway;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ShardedAnalyzer.
+ */
+public class ShardedAnalyzerTest {
+
+    @Test
+    public void testPartitionKeepsPackagesTogether() {
+        List<File> files = Arrays.asList(
+                file("a/A1.java"), file("a/A2.java"), file("a/A3.java"),
+                file("b/B1.java"), file("b/B2.java"),
+                file("c/C1.java"));
+        List<List<File>> partitions = ShardedAnalyzer.partition(files, 2);
+
+        assertEquals(2, partitions.size());
+        assertEquals(Arrays.asList(file("a/A1.java"), file("a/A2.java"), file("a/A3.java")), partitions.get(0));
+        assertEquals(Arrays.asList(file("b/B1.java"), file("b/B2.java"), file("c/C1.java")), partitions.get(1));
+    }
+
+    @Test
+    public void testPartitionIsDeterministic() {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            files.add(file("p" + (i % 7) + "/F" + i + ".java"));
+        }
+        List<File> shuffled = new ArrayList<>(files);
+        Collections.reverse(shuffled);
+        assertEquals(ShardedAnalyzer.partition(files, 4), ShardedAnalyzer.partition(shuffled, 4));
+    }
+
+    @Test
+    public void testPartitionNeverExceedsPackages() {
+        List<File> files = Arrays.asList(file("a/A1.java"), file("a/A2.java"));
+        assertEquals(1, ShardedAnalyzer.partition(files, 8).size());
+    }
+
+    @Test
+    public void testMergeSortsAndDeduplicates() {
+        Finding global = new Finding(Finding.Kind.ERROR, "", -1, -1, "plug-in not found");
+        Finding a = new Finding(Finding.Kind.ERROR, "A.java", 1, 1, "m");
+        Finding b = new Finding(Finding.Kind.WARNING, "B.java", 1, 1, "m");
+        List<Finding> merged = ShardedAnalyzer.merge(Arrays.asList(
+                Arrays.asList(global, b), Arrays.asList(global, a)));
+        assertEquals(Arrays.asList(global, a, b), merged);
+    }
+
+    // Helper methods
+
+    private File file(String path) {
+        return new File("/src", path);
+    }
+}
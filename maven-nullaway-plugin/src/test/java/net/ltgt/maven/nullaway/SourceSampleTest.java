@@ -0,0 +1,139 @@
+package net.ltgt.maven.nullaway;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SourceSample.
+ */
+public class SourceSampleTest {
+    private static final int FACTOR = 4;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testRotationsCoverAllFiles() throws IOException {
+        File basedir = temp.getRoot();
+        List<File> files = createSources(basedir, 200);
+
+        for (int cycle = 0; cycle < 3; cycle++) {
+            Set<File> covered = new HashSet<>();
+            int sampled = 0;
+            for (int rotation = cycle * FACTOR; rotation < (cycle + 1) * FACTOR; rotation++) {
+                SourceSample.Selection selection = new SourceSample(basedir, FACTOR, rotation).select(files, Long.MAX_VALUE);
+                assertEquals(files.size(), selection.getSampled().size() + selection.getSkipped().size());
+                assertEquals(0, selection.getRecentlyModified());
+                covered.addAll(selection.getSampled());
+                sampled += selection.getSampled().size();
+            }
+            assertEquals("cycle " + cycle, new HashSet<>(files), covered);
+            assertEquals("Each file is in a single bucket per cycle", files.size(), sampled);
+        }
+    }
+
+    @Test
+    public void testSelectionIsDeterministic() throws IOException {
+        File first = temp.newFolder("first");
+        File second = temp.newFolder("second");
+        List<File> firstFiles = createSources(first, 50);
+        List<File> secondFiles = createSources(second, 50);
+
+        List<String> firstSampled = relativize(first,
+                new SourceSample(first, FACTOR, 5).select(firstFiles, Long.MAX_VALUE).getSampled());
+        List<String> secondSampled = relativize(second,
+                new SourceSample(second, FACTOR, 5).select(secondFiles, Long.MAX_VALUE).getSampled());
+
+        assertFalse(firstSampled.isEmpty());
+        assertEquals("Same rotation selects the same files wherever the module is", firstSampled, secondSampled);
+    }
+
+    @Test
+    public void testRecentlyModifiedFilesAreSampled() throws IOException {
+        File basedir = temp.getRoot();
+        List<File> files = createSources(basedir, 50);
+        SourceSample sample = new SourceSample(basedir, FACTOR, 0);
+        File modified = null;
+        for (File file : files) {
+            if (!sample.isSampled(file)) {
+                modified = file;
+            }
+            assertTrue(file.setLastModified(1_000_000L));
+        }
+        assertNotNull(modified);
+        assertTrue(modified.setLastModified(3_000_000L));
+
+        SourceSample.Selection selection = sample.select(files, 2_000_000L);
+        assertTrue(selection.getSampled().contains(modified));
+        assertFalse(selection.getSkipped().contains(modified));
+        assertEquals(1, selection.getRecentlyModified());
+    }
+
+    @Test
+    public void testAdvance() throws IOException {
+        File state = new File(temp.getRoot(), "nullaway/sample.properties");
+
+        SourceSample.Rotation first = SourceSample.advance(state, 1000);
+        assertEquals(0, first.getRotation());
+        assertEquals(1000, first.getModifiedSince());
+
+        SourceSample.Rotation sameSession = SourceSample.advance(state, 1000);
+        assertEquals("Goals of the same session share the rotation", 0, sameSession.getRotation());
+
+        SourceSample.Rotation second = SourceSample.advance(state, 2000);
+        assertEquals(1, second.getRotation());
+        assertEquals("Files modified since the previous session are recent", 1000, second.getModifiedSince());
+
+        assertEquals(1, SourceSample.advance(state, 2000).getRotation());
+        assertEquals(1000, SourceSample.advance(state, 2000).getModifiedSince());
+        assertEquals(2, SourceSample.advance(state, 3000).getRotation());
+    }
+
+    @Test
+    public void testListSourceFiles() throws IOException {
+        File basedir = temp.getRoot();
+        List<File> files = createSources(basedir, 3);
+        Files.write(new File(basedir, "src/main/java/com/example/README.txt").toPath(),
+                "not java".getBytes(StandardCharsets.UTF_8));
+
+        List<File> listed = SourceSample.listSourceFiles(Arrays.asList(
+                new File(basedir, "src/main/java"), new File(basedir, "src/missing")));
+        assertEquals(new HashSet<>(files), new HashSet<>(listed));
+    }
+
+    // Helper methods
+
+    private List<File> createSources(File basedir, int count) throws IOException {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            File file = new File(basedir, "src/main/java/com/example/p" + i % 7 + "/C" + i + ".java");
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.write(file.toPath(), ("class C" + i + " {}").getBytes(StandardCharsets.UTF_8));
+            files.add(file);
+        }
+        return files;
+    }
+
+    private List<String> relativize(File basedir, List<File> files) {
+        List<String> paths = new ArrayList<>();
+        for (File file : files) {
+            paths.add(basedir.toPath().relativize(file.toPath()).toString());
+        }
+        Collections.sort(paths);
+        return paths;
+    }
+}
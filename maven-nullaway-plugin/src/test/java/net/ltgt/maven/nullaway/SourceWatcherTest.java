@@ -0,0 +1,79 @@
+package net.ltgt.maven.nullaway;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SourceWatcher.
+ */
+public class SourceWatcherTest {
+    private static final long DEBOUNCE_MILLIS = 200;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testCollectsBurstOfChanges() throws Exception {
+        File root = temp.newFolder("src");
+        File a = write(root, "com/example/A.java", "class A {}");
+        write(root, "com/example/B.java", "class B {}");
+
+        try (SourceWatcher watcher = new SourceWatcher(Collections.singletonList(root))) {
+            Future<Set<File>> changes = awaitChanges(watcher);
+            write(root, "com/example/A.java", "class A { int i; }");
+            File c = write(root, "com/example/C.java", "class C {}");
+            write(root, "com/example/notes.txt", "not java");
+
+            assertEquals(new HashSet<>(Arrays.asList(a, c)), changes.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testWatchesNewDirectories() throws Exception {
+        File root = temp.newFolder("src");
+
+        try (SourceWatcher watcher = new SourceWatcher(Collections.singletonList(root))) {
+            Future<Set<File>> changes = awaitChanges(watcher);
+            File d = write(root, "com/example/sub/D.java", "class D {}");
+            assertEquals(Collections.singleton(d), changes.get(10, TimeUnit.SECONDS));
+
+            changes = awaitChanges(watcher);
+            write(root, "com/example/sub/D.java", "class D { int i; }");
+            assertEquals(Collections.singleton(d), changes.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    // Helper methods
+
+    private Future<Set<File>> awaitChanges(SourceWatcher watcher) {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            return executor.submit(() -> watcher.awaitChanges(DEBOUNCE_MILLIS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private File write(File root, String path, String content) throws IOException {
+        File file = new File(root, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
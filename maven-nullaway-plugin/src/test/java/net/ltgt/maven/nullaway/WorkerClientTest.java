@@ -0,0 +1,65 @@
+package net.ltgt.maven.nullaway;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Unit tests for WorkerClient.
+ */
+public class WorkerClientTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Before
+    public void requirePosix() {
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+    }
+
+    @Test
+    public void testCreatesPrivateDirectory() throws IOException {
+        File directory = new File(temp.getRoot(), "workers");
+        WorkerClient.createPrivateDirectory(directory);
+        assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(directory.toPath())));
+
+        // Reusing it is fine
+        WorkerClient.createPrivateDirectory(directory);
+    }
+
+    @Test
+    public void testRefusesSharedDirectory() throws IOException {
+        File directory = temp.newFolder("workers");
+        Files.setPosixFilePermissions(directory.toPath(), PosixFilePermissions.fromString("rwxrwxrwx"));
+        try {
+            WorkerClient.createPrivateDirectory(directory);
+            fail("Should refuse a directory other users can write to");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("rwxrwxrwx"));
+        }
+    }
+
+    @Test
+    public void testRefusesSymbolicLink() throws IOException {
+        File target = temp.newFolder("elsewhere");
+        Files.setPosixFilePermissions(target.toPath(), PosixFilePermissions.fromString("rwx------"));
+        File link = new File(temp.getRoot(), "workers");
+        Files.createSymbolicLink(link.toPath(), target.toPath());
+        try {
+            WorkerClient.createPrivateDirectory(link);
+            fail("Should refuse a symbolic link");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("not a directory"));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package net.ltgt.maven.nullaway;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for WorkerProtocol.
+ */
+public class WorkerProtocolTest {
+
+    @Test
+    public void testRequestRoundTrip() throws IOException {
+        AnalysisRequest request = new AnalysisRequest()
+                .setErrorProneArgs(Arrays.asList("-Xep:NullAway:ERROR", "-XepOpt:NullAway:AnnotatedPackages=com.example"))
+                .setCompilerOptions(Arrays.asList("--release", "17"))
+                .setSourceFiles(Collections.singletonList(new File("/src/Foo.java")))
+                .setClasspath(Arrays.asList(new File("/a.jar"), new File("/b.jar")))
+                .setProcessorPath(Collections.singletonList(new File("/nullaway.jar")))
+                .setOutputDirectory(new File("/out"))
+                .setGenerateClasses(true);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        WorkerProtocol.writeRequest(new DataOutputStream(bytes), "secret", request);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertEquals("secret", WorkerProtocol.readToken(in));
+        AnalysisRequest read = WorkerProtocol.readRequest(in);
+        assertEquals(request.getErrorProneArgs(), read.getErrorProneArgs());
+        assertEquals(request.getCompilerOptions(), read.getCompilerOptions());
+        assertEquals(request.getSourceFiles(), read.getSourceFiles());
+        assertEquals(request.getClasspath(), read.getClasspath());
+        assertEquals(Collections.<File>emptyList(), read.getSourcepath());
+        assertEquals(request.getProcessorPath(), read.getProcessorPath());
+        assertEquals(request.getOutputDirectory(), read.getOutputDirectory());
+        assertTrue(read.isGenerateClasses());
+    }
+
+    @Test
+    public void testFindingsRoundTrip() throws IOException {
+        List<Finding> findings = Arrays.asList(
+                new Finding(Finding.Kind.ERROR, "/src/Foo.java", 3, 7, "[NullAway] message\n  (see link)"),
+                new Finding(Finding.Kind.WARNING, "", -1, -1, "warning"));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        WorkerProtocol.writeFindings(new DataOutputStream(bytes), findings);
+        assertEquals(findings, WorkerProtocol.readResponse(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+    }
+
+    @Test
+    public void testErrorResponse() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        WorkerProtocol.writeError(new DataOutputStream(bytes), "Invalid token");
+        try {
+            WorkerProtocol.readResponse(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            fail("Should fail on an error response");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("Invalid token"));
+        }
+    }
+
+    @Test
+    public void testRejectsOversizedToken() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0x4E554C4C);
+        out.writeInt(Integer.MAX_VALUE);
+        try {
+            WorkerProtocol.readToken(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            fail("Should reject a token longer than " + WorkerProtocol.MAX_TOKEN_LENGTH + " bytes");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Invalid string length"));
+        }
+    }
+
+    @Test
+    public void testRejectsOversizedList() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(WorkerProtocol.MAX_LIST_SIZE + 1);
+        try {
+            WorkerProtocol.readRequest(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            fail("Should reject a list of more than " + WorkerProtocol.MAX_LIST_SIZE + " elements");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Invalid list size"));
+        }
+    }
+
+    @Test
+    public void testTokenIsReadBeforeRequest() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0x4E554C4C);
+        out.writeInt(5);
+        out.write(new byte[]{'w', 'r', 'o', 'n', 'g'});
+        // A request body that would fail to be read
+        out.writeInt(-1);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertEquals("wrong", WorkerProtocol.readToken(in));
+        assertEquals(4, in.available());
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsUnknownRequest() throws IOException {
+        WorkerProtocol.readToken(new DataInputStream(new ByteArrayInputStream(new byte[]{'G', 'E', 'T', ' '})));
+    }
+}